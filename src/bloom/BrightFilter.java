@@ -1,9 +1,10 @@
 package bloom;
 
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
 
+import postProcessing.Fbo;
 import postProcessing.ImageRenderer;
+import renderEngine.RenderState;
 
 /**
  * A post-processing filter responsible for extracting bright parts of an image.
@@ -22,44 +23,32 @@ public class BrightFilter
     private BrightFilterShader shader;
 
     /**
-     * Creates a new FBO with the given dimensions.
-     * @param width width of FBO
-     * @param height height of FBO
+     * Creates a bright filter stage.
      */
-    public BrightFilter(int width, int height)
+    public BrightFilter()
     {
         shader = new BrightFilterShader();
-        renderer = new ImageRenderer(width, height);
+        renderer = new ImageRenderer();
     }
 
     /**
-     * Renders a textured quad.
+     * Renders the bright parts of a texture to an FBO.
      * @param texture texture ID
+     * @param target FBO the bright parts are rendered to
      */
-    public void render(int texture)
+    public void render(int texture, Fbo target)
     {
         shader.start();
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
-        renderer.renderQuad();
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, texture);
+        renderer.renderQuad(target);
         shader.stop();
     }
 
     /**
-     * Returns the output texture of the ImageRenderer's FBO.
-     * @return output texture
-     */
-    public int getOutputTexture()
-    {
-        return renderer.getOutputTexture();
-    }
-
-    /**
-     * Cleans up resources in the renderer and shader.
+     * Cleans up resources in the shader.
      */
     public void cleanUp()
     {
-        renderer.cleanUp();
         shader.cleanUp();
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package bloom;
+
+import postProcessing.FusedShader;
+import postProcessing.PixelOperation;
+
+/**
+ * Combines an image with its blurred highlight texture, giving the bright parts of
+ * the image a glow.
+ * @author Aaron Frazer
+ */
+public class CombineOperation extends PixelOperation
+{
+    /**
+     * Sampler names of the operation
+     */
+    private static final String[] SAMPLERS = {"highlightTexture"};
+
+    /**
+     * ID of the blurred highlight texture
+     */
+    private int highlightTexture;
+
+    /**
+     * Creates a combine operation.
+     */
+    public CombineOperation()
+    {
+        super("bloom combine");
+    }
+
+    /**
+     * Sets the highlight texture that is added to the image.
+     * @param highlightTexture texture ID of the blurred highlights
+     */
+    public void setHighlightTexture(int highlightTexture)
+    {
+        this.highlightTexture = highlightTexture;
+    }
+
+    @Override
+    protected String[] getSamplers()
+    {
+        return SAMPLERS;
+    }
+
+    @Override
+    protected String getCode()
+    {
+        return "colour += texture(highlightTexture, textureCoords);\n";
+    }
+
+    @Override
+    protected void prepare(FusedShader shader)
+    {
+        shader.bindTexture("highlightTexture", highlightTexture);
+    }
+}
@@ -0,0 +1,157 @@
+package bloom;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.util.vector.Vector2f;
+
+import postProcessing.Fbo;
+import postProcessing.FboPool;
+import postProcessing.ImageRenderer;
+import postProcessing.PassTimer;
+import renderEngine.RenderState;
+
+/**
+ * Blurs the highlights of an image for the bloom effect by progressively downsampling
+ * them into a chain of smaller and smaller targets, then upsampling them back up
+ * (the dual filter, or dual Kawase blur).  Each level halves the resolution, so every
+ * extra level doubles the width of the glow while only costing a quarter of the
+ * texture fetches of the level above it.
+ *
+ * The targets of the chain are acquired from the FBO pool.  A downsampled level is
+ * released as soon as the next level has been made from it, so the upsampling passes
+ * reuse the same targets.
+ *
+ * @author Aaron Frazer
+ */
+public class DualFilterBloom
+{
+    /**
+     * Maximum number of levels in the mip chain
+     */
+    public static final int MAX_LEVELS = 8;
+
+    /**
+     * Names of the downsample and upsample pass of each level, used to time the passes
+     */
+    private static final String[] DOWNSAMPLE_NAMES = new String[MAX_LEVELS + 1];
+    private static final String[] UPSAMPLE_NAMES = new String[MAX_LEVELS + 1];
+
+    static
+    {
+        for (int level = 1; level <= MAX_LEVELS; level++)
+        {
+            DOWNSAMPLE_NAMES[level] = "bloom downsample 1/" + (1 << level);
+            UPSAMPLE_NAMES[level] = "bloom upsample 1/" + (1 << level);
+        }
+    }
+
+    /**
+     * Image renderer
+     */
+    private ImageRenderer renderer;
+
+    /**
+     * Downsample and upsample shader programs
+     */
+    private DualFilterShader downsampleShader;
+    private DualFilterShader upsampleShader;
+
+    /**
+     * Half a texel of the texture that is being sampled
+     */
+    private final Vector2f halfPixel = new Vector2f();
+
+    /**
+     * Targets of the levels that are being downsampled
+     */
+    private final Fbo[] levels = new Fbo[MAX_LEVELS + 1];
+
+    /**
+     * Creates the downsample and upsample shader programs.
+     */
+    public DualFilterBloom()
+    {
+        downsampleShader = new DualFilterShader(DualFilterShader.DOWNSAMPLE_FILE);
+        upsampleShader = new DualFilterShader(DualFilterShader.UPSAMPLE_FILE);
+        renderer = new ImageRenderer();
+    }
+
+    /**
+     * Blurs a texture through the mip chain.  The chain stops early if a level would be
+     * smaller than a couple of pixels.
+     * @param texture texture ID of the highlights
+     * @param width width of the texture
+     * @param height height of the texture
+     * @param depth number of levels in the mip chain (1 to MAX_LEVELS)
+     * @param timer timer the passes are timed with
+     * @return FBO at half the texture's resolution holding the blurred highlights,
+     *         to be released once it has been used
+     */
+    public Fbo render(int texture, int width, int height, int depth, PassTimer timer)
+    {
+        depth = Math.max(1, Math.min(depth, MAX_LEVELS));
+        while (depth > 1 && ((width >> depth) < 2 || (height >> depth) < 2))
+        {
+            depth--;
+        }
+
+        downsampleShader.start();
+        int source = texture;
+        int sourceWidth = width;
+        int sourceHeight = height;
+        for (int level = 1; level <= depth; level++)
+        {
+            levels[level] = FboPool.acquire(width >> level, height >> level, FboPool.COLOUR, Fbo.NONE);
+            timer.begin(DOWNSAMPLE_NAMES[level]);
+            renderPass(downsampleShader, source, sourceWidth, sourceHeight, levels[level]);
+            timer.end();
+            if (level > 1)
+            {
+                FboPool.release(levels[level - 1]);
+            }
+            source = levels[level].getColorTexture();
+            sourceWidth = levels[level].getWidth();
+            sourceHeight = levels[level].getHeight();
+        }
+        downsampleShader.stop();
+
+        Fbo result = levels[depth];
+        upsampleShader.start();
+        for (int level = depth - 1; level >= 1; level--)
+        {
+            Fbo target = FboPool.acquire(width >> level, height >> level, FboPool.COLOUR, Fbo.NONE);
+            timer.begin(UPSAMPLE_NAMES[level]);
+            renderPass(upsampleShader, result.getColorTexture(), result.getWidth(), result.getHeight(), target);
+            timer.end();
+            FboPool.release(result);
+            result = target;
+        }
+        upsampleShader.stop();
+
+        return result;
+    }
+
+    /**
+     * Renders one level of the chain.
+     * @param shader downsample or upsample shader program, already started
+     * @param texture texture ID of the source level
+     * @param sourceWidth width of the source level
+     * @param sourceHeight height of the source level
+     * @param target FBO of the level that is rendered
+     */
+    private void renderPass(DualFilterShader shader, int texture, int sourceWidth, int sourceHeight, Fbo target)
+    {
+        halfPixel.set(0.5f / sourceWidth, 0.5f / sourceHeight);
+        shader.loadHalfPixel(halfPixel);
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, texture);
+        renderer.renderQuad(target);
+    }
+
+    /**
+     * Cleans up resources in the shaders.
+     */
+    public void cleanUp()
+    {
+        downsampleShader.cleanUp();
+        upsampleShader.cleanUp();
+    }
+}
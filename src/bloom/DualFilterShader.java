@@ -0,0 +1,57 @@
+package bloom;
+
+import org.lwjgl.util.vector.Vector2f;
+import shaders.ShaderProgram;
+
+/**
+ * A shader program used to downsample or upsample one level of the bloom mip chain.
+ * @author Aaron Frazer
+ */
+public class DualFilterShader extends ShaderProgram
+{
+    /**
+     * Filepath of vertex shader
+     */
+    private static final String VERTEX_FILE = "bloom/simpleVertexShader.glsl";
+
+    /**
+     * Filepaths of fragment shaders
+     */
+    protected static final String DOWNSAMPLE_FILE = "bloom/downsampleFragmentShader.glsl";
+    protected static final String UPSAMPLE_FILE = "bloom/upsampleFragmentShader.glsl";
+
+    /**
+     * Location of uniform variables in vertex/fragment programs
+     */
+    private int location_halfPixel;
+
+    /**
+     * Creates a downsample or upsample shader program.
+     * @param fragmentFile filepath of fragment shader (DOWNSAMPLE_FILE or UPSAMPLE_FILE)
+     */
+    protected DualFilterShader(String fragmentFile)
+    {
+        super(VERTEX_FILE, fragmentFile);
+    }
+
+    @Override
+    protected void bindAttributes()
+    {
+        super.bindAttribute(0, "position");
+    }
+
+    @Override
+    protected void getAllUniformLocations()
+    {
+        location_halfPixel = super.getUniformLocation("halfPixel");
+    }
+
+    /**
+     * Loads the size of half a texel of the source texture to a uniform variable (in fragment shader).
+     * @param halfPixel half a texel in texture coordinates
+     */
+    protected void loadHalfPixel(Vector2f halfPixel)
+    {
+        super.load2DVector(location_halfPixel, halfPixel);
+    }
+}
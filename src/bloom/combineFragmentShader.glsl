@@ -1,16 +0,0 @@
-#version 150
-
-in vec2 textureCoords;
-
-out vec4 out_Colour;
-
-uniform sampler2D colourTexture;
-uniform sampler2D highlightTexture;
-
-void main(void) {
-
-    vec4 sceneColour = texture(colourTexture, textureCoords);
-    vec4 highlightColour = texture(highlightTexture, textureCoords);
-    out_Colour = sceneColour + highlightColour;
-
-}
\ No newline at end of file
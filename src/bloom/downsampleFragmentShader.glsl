@@ -0,0 +1,20 @@
+#version 150
+
+in vec2 textureCoords;
+
+out vec4 out_Colour;
+
+uniform sampler2D originalTexture;
+uniform vec2 halfPixel;
+
+void main(void) {
+
+    // the centre and four diagonal samples each average four texels with bilinear filtering
+    vec4 sum = texture(originalTexture, textureCoords) * 4.0;
+    sum += texture(originalTexture, textureCoords - halfPixel);
+    sum += texture(originalTexture, textureCoords + halfPixel);
+    sum += texture(originalTexture, textureCoords + vec2(halfPixel.x, -halfPixel.y));
+    sum += texture(originalTexture, textureCoords - vec2(halfPixel.x, -halfPixel.y));
+    out_Colour = sum / 8.0;
+
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+#version 150
+
+in vec2 textureCoords;
+
+out vec4 out_Colour;
+
+uniform sampler2D originalTexture;
+uniform vec2 halfPixel;
+
+void main(void) {
+
+    // tent filter: four samples a texel away and four diagonal samples half a texel away
+    vec4 sum = texture(originalTexture, textureCoords + vec2(-halfPixel.x * 2.0, 0.0));
+    sum += texture(originalTexture, textureCoords + vec2(-halfPixel.x, halfPixel.y)) * 2.0;
+    sum += texture(originalTexture, textureCoords + vec2(0.0, halfPixel.y * 2.0));
+    sum += texture(originalTexture, textureCoords + vec2(halfPixel.x, halfPixel.y)) * 2.0;
+    sum += texture(originalTexture, textureCoords + vec2(halfPixel.x * 2.0, 0.0));
+    sum += texture(originalTexture, textureCoords + vec2(halfPixel.x, -halfPixel.y)) * 2.0;
+    sum += texture(originalTexture, textureCoords + vec2(0.0, -halfPixel.y * 2.0));
+    sum += texture(originalTexture, textureCoords + vec2(-halfPixel.x, -halfPixel.y)) * 2.0;
+    out_Colour = sum / 12.0;
+
+}
\ No newline at end of file
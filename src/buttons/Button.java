@@ -1,5 +1,6 @@
 package buttons;
 
+import guis.GuiAtlas;
 import guis.GuiTexture;
 import org.lwjgl.util.vector.Vector2f;
 import renderEngine.DisplayManager;
@@ -58,7 +59,7 @@ public class Button implements IButton
         this.scale = scale;
         this.isHidden = true;
         this.isHovering = false;
-        this.guiTexture = new GuiTexture(loader.loadGameTexture(texture), position, scale);
+        this.guiTexture = GuiAtlas.loadTexture(loader, texture, position, scale);
     }
 
     /**
@@ -1,5 +1,6 @@
 package buttons;
 
+import guis.GuiAtlas;
 import guis.GuiTexture;
 import org.lwjgl.util.vector.Vector2f;
 import renderEngine.DisplayManager;
@@ -98,9 +99,9 @@ public class ColorButton implements IButton
         this.isHidden = true;
         this.isHovering = false;
         this.loader = loader;
-        this.guiTexture = new GuiTexture(loader.loadGameTexture(textureIdle), position, scale);
-        this.guiTexturePressed = new GuiTexture(loader.loadGameTexture(texturePressed), position, scale);
-        this.guiTextureHovered = new GuiTexture(loader.loadGameTexture(textureHovered), position, scale);
+        this.guiTexture = GuiAtlas.loadTexture(loader, textureIdle, position, scale);
+        this.guiTexturePressed = GuiAtlas.loadTexture(loader, texturePressed, position, scale);
+        this.guiTextureHovered = GuiAtlas.loadTexture(loader, textureHovered, position, scale);
     }
 
     /**
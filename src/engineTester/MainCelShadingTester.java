@@ -12,13 +12,12 @@ import models.TexturedModel;
 import objConverter.OBJFileLoader;
 import org.lwjgl.input.Keyboard;
 import org.lwjgl.opengl.Display;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL30;
 import org.lwjgl.util.vector.Vector3f;
 import org.lwjgl.util.vector.Vector4f;
 import renderEngine.DisplayManager;
 import renderEngine.Loader;
 import renderEngine.MasterRenderer;
+import renderEngine.RenderState;
 import shaders.StaticShader;
 import shaders.TerrainShader;
 import skybox.SkyboxShader;
@@ -142,7 +141,7 @@ public class MainCelShadingTester
         //********** WATER RENDERING **********
         WaterFrameBuffers fbos = new WaterFrameBuffers();
         WaterShader waterShader = new WaterShader();
-//        WaterRenderer waterRenderer = new WaterRenderer(loader, waterShader, renderer.getProjectionMatrix(), fbos);
+//        WaterRenderer waterRenderer = new WaterRenderer(loader, waterShader, fbos);
         waters.add(new WaterTile(50, 52, 36));
 
 //        GuiTexture refractionGui = new GuiTexture(fbos.getRefractionTexture(), new Vector2f(0.5f, 0.5f), new Vector2f(0.25f, 0.25f));
@@ -195,7 +194,7 @@ public class MainCelShadingTester
                 GameSettings.WIREFRAME_ENABLED = !GameSettings.WIREFRAME_ENABLED;
             }
 
-            GL11.glEnable(GL30.GL_CLIP_DISTANCE0);
+            RenderState.setClipDistance(true);
 
             // Render reflection frame buffer
             fbos.bindReflectionFrameBuffer();
@@ -203,18 +202,19 @@ public class MainCelShadingTester
             camera.getPosition().y -= distance;
             camera.invertPitch();
             camera.invertRoll();
-            renderer.renderScene(null, entities, normalMapEntities, terrains, lights, cameraManager, picker, new Vector4f(0, 1, 0, -water.getHeight() + 1f));
+            renderer.renderScene(null, entities, normalMapEntities, terrains, lights, cameraManager, picker, new Vector4f(0, 1, 0, -water.getHeight() + 1f), Entity.REFLECTION_PASS);
             camera.getPosition().y += distance;
             camera.invertPitch();
             camera.invertRoll();
 
             // Render refraction frame buffer
             fbos.bindRefractionFrameBuffer();
-            renderer.renderScene(null, entities, normalMapEntities, terrains, lights, cameraManager, picker, new Vector4f(0, -1, 0, water.getHeight() + 1f));
+            renderer.renderScene(null, entities, normalMapEntities, terrains, lights, cameraManager, picker, new Vector4f(0, -1, 0, water.getHeight() + 1f), Entity.REFRACTION_PASS);
 
             // Render to screen
+            RenderState.setClipDistance(false);
             fbos.unbindCurrentFrameBuffer();
-            renderer.renderScene(null, entities, normalMapEntities, terrains, lights, cameraManager, picker, new Vector4f(0, 0, 0, 0));
+            renderer.renderScene(null, entities, normalMapEntities, terrains, lights, cameraManager, picker, new Vector4f(0, 0, 0, 0), Entity.MAIN_PASS);
 
             DisplayManager.updateDisplay();
         }
@@ -8,31 +8,40 @@ import entities.Player;
 import fontMeshCreator.FontType;
 import fontMeshCreator.GUIText;
 import fontRendering.TextMaster;
+import guis.FrameTimeGraph;
+import guis.GuiAtlas;
 import guis.GuiRenderer;
 import guis.GuiTexture;
+import impostors.ImpostorBaker;
 import models.RawModel;
 import models.TexturedModel;
 import normalMappingObjConverter.ObjFileLoaderNM;
 import objConverter.OBJFileLoader;
 import org.lwjgl.input.Keyboard;
 import org.lwjgl.opengl.Display;
-import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL30;
 import org.lwjgl.util.vector.Vector2f;
 import org.lwjgl.util.vector.Vector3f;
 import org.lwjgl.util.vector.Vector4f;
 import particles.*;
 import postProcessing.Fbo;
+import postProcessing.FboPool;
 import postProcessing.PostProcessing;
 import renderEngine.DisplayManager;
 import renderEngine.Loader;
+import renderEngine.RenderGraph;
+import renderEngine.RenderPass;
+import renderEngine.RenderResource;
 import renderEngine.MasterRenderer;
+import renderEngine.RenderState;
+import shaders.ShaderProgram;
 import terrain.Terrain;
 import textures.ModelTexture;
 import textures.TerrainTexture;
 import textures.TerrainTexturePack;
 import toolbox.*;
 import water.WaterFrameBuffers;
+import water.WaterPassScheduler;
 import water.WaterRenderer;
 import water.WaterShader;
 import water.WaterTile;
@@ -80,7 +89,7 @@ public class MainGameLoop
         // **************************************
 
         //********** MODELS CREATION ************
-        TexturedModel rocks = new TexturedModel(OBJFileLoader.loadOBJ("rocksModel", loader),
+        TexturedModel rocks = new TexturedModel(OBJFileLoader.loadOBJLods("rocksModel", loader, 0.5f, 0.2f),
                 new ModelTexture(loader.loadGameTexture("rocksTexture")));
 
         ModelTexture fernTextureAtlas = new ModelTexture(loader.loadGameTexture("fernTextureAtlas"));
@@ -89,7 +98,7 @@ public class MainGameLoop
                 fernTextureAtlas);
         fern.getTexture().setHasTransparency(true);
 
-        TexturedModel pine = new TexturedModel(OBJFileLoader.loadOBJ("pineModel", loader),
+        TexturedModel pine = new TexturedModel(OBJFileLoader.loadOBJLods("pineModel", loader, 0.5f, 0.25f, 0.1f),
                 new ModelTexture(loader.loadGameTexture("pineTexture")));
         pine.getTexture().setHasTransparency(true);
 
@@ -123,7 +132,7 @@ public class MainGameLoop
         //***************************************
 
         //********* SPECULAR MAP MODELS CREATION **********
-        TexturedModel cherryModel = new TexturedModel(OBJFileLoader.loadOBJ("cherryTreeModel", loader),
+        TexturedModel cherryModel = new TexturedModel(OBJFileLoader.loadOBJLods("cherryTreeModel", loader, 0.5f, 0.25f, 0.1f),
                 new ModelTexture(loader.loadGameTexture("cherryTreeTexture")));
         cherryModel.getTexture().setHasTransparency(true);
         cherryModel.getTexture().setShineDamper(10);
@@ -142,6 +151,13 @@ public class MainGameLoop
         lanternModel.getTexture().setExtraInfoMap(loader.loadGameTexture("lanternGlowing"));
         //*************************************************
 
+        //********* IMPOSTORS OF FAR AWAY VEGETATION **********
+        ImpostorBaker impostorBaker = new ImpostorBaker();
+        fern.setImpostor(impostorBaker.bake(fern), 0.03f);
+        pine.setImpostor(impostorBaker.bake(pine), 0.025f);
+        cherryModel.setImpostor(impostorBaker.bake(cherryModel), 0.025f);
+        //*****************************************************
+
         // ************* ENTITIES ***************
         Random random = new Random(5666778);
         for (int i = 0; i < 60; i++)
@@ -153,7 +169,10 @@ public class MainGameLoop
                 if ((x <= 50 || x >= 100) && (z >= -50 || z <= -100))
                 {
                     float y = terrain.getHeightOfTerrain(x, z);
-                    entities.add(new Entity(fern, 3, new Vector3f(x, y, z), 0, random.nextFloat() * 360, 0, 0.9f));
+                    Entity fernEntity = new Entity(fern, 3, new Vector3f(x, y, z), 0, random.nextFloat() * 360, 0, 0.9f);
+                    fernEntity.setCastingShadows(false); // ground cover is too small to cast visible shadows
+                    fernEntity.setPassMask(Entity.MAIN_PASS); // or to be seen in the water
+                    entities.add(fernEntity);
                 }
             }
             if (i % 2 == 0)
@@ -181,6 +200,7 @@ public class MainGameLoop
         Player player = new Player(personTexturedModel, new Vector3f(75, 5, -75), 0, 100, 0, 0.6f);
         entities.add(player);
         Entity lanternEntity = new Entity(lanternModel, new Vector3f(55, terrain.getHeightOfTerrain(55, -75), -75), 0, 0, 0, 1f);
+        lanternEntity.setPassMask(Entity.MAIN_PASS);
         entities.add(lanternEntity);
         // **************************************
 
@@ -189,10 +209,22 @@ public class MainGameLoop
         Entity entityB = new Entity(barrelModelSpecular, new Vector3f(75, 10, -75), 0, 0, 0, 1f);
         Entity entity2 = new Entity(boulderModel, new Vector3f(85, 10, -75), 0, 0, 0, 1f);
         Entity entity3 = new Entity(crateModel, new Vector3f(65, 10, -75), 0, 0, 0, 0.04f);
+        entity.setDynamic(true);
+        entityB.setDynamic(true);
+        entity2.setDynamic(true);
+        entity3.setDynamic(true);
         normalMapEntities.add(entity);
         normalMapEntities.add(entityB);
         normalMapEntities.add(entity2);
         normalMapEntities.add(entity3);
+
+        // entities moved by the simulation, which are interpolated between ticks when rendered
+        List<Entity> movingEntities = new ArrayList<>();
+        movingEntities.add(player);
+        movingEntities.add(entity);
+        movingEntities.add(entityB);
+        movingEntities.add(entity2);
+        movingEntities.add(entity3);
         // **************************************
 
         // *********** LIGHT CREATION ***********
@@ -222,7 +254,8 @@ public class MainGameLoop
         //********** WATER RENDERING ************
         WaterFrameBuffers buffers = new WaterFrameBuffers();
         WaterShader waterShader = new WaterShader();
-        WaterRenderer waterRenderer = new WaterRenderer(loader, waterShader, renderer.getProjectionMatrix(), buffers);
+        WaterRenderer waterRenderer = new WaterRenderer(loader, waterShader, buffers);
+        WaterPassScheduler waterScheduler = new WaterPassScheduler(renderer.getProjectionMatrix());
         WaterTile water = new WaterTile(75, -75, 0);
         waters.add(water);
         // **************************************
@@ -276,7 +309,7 @@ public class MainGameLoop
 //        shadowText.add();
 
         // FPS text
-        GUIText fpsText = new GUIText("", 2, font, new Vector2f(0.95f, 0.05f), 1f, false);
+        GUIText fpsText = new GUIText("", 2, font, new Vector2f(0.95f, 0.05f), 1f, false, 5);
         fpsText.setColour(1, 1, 0);
         fpsText.setDistanceFieldWidth(0.5f);
         fpsText.setDistanceFieldEdge(0.1f);
@@ -286,6 +319,17 @@ public class MainGameLoop
         fpsText.setOutlineColour(0, 0, 0);
         fpsText.add();
 
+        // Clock text, updated every frame
+        GUIText clockText = new GUIText(VirtualClock.getTimeString(), 1.5f, font, new Vector2f(0.01f, 0.01f), 1f, false, 8);
+        clockText.setColour(1, 1, 1);
+        clockText.setDistanceFieldWidth(0.5f);
+        clockText.setDistanceFieldEdge(0.1f);
+        clockText.setBorderWidth(0.4f);
+        clockText.setBorderEdge(0.5f);
+        clockText.setOffset(0.0f, 0.0f);
+        clockText.setOutlineColour(0, 0, 0);
+        clockText.add();
+
         // **************************************
 
         // ********* BUTTON RENDERING ***********
@@ -298,10 +342,10 @@ public class MainGameLoop
         // ******** PARTICLE RENDERING **********
         ParticleTexture particleFireTextureAtlas = new ParticleTexture(loader.loadGameTexture("particleFireTextureAtlas"), 8, true);
         ParticleTexture particleStarTexture = new ParticleTexture(loader.loadGameTexture("particleStarTexture"), 1, true);
-        ParticleTexture particleSmokeTextureAtlas = new ParticleTexture(loader.loadGameTexture("particleSmokeTextureAtlas"), 8, false);
+        ParticleTexture particleSmokeTextureAtlas = new ParticleTexture(loader.loadGameTexture("particleSmokeTextureAtlas"), 8, false, true);
         ParticleTexture particleMagicTextureAtlas = new ParticleTexture(loader.loadGameTexture("particleMagicTextureAtlas"), 4, false);
 
-        ParticleMaster.init(loader, renderer.getProjectionMatrix());
+        ParticleMaster.init(loader);
 
         ComplexParticleSystem fireParticleSystem = new ComplexParticleSystem(particleFireTextureAtlas, 100, 15, 0.1f, 1, 15);
         fireParticleSystem.setDirection(new Vector3f(0, 1, 0), 0.01f);
@@ -328,76 +372,259 @@ public class MainGameLoop
         // **************************************
 
         // ****** Post-processing effects *******
-        Fbo multisampleFbo = new Fbo(Display.getWidth(), Display.getHeight());
-        Fbo outputFbo = new Fbo(Display.getWidth(), Display.getHeight(), Fbo.DEPTH_TEXTURE);
-        Fbo outputFbo2 = new Fbo(Display.getWidth(), Display.getHeight(), Fbo.DEPTH_TEXTURE);
+        // render targets are acquired from the FBO pool every frame
         PostProcessing.init(loader);
         // **************************************
 
+        // ********* Render Graph ***************
+        RenderGraph renderGraph = new RenderGraph();
+        RenderResource screen = renderGraph.getScreen();
+        RenderResource shadowMap = renderGraph.createExternal("shadow map");
+        RenderResource reflection = renderGraph.createExternal("water reflection");
+        RenderResource refraction = renderGraph.createExternal("water refraction");
+        RenderResource multisampleScene = renderGraph.createTransient("multisample scene", FboPool.MULTISAMPLE,
+                Fbo.DEPTH_RENDER_BUFFER);
+        RenderResource sceneColour = renderGraph.createTransient("scene colour", FboPool.COLOUR, Fbo.NONE);
+        RenderResource sceneBright = renderGraph.createTransient("scene highlights", FboPool.COLOUR, Fbo.NONE);
+
+        renderGraph.addPass(new RenderPass("shadow map", null, false)
+        {
+            @Override
+            protected void setup()
+            {
+                write(shadowMap);
+            }
+
+            @Override
+            protected void execute()
+            {
+                renderer.renderShadowMap(entities, sun);
+            }
+        });
+        // water textures are only rendered when water is in view and they are out of date
+        renderGraph.addPass(new RenderPass("water reflection", null, true)
+        {
+            @Override
+            protected boolean isEnabled()
+            {
+                return waterScheduler.isReflectionDue();
+            }
+
+            @Override
+            protected void setup()
+            {
+                read(shadowMap);
+                write(reflection);
+            }
+
+            @Override
+            protected void execute()
+            {
+                Camera camera = cameraManager.getCurrentCamera();
+                buffers.bindReflectionFrameBuffer(waterScheduler.getResolutionScale());
+                float distance = 2 * (camera.getPosition().y - water.getHeight());
+                camera.getPosition().y -= distance;
+                camera.invertPitch();
+                renderer.renderScene(player, entities, normalMapEntities, terrains, lights, cameraManager, picker, new Vector4f(0, 1, 0, -water.getHeight() + 1), Entity.REFLECTION_PASS);
+                camera.getPosition().y += distance;
+                camera.invertPitch();
+            }
+        });
+        renderGraph.addPass(new RenderPass("water refraction", null, true)
+        {
+            @Override
+            protected boolean isEnabled()
+            {
+                return waterScheduler.isRefractionDue();
+            }
+
+            @Override
+            protected void setup()
+            {
+                read(shadowMap);
+                write(refraction);
+            }
+
+            @Override
+            protected void execute()
+            {
+                buffers.bindRefractionFrameBuffer(waterScheduler.getResolutionScale());
+                renderer.renderScene(player, entities, normalMapEntities, terrains, lights, cameraManager, picker, new Vector4f(0, -1, 0, water.getHeight()), Entity.REFRACTION_PASS);
+            }
+        });
+        renderGraph.addPass(new RenderPass("scene", multisampleScene, false)
+        {
+            @Override
+            protected void setup()
+            {
+                read(shadowMap);
+            }
+
+            @Override
+            protected void execute()
+            {
+                renderer.renderScene(player, entities, normalMapEntities, terrains, lights, cameraManager, picker, new Vector4f(0, -1, 0, 100000), Entity.MAIN_PASS);
+            }
+        });
+        renderGraph.addPass(new RenderPass("water", multisampleScene, false)
+        {
+            @Override
+            protected boolean isEnabled()
+            {
+                return waterScheduler.isWaterVisible();
+            }
+
+            @Override
+            protected void setup()
+            {
+                read(multisampleScene);
+                read(reflection);
+                read(refraction);
+            }
+
+            @Override
+            protected void execute()
+            {
+                waterRenderer.render(waters, sun);
+            }
+        });
+        // Particles have to be rendered after 3D stuff, but before 2D stuff
+        renderGraph.addPass(new RenderPass("particles", multisampleScene, false)
+        {
+            @Override
+            protected void setup()
+            {
+                read(multisampleScene);
+            }
+
+            @Override
+            protected void execute()
+            {
+                ParticleMaster.renderParticles(cameraManager.getCurrentCamera());
+            }
+        });
+        renderGraph.addPass(new RenderPass("resolve", null, false)
+        {
+            @Override
+            protected void setup()
+            {
+                read(multisampleScene);
+                write(sceneColour);
+                write(sceneBright);
+            }
+
+            @Override
+            protected void execute()
+            {
+                multisampleScene.getFbo().resolveToFbo(GL30.GL_COLOR_ATTACHMENT0, sceneColour.getFbo());
+                if (sceneBright.getFbo() != null)
+                {
+                    multisampleScene.getFbo().resolveToFbo(GL30.GL_COLOR_ATTACHMENT1, sceneBright.getFbo());
+                }
+            }
+        });
+        renderGraph.addPass(new RenderPass("post-processing", screen, false)
+        {
+            @Override
+            protected void setup()
+            {
+                read(sceneColour);
+                if (GameSettings.BLOOM_EFFECT && !GameSettings.GAUSSIAN_BLUR)
+                {
+                    read(sceneBright); // highlights are only resolved when the bloom effect uses them
+                }
+            }
+
+            @Override
+            protected void execute()
+            {
+                int brightTexture = sceneBright.getFbo() != null ? sceneBright.getFbo().getColorTexture() : 0;
+                PostProcessing.doPostProcessing(sceneColour.getFbo().getColorTexture(), brightTexture);
+            }
+        });
+        renderGraph.addPass(new RenderPass("text", screen, false)
+        {
+            @Override
+            protected void execute()
+            {
+                TextMaster.render(); // render text on top of everything
+            }
+        });
+        // the frame time graph is drawn with the GUIs, so they all go into one list
+        FrameTimeGraph frameTimeGraph = new FrameTimeGraph();
+        List<GuiTexture> frameGuis = new ArrayList<>();
+        renderGraph.addPass(new RenderPass("GUI", screen, false)
+        {
+            @Override
+            protected void execute()
+            {
+                frameGuis.clear();
+                frameGuis.addAll(guiTextures);
+                if (GameSettings.FRAME_TIME_GRAPH)
+                {
+                    frameTimeGraph.update();
+                    frameGuis.addAll(frameTimeGraph.getGuis());
+                }
+                guiRenderer.render(frameGuis);
+            }
+        });
+        // **************************************
+
+        FrameStatistics frameStatistics = new FrameStatistics();
+
         float time = 0;
         float CHANGE_SPEED = 0.5f;
 
         // ********* Game Loop Below ************
+        DisplayManager.resetFrameTimer(); // don't count the loading time as a frame
         while (!Display.isCloseRequested())
         {
             FPSCounter.startCounter();
-            VirtualClock.update();
+            FboPool.update();
             InputHelper.update();
             cameraManager.update(cameraManager);
 
             Camera camera = cameraManager.getCurrentCamera();
 
-            player.move(terrain);
+            // advance the simulation in fixed ticks, however long the frame took
+            int ticks = FixedTimestep.advance(DisplayManager.getFrameTimeSeconds());
+            for (int tick = 0; tick < ticks; tick++)
+            {
+                for (Entity movingEntity : movingEntities)
+                {
+                    movingEntity.storePreviousTransform();
+                }
+                VirtualClock.update();
+                player.move(terrain);
+
+                fireParticleSystem.generateParticles(new Vector3f(150, 10, -100));
+                starParticleSystem.generateParticles(new Vector3f(150, 20, -80));
+                smokeParticleSystem.generateParticles(new Vector3f(150, 10, -60));
+                magicParticleSystem.generateParticles(new Vector3f(150, 10, -40));
+
+//                fireParticleSystem.generateParticles(new Vector3f(player.getPosition().x + 1, player.getPosition().y + 8, player.getPosition().z));
+
+                ParticleMaster.update(camera);
+
+                entity.increaseRotation(0, 1, 0);
+                entityB.increaseRotation(0, 1, 0);
+                entity2.increaseRotation(0, 1, 0);
+                entity3.increaseRotation(0, 1, 0);
+            }
+            clockText.update(VirtualClock.getTimeString());
+
+            // render moving entities between their last two ticks
+            float alpha = FixedTimestep.getAlpha();
+            for (Entity movingEntity : movingEntities)
+            {
+                movingEntity.interpolateTransform(alpha);
+            }
             camera.move();
             picker.update();
 
-            fireParticleSystem.generateParticles(new Vector3f(150, 10, -100));
-            starParticleSystem.generateParticles(new Vector3f(150, 20, -80));
-            smokeParticleSystem.generateParticles(new Vector3f(150, 10, -60));
-            magicParticleSystem.generateParticles(new Vector3f(150, 10, -40));
-
-//            fireParticleSystem.generateParticles(new Vector3f(player.getPosition().x + 1, player.getPosition().y + 8, player.getPosition().z));
-
-            ParticleMaster.update(camera);
-
-            renderer.renderShadowMap(entities, sun);
-
-            entity.increaseRotation(0, 1, 0);
-            entityB.increaseRotation(0, 1, 0);
-            entity2.increaseRotation(0, 1, 0);
-            entity3.increaseRotation(0, 1, 0);
-            GL11.glEnable(GL30.GL_CLIP_DISTANCE0);
-
-            // render reflection texture
-            buffers.bindReflectionFrameBuffer();
-            float distance = 2 * (camera.getPosition().y - water.getHeight());
-            camera.getPosition().y -= distance;
-            camera.invertPitch();
-            renderer.renderScene(player, entities, normalMapEntities, terrains, lights, cameraManager, picker, new Vector4f(0, 1, 0, -water.getHeight() + 1));
-//            renderer.renderScene(entities, normalMapEntities, terrains, lights, camera, new Vector4f(0, 1, 0, -water.getHeight() + 1));
-            camera.getPosition().y += distance;
-            camera.invertPitch();
-
-            // render refraction texture
-            buffers.bindRefractionFrameBuffer();
-            renderer.renderScene(player, entities, normalMapEntities, terrains, lights, cameraManager, picker, new Vector4f(0, -1, 0, water.getHeight()));
-//            renderer.renderScene(entities, normalMapEntities, terrains, lights, camera, new Vector4f(0, -1, 0, water.getHeight()));
-
-            // render to screen
-            GL11.glDisable(GL30.GL_CLIP_DISTANCE0);
-            buffers.unbindCurrentFrameBuffer();
-            multisampleFbo.bindFrameBuffer();
-            renderer.renderScene(player, entities, normalMapEntities, terrains, lights, cameraManager, picker, new Vector4f(0, -1, 0, 100000));
-//            renderer.renderScene(entities, normalMapEntities, terrains, lights, camera, new Vector4f(0, -1, 0, 100000));
-            waterRenderer.render(waters, camera, sun, waterShader);
-
-            // Particles have to be rendered after 3D stuff, but before 2D stuff
-            ParticleMaster.renderParticles(camera);
-            multisampleFbo.unbindFrameBuffer();
-            multisampleFbo.resolveToFbo(GL30.GL_COLOR_ATTACHMENT0, outputFbo);
-            multisampleFbo.resolveToFbo(GL30.GL_COLOR_ATTACHMENT1, outputFbo2);
-            PostProcessing.doPostProcessing(outputFbo.getColorTexture(), outputFbo2.getColorTexture());
-            TextMaster.render(); // render text on top of everything
+            // water textures are only rendered when water is in view and they are out of date
+            waterScheduler.update(camera, waters);
+            renderGraph.execute();
 
             // Apply glowing text effect
             time += DisplayManager.getFrameTimeSeconds() * CHANGE_SPEED;
@@ -469,9 +696,71 @@ public class MainGameLoop
                 }
             }
 
+            if (InputHelper.isKeyPressed(Keyboard.KEY_T))
+            {
+                // show the frame time graph
+                if (GameSettings.FRAME_TIME_GRAPH)
+                {
+                    GameSettings.FRAME_TIME_GRAPH = false;
+                    System.out.println("Frame time graph: OFF");
+                } else
+                {
+                    GameSettings.FRAME_TIME_GRAPH = true;
+                    System.out.println("Frame time graph: ON");
+                }
+            }
+
+            if (InputHelper.isKeyPressed(Keyboard.KEY_U))
+            {
+                // print how many uniform loads were skipped since the last key press
+                long issued = ShaderProgram.getUniformLoadsIssued();
+                long skipped = ShaderProgram.getUniformLoadsSkipped();
+                System.out.println("Uniform loads issued: " + issued + ", skipped: " + skipped
+                        + " (" + (100 * skipped / Math.max(1, issued + skipped)) + "%)");
+                ShaderProgram.resetUniformStatistics();
+                // print how many GL state changes were made and avoided in the last frame
+                System.out.println("GL state changes: " + RenderState.getStateChanges()
+                        + ", redundant calls avoided: " + RenderState.getRedundantCalls());
+                // print how many objects the occlusion culling removed in the last frame
+                System.out.println("Occlusion culling: " + renderer.getOcclusionCuller().getTested() + " tested, "
+                        + renderer.getOcclusionCuller().getOccluded() + " occluded ("
+                        + String.format("%.1f", renderer.getOcclusionCuller().getOccludedPercentage()) + "%), "
+                        + renderer.getOcclusionCuller().getOutsideView() + " outside view");
+                // print how many water passes were rendered and skipped since the last key press
+                System.out.println("Water passes rendered: " + waterScheduler.getRenderedPasses() + ", skipped: "
+                        + waterScheduler.getSkippedPasses() + ", load level: " + waterScheduler.getLoadLevel());
+                waterScheduler.resetStatistics();
+                // print how much memory the FBO pool saved in the last frame by sharing render targets
+                System.out.println("FBO pool: " + FboPool.getTargetCount() + " targets, "
+                        + String.format("%.1f", FboPool.getAllocatedBytes() / 1048576.0) + " MB allocated for "
+                        + String.format("%.1f", FboPool.getRequestedBytes() / 1048576.0) + " MB requested ("
+                        + String.format("%.1f", FboPool.getSavedBytes() / 1048576.0) + " MB saved)");
+                // print how many passes the render graph executed and culled in the last frame
+                System.out.println("Render graph: " + renderGraph.getExecutedPasses() + " passes executed, "
+                        + renderGraph.getCulledPasses() + " culled, " + renderGraph.getDisabledPasses() + " disabled, "
+                        + renderGraph.getTargetBinds() + " target binds (" + renderGraph.getSkippedBinds() + " skipped)");
+                // print how many simulation ticks were dropped since the last key press
+                System.out.println("Simulation: " + FixedTimestep.TICK_RATE + " ticks/s, " + FixedTimestep.getLastTicks()
+                        + " ticks last frame, " + FixedTimestep.getDroppedTicks() + " dropped");
+                FixedTimestep.resetStatistics();
+                // print the average GPU time of each post-processing pass since the last key press
+                System.out.println("Post-processing passes: " + PostProcessing.getPassTimer().getTimings());
+                PostProcessing.getPassTimer().resetStatistics();
+                // print the percentiles of the recent frame times, and the hitches since the last key press
+                frameStatistics.update();
+                System.out.println("Frame times: " + frameStatistics + ", " + FrameTimer.getOverBudgetFrames()
+                        + " over budget, " + FrameTimer.getStutters() + " stutters (longest "
+                        + String.format("%.2f", FrameTimer.getLongestStutter() / 1000000.0) + " ms)");
+                FrameTimer.resetStatistics();
+            }
+
 //            simpleButton.update();
 //            colorButton.update();
-            guiRenderer.render(guiTextures);
+
+            for (Entity movingEntity : movingEntities)
+            {
+                movingEntity.restoreTransform();
+            }
 
             DisplayManager.updateDisplay();
             FPSCounter.stopCounter(fpsText);
@@ -479,15 +768,16 @@ public class MainGameLoop
 
         // ********* Clean Up Below *************
         PostProcessing.cleanUp();
-        outputFbo.cleanUp();
-        outputFbo2.cleanUp();
-        multisampleFbo.cleanUp();
+        FboPool.cleanUp();
         ParticleMaster.cleanUp();
         TextMaster.cleanUp();
         buffers.cleanUp();
         waterShader.cleanUp();
         guiRenderer.cleanUp();
+        frameTimeGraph.cleanUp();
+        GuiAtlas.cleanUp();
         renderer.cleanUp();
+        impostorBaker.cleanUp();
         loader.cleanUp();
         // **************************************
 
@@ -9,6 +9,14 @@ import org.lwjgl.util.vector.Vector3f;
  */
 public class Entity
 {
+    /**
+     * Render passes an entity can be drawn in, combined into a pass mask
+     */
+    public static final int MAIN_PASS = 1;
+    public static final int REFLECTION_PASS = 2;
+    public static final int REFRACTION_PASS = 4;
+    public static final int ALL_PASSES = MAIN_PASS | REFLECTION_PASS | REFRACTION_PASS;
+
     /**
      * Textured model
      */
@@ -29,6 +37,20 @@ public class Entity
      */
     private float scale;
 
+    /**
+     * Position and rotation at the last simulation tick, used to interpolate the
+     * entity between ticks when it is rendered
+     */
+    private final Vector3f previousPosition = new Vector3f();
+    private float previousRotX, previousRotY, previousRotZ;
+
+    /**
+     * Simulated position and rotation, kept while the entity is rendered at its
+     * interpolated transform
+     */
+    private final Vector3f simulatedPosition = new Vector3f();
+    private float simulatedRotX, simulatedRotY, simulatedRotZ;
+
     /**
      * The texture in the texture atlas that this entity is using
      * Structure is as follows:
@@ -39,6 +61,40 @@ public class Entity
      */
     private int textureIndex = 0;
 
+    /**
+     * Render passes this entity is drawn in
+     */
+    private int passMask = ALL_PASSES;
+
+    /**
+     * Does this entity cast a shadow?
+     */
+    private boolean castingShadows = true;
+
+    /**
+     * Does this entity move?  Dynamic entities are rendered to the shadow maps every
+     * frame, while static entities are rendered to cached shadow maps
+     */
+    private boolean dynamic = false;
+
+    /**
+     * Half the size of a cube around this entity's position (at a scale of 1) that is
+     * completely inside its model whatever its rotation.  Entities with a cube hide the
+     * objects behind it from the occlusion culling, while 0 means the entity isn't an occluder
+     */
+    private float occluderExtent = 0;
+
+    /**
+     * Level of detail of the model drawn for this entity, chosen from its size on screen
+     */
+    private int lod = 0;
+
+    /**
+     * Number of times a static entity has been changed.  Used to find out when the
+     * cached static shadow maps need to be rendered again
+     */
+    private static int staticChangeCount = 0;
+
     /**
      * Creates an entity in a position of the world.
      * @param model textured model
@@ -56,6 +112,7 @@ public class Entity
         this.rotY = rotY;
         this.rotZ = rotZ;
         this.scale = scale;
+        storePreviousTransform();
     }
 
     /**
@@ -78,6 +135,7 @@ public class Entity
         this.rotY = rotY;
         this.rotZ = rotZ;
         this.scale = scale;
+        storePreviousTransform();
     }
 
     /**
@@ -111,6 +169,7 @@ public class Entity
         this.position.x += dx;
         this.position.y += dy;
         this.position.z += dz;
+        changed();
     }
 
     /**
@@ -124,6 +183,54 @@ public class Entity
         this.rotX += dx;
         this.rotY += dy;
         this.rotZ += dz;
+        changed();
+    }
+
+    /**
+     * Remembers the entity's transform before a simulation tick moves it.
+     */
+    public void storePreviousTransform()
+    {
+        previousPosition.set(position);
+        previousRotX = rotX;
+        previousRotY = rotY;
+        previousRotZ = rotZ;
+    }
+
+    /**
+     * Moves the entity to a transform between the last two simulation ticks, so that
+     * it moves smoothly when frames are rendered between ticks.  The simulated
+     * transform is kept and must be put back with restoreTransform() after rendering.
+     * @param alpha interpolation factor from 0 (previous tick) to 1 (last tick)
+     */
+    public void interpolateTransform(float alpha)
+    {
+        simulatedPosition.set(position);
+        simulatedRotX = rotX;
+        simulatedRotY = rotY;
+        simulatedRotZ = rotZ;
+        position.x = previousPosition.x + (simulatedPosition.x - previousPosition.x) * alpha;
+        position.y = previousPosition.y + (simulatedPosition.y - previousPosition.y) * alpha;
+        position.z = previousPosition.z + (simulatedPosition.z - previousPosition.z) * alpha;
+        rotX = previousRotX + (simulatedRotX - previousRotX) * alpha;
+        rotY = previousRotY + (simulatedRotY - previousRotY) * alpha;
+        rotZ = previousRotZ + (simulatedRotZ - previousRotZ) * alpha;
+        if (alpha < 1 && !simulatedPosition.equals(previousPosition))
+        {
+            changed();
+        }
+    }
+
+    /**
+     * Puts back the simulated transform after the entity has been rendered at its
+     * interpolated transform.
+     */
+    public void restoreTransform()
+    {
+        position.set(simulatedPosition);
+        rotX = simulatedRotX;
+        rotY = simulatedRotY;
+        rotZ = simulatedRotZ;
     }
 
     /**
@@ -142,6 +249,7 @@ public class Entity
     public void setModel(TexturedModel model)
     {
         this.model = model;
+        changed();
     }
 
     /**
@@ -160,6 +268,7 @@ public class Entity
     public void setPosition(Vector3f position)
     {
         this.position = position;
+        changed();
     }
 
     /**
@@ -198,6 +307,153 @@ public class Entity
         return scale;
     }
 
+    /**
+     * Returns the radius of a sphere around this entity's position that contains
+     * the whole entity, whatever its rotation is.
+     * @return bounding radius
+     */
+    public float getBoundingRadius()
+    {
+        return model.getRawModel().getFurthestPoint() * scale;
+    }
+
+    /**
+     * Returns true if this entity is rendered to the shadow map.
+     * @return true if entity casts shadows
+     */
+    public boolean isCastingShadows()
+    {
+        return castingShadows;
+    }
+
+    /**
+     * Sets whether this entity is rendered to the shadow map.  Small entities that
+     * don't need a shadow can be skipped to make the shadow pass cheaper.
+     * @param castingShadows true if entity casts shadows
+     */
+    public void setCastingShadows(boolean castingShadows)
+    {
+        this.castingShadows = castingShadows;
+        changed();
+    }
+
+    /**
+     * Returns the index of the texture atlas image used by this entity.
+     * @return texture atlas index
+     */
+    public int getTextureIndex()
+    {
+        return textureIndex;
+    }
+
+    /**
+     * Returns the render passes this entity is drawn in.
+     * @return pass mask
+     */
+    public int getPassMask()
+    {
+        return passMask;
+    }
+
+    /**
+     * Sets the render passes this entity is drawn in.  Small props can be left out of
+     * the water passes, where they would hardly be seen.
+     * @param passMask pass mask (a combination of MAIN_PASS, REFLECTION_PASS and REFRACTION_PASS)
+     */
+    public void setPassMask(int passMask)
+    {
+        this.passMask = passMask;
+    }
+
+    /**
+     * Returns the level of detail of the model drawn for this entity.
+     * @return level of detail (0 for the full model)
+     */
+    public int getLod()
+    {
+        return lod;
+    }
+
+    /**
+     * Sets the level of detail of the model drawn for this entity.
+     * @param lod level of detail (0 for the full model)
+     */
+    public void setLod(int lod)
+    {
+        this.lod = lod;
+    }
+
+    /**
+     * Returns true if this entity's level of detail is its model's impostor.
+     * @return true if the entity is drawn as an impostor
+     */
+    public boolean isDrawnAsImpostor()
+    {
+        return model.getImpostor() != null && lod >= model.getLodCount();
+    }
+
+    /**
+     * Returns half the size of the cube inside this entity used as an occluder.
+     * @return half size of occluder cube in world units, or 0 if entity isn't an occluder
+     */
+    public float getOccluderExtent()
+    {
+        return occluderExtent * scale;
+    }
+
+    /**
+     * Sets the cube inside this entity used as an occluder.  Only large entities are
+     * worth using as occluders.
+     * @param occluderExtent half size of occluder cube at a scale of 1 (0 if entity isn't an occluder)
+     */
+    public void setOccluderExtent(float occluderExtent)
+    {
+        this.occluderExtent = occluderExtent;
+    }
+
+    /**
+     * Returns true if this entity moves, and is therefore rendered to the shadow maps every frame.
+     * @return true if entity is dynamic
+     */
+    public boolean isDynamic()
+    {
+        return dynamic;
+    }
+
+    /**
+     * Sets whether this entity moves.  Static entities are rendered to cached shadow
+     * maps that are only updated when a static entity changes, so entities that change
+     * every frame should be dynamic.
+     * @param dynamic true if entity is dynamic
+     */
+    public void setDynamic(boolean dynamic)
+    {
+        staticChangeCount++; // entity is added to or removed from the static entities
+        this.dynamic = dynamic;
+    }
+
+    /**
+     * Marks this entity as changed.  This must be called after a static entity's
+     * position vector has been modified directly, so that the cached shadow maps
+     * are updated.
+     */
+    public void changed()
+    {
+        if (!dynamic)
+        {
+            staticChangeCount++;
+        }
+    }
+
+    /**
+     * Returns the number of times a static entity has been changed.
+     * @return static change count
+     */
+    public static int getStaticChangeCount()
+    {
+        return staticChangeCount;
+    }
+
     /**
      * Sets this entity's scale value.
      * @param scale scale
@@ -205,6 +461,7 @@ public class Entity
     public void setScale(float scale)
     {
         this.scale = scale;
+        changed();
     }
 
 }
@@ -3,8 +3,8 @@ package entities;
 import models.TexturedModel;
 import org.lwjgl.input.Keyboard;
 import org.lwjgl.util.vector.Vector3f;
-import renderEngine.DisplayManager;
 import terrain.Terrain;
+import toolbox.FixedTimestep;
 import toolbox.InputHelper;
 
 /**
@@ -71,11 +71,12 @@ public class Player extends Entity
     public Player(TexturedModel model, Vector3f position, float rotX, float rotY, float rotZ, float scale)
     {
         super(model, position, rotX, rotY, rotZ, scale);
+        setDynamic(true);
     }
 
     /**
      * Moves this player on a terrain.
-     * Called inside main game loop.
+     * Called every simulation tick.
      * @param terrain terrain player is on
      */
     public void move(Terrain terrain)
@@ -83,17 +84,17 @@ public class Player extends Entity
         checkInputs();
 
         // Turning
-        super.increaseRotation(0, currentTurnSpeed * DisplayManager.getFrameTimeSeconds(), 0);
+        super.increaseRotation(0, currentTurnSpeed * FixedTimestep.TICK_SECONDS, 0);
 
         // Movement
-        float distance = currentSpeed * DisplayManager.getFrameTimeSeconds();
+        float distance = currentSpeed * FixedTimestep.TICK_SECONDS;
         float dx = (float) (distance * Math.sin(Math.toRadians(super.getRotY())));
         float dz = (float) (distance * Math.cos(Math.toRadians(super.getRotY())));
         super.increasePosition(dx, 0, dz);
 
         // Falling
-        upwardsSpeed += GRAVITY * DisplayManager.getFrameTimeSeconds();
-        super.increasePosition(0, upwardsSpeed * DisplayManager.getFrameTimeSeconds(), 0);
+        upwardsSpeed += GRAVITY * FixedTimestep.TICK_SECONDS;
+        super.increasePosition(0, upwardsSpeed * FixedTimestep.TICK_SECONDS, 0);
 
         float terrainHeight = terrain.getHeightOfTerrain(getPosition().x, getPosition().z);
 
@@ -43,6 +43,18 @@ public class FontType
         return loader.createTextMesh(text);
     }
 
+    /**
+     * Calculates the vertices for the quads of a text and writes them into existing
+     * vertex data.  Nothing is allocated, so this can be used for texts that change
+     * every frame.
+     * @param text text
+     * @param data vertex data the quads are written into
+     */
+    public void writeText(GUIText text, TextMeshData data)
+    {
+        loader.writeTextMesh(text, data);
+    }
+
     /**
      * Returns the font's texture atlas ID
      * @return font texture atlas ID
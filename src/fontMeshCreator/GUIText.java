@@ -23,14 +23,14 @@ public class GUIText
     private float fontSize;
 
     /**
-     * VAO mesh of quads that text will be rendered onto
+     * Vertex data of the quads that text will be rendered onto
      */
-    private int textMeshVao;
+    private TextMeshData meshData;
 
     /**
-     * Number of vertices
+     * Maximum number of characters of a dynamic text, or 0 if the text is static
      */
-    private int vertexCount;
+    private int maxCharacters;
 
     /**
      * Width of the virtual page in terms of screen width (1 is full screen width, 0.5 is half the width of the screen, etc.)
@@ -124,6 +124,26 @@ public class GUIText
 //        TextMaster.loadText(this);
     }
 
+    /**
+     * Creates a dynamic text.  A dynamic text owns fixed size vertex arrays that are
+     * rewritten in place whenever the string changes, so it can be updated every
+     * frame without allocating anything.  Characters beyond the maximum are not drawn.
+     * @param text text
+     * @param fontSize font size of text
+     * @param font font
+     * @param position position where top left corner of text should be rendered
+     * @param maxLineLength line length
+     * @param centered  true if text is centered
+     * @param maxCharacters maximum number of characters the text can hold
+     */
+    public GUIText(String text, float fontSize, FontType font, Vector2f position, float maxLineLength, boolean centered,
+                   int maxCharacters)
+    {
+        this(text, fontSize, font, position, maxLineLength, centered);
+        this.maxCharacters = maxCharacters;
+        this.meshData = new TextMeshData(maxCharacters * TextMeshCreator.VERTICES_PER_CHARACTER);
+    }
+
     /**
      * Adds this text to the screen.
      */
@@ -134,10 +154,24 @@ public class GUIText
     }
 
     /**
-     * Replaces this text with a new string of text.
+     * Replaces this text with a new string of text.  A dynamic text is rewritten in
+     * place, and only if the string has changed.
+     * @param newString new string of text
      */
     public void update(String newString)
     {
+        if (isDynamic())
+        {
+            if (!newString.equals(textString))
+            {
+                this.textString = newString;
+                if (isOnScreen)
+                {
+                    font.writeText(this, meshData);
+                }
+            }
+            return;
+        }
         remove();
         this.textString = newString;
         TextMaster.loadText(this);
@@ -172,12 +206,12 @@ public class GUIText
     }
 
     /**
-     * Returns the ID of this text's VAO which contains all vertex data for quads on which the text will be rendered.
-     * @return VAO ID
+     * Returns the vertex data of the quads on which this text will be rendered.
+     * @return mesh data, or null if the text hasn't been loaded
      */
-    public int getMesh()
+    public TextMeshData getMeshData()
     {
-        return textMeshVao;
+        return meshData;
     }
 
     /**
@@ -186,7 +220,25 @@ public class GUIText
      */
     public int getVertexCount()
     {
-        return this.vertexCount;
+        return meshData != null ? meshData.getVertexCount() : 0;
+    }
+
+    /**
+     * Returns true if this text is rewritten in place when it is updated.
+     * @return {@code true} text is dynamic
+     */
+    public boolean isDynamic()
+    {
+        return maxCharacters > 0;
+    }
+
+    /**
+     * Returns the maximum number of characters of this dynamic text.
+     * @return maximum number of characters, or 0 if the text is static
+     */
+    public int getMaxCharacters()
+    {
+        return maxCharacters;
     }
 
     /**
@@ -254,14 +306,12 @@ public class GUIText
     }
 
     /**
-     * Sets the VAO and vertex count for this text.
-     * @param vao VAO containing all the vertex data for the quads on which the text will be rendered.
-     * @param verticesCount total number of vertices in all of the quads.
+     * Sets the vertex data of the quads on which this text will be rendered.
+     * @param meshData vertex data of the text's quads
      */
-    public void setMeshInfo(int vao, int verticesCount)
+    public void setMeshData(TextMeshData meshData)
     {
-        this.textMeshVao = vao;
-        this.vertexCount = verticesCount;
+        this.meshData = meshData;
     }
 
     /**
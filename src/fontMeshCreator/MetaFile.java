@@ -4,7 +4,9 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.lwjgl.opengl.Display;
@@ -67,9 +69,9 @@ public class MetaFile
     private int paddingHeight;
 
     /**
-     * Hash map of characters
+     * Characters of the font, indexed by code point (null where the font has no glyph)
      */
-    private Map<Integer, Character> metaData = new HashMap<>();
+    private Character[] characters;
 
     /**
      * Buffered reader
@@ -186,14 +188,22 @@ public class MetaFile
     {
         processNextLine();
         processNextLine();
+        List<Character> loaded = new ArrayList<>();
+        int maxId = 0;
         while (processNextLine())
         {
             Character c = loadCharacter(imageWidth);
             if (c != null)
             {
-                metaData.put(c.getId(), c);
+                loaded.add(c);
+                maxId = Math.max(maxId, c.getId());
             }
         }
+        characters = new Character[maxId + 1];
+        for (Character c : loaded)
+        {
+            characters[c.getId()] = c;
+        }
     }
 
     /**
@@ -256,11 +266,11 @@ public class MetaFile
     /**
      * Returns a character according to it's ASCII value.
      * @param ascii ASCII value
-     * @return character
+     * @return character, or null if the font has no glyph for it
      */
     protected Character getCharacter(int ascii)
     {
-        return metaData.get(ascii);
+        return ascii >= 0 && ascii < characters.length ? characters[ascii] : null;
     }
 
     /**
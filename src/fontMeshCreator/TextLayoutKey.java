@@ -0,0 +1,80 @@
+package fontMeshCreator;
+
+/**
+ * Identifies a laid out text in a font's layout cache.  Two texts with the same
+ * string, font size, line length and alignment have the same quads.  One key is
+ * reused for every lookup, so a new key is only created when a layout is cached.
+ *
+ * @author Aaron Frazer
+ */
+public class TextLayoutKey
+{
+    /**
+     * String of text
+     */
+    private String textString;
+
+    /**
+     * Size of text
+     */
+    private float fontSize;
+
+    /**
+     * Maximum line length of text
+     */
+    private float maxLineSize;
+
+    /**
+     * Is text centered?
+     */
+    private boolean centered;
+
+    /**
+     * Sets this key to the layout of a text.
+     * @param text text
+     * @return this key
+     */
+    protected TextLayoutKey set(GUIText text)
+    {
+        this.textString = text.getTextString();
+        this.fontSize = text.getFontSize();
+        this.maxLineSize = text.getMaxLineSize();
+        this.centered = text.isCentered();
+        return this;
+    }
+
+    /**
+     * Returns a copy of this key, to be stored in the cache.
+     * @return copy of key
+     */
+    protected TextLayoutKey copy()
+    {
+        TextLayoutKey key = new TextLayoutKey();
+        key.textString = textString;
+        key.fontSize = fontSize;
+        key.maxLineSize = maxLineSize;
+        key.centered = centered;
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if (!(other instanceof TextLayoutKey))
+        {
+            return false;
+        }
+        TextLayoutKey key = (TextLayoutKey) other;
+        return fontSize == key.fontSize && maxLineSize == key.maxLineSize && centered == key.centered
+                && textString.equals(key.textString);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash = textString.hashCode();
+        hash = 31 * hash + Float.floatToIntBits(fontSize);
+        hash = 31 * hash + Float.floatToIntBits(maxLineSize);
+        return 31 * hash + (centered ? 1 : 0);
+    }
+}
@@ -1,11 +1,18 @@
 package fontMeshCreator;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
- * Represents a structure for character data.
+ * Lays out texts and creates the quad vertices they are rendered onto.
+ *
+ * The layout is written into arrays that are reused from text to text, so laying
+ * out a text doesn't allocate anything.  Words and lines are kept as ranges of the
+ * text's string rather than as objects.  Laid out static texts are kept in a cache,
+ * so a text that is loaded again with the same string doesn't have to be laid out
+ * again.
  *
  * @author Aaron Frazer
  */
@@ -21,11 +28,71 @@ public class TextMeshCreator
      */
     protected static final int SPACE_ASCII = 32;
 
+    /**
+     * Number of vertices of a character's quad
+     */
+    protected static final int VERTICES_PER_CHARACTER = 6;
+
+    /**
+     * Maximum number of laid out texts kept in the cache
+     */
+    private static final int MAX_CACHED_LAYOUTS = 256;
+
     /**
      * Data about the font file
      */
     private MetaFile metaData;
 
+    /**
+     * Laid out texts, least recently used first
+     */
+    private final Map<TextLayoutKey, TextMeshData> cache = new LinkedHashMap<TextLayoutKey, TextMeshData>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TextLayoutKey, TextMeshData> eldest)
+        {
+            return size() > MAX_CACHED_LAYOUTS;
+        }
+    };
+
+    /**
+     * Key used to look texts up in the cache
+     */
+    private final TextLayoutKey lookupKey = new TextLayoutKey();
+
+    /**
+     * First and last (exclusive) index in the string of each word that fits on a line
+     */
+    private int[] wordStarts = new int[64];
+    private int[] wordEnds = new int[64];
+
+    /**
+     * Number of words that fit on a line
+     */
+    private int wordCount;
+
+    /**
+     * Index of the first word of each line, and the length of each line
+     */
+    private int[] lineFirstWords = new int[16];
+    private double[] lineLengths = new double[16];
+
+    /**
+     * Number of lines
+     */
+    private int lineCount;
+
+    /**
+     * Vertex positions and texture coordinates of the last laid out text
+     */
+    private float[] vertices = new float[1024];
+    private float[] textureCoords = new float[1024];
+
+    /**
+     * Number of vertices of the last laid out text
+     */
+    private int vertexCount;
+
     /**
      * Creates a new structure for the data by reading in a file.
      * @param metaFile file
@@ -36,106 +103,172 @@ public class TextMeshCreator
     }
 
     /**
-     * Creates a structure for the text and creates quad vertices for the text.
+     * Creates the quad vertices for a text, or returns them from the cache if a text
+     * with the same layout has already been created.  The returned data is shared,
+     * so it must not be changed.
      * @param text text to be rendered
      * @return data about the structure of characters
      */
     protected TextMeshData createTextMesh(GUIText text)
     {
-        List<Line> lines = createStructure(text);
-        TextMeshData data = createQuadVertices(text, lines);
+        TextMeshData data = cache.get(lookupKey.set(text));
+        if (data == null)
+        {
+            layout(text);
+            data = new TextMeshData(Arrays.copyOf(vertices, vertexCount * 2), Arrays.copyOf(textureCoords, vertexCount * 2),
+                    lineCount);
+            cache.put(lookupKey.copy(), data);
+        }
+        text.setNumberOfLines(data.getNumberOfLines());
 
         return data;
     }
 
     /**
-     * Creates a structure for the text.
+     * Lays out a text and writes the quad vertices into existing vertex data.  Nothing
+     * is allocated and the cache isn't used, so this is meant for texts that change
+     * often.  Vertices that don't fit in the arrays of the data are not written.
+     * @param text text to be rendered
+     * @param data vertex data the quads are written into
+     */
+    protected void writeTextMesh(GUIText text, TextMeshData data)
+    {
+        layout(text);
+        text.setNumberOfLines(lineCount);
+        int count = Math.min(vertexCount, data.getVertexPositions().length / 2);
+        System.arraycopy(vertices, 0, data.getVertexPositions(), 0, count * 2);
+        System.arraycopy(textureCoords, 0, data.getTextureCoords(), 0, count * 2);
+        data.setCounts(count, lineCount);
+    }
+
+    /**
+     * Lays out a text into lines of words, then creates the quad vertices of its characters.
      * @param text text to be rendered
-     * @return lines of text
      */
-    private List<Line> createStructure(GUIText text)
+    private void layout(GUIText text)
     {
-        char[] chars = text.getTextString().toCharArray();
-        List<Line> lines = new ArrayList<>();
-        Line currentLine = new Line(metaData.getSpaceWidth(), text.getFontSize(), text.getMaxLineSize());
-        Word currentWord = new Word(text.getFontSize());
-        for (char c : chars)
+        String string = text.getTextString();
+        int length = string.length();
+        double fontSize = text.getFontSize();
+        double maxLength = text.getMaxLineSize();
+        double spaceSize = metaData.getSpaceWidth() * fontSize;
+        wordCount = 0;
+        lineCount = 0;
+        beginLine();
+        int wordStart = 0;
+        double wordWidth = 0;
+        for (int i = 0; i <= length; i++)
         {
-            int ascii = (int) c;
+            int ascii = i < length ? string.charAt(i) : SPACE_ASCII;
             if (ascii == SPACE_ASCII)
             {
-                boolean added = currentLine.attemptToAddWord(currentWord);
-                if (!added)
+                if (!addWord(wordStart, i, wordWidth, spaceSize, maxLength))
                 {
-                    lines.add(currentLine);
-                    currentLine = new Line(metaData.getSpaceWidth(), text.getFontSize(), text.getMaxLineSize());
-                    currentLine.attemptToAddWord(currentWord);
+                    // the word goes on a new line, and is dropped if it is too long for an empty line
+                    lineCount++;
+                    beginLine();
+                    addWord(wordStart, i, wordWidth, spaceSize, maxLength);
                 }
-                currentWord = new Word(text.getFontSize());
+                wordStart = i + 1;
+                wordWidth = 0;
                 continue;
             }
             Character character = metaData.getCharacter(ascii);
-            currentWord.addCharacter(character);
+            if (character != null)
+            {
+                wordWidth += character.getxAdvance() * fontSize;
+            }
         }
-        completeStructure(lines, currentLine, currentWord, text);
+        lineCount++;
+        createQuadVertices(text, string);
+    }
 
-        return lines;
+    /**
+     * Starts a new empty line after the last line.
+     */
+    private void beginLine()
+    {
+        if (lineCount + 1 >= lineFirstWords.length)
+        {
+            lineFirstWords = Arrays.copyOf(lineFirstWords, lineFirstWords.length * 2);
+            lineLengths = Arrays.copyOf(lineLengths, lineLengths.length * 2);
+        }
+        lineFirstWords[lineCount] = wordCount;
+        lineLengths[lineCount] = 0;
     }
 
     /**
-     * Completes the structure of the text.
-     * @param lines list of lines
-     * @param currentLine current line
-     * @param currentWord current word
-     * @param text text to be rendered
+     * Attempts to add a word to the end of the current line.  If the line can fit the
+     * word without reaching the maximum line length, then the word is added and the
+     * line length increased.
+     * @param start index of the word's first character
+     * @param end index after the word's last character
+     * @param width screen-space width of the word
+     * @param spaceSize screen-space width of a space
+     * @param maxLength maximum line length
+     * @return {@code true} word has been added to the line
      */
-    private void completeStructure(List<Line> lines, Line currentLine, Word currentWord, GUIText text)
+    private boolean addWord(int start, int end, double width, double spaceSize, double maxLength)
     {
-        boolean added = currentLine.attemptToAddWord(currentWord);
-        if (!added)
+        double additionalLength = width;
+        additionalLength += wordCount > lineFirstWords[lineCount] ? spaceSize : 0;
+        if (lineLengths[lineCount] + additionalLength > maxLength)
+        {
+            return false;
+        }
+        if (wordCount == wordStarts.length)
         {
-            lines.add(currentLine);
-            currentLine = new Line(metaData.getSpaceWidth(), text.getFontSize(), text.getMaxLineSize());
-            currentLine.attemptToAddWord(currentWord);
+            wordStarts = Arrays.copyOf(wordStarts, wordCount * 2);
+            wordEnds = Arrays.copyOf(wordEnds, wordCount * 2);
         }
-        lines.add(currentLine);
+        wordStarts[wordCount] = start;
+        wordEnds[wordCount] = end;
+        wordCount++;
+        lineLengths[lineCount] += additionalLength;
+        return true;
     }
 
     /**
-     * Creates quad vertices for the text.
+     * Creates quad vertices for the laid out text.
      * @param text text to be rendered
-     * @param lines list of lines
-     * @return data about the text
+     * @param string string of the text
      */
-    private TextMeshData createQuadVertices(GUIText text, List<Line> lines)
+    private void createQuadVertices(GUIText text, String string)
     {
-        text.setNumberOfLines(lines.size());
-        double curserX = 0f;
+        int maxFloats = string.length() * VERTICES_PER_CHARACTER * 2;
+        if (vertices.length < maxFloats)
+        {
+            vertices = new float[Math.max(maxFloats, vertices.length * 2)];
+            textureCoords = new float[vertices.length];
+        }
+        vertexCount = 0;
+        double fontSize = text.getFontSize();
+        double maxLength = text.getMaxLineSize();
+        double curserX;
         double curserY = 0f;
-        List<Float> vertices = new ArrayList<>();
-        List<Float> textureCoords = new ArrayList<>();
-        for (Line line : lines)
+        for (int line = 0; line < lineCount; line++)
         {
-            if (text.isCentered())
-            {
-                curserX = (line.getMaxLength() - line.getLineLength()) / 2;
-            }
-            for (Word word : line.getWords())
+            curserX = text.isCentered() ? (maxLength - lineLengths[line]) / 2 : 0;
+            int lastWord = line + 1 < lineCount ? lineFirstWords[line + 1] : wordCount;
+            for (int word = lineFirstWords[line]; word < lastWord; word++)
             {
-                for (Character letter : word.getCharacters())
+                for (int i = wordStarts[word]; i < wordEnds[word]; i++)
                 {
-                    addVerticesForCharacter(curserX, curserY, letter, text.getFontSize(), vertices);
-                    addTexCoords(textureCoords, letter.getxTextureCoord(), letter.getyTextureCoord(),
+                    Character letter = metaData.getCharacter(string.charAt(i));
+                    if (letter == null)
+                    {
+                        continue;
+                    }
+                    addVerticesForCharacter(curserX, curserY, letter, fontSize);
+                    addTexCoords(letter.getxTextureCoord(), letter.getyTextureCoord(),
                             letter.getXMaxTextureCoord(), letter.getYMaxTextureCoord());
-                    curserX += letter.getxAdvance() * text.getFontSize();
+                    vertexCount += VERTICES_PER_CHARACTER;
+                    curserX += letter.getxAdvance() * fontSize;
                 }
-                curserX += metaData.getSpaceWidth() * text.getFontSize();
+                curserX += metaData.getSpaceWidth() * fontSize;
             }
-            curserX = 0;
-            curserY += LINE_HEIGHT * text.getFontSize();
+            curserY += LINE_HEIGHT * fontSize;
         }
-
-        return new TextMeshData(listToArray(vertices), listToArray(textureCoords));
     }
 
     /**
@@ -144,9 +277,8 @@ public class TextMeshCreator
      * @param curserY cursor position Y
      * @param character character
      * @param fontSize font size
-     * @param vertices list of vertices
      */
-    private void addVerticesForCharacter(double curserX, double curserY, Character character, double fontSize, List<Float> vertices)
+    private void addVerticesForCharacter(double curserX, double curserY, Character character, double fontSize)
     {
         double x = curserX + (character.getxOffset() * fontSize);
         double y = curserY + (character.getyOffset() * fontSize);
@@ -156,70 +288,43 @@ public class TextMeshCreator
         double properY = (-2 * y) + 1;
         double properMaxX = (2 * maxX) - 1;
         double properMaxY = (-2 * maxY) + 1;
-        addVertices(vertices, properX, properY, properMaxX, properMaxY);
+        addQuad(vertices, vertexCount * 2, properX, properY, properMaxX, properMaxY);
     }
 
     /**
-     * Adds vertices to the list for each X and Y value.
-     * @param vertices list of vertices
+     * Adds texture coordinates for a character.
      * @param x X value
      * @param y Y value
      * @param maxX maximum X value
      * @param maxY maximum Y value
      */
-    private static void addVertices(List<Float> vertices, double x, double y, double maxX, double maxY)
+    private void addTexCoords(double x, double y, double maxX, double maxY)
     {
-        vertices.add((float) x);
-        vertices.add((float) y);
-        vertices.add((float) x);
-        vertices.add((float) maxY);
-        vertices.add((float) maxX);
-        vertices.add((float) maxY);
-        vertices.add((float) maxX);
-        vertices.add((float) maxY);
-        vertices.add((float) maxX);
-        vertices.add((float) y);
-        vertices.add((float) x);
-        vertices.add((float) y);
+        addQuad(textureCoords, vertexCount * 2, x, y, maxX, maxY);
     }
 
     /**
-     * Adds texture coordinates to texture coordinates array list.
-     * @param texCoords lsit of texture coordinates
+     * Writes the two triangles of a quad into an array.
+     * @param array array the quad is written into
+     * @param offset index of the first float of the quad
      * @param x X value
      * @param y Y value
      * @param maxX maximum X value
      * @param maxY maximum Y value
      */
-    private static void addTexCoords(List<Float> texCoords, double x, double y, double maxX, double maxY)
+    private static void addQuad(float[] array, int offset, double x, double y, double maxX, double maxY)
     {
-        texCoords.add((float) x);
-        texCoords.add((float) y);
-        texCoords.add((float) x);
-        texCoords.add((float) maxY);
-        texCoords.add((float) maxX);
-        texCoords.add((float) maxY);
-        texCoords.add((float) maxX);
-        texCoords.add((float) maxY);
-        texCoords.add((float) maxX);
-        texCoords.add((float) y);
-        texCoords.add((float) x);
-        texCoords.add((float) y);
-    }
-
-    /**
-     * Converts a list of floats to an array of floats.
-     * @param listOfFloats list of floats
-     * @return array of floats
-     */
-    private static float[] listToArray(List<Float> listOfFloats)
-    {
-        float[] array = new float[listOfFloats.size()];
-        for (int i = 0; i < array.length; i++)
-        {
-            array[i] = listOfFloats.get(i);
-        }
-
-        return array;
+        array[offset] = (float) x;
+        array[offset + 1] = (float) y;
+        array[offset + 2] = (float) x;
+        array[offset + 3] = (float) maxY;
+        array[offset + 4] = (float) maxX;
+        array[offset + 5] = (float) maxY;
+        array[offset + 6] = (float) maxX;
+        array[offset + 7] = (float) maxY;
+        array[offset + 8] = (float) maxX;
+        array[offset + 9] = (float) y;
+        array[offset + 10] = (float) x;
+        array[offset + 11] = (float) y;
     }
-}
\ No newline at end of file
+}
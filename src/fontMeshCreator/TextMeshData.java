@@ -16,15 +16,38 @@ public class TextMeshData
      */
     private float[] textureCoords;
 
+    /**
+     * Number of vertices
+     */
+    private int vertexCount;
+
+    /**
+     * Number of lines the text goes over
+     */
+    private int numberOfLines;
+
     /**
      * Creates vertex data for all quads on the text to be rendered
      * @param vertexPositions vertices
      * @param textureCoords texture coordinates
+     * @param numberOfLines number of lines the text goes over
      */
-    protected TextMeshData(float[] vertexPositions, float[] textureCoords)
+    protected TextMeshData(float[] vertexPositions, float[] textureCoords, int numberOfLines)
     {
         this.vertexPositions = vertexPositions;
         this.textureCoords = textureCoords;
+        this.vertexCount = vertexPositions.length / 2;
+        this.numberOfLines = numberOfLines;
+    }
+
+    /**
+     * Creates empty vertex data that a dynamic text's quads can be written into.
+     * @param maxVertices maximum number of vertices
+     */
+    protected TextMeshData(int maxVertices)
+    {
+        this.vertexPositions = new float[maxVertices * 2];
+        this.textureCoords = new float[maxVertices * 2];
     }
 
     /**
@@ -51,6 +74,26 @@ public class TextMeshData
      */
     public int getVertexCount()
     {
-        return vertexPositions.length / 2;
+        return vertexCount;
+    }
+
+    /**
+     * Sets the number of vertices and lines after quads have been written into the arrays.
+     * @param vertexCount number of vertices
+     * @param numberOfLines number of lines
+     */
+    protected void setCounts(int vertexCount, int numberOfLines)
+    {
+        this.vertexCount = vertexCount;
+        this.numberOfLines = numberOfLines;
+    }
+
+    /**
+     * Returns the number of lines the text goes over.
+     * @return number of lines
+     */
+    public int getNumberOfLines()
+    {
+        return numberOfLines;
     }
 }
\ No newline at end of file
@@ -3,18 +3,16 @@ package fontRendering;
 import fontMeshCreator.FontType;
 import fontMeshCreator.GUIText;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
-import org.lwjgl.util.vector.Vector2f;
-import org.lwjgl.util.vector.Vector3f;
-import toolbox.GameSettings;
+import renderEngine.Loader;
+import renderEngine.RenderState;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Responsible for rendering font the the screen.
+ * Responsible for rendering font the the screen.  All the texts that use the same
+ * font are drawn together from one batch, with a single draw call.
  * @author Aaron Frazer
  */
 public class FontRenderer
@@ -24,11 +22,23 @@ public class FontRenderer
      */
     private FontShader shader;
 
+    /**
+     * Loader used to create and update the batches
+     */
+    private Loader loader;
+
+    /**
+     * Maps a font type to the batch its texts are drawn from
+     */
+    private Map<FontType, TextBatch> batches = new HashMap<>();
+
     /**
      * Creates a font renderer.
+     * @param loader loader used to create and update the text batches
      */
-    public FontRenderer()
+    public FontRenderer(Loader loader)
     {
+        this.loader = loader;
         shader = new FontShader();
     }
 
@@ -47,14 +57,22 @@ public class FontRenderer
     public void render(Map<FontType, List<GUIText>> texts)
     {
         prepare();
-        for (FontType font : texts.keySet())
+        for (Map.Entry<FontType, List<GUIText>> entry : texts.entrySet())
         {
-            GL13.glActiveTexture(GL13.GL_TEXTURE0);
-            GL11.glBindTexture(GL11.GL_TEXTURE_2D, font.getTextureAtlas());
-            for (GUIText text : texts.get(font))
+            FontType font = entry.getKey();
+            TextBatch batch = batches.get(font);
+            if (batch == null)
+            {
+                batch = new TextBatch(loader);
+                batches.put(font, batch);
+            }
+            batch.update(entry.getValue(), loader);
+            if (batch.getVertexCount() == 0)
             {
-                renderText(text);
+                continue;
             }
+            RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, font.getTextureAtlas());
+            renderBatch(batch);
         }
         endRendering();
     }
@@ -64,46 +82,34 @@ public class FontRenderer
      */
     private void prepare()
     {
-        GL11.glEnable(GL11.GL_BLEND);
-        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
-        GL11.glDisable(GL11.GL_DEPTH_TEST);
+        RenderState.setBlending(true);
+        RenderState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        RenderState.setDepthTest(false);
         shader.start();
     }
 
     /**
-     * Renders a text.
-     * @param text text
+     * Renders all the texts of a batch with one draw call.
+     * @param batch batch of texts that use the same font
      */
-    private void renderText(GUIText text)
+    private void renderBatch(TextBatch batch)
     {
-        GL30.glBindVertexArray(text.getMesh());
-        GL20.glEnableVertexAttribArray(0);
-        GL20.glEnableVertexAttribArray(1);
-
-        shader.loadColour(text.getColour());
-        shader.loadTranslation(text.getPosition());
-
-        shader.loadWidth(text.getDistanceFieldWidth());
-        shader.loadEdge(text.getDistanceFieldEdge());
-        shader.loadBorderWidth(text.getBorderWidth());
-        shader.loadBorderEdge(text.getBorderEdge());
-        shader.loadOffset(text.getOffset());
-        shader.loadOutlineColour(text.getOutlineColour());
-
-        GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, text.getVertexCount());
-
-        GL20.glDisableVertexAttribArray(0);
-        GL20.glDisableVertexAttribArray(1);
-        GL30.glBindVertexArray(0);
+        RenderState.bindVertexArray(batch.getVao());
+        for (int i = 0; i < 6; i++)
+        {
+            RenderState.enableVertexAttribArray(i);
+        }
+        GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, batch.getVertexCount());
     }
 
     /**
-     * Ends font rendering by stopping the font shader.
+     * Ends font rendering by unbinding the last text and stopping the font shader.
      */
     private void endRendering()
     {
+        RenderState.bindVertexArray(0);
         shader.stop();
-        GL11.glDisable(GL11.GL_BLEND);
-        GL11.glEnable(GL11.GL_DEPTH_TEST);
+        RenderState.setBlending(false);
+        RenderState.setDepthTest(true);
     }
 }
\ No newline at end of file
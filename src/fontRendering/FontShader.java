@@ -1,7 +1,5 @@
 package fontRendering;
 
-import org.lwjgl.util.vector.Vector2f;
-import org.lwjgl.util.vector.Vector3f;
 import shaders.ShaderProgram;
 
 /**
@@ -21,18 +19,6 @@ public class FontShader extends ShaderProgram
      */
     private static final String FRAGMENT_FILE = "fontRendering/fontFragmentShader.glsl";
 
-    /**
-     * Location of uniform variables in vertex/fragment programs
-     */
-    private int location_colour;
-    private int location_translation;
-    private int location_width;
-    private int location_edge;
-    private int location_borderWidth;
-    private int location_borderEdge;
-    private int location_offset;
-    private int location_outlineColour;
-
     /**
      * Creates a font shader program.
      */
@@ -44,94 +30,17 @@ public class FontShader extends ShaderProgram
     @Override
     protected void getAllUniformLocations()
     {
-        location_colour = super.getUniformLocation("colour");
-        location_translation = super.getUniformLocation("translation");
-        location_width = super.getUniformLocation("width");
-        location_edge = super.getUniformLocation("edge");
-        location_borderWidth = super.getUniformLocation("borderWidth");
-        location_borderEdge = super.getUniformLocation("borderEdge");
-        location_offset = super.getUniformLocation("offset");
-        location_outlineColour = super.getUniformLocation("outlineColour");
-
+        // colours and effects are vertex attributes, so texts can be drawn in one batch
     }
 
     @Override
     protected void bindAttributes()
     {
-        super.bindAttribute(0, "positions");
+        super.bindAttribute(0, "position");
         super.bindAttribute(1, "textureCoords");
-    }
-
-    /**
-     * Loads a color to a uniform variable (in fragment shader)
-     * @param colour color
-     */
-    protected void loadColour(Vector3f colour)
-    {
-        super.load3DVector(location_colour, colour);
-    }
-
-    /**
-     * Loads a translation to a uniform variable (in vertex shader)
-     * @param translation translation
-     */
-    protected void loadTranslation(Vector2f translation)
-    {
-        super.load2DVector(location_translation, translation);
-    }
-
-    /**
-     * Loads width to a uniform variable (in vertex shader).
-     * @param width width of character (between 1 and 0)
-     */
-    public void loadWidth(float width)
-    {
-        super.loadFloat(location_width, width);
-    }
-
-    /**
-     * Loads edge to a uniform variable (in vertex shader).
-     * @param edge pixelation of edge (soft/hard edge)
-     */
-    public void loadEdge(float edge)
-    {
-        super.loadFloat(location_edge, edge);
-    }
-
-    /**
-     * Loads borderWidth to a uniform variable (in vertex shader).
-     * @param borderWidth outline width of character
-     */
-    public void loadBorderWidth(float borderWidth)
-    {
-        super.loadFloat(location_borderWidth, borderWidth);
-    }
-
-    /**
-     * Loads borderEdge to a uniform variable (in vertex shader).
-     * @param borderEdge edge transition distance
-     */
-    public void loadBorderEdge(float borderEdge)
-    {
-        super.loadFloat(location_borderEdge, borderEdge);
-    }
-
-    /**
-     * Loads offset variable to a uniform variable (in vertex shader).
-     * @param offset dropshadow effect
-     */
-    protected void loadOffset(Vector2f offset)
-    {
-        super.load2DVector(location_offset, offset);
-    }
-
-    /**
-     * Loads outlineColour to a uniform variable (in vertex shader).
-     * @param outlineColour outline color
-     */
-    public void loadOutlineColour(Vector3f outlineColour)
-    {
-        super.load3DVector(location_outlineColour, outlineColour);
-
+        super.bindAttribute(2, "colour");
+        super.bindAttribute(3, "outlineColour");
+        super.bindAttribute(4, "effects");
+        super.bindAttribute(5, "offset");
     }
 }
@@ -0,0 +1,153 @@
+package fontRendering;
+
+import fontMeshCreator.GUIText;
+import fontMeshCreator.TextMeshData;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.util.vector.Vector2f;
+import org.lwjgl.util.vector.Vector3f;
+import renderEngine.Loader;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The vertices of all the texts that use one font, in a single streaming VBO, so
+ * they can be drawn with one draw call.  Each vertex carries its text's translation,
+ * colours and effects, so no uniforms have to be changed between texts.  The VBO
+ * is refilled every frame and grows when the texts no longer fit in it.
+ *
+ * Vertex layout: position (2) | texture coords (2) | colour (3) | outline colour (3) |
+ * width, edge, border width, border edge (4) | offset (2)
+ *
+ * @author Aaron Frazer
+ */
+public class TextBatch
+{
+    /**
+     * Number of floats per vertex
+     */
+    private static final int VERTEX_SIZE = 16;
+
+    /**
+     * Number of vertices the VBO can initially hold
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * VAO and streaming VBO of the batch
+     */
+    private final int vao;
+    private final int vbo;
+
+    /**
+     * Vertices of the batch, before they are copied into the buffer
+     */
+    private float[] vertices = new float[INITIAL_CAPACITY * VERTEX_SIZE];
+
+    /**
+     * Buffer the vertices are uploaded from, with the same size as the VBO
+     */
+    private FloatBuffer buffer = BufferUtils.createFloatBuffer(INITIAL_CAPACITY * VERTEX_SIZE);
+
+    /**
+     * Number of vertices in the batch
+     */
+    private int vertexCount;
+
+    /**
+     * Creates an empty batch.
+     * @param loader loader used to create the VAO and VBO
+     */
+    protected TextBatch(Loader loader)
+    {
+        vbo = loader.createEmptyVbo(INITIAL_CAPACITY * VERTEX_SIZE);
+        vao = loader.loadToInterleavedVAO(vbo, 2, 2, 3, 3, 4, 2);
+    }
+
+    /**
+     * Fills the batch with the quads of a list of texts and uploads them to the VBO.
+     * @param texts texts that use the batch's font
+     * @param loader loader used to update the VBO
+     */
+    protected void update(List<GUIText> texts, Loader loader)
+    {
+        int totalVertices = 0;
+        for (GUIText text : texts)
+        {
+            totalVertices += text.getVertexCount();
+        }
+        if (totalVertices * VERTEX_SIZE > vertices.length)
+        {
+            int capacity = Math.max(totalVertices * VERTEX_SIZE, vertices.length * 2);
+            vertices = Arrays.copyOf(vertices, capacity);
+            buffer = BufferUtils.createFloatBuffer(capacity); // the VBO is resized to the buffer when it is updated
+        }
+        int pointer = 0;
+        for (GUIText text : texts)
+        {
+            pointer = storeTextData(text, pointer);
+        }
+        vertexCount = totalVertices;
+        buffer.clear();
+        buffer.put(vertices, 0, pointer);
+        buffer.flip();
+        loader.updateVbo(vbo, buffer);
+    }
+
+    /**
+     * Stores the vertices of a text in the vertex array.
+     * @param text text
+     * @param pointer index of the text's first float in the array
+     * @return index after the text's last float
+     */
+    private int storeTextData(GUIText text, int pointer)
+    {
+        TextMeshData data = text.getMeshData();
+        float[] positions = data.getVertexPositions();
+        float[] textureCoords = data.getTextureCoords();
+        float translationX = text.getPosition().x * 2;
+        float translationY = text.getPosition().y * -2;
+        Vector3f colour = text.getColour();
+        Vector3f outlineColour = text.getOutlineColour();
+        Vector2f offset = text.getOffset();
+        for (int i = 0; i < data.getVertexCount() * 2; i += 2)
+        {
+            vertices[pointer++] = positions[i] + translationX;
+            vertices[pointer++] = positions[i + 1] + translationY;
+            vertices[pointer++] = textureCoords[i];
+            vertices[pointer++] = textureCoords[i + 1];
+            vertices[pointer++] = colour.x;
+            vertices[pointer++] = colour.y;
+            vertices[pointer++] = colour.z;
+            vertices[pointer++] = outlineColour.x;
+            vertices[pointer++] = outlineColour.y;
+            vertices[pointer++] = outlineColour.z;
+            vertices[pointer++] = text.getDistanceFieldWidth();
+            vertices[pointer++] = text.getDistanceFieldEdge();
+            vertices[pointer++] = text.getBorderWidth();
+            vertices[pointer++] = text.getBorderEdge();
+            vertices[pointer++] = offset.x;
+            vertices[pointer++] = offset.y;
+        }
+        return pointer;
+    }
+
+    /**
+     * Returns the ID of the batch's VAO.
+     * @return VAO ID
+     */
+    protected int getVao()
+    {
+        return vao;
+    }
+
+    /**
+     * Returns the number of vertices in the batch.
+     * @return number of vertices
+     */
+    protected int getVertexCount()
+    {
+        return vertexCount;
+    }
+}
@@ -2,10 +2,6 @@ package fontRendering;
 
 import fontMeshCreator.FontType;
 import fontMeshCreator.GUIText;
-import fontMeshCreator.TextMeshData;
-import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 import renderEngine.Loader;
 
 import java.util.ArrayList;
@@ -21,11 +17,6 @@ import java.util.Map;
  */
 public class TextMaster
 {
-    /**
-     * Loader used to load text
-     */
-    private static Loader loader;
-
     /**
      * Maps a font type to a list of texts
      */
@@ -42,8 +33,7 @@ public class TextMaster
      */
     public static void init(Loader theLoader)
     {
-        renderer = new FontRenderer();
-        loader = theLoader;
+        renderer = new FontRenderer(theLoader);
     }
 
     /**
@@ -61,9 +51,13 @@ public class TextMaster
     public static void loadText(GUIText text)
     {
         FontType font = text.getFont();
-        TextMeshData data = font.loadText(text);
-        int vao = loader.loadToVAO(data.getVertexPositions(), data.getTextureCoords());
-        text.setMeshInfo(vao, data.getVertexCount());
+        if (text.isDynamic())
+        {
+            font.writeText(text, text.getMeshData());
+        } else
+        {
+            text.setMeshData(font.loadText(text));
+        }
         List<GUIText> textBatch = texts.get(font);
         if (textBatch == null)
         {
@@ -80,15 +74,11 @@ public class TextMaster
     public static void removeText(GUIText text)
     {
         List<GUIText> textBatch = texts.get(text.getFont());
-        if (textBatch == null) { return; }
-        textBatch.remove(text);
+        if (textBatch == null || !textBatch.remove(text)) { return; }
         if (textBatch.isEmpty())
         {
             // remove the list of texts from the hash map
             texts.remove(text.getFont());
-
-            // TODO: delete the text's VAO and related VBOs from memory if the text is never going to be used again.  See Tutorial 32 @ 11:20
-            loader.deleteVaoFromCache(loader.vaos.get(text.getMesh()-1));
         }
     }
 
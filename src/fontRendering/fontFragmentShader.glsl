@@ -1,32 +1,30 @@
 #version 330
 
 in vec2 pass_textureCoords;
+in vec3 pass_colour;
+in vec3 pass_outlineColour; // Outline color
+in vec4 pass_effects;
+in vec2 pass_offset; // Dropshadow effect
 
 out vec4 out_colour;
 
-uniform vec3 colour;
 uniform sampler2D fontAtlas;
 
-uniform float width; // width of character (between 0 and 1)
-uniform float edge; // pixelation of edge (soft/hard edge)
-
-uniform float borderWidth; // Outline
-uniform float borderEdge; // Edge transition distance
-
-uniform vec2 offset; // Dropshadow effect
-
-uniform vec3 outlineColour; // Outline color
-
 void main(void) {
 
+    float width = pass_effects.x; // width of character (between 0 and 1)
+    float edge = pass_effects.y; // pixelation of edge (soft/hard edge)
+    float borderWidth = pass_effects.z; // Outline
+    float borderEdge = pass_effects.w; // Edge transition distance
+
     float distance = 1.0 - texture(fontAtlas, pass_textureCoords).a;
     float alpha = 1.0 - smoothstep(width, width + edge, distance);
 
-    float distance2 = 1.0 - texture(fontAtlas, pass_textureCoords + offset).a;
+    float distance2 = 1.0 - texture(fontAtlas, pass_textureCoords + pass_offset).a;
     float outlineAlpha = 1.0 - smoothstep(borderWidth, borderWidth + borderEdge, distance2);
 
     float overallAlpha = alpha + (1.0 - alpha) * outlineAlpha;
-    vec3 overallColour = mix(outlineColour, colour, alpha / overallAlpha);
+    vec3 overallColour = mix(pass_outlineColour, pass_colour, alpha / overallAlpha);
 
     out_colour = vec4(overallColour, overallAlpha);
 
@@ -2,14 +2,24 @@
 
 in vec2 position;
 in vec2 textureCoords;
+in vec3 colour;
+in vec3 outlineColour;
+in vec4 effects; // width, edge, border width, border edge
+in vec2 offset;
 
 out vec2 pass_textureCoords;
-
-uniform vec2 translation;
+out vec3 pass_colour;
+out vec3 pass_outlineColour;
+out vec4 pass_effects;
+out vec2 pass_offset;
 
 void main(void) {
 
-    gl_Position = vec4(position + translation * vec2(2.0, -2.0), 0.0, 1.0);
+    gl_Position = vec4(position, 0.0, 1.0); // the text's translation is already added to the position
     pass_textureCoords = textureCoords;
+    pass_colour = colour;
+    pass_outlineColour = outlineColour;
+    pass_effects = effects;
+    pass_offset = offset;
 
 }
\ No newline at end of file
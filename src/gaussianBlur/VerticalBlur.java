@@ -1,9 +1,10 @@
 package gaussianBlur;
 
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
 
+import postProcessing.Fbo;
 import postProcessing.ImageRenderer;
+import renderEngine.RenderState;
 
 /**
  * Renders a textured quad and uses a VerticalBlurShader to create a vertical blur effect
@@ -23,47 +24,33 @@ public class VerticalBlur
     private VerticalBlurShader shader;
 
     /**
-     * Creates a new FBO with the given dimensions.
-     * @param targetFboWidth width of FBO
-     * @param targetFboHeight height of FBO
+     * Creates a vertical blur stage.
      */
-    public VerticalBlur(int targetFboWidth, int targetFboHeight)
+    public VerticalBlur()
     {
         shader = new VerticalBlurShader();
-        renderer = new ImageRenderer(targetFboWidth, targetFboHeight);
-        shader.start();
-        shader.loadTargetHeight(targetFboHeight);
-        shader.stop();
+        renderer = new ImageRenderer();
     }
 
     /**
-     * Renders a textured quad.
+     * Renders a textured quad to an FBO, blurring it vertically.
      * @param texture texture ID
+     * @param target FBO the blurred image is rendered to
      */
-    public void render(int texture)
+    public void render(int texture, Fbo target)
     {
         shader.start();
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
-        renderer.renderQuad();
+        shader.loadTargetHeight(target.getHeight());
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, texture);
+        renderer.renderQuad(target);
         shader.stop();
     }
 
     /**
-     * Returns the output texture of the ImageRenderer's FBO.
-     * @return output texture
-     */
-    public int getOutputTexture()
-    {
-        return renderer.getOutputTexture();
-    }
-
-    /**
-     * Cleans up resources in the renderer and shader.
+     * Cleans up resources in the shader.
      */
     public void cleanUp()
     {
-        renderer.cleanUp();
         shader.cleanUp();
     }
 }
@@ -0,0 +1,143 @@
+package guis;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.util.vector.Vector2f;
+import org.lwjgl.util.vector.Vector4f;
+import renderEngine.RenderState;
+import toolbox.FrameTimer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An on-screen graph of the most recent frame times, drawn as one bar per frame in
+ * the bottom left corner of the display.  Bars of frames within the budget are green
+ * and bars of frames over it are red, and a white line marks the budget.  The graph
+ * is twice the budget high, so a single hitch stands out even when the average frame
+ * rate looks fine.
+ *
+ * The bars are GUI textures that show one pixel of a small texture, so the whole
+ * graph is drawn by the GUI renderer in one draw call.
+ * @author Aaron Frazer
+ */
+public class FrameTimeGraph
+{
+    /**
+     * Number of frames shown
+     */
+    private static final int FRAMES = 120;
+
+    /**
+     * Left and bottom edge of the graph, and its width and height, in screen coordinates
+     */
+    private static final float LEFT = -0.95f, BOTTOM = -0.95f, WIDTH = 0.6f, HEIGHT = 0.3f;
+
+    /**
+     * Height of the budget line in screen coordinates
+     */
+    private static final float LINE_HEIGHT = 0.004f;
+
+    /**
+     * Colours of the texture's pixels (within budget, over budget, budget line)
+     */
+    private static final int[] COLOURS = {0x00ff00b0, 0xff0000e0, 0xffffffff};
+
+    /**
+     * Texture holding a pixel of each colour
+     */
+    private final int texture;
+
+    /**
+     * Texture regions of the within budget and over budget pixels
+     */
+    private final Vector4f withinBudgetRegion, overBudgetRegion;
+
+    /**
+     * Bars of the frames, oldest first, followed by the budget line
+     */
+    private final List<GuiTexture> guis = new ArrayList<>();
+
+    /**
+     * Copy of the frame times shown
+     */
+    private final long[] frameTimes = new long[FRAMES];
+
+    /**
+     * Creates the texture and the GUIs of the graph.
+     */
+    public FrameTimeGraph()
+    {
+        ByteBuffer pixels = BufferUtils.createByteBuffer(COLOURS.length * 4);
+        for (int colour : COLOURS)
+        {
+            pixels.putInt(colour);
+        }
+        pixels.flip();
+        texture = GL11.glGenTextures();
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, texture);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, COLOURS.length, 1, 0, GL11.GL_RGBA,
+                GL11.GL_UNSIGNED_BYTE, pixels);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+
+        withinBudgetRegion = pixelRegion(0);
+        overBudgetRegion = pixelRegion(1);
+        float barWidth = WIDTH / FRAMES;
+        for (int i = 0; i < FRAMES; i++)
+        {
+            guis.add(new GuiTexture(texture, withinBudgetRegion,
+                    new Vector2f(LEFT + barWidth * (i + 0.5f), BOTTOM), new Vector2f(barWidth / 2, 0)));
+        }
+        guis.add(new GuiTexture(texture, pixelRegion(2), new Vector2f(LEFT + WIDTH / 2, BOTTOM + HEIGHT / 2),
+                new Vector2f(WIDTH / 2, LINE_HEIGHT / 2)));
+    }
+
+    /**
+     * Returns the texture region that shows a single pixel of the texture.
+     * @param pixel index of the pixel
+     * @return left, top, right and bottom texture coordinates of the pixel's centre
+     */
+    private static Vector4f pixelRegion(int pixel)
+    {
+        float u = (pixel + 0.5f) / COLOURS.length;
+        return new Vector4f(u, 0.5f, u, 0.5f);
+    }
+
+    /**
+     * Sizes the bars to the most recent frame times.  Frames that haven't happened yet
+     * have no bar.
+     */
+    public void update()
+    {
+        int samples = FrameTimer.getFrameTimes(frameTimes);
+        for (int i = 0; i < FRAMES; i++)
+        {
+            GuiTexture bar = guis.get(i);
+            int sample = i - (FRAMES - samples);
+            long frameTime = sample >= 0 ? frameTimes[sample] : 0;
+            float height = Math.min(frameTime / (2f * FrameTimer.BUDGET_NANOS), 1) * HEIGHT;
+            bar.getPosition().y = BOTTOM + height / 2;
+            bar.getScale().y = height / 2;
+            bar.setTextureRegion(frameTime > FrameTimer.BUDGET_NANOS ? overBudgetRegion : withinBudgetRegion);
+        }
+    }
+
+    /**
+     * Returns the GUIs of the graph.
+     * @return bars and budget line
+     */
+    public List<GuiTexture> getGuis()
+    {
+        return guis;
+    }
+
+    /**
+     * Deletes the graph's texture.
+     */
+    public void cleanUp()
+    {
+        RenderState.deleteTexture(texture);
+    }
+}
@@ -0,0 +1,150 @@
+package guis;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.util.vector.Vector2f;
+import org.lwjgl.util.vector.Vector4f;
+import renderEngine.Loader;
+import renderEngine.RenderState;
+import textures.TextureData;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A texture atlas that GUI images are packed into when they are loaded, so GUIs
+ * using different images can still be drawn together by the GUI renderer.  Images
+ * are packed onto shelves: each image goes to the right of the previous one, and a
+ * new shelf is started past the tallest image of the current shelf when a row is
+ * full.  An image that is loaded twice is only packed once.  Images that don't fit
+ * in the atlas are loaded as separate textures.
+ *
+ * @author Aaron Frazer
+ */
+public class GuiAtlas
+{
+    /**
+     * Width and height of the atlas in pixels
+     */
+    private static final int SIZE = 2048;
+
+    /**
+     * Empty pixels between images, so they don't bleed into each other when filtered
+     */
+    private static final int PADDING = 2;
+
+    /**
+     * ID of the atlas texture, or 0 if no image has been packed yet
+     */
+    private static int textureID = 0;
+
+    /**
+     * Position of the next image on the current shelf, and the height of the shelf
+     */
+    private static int shelfX = 0;
+    private static int shelfY = 0;
+    private static int shelfHeight = 0;
+
+    /**
+     * Maps the file name of each packed image to its region of the atlas
+     */
+    private static Map<String, Vector4f> regions = new HashMap<>();
+
+    /**
+     * Creates a GUI texture for an image, packing the image into the atlas if it
+     * hasn't been packed yet.
+     * @param loader loader used to decode the image
+     * @param fileName filepath of texture
+     * @param position position of GUI
+     * @param scale scale of GUI
+     * @return GUI texture
+     */
+    public static GuiTexture loadTexture(Loader loader, String fileName, Vector2f position, Vector2f scale)
+    {
+        Vector4f region = regions.get(fileName);
+        if (region == null)
+        {
+            region = pack(loader.loadTextureData(fileName));
+            if (region == null)
+            {
+                System.err.println("GUI atlas is full, loading " + fileName + " as a separate texture");
+                return new GuiTexture(loader.loadGameTexture(fileName), position, scale);
+            }
+            regions.put(fileName, region);
+        }
+        return new GuiTexture(textureID, region, position, scale);
+    }
+
+    /**
+     * Packs an image into the atlas.
+     * @param data decoded image
+     * @return texture coordinates of the image's region (left, top, right, bottom),
+     *         or null if the image doesn't fit
+     */
+    private static Vector4f pack(TextureData data)
+    {
+        int width = data.getWidth();
+        int height = data.getHeight();
+        if (width > SIZE)
+        {
+            return null;
+        }
+        if (shelfX + width > SIZE)
+        {
+            shelfX = 0;
+            shelfY += shelfHeight + PADDING;
+            shelfHeight = 0;
+        }
+        if (shelfY + height > SIZE)
+        {
+            return null;
+        }
+        if (textureID == 0)
+        {
+            createTexture();
+        }
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, textureID);
+        GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, shelfX, shelfY, width, height, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE,
+                data.getBuffer());
+        Vector4f region = new Vector4f((float) shelfX / SIZE, (float) shelfY / SIZE,
+                (float) (shelfX + width) / SIZE, (float) (shelfY + height) / SIZE);
+        shelfX += width + PADDING;
+        shelfHeight = Math.max(shelfHeight, height);
+        return region;
+    }
+
+    /**
+     * Creates the atlas texture, cleared to transparent black so the padding
+     * between images is empty.
+     */
+    private static void createTexture()
+    {
+        textureID = GL11.glGenTextures();
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, textureID);
+        ByteBuffer pixels = BufferUtils.createByteBuffer(SIZE * SIZE * 4);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, SIZE, SIZE, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, pixels);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+    }
+
+    /**
+     * Deletes the atlas texture.
+     * Called when game is closed.
+     */
+    public static void cleanUp()
+    {
+        if (textureID != 0)
+        {
+            RenderState.deleteTexture(textureID);
+            textureID = 0;
+        }
+        regions.clear();
+        shelfX = 0;
+        shelfY = 0;
+        shelfHeight = 0;
+    }
+}
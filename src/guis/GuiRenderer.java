@@ -1,26 +1,55 @@
 package guis;
 
-import models.RawModel;
+import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
-import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector2f;
+import org.lwjgl.util.vector.Vector4f;
 import renderEngine.Loader;
-import toolbox.Maths;
+import renderEngine.RenderState;
 
+import java.nio.FloatBuffer;
+import java.util.Arrays;
 import java.util.List;
 
 /**
- * A class responsible for rendering GUIs.
+ * A class responsible for rendering GUIs.  The quads of all the GUIs are written
+ * into one streaming VBO each frame, in the order the GUIs are drawn.  Consecutive
+ * GUIs that use the same texture and blending are drawn together, so GUIs whose
+ * images are packed into the GUI atlas only need one draw call.
  * @author Aaron Frazer
  */
 public class GuiRenderer
 {
     /**
-     * Quad VAO used to render GUI texture
+     * Number of floats per vertex (position and texture coordinates)
      */
-    private final RawModel quad;
+    private static final int VERTEX_SIZE = 4;
+
+    /**
+     * Number of vertices of a GUI's quad
+     */
+    private static final int VERTICES_PER_QUAD = 6;
+
+    /**
+     * Number of GUIs the VBO can initially hold
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Corners of a quad, as two triangles
+     */
+    private static final float[] CORNERS = {-1, 1, -1, -1, 1, 1, 1, 1, -1, -1, 1, -1};
+
+    /**
+     * VAO and streaming VBO of the GUI quads
+     */
+    private final int vao;
+    private final int vbo;
+
+    /**
+     * Loader used to update the VBO
+     */
+    private final Loader loader;
 
     /**
      * GUI shader program
@@ -28,14 +57,38 @@ public class GuiRenderer
     private GuiShader shader;
 
     /**
-     * Creates a GUI renderer to render a quad model and creates
+     * Vertices of the GUI quads, before they are copied into the buffer
+     */
+    private float[] vertices = new float[INITIAL_CAPACITY * VERTICES_PER_QUAD * VERTEX_SIZE];
+
+    /**
+     * Buffer the vertices are uploaded from, with the same size as the VBO
+     */
+    private FloatBuffer buffer = BufferUtils.createFloatBuffer(vertices.length);
+
+    /**
+     * Texture, blending, first GUI and number of GUIs of each draw call
+     */
+    private int[] batchTextures = new int[INITIAL_CAPACITY];
+    private boolean[] batchBlending = new boolean[INITIAL_CAPACITY];
+    private int[] batchFirsts = new int[INITIAL_CAPACITY];
+    private int[] batchCounts = new int[INITIAL_CAPACITY];
+
+    /**
+     * Number of draw calls
+     */
+    private int batchCount;
+
+    /**
+     * Creates a GUI renderer with an empty streaming VBO and creates
      * a new GUI shader program.
      * @param loader loader object
      */
     public GuiRenderer(Loader loader)
     {
-        float[] positions = {-1, 1, -1, -1, 1, 1, 1, -1};
-        quad = loader.loadToVAO(positions, 2);
+        this.loader = loader;
+        vbo = loader.createEmptyVbo(vertices.length);
+        vao = loader.loadToInterleavedVAO(vbo, 2, 2);
         shader = new GuiShader();
     }
 
@@ -45,35 +98,113 @@ public class GuiRenderer
      */
     public void render(List<GuiTexture> guis)
     {
+        if (guis.isEmpty())
+        {
+            return;
+        }
+        storeQuads(guis);
+
         shader.start();
 
-        GL30.glBindVertexArray(quad.getVaoID());
-        GL20.glEnableVertexAttribArray(0);
+        RenderState.bindVertexArray(vao);
+        RenderState.enableVertexAttribArray(0);
+        RenderState.enableVertexAttribArray(1);
 
-        // Enable alpha blending (transparency)
-        GL11.glEnable(GL11.GL_BLEND);
-        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        RenderState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
 
-        // Enable depth testing (for GUIs on top of each other)
-        GL11.glDisable(GL11.GL_DEPTH_TEST);
+        // Disable depth testing (for GUIs on top of each other)
+        RenderState.setDepthTest(false);
 
-        for (GuiTexture gui : guis)
+        for (int i = 0; i < batchCount; i++)
         {
-            GL13.glActiveTexture(GL13.GL_TEXTURE0);
-            GL11.glBindTexture(GL11.GL_TEXTURE_2D, gui.getTextureID());
-            Matrix4f matrix = Maths.createTransformationMatrix(gui.getPosition(), gui.getScale());
-            shader.loadTransformation(matrix);
-            GL11.glDrawArrays(GL11.GL_TRIANGLE_STRIP, 0, quad.getVertexCount());
+            RenderState.setBlending(batchBlending[i]);
+            RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, batchTextures[i]);
+            GL11.glDrawArrays(GL11.GL_TRIANGLES, batchFirsts[i] * VERTICES_PER_QUAD, batchCounts[i] * VERTICES_PER_QUAD);
         }
 
-        GL11.glEnable(GL11.GL_DEPTH_TEST);
-        GL11.glDisable(GL11.GL_BLEND);
-        GL20.glDisableVertexAttribArray(0);
-        GL30.glBindVertexArray(0);
+        RenderState.setDepthTest(true);
+        RenderState.setBlending(false);
+        RenderState.bindVertexArray(0);
 
         shader.stop();
     }
 
+    /**
+     * Writes the quads of the GUIs into the VBO, and splits them into draw calls
+     * wherever the texture or blending changes.
+     * @param guis list of GUI textures
+     */
+    private void storeQuads(List<GuiTexture> guis)
+    {
+        int floatCount = guis.size() * VERTICES_PER_QUAD * VERTEX_SIZE;
+        if (floatCount > vertices.length)
+        {
+            vertices = new float[Math.max(floatCount, vertices.length * 2)];
+            buffer = BufferUtils.createFloatBuffer(vertices.length); // the VBO is resized to the buffer when it is updated
+        }
+        batchCount = 0;
+        int pointer = 0;
+        for (int i = 0; i < guis.size(); i++)
+        {
+            GuiTexture gui = guis.get(i);
+            if (batchCount == 0 || batchTextures[batchCount - 1] != gui.getTextureID()
+                    || batchBlending[batchCount - 1] != gui.isBlending())
+            {
+                startBatch(gui, i);
+            }
+            batchCounts[batchCount - 1]++;
+            pointer = storeQuad(gui, pointer);
+        }
+        buffer.clear();
+        buffer.put(vertices, 0, pointer);
+        buffer.flip();
+        loader.updateVbo(vbo, buffer);
+    }
+
+    /**
+     * Starts a new draw call.
+     * @param gui first GUI of the draw call
+     * @param first index of the GUI
+     */
+    private void startBatch(GuiTexture gui, int first)
+    {
+        if (batchCount == batchTextures.length)
+        {
+            batchTextures = Arrays.copyOf(batchTextures, batchCount * 2);
+            batchBlending = Arrays.copyOf(batchBlending, batchCount * 2);
+            batchFirsts = Arrays.copyOf(batchFirsts, batchCount * 2);
+            batchCounts = Arrays.copyOf(batchCounts, batchCount * 2);
+        }
+        batchTextures[batchCount] = gui.getTextureID();
+        batchBlending[batchCount] = gui.isBlending();
+        batchFirsts[batchCount] = first;
+        batchCounts[batchCount] = 0;
+        batchCount++;
+    }
+
+    /**
+     * Stores the vertices of a GUI's quad in the vertex array.
+     * @param gui GUI texture
+     * @param pointer index of the quad's first float in the array
+     * @return index after the quad's last float
+     */
+    private int storeQuad(GuiTexture gui, int pointer)
+    {
+        Vector2f position = gui.getPosition();
+        Vector2f scale = gui.getScale();
+        Vector4f region = gui.getTextureRegion();
+        for (int i = 0; i < CORNERS.length; i += 2)
+        {
+            float x = CORNERS[i];
+            float y = CORNERS[i + 1];
+            vertices[pointer++] = position.x + x * scale.x;
+            vertices[pointer++] = position.y + y * scale.y;
+            vertices[pointer++] = x < 0 ? region.x : region.z;
+            vertices[pointer++] = y > 0 ? region.y : region.w;
+        }
+        return pointer;
+    }
+
     /**
      * Cleans up GUI shader.
      * Called when game is closed.
@@ -1,6 +1,5 @@
 package guis;
 
-import org.lwjgl.util.vector.Matrix4f;
 import shaders.ShaderProgram;
 
 /**
@@ -19,11 +18,6 @@ public class GuiShader extends ShaderProgram
      */
     private static final String FRAGMENT_FILE = "guis/guiFragmentShader.glsl";
 
-    /**
-     * Location of transformation matrix variable
-     */
-    private int location_transformationMatrix;
-
     /**
      * Creates a GUI shader program.
      */
@@ -32,25 +26,17 @@ public class GuiShader extends ShaderProgram
         super(VERTEX_FILE, FRAGMENT_FILE);
     }
 
-    /**
-     * Loads a transformation matrix to a uniform variable (in vertex shader code).
-     * @param matrix transformation matrix
-     */
-    public void loadTransformation(Matrix4f matrix)
-    {
-        super.loadMatrix(location_transformationMatrix, matrix);
-    }
-
     @Override
     protected void getAllUniformLocations()
     {
-        location_transformationMatrix = super.getUniformLocation("transformationMatrix");
+        // GUI quads are positioned on the CPU, so they can be drawn in one batch
     }
 
     @Override
     protected void bindAttributes()
     {
         super.bindAttribute(0, "position");
+        super.bindAttribute(1, "textureCoords");
     }
 
 
@@ -1,6 +1,7 @@
 package guis;
 
 import org.lwjgl.util.vector.Vector2f;
+import org.lwjgl.util.vector.Vector4f;
 
 /**
  * A class that represents a GUI textureID.
@@ -13,6 +14,16 @@ public class GuiTexture
      */
     private int textureID;
 
+    /**
+     * Region of the texture the GUI shows (left, top, right, bottom texture coordinates)
+     */
+    private Vector4f textureRegion;
+
+    /**
+     * Is the GUI alpha blended with what is behind it?
+     */
+    private boolean blending = true;
+
     /**
      * Position on the display
      */
@@ -30,8 +41,22 @@ public class GuiTexture
      * @param scale scale
      */
     public GuiTexture(int textureID, Vector2f position, Vector2f scale)
+    {
+        this(textureID, new Vector4f(0, 0, 1, 1), position, scale);
+    }
+
+    /**
+     * Creates a GUI textureID that shows a region of a texture, such as an image
+     * packed into the GUI atlas.
+     * @param textureID textureID ID
+     * @param textureRegion left, top, right and bottom texture coordinates of the region
+     * @param position 2D vector position
+     * @param scale scale
+     */
+    public GuiTexture(int textureID, Vector4f textureRegion, Vector2f position, Vector2f scale)
     {
         this.textureID = textureID;
+        this.textureRegion = textureRegion;
         this.position = position;
         this.scale = scale;
     }
@@ -45,6 +70,24 @@ public class GuiTexture
         return textureID;
     }
 
+    /**
+     * Returns the region of the texture this GUI textureID shows.
+     * @return left, top, right and bottom texture coordinates
+     */
+    public Vector4f getTextureRegion()
+    {
+        return textureRegion;
+    }
+
+    /**
+     * Returns true if this GUI textureID is alpha blended with what is behind it.
+     * @return {@code true} GUI is blended
+     */
+    public boolean isBlending()
+    {
+        return blending;
+    }
+
     /**
      * Returns the position of this GUI textureID.
      * @return 2D coordinates of textureID's position
@@ -72,6 +115,25 @@ public class GuiTexture
         this.position = position;
     }
 
+    /**
+     * Sets the region of the texture this GUI textureID shows.
+     * @param textureRegion left, top, right and bottom texture coordinates
+     */
+    public void setTextureRegion(Vector4f textureRegion)
+    {
+        this.textureRegion = textureRegion;
+    }
+
+    /**
+     * Sets whether this GUI textureID is alpha blended with what is behind it.
+     * GUIs are blended by default.
+     * @param blending {@code true} GUI is blended
+     */
+    public void setBlending(boolean blending)
+    {
+        this.blending = blending;
+    }
+
     /**
      * Sets the scale of this GUI textureID.
      * @param scale scale
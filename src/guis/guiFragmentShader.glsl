@@ -1,6 +1,6 @@
 #version 140
 
-in vec2 textureCoords;
+in vec2 pass_textureCoords;
 
 out vec4 out_Color;
 
@@ -8,6 +8,6 @@ uniform sampler2D guiTexture;
 
 void main(void) {
 
-	out_Color = texture(guiTexture,vec2(textureCoords.x, textureCoords.y));
+	out_Color = texture(guiTexture, pass_textureCoords);
 
 }
\ No newline at end of file
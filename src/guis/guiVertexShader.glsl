@@ -1,14 +1,13 @@
 #version 140
 
 in vec2 position;
+in vec2 textureCoords;
 
-out vec2 textureCoords;
-
-uniform mat4 transformationMatrix;
+out vec2 pass_textureCoords;
 
 void main(void) {
 
-	gl_Position = transformationMatrix * vec4(position, 0.0, 1.0);
-	textureCoords = vec2((position.x+1.0)/2.0, 1 - (position.y+1.0)/2.0);
+	gl_Position = vec4(position, 0.0, 1.0);
+	pass_textureCoords = textureCoords;
 
 }
\ No newline at end of file
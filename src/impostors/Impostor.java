@@ -0,0 +1,120 @@
+package impostors;
+
+import postProcessing.Fbo;
+
+/**
+ * An impostor of a textured model: images of the model seen from several angles
+ * around it, baked into an atlas once at load time.  Far away entities of the model
+ * are drawn as a single camera facing quad showing the image closest to the angle
+ * they are seen from, instead of their whole mesh.
+ *
+ * The atlas has one column per angle.  Each texture atlas index of the model has two
+ * rows: the model's colour, then its normals (in the space of the quad).
+ *
+ * @author Aaron Frazer
+ */
+public class Impostor
+{
+    /**
+     * Frame buffer holding the atlas
+     */
+    private Fbo atlas;
+
+    /**
+     * Number of angles the model was baked from
+     */
+    private int frameCount;
+
+    /**
+     * Number of rows of the atlas
+     */
+    private int rowCount;
+
+    /**
+     * Half the width of the quad, and the heights of its bottom and top edges (in model space)
+     */
+    private float halfWidth;
+    private float minY;
+    private float maxY;
+
+    /**
+     * Creates an impostor.
+     * @param atlas frame buffer holding the atlas
+     * @param frameCount number of angles the model was baked from
+     * @param rowCount number of rows of the atlas
+     * @param halfWidth half the width of the quad
+     * @param minY height of the quad's bottom edge
+     * @param maxY height of the quad's top edge
+     */
+    protected Impostor(Fbo atlas, int frameCount, int rowCount, float halfWidth, float minY, float maxY)
+    {
+        this.atlas = atlas;
+        this.frameCount = frameCount;
+        this.rowCount = rowCount;
+        this.halfWidth = halfWidth;
+        this.minY = minY;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Returns the ID of the atlas texture.
+     * @return texture ID
+     */
+    public int getTextureID()
+    {
+        return atlas.getColorTexture();
+    }
+
+    /**
+     * Returns the number of angles the model was baked from.
+     * @return number of frames per row
+     */
+    public int getFrameCount()
+    {
+        return frameCount;
+    }
+
+    /**
+     * Returns the number of rows of the atlas.
+     * @return number of rows
+     */
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    /**
+     * Returns half the width of the quad.
+     * @return half width in model space
+     */
+    public float getHalfWidth()
+    {
+        return halfWidth;
+    }
+
+    /**
+     * Returns the height of the quad's bottom edge.
+     * @return bottom height in model space
+     */
+    public float getMinY()
+    {
+        return minY;
+    }
+
+    /**
+     * Returns the height of the quad's top edge.
+     * @return top height in model space
+     */
+    public float getMaxY()
+    {
+        return maxY;
+    }
+
+    /**
+     * Deletes the atlas.
+     */
+    protected void cleanUp()
+    {
+        atlas.cleanUp();
+    }
+}
@@ -0,0 +1,107 @@
+package impostors;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector2f;
+import shaders.ShaderProgram;
+
+/**
+ * A shader program used to bake the images of a model into an impostor atlas.
+ * @author Aaron Frazer
+ */
+public class ImpostorBakeShader extends ShaderProgram
+{
+    /**
+     * Filepath of vertex shader
+     */
+    private static final String VERTEX_FILE = "impostors/impostorBakeVertexShader.glsl";
+
+    /**
+     * Filepath of fragment shader
+     */
+    private static final String FRAGMENT_FILE = "impostors/impostorBakeFragmentShader.glsl";
+
+    /**
+     * Location of uniform variables in vertex/fragment programs
+     */
+    private int location_projectionMatrix;
+    private int location_rotationMatrix;
+    private int location_numberOfRows;
+    private int location_offset;
+    private int location_useFakeLighting;
+    private int location_outputNormals;
+
+    /**
+     * Creates an impostor bake shader program.
+     */
+    public ImpostorBakeShader()
+    {
+        super(VERTEX_FILE, FRAGMENT_FILE);
+    }
+
+    @Override
+    protected void getAllUniformLocations()
+    {
+        location_projectionMatrix = super.getUniformLocation("projectionMatrix");
+        location_rotationMatrix = super.getUniformLocation("rotationMatrix");
+        location_numberOfRows = super.getUniformLocation("numberOfRows");
+        location_offset = super.getUniformLocation("offset");
+        location_useFakeLighting = super.getUniformLocation("useFakeLighting");
+        location_outputNormals = super.getUniformLocation("outputNormals");
+    }
+
+    @Override
+    protected void bindAttributes()
+    {
+        super.bindAttribute(0, "position");
+        super.bindAttribute(1, "textureCoordinates");
+        super.bindAttribute(2, "normal");
+    }
+
+    /**
+     * Loads the orthographic projection matrix of the images to a uniform variable.
+     * @param matrix projection matrix
+     */
+    protected void loadProjectionMatrix(Matrix4f matrix)
+    {
+        super.loadMatrix(location_projectionMatrix, matrix);
+    }
+
+    /**
+     * Loads the rotation turning the model towards the image's angle to a uniform variable.
+     * @param matrix rotation matrix
+     */
+    protected void loadRotationMatrix(Matrix4f matrix)
+    {
+        super.loadMatrix(location_rotationMatrix, matrix);
+    }
+
+    /**
+     * Loads the model texture's atlas settings to uniform variables.
+     * @param numberOfRows number of rows of the texture atlas
+     * @param x x offset of the atlas index
+     * @param y y offset of the atlas index
+     */
+    protected void loadAtlas(float numberOfRows, float x, float y)
+    {
+        super.loadFloat(location_numberOfRows, numberOfRows);
+        super.load2DVector(location_offset, new Vector2f(x, y));
+    }
+
+    /**
+     * Loads fake lighting to a uniform variable.
+     * @param useFakeLighting true if the model's normals all point up
+     */
+    protected void loadFakeLighting(boolean useFakeLighting)
+    {
+        super.loadBoolean(location_useFakeLighting, useFakeLighting);
+    }
+
+    /**
+     * Loads whether normals or colours are baked to a uniform variable.
+     * @param outputNormals true if normals are baked
+     */
+    protected void loadOutputNormals(boolean outputNormals)
+    {
+        super.loadBoolean(location_outputNormals, outputNormals);
+    }
+}
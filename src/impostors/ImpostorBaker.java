@@ -0,0 +1,185 @@
+package impostors;
+
+import models.RawModel;
+import models.TexturedModel;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+import postProcessing.Fbo;
+import renderEngine.MasterRenderer;
+import renderEngine.RenderState;
+import textures.ModelTexture;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bakes the impostors of textured models.  The model is rendered with an orthographic
+ * projection from {@link #FRAME_COUNT} angles around its vertical axis, once for its
+ * colour and once for its normals, into the cells of an atlas.  The quad is made just
+ * big enough to hold the model seen from any of these angles.
+ *
+ * @author Aaron Frazer
+ */
+public class ImpostorBaker
+{
+    /**
+     * Number of angles a model is baked from
+     */
+    private static final int FRAME_COUNT = 8;
+
+    /**
+     * Size of each image of the atlas in pixels
+     */
+    private static final int FRAME_SIZE = 128;
+
+    /**
+     * Axis models are turned around
+     */
+    private static final Vector3f UP = new Vector3f(0, 1, 0);
+
+    /**
+     * Impostor bake shader
+     */
+    private ImpostorBakeShader shader = new ImpostorBakeShader();
+
+    /**
+     * Impostors baked so far, deleted when the baker is cleaned up
+     */
+    private List<Impostor> impostors = new ArrayList<>();
+
+    /**
+     * Bakes the impostor of a textured model.
+     * @param model textured model
+     * @return impostor of model
+     */
+    public Impostor bake(TexturedModel model)
+    {
+        RawModel rawModel = model.getRawModel();
+        ModelTexture texture = model.getTexture();
+        float[] bounds = findBounds(rawModel);
+        float halfWidth = bounds[0];
+        float minY = bounds[1];
+        float maxY = bounds[2];
+
+        int atlasRows = texture.getNumberOfRows();
+        int variantCount = atlasRows * atlasRows;
+        int rowCount = variantCount * 2;
+        Fbo atlas = new Fbo(FRAME_COUNT * FRAME_SIZE, rowCount * FRAME_SIZE, Fbo.DEPTH_RENDER_BUFFER);
+
+        atlas.bindFrameBuffer();
+        GL11.glClearColor(0, 0, 0, 0);
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+        RenderState.setDepthTest(true);
+        MasterRenderer.disableCulling();
+        shader.start();
+        shader.loadProjectionMatrix(createProjectionMatrix(halfWidth, minY, maxY));
+        shader.loadFakeLighting(texture.isUseFakeLighting());
+        RenderState.bindVertexArray(rawModel.getVaoID());
+        RenderState.enableVertexAttribArray(0);
+        RenderState.enableVertexAttribArray(1);
+        RenderState.enableVertexAttribArray(2);
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, texture.getTextureID());
+        Matrix4f rotation = new Matrix4f();
+        for (int variant = 0; variant < variantCount; variant++)
+        {
+            shader.loadAtlas(atlasRows, (float) (variant % atlasRows) / atlasRows, (float) (variant / atlasRows) / atlasRows);
+            for (int frame = 0; frame < FRAME_COUNT; frame++)
+            {
+                // turn the model so the frame's angle faces the +Z axis
+                rotation.setIdentity();
+                Matrix4f.rotate((float) (-frame * 2 * Math.PI / FRAME_COUNT), UP, rotation, rotation);
+                shader.loadRotationMatrix(rotation);
+                for (int output = 0; output < 2; output++)
+                {
+                    shader.loadOutputNormals(output == 1);
+                    GL11.glViewport(frame * FRAME_SIZE, (variant * 2 + output) * FRAME_SIZE, FRAME_SIZE, FRAME_SIZE);
+                    GL11.glDrawElements(GL11.GL_TRIANGLES, rawModel.getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
+                }
+            }
+        }
+        RenderState.bindVertexArray(0);
+        shader.stop();
+        MasterRenderer.enableCulling();
+        atlas.unbindFrameBuffer();
+
+        // far impostors cover few pixels, so the atlas needs mipmaps
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, atlas.getColorTexture());
+        GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
+
+        Impostor impostor = new Impostor(atlas, FRAME_COUNT, rowCount, halfWidth, minY, maxY);
+        impostors.add(impostor);
+        return impostor;
+    }
+
+    /**
+     * Deletes the bake shader and the atlases of every impostor baked.  Called when the game closes.
+     */
+    public void cleanUp()
+    {
+        shader.cleanUp();
+        for (Impostor impostor : impostors)
+        {
+            impostor.cleanUp();
+        }
+    }
+
+    /**
+     * Creates the orthographic projection of the images, which looks down the -Z axis
+     * at the model turned to any angle.
+     * @param halfWidth largest distance of a vertex from the vertical axis
+     * @param minY lowest height of a vertex
+     * @param maxY highest height of a vertex
+     * @return projection matrix
+     */
+    private static Matrix4f createProjectionMatrix(float halfWidth, float minY, float maxY)
+    {
+        Matrix4f matrix = new Matrix4f();
+        matrix.m00 = 1 / halfWidth;
+        matrix.m11 = 2 / (maxY - minY);
+        matrix.m22 = -1 / halfWidth;
+        matrix.m31 = -(maxY + minY) / (maxY - minY);
+        return matrix;
+    }
+
+    /**
+     * Finds the bounds of a model by reading its positions back from its VBO.
+     * @param model raw model
+     * @return largest distance of a vertex from the vertical axis, lowest and highest height
+     */
+    private static float[] findBounds(RawModel model)
+    {
+        IntBuffer binding = BufferUtils.createIntBuffer(16);
+        RenderState.bindVertexArray(model.getVaoID());
+        GL20.glGetVertexAttrib(0, GL15.GL_VERTEX_ATTRIB_ARRAY_BUFFER_BINDING, binding);
+        RenderState.bindVertexArray(0);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, binding.get(0));
+        FloatBuffer positions = BufferUtils.createFloatBuffer(GL15.glGetBufferParameteri(GL15.GL_ARRAY_BUFFER, GL15.GL_BUFFER_SIZE) / 4);
+        GL15.glGetBufferSubData(GL15.GL_ARRAY_BUFFER, 0, positions);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+        float halfWidth = 0;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i + 2 < positions.capacity(); i += 3)
+        {
+            float x = positions.get(i);
+            float y = positions.get(i + 1);
+            float z = positions.get(i + 2);
+            halfWidth = Math.max(halfWidth, x * x + z * z);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        // a small margin keeps the outermost vertices off the edge of each image
+        halfWidth = (float) Math.sqrt(halfWidth) * 1.02f;
+        float margin = (maxY - minY) * 0.01f;
+        return new float[]{halfWidth, minY - margin, maxY + margin};
+    }
+}
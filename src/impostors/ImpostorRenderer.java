@@ -0,0 +1,169 @@
+package impostors;
+
+import entities.Entity;
+import entities.Light;
+import models.RawModel;
+import models.TexturedModel;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL31;
+import renderEngine.Loader;
+import renderEngine.MasterRenderer;
+import renderEngine.RenderState;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Responsible for rendering impostors.  The entities of each model are drawn as
+ * instanced camera facing quads with a single draw call (or one per
+ * {@link #MAX_INSTANCES} entities), the same way particles are.
+ * @author Aaron Frazer
+ */
+public class ImpostorRenderer
+{
+    /**
+     * Quad vertices, centred horizontally and standing on the model's lowest point
+     */
+    private static final float[] VERTICES = {-0.5f, 1, -0.5f, 0, 0.5f, 1, 0.5f, 0};
+
+    /**
+     * Maximum number of impostors drawn by one draw call
+     */
+    private static final int MAX_INSTANCES = 10000;
+
+    /**
+     * Amount of data (floats) for each impostor: position, scale, y axis rotation and texture atlas index
+     */
+    private static final int INSTANCE_DATA_LENGTH = 6;
+
+    /**
+     * Float buffer that is used to store data in VBO
+     */
+    private static final FloatBuffer buffer = BufferUtils.createFloatBuffer(MAX_INSTANCES * INSTANCE_DATA_LENGTH);
+
+    /**
+     * Quad of impostor
+     */
+    private RawModel quad;
+
+    /**
+     * Impostor shader
+     */
+    private ImpostorShader shader = new ImpostorShader();
+
+    /**
+     * Instance of loader
+     */
+    private Loader loader;
+
+    /**
+     * ID of VBO
+     */
+    private int vboID;
+
+    /**
+     * Entities to be drawn, grouped by model.  Its lists are cleared (rather than the
+     * map itself) after each render so they are reused every frame
+     */
+    private Map<TexturedModel, List<Entity>> batches = new HashMap<>();
+
+    /**
+     * Creates an impostor renderer.
+     * @param loader loader
+     */
+    public ImpostorRenderer(Loader loader)
+    {
+        this.loader = loader;
+        this.vboID = loader.createEmptyVbo(INSTANCE_DATA_LENGTH * MAX_INSTANCES);
+        quad = loader.loadToVAO(VERTICES, 2);
+        loader.addInstancedAttribute(quad.getVaoID(), vboID, 1, 4, INSTANCE_DATA_LENGTH, 0); // position and scale
+        loader.addInstancedAttribute(quad.getVaoID(), vboID, 2, 2, INSTANCE_DATA_LENGTH, 4); // rotation and atlas index
+    }
+
+    /**
+     * Renders a list of entities as impostors.  Their models must have an impostor.
+     * @param entities entities to be drawn
+     * @param light light the impostors are lit by
+     */
+    public void render(List<Entity> entities, Light light)
+    {
+        if (entities.isEmpty())
+        {
+            return;
+        }
+        for (Entity entity : entities)
+        {
+            List<Entity> batch = batches.get(entity.getModel());
+            if (batch == null)
+            {
+                batch = new ArrayList<>();
+                batches.put(entity.getModel(), batch);
+            }
+            batch.add(entity);
+        }
+
+        shader.start();
+        shader.loadLight(light);
+        RenderState.bindVertexArray(quad.getVaoID());
+        RenderState.enableVertexAttribArray(0);
+        RenderState.enableVertexAttribArray(1);
+        RenderState.enableVertexAttribArray(2);
+        MasterRenderer.disableCulling();
+        for (Map.Entry<TexturedModel, List<Entity>> batch : batches.entrySet())
+        {
+            List<Entity> batchEntities = batch.getValue();
+            if (batchEntities.isEmpty())
+            {
+                continue;
+            }
+            Impostor impostor = batch.getKey().getImpostor();
+            shader.loadImpostor(impostor);
+            RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, impostor.getTextureID());
+            for (int first = 0; first < batchEntities.size(); first += MAX_INSTANCES)
+            {
+                int count = Math.min(MAX_INSTANCES, batchEntities.size() - first);
+                storeInstances(batchEntities, first, count);
+                GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_STRIP, 0, quad.getVertexCount(), count);
+            }
+            batchEntities.clear();
+        }
+        MasterRenderer.enableCulling();
+        RenderState.bindVertexArray(0);
+        shader.stop();
+    }
+
+    /**
+     * Stores the instance data of entities in the VBO.
+     * @param entities entities of one model
+     * @param first index of first entity stored
+     * @param count number of entities stored
+     */
+    private void storeInstances(List<Entity> entities, int first, int count)
+    {
+        buffer.clear();
+        for (int i = first; i < first + count; i++)
+        {
+            Entity entity = entities.get(i);
+            buffer.put(entity.getPosition().x);
+            buffer.put(entity.getPosition().y);
+            buffer.put(entity.getPosition().z);
+            buffer.put(entity.getScale());
+            buffer.put((float) Math.toRadians(entity.getRotY()));
+            buffer.put(entity.getTextureIndex());
+        }
+        buffer.flip();
+        loader.updateVbo(vboID, buffer);
+    }
+
+    /**
+     * Cleans up resources used by the impostor shader.
+     */
+    public void cleanUp()
+    {
+        shader.cleanUp();
+    }
+}
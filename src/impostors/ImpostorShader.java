@@ -0,0 +1,86 @@
+package impostors;
+
+import entities.Light;
+import shaders.ShaderProgram;
+
+/**
+ * A shader program used to render impostors.
+ * @author Aaron Frazer
+ */
+public class ImpostorShader extends ShaderProgram
+{
+    /**
+     * Filepath of vertex shader
+     */
+    private static final String VERTEX_FILE = "impostors/impostorVertexShader.glsl";
+
+    /**
+     * Filepath of fragment shader
+     */
+    private static final String FRAGMENT_FILE = "impostors/impostorFragmentShader.glsl";
+
+    /**
+     * Location of uniform variables in vertex/fragment programs
+     */
+    private int location_halfWidth;
+    private int location_minY;
+    private int location_height;
+    private int location_frameCount;
+    private int location_rowCount;
+    private int location_lightPosition;
+    private int location_lightColour;
+    private int location_attenuation;
+
+    /**
+     * Creates an impostor shader program.
+     */
+    public ImpostorShader()
+    {
+        super(VERTEX_FILE, FRAGMENT_FILE);
+    }
+
+    @Override
+    protected void getAllUniformLocations()
+    {
+        location_halfWidth = super.getUniformLocation("halfWidth");
+        location_minY = super.getUniformLocation("minY");
+        location_height = super.getUniformLocation("height");
+        location_frameCount = super.getUniformLocation("frameCount");
+        location_rowCount = super.getUniformLocation("rowCount");
+        location_lightPosition = super.getUniformLocation("lightPosition");
+        location_lightColour = super.getUniformLocation("lightColour");
+        location_attenuation = super.getUniformLocation("attenuation");
+    }
+
+    @Override
+    protected void bindAttributes()
+    {
+        super.bindAttribute(0, "position");
+        super.bindAttribute(1, "instancePosition");
+        super.bindAttribute(2, "instanceData");
+    }
+
+    /**
+     * Loads the size of an impostor's quad and the layout of its atlas to uniform variables.
+     * @param impostor impostor
+     */
+    protected void loadImpostor(Impostor impostor)
+    {
+        super.loadFloat(location_halfWidth, impostor.getHalfWidth());
+        super.loadFloat(location_minY, impostor.getMinY());
+        super.loadFloat(location_height, impostor.getMaxY() - impostor.getMinY());
+        super.loadFloat(location_frameCount, impostor.getFrameCount());
+        super.loadFloat(location_rowCount, impostor.getRowCount());
+    }
+
+    /**
+     * Loads the light impostors are lit by to uniform variables.
+     * @param light light
+     */
+    protected void loadLight(Light light)
+    {
+        super.load3DVector(location_lightPosition, light.getPosition());
+        super.load3DVector(location_lightColour, light.getColour());
+        super.load3DVector(location_attenuation, light.getAttenuation());
+    }
+}
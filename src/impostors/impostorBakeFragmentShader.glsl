@@ -0,0 +1,28 @@
+#version 330
+
+in vec2 pass_textureCoordinates;
+in vec3 viewNormal;
+
+layout (location = 0) out vec4 out_Colour;
+
+uniform sampler2D modelTexture;
+uniform float outputNormals;
+
+void main(void) {
+
+	vec4 textureColour = texture(modelTexture, pass_textureCoordinates);
+	if(textureColour.a < 0.5) {
+		discard;
+	}
+
+	if(outputNormals > 0.5) {
+		vec3 unitNormal = normalize(viewNormal);
+		if(!gl_FrontFacing) {
+			unitNormal = -unitNormal; // leaves are drawn from both sides
+		}
+		out_Colour = vec4(unitNormal * 0.5 + 0.5, 1.0);
+	} else {
+		out_Colour = vec4(textureColour.rgb, 1.0);
+	}
+
+}
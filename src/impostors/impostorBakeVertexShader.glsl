@@ -0,0 +1,28 @@
+#version 150
+
+in vec3 position;
+in vec2 textureCoordinates;
+in vec3 normal;
+
+out vec2 pass_textureCoordinates;
+out vec3 viewNormal;
+
+uniform mat4 projectionMatrix;
+uniform mat4 rotationMatrix;
+uniform float numberOfRows;
+uniform vec2 offset;
+uniform float useFakeLighting;
+
+void main(void) {
+
+	vec4 rotatedPosition = rotationMatrix * vec4(position, 1.0);
+	gl_Position = projectionMatrix * rotatedPosition;
+	pass_textureCoordinates = (textureCoordinates / numberOfRows) + offset;
+
+	vec3 actualNormal = normal;
+	if(useFakeLighting > 0.5) {
+		actualNormal = vec3(0.0, 1.0, 0.0);
+	}
+	viewNormal = (rotationMatrix * vec4(actualNormal, 0.0)).xyz;
+
+}
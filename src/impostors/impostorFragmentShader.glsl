@@ -0,0 +1,54 @@
+#version 330
+
+in vec2 textureCoords1; // closest angle
+in vec2 textureCoords2; // next angle
+in float blend;
+in vec3 facing;
+in vec3 right;
+in vec3 toLightVector;
+in float visibility;
+
+layout (location = 0) out vec4 out_Color;
+layout (location = 1) out vec4 out_BrightColor;
+
+uniform sampler2D impostorAtlas;
+uniform float rowCount;
+uniform vec3 lightColour;
+uniform vec3 attenuation;
+
+// shared by every shader program, filled once a frame by MasterRenderer (must match its layout)
+layout (std140) uniform FrameData {
+	mat4 projectionMatrix;
+	mat4 toShadowMapSpace[4];
+	vec4 cascadeEnds;
+	vec4 mapSizes;
+	vec3 skyColour;
+	float density;
+	float gradient;
+	float shadowDistance;
+	float transitionDistance;
+	int cascadeCount;
+};
+
+void main(void) {
+
+	vec4 textureColour = mix(texture(impostorAtlas, textureCoords1), texture(impostorAtlas, textureCoords2), blend);
+	if(textureColour.a < 0.5) {
+		discard;
+	}
+
+	// normals are baked in the row above the colours, in the space of the quad
+	vec2 normalOffset = vec2(0.0, 1.0 / rowCount);
+	vec3 bakedNormal = mix(texture(impostorAtlas, textureCoords1 + normalOffset), texture(impostorAtlas, textureCoords2 + normalOffset), blend).xyz * 2.0 - 1.0;
+	vec3 unitNormal = normalize(right * bakedNormal.x + vec3(0.0, bakedNormal.y, 0.0) + facing * bakedNormal.z);
+
+	float distance = length(toLightVector);
+	float attFactor = attenuation.x + (attenuation.y * distance) + (attenuation.z * distance * distance);
+	float brightness = max(dot(unitNormal, normalize(toLightVector)), 0.0);
+	vec3 totalDiffuse = max((brightness * lightColour) / attFactor, 0.4);
+
+	out_BrightColor = vec4(0.0);
+	out_Color = vec4(totalDiffuse, 1.0) * vec4(textureColour.rgb, 1.0);
+	out_Color = mix(vec4(skyColour,1.0),out_Color, visibility);
+
+}
@@ -0,0 +1,84 @@
+#version 150
+
+in vec2 position;
+
+// These attributes change per impostor
+in vec4 instancePosition; // position and scale
+in vec2 instanceData; // y axis rotation (radians) and texture atlas index
+
+out vec2 textureCoords1; // closest angle
+out vec2 textureCoords2; // next angle
+out float blend;
+out vec3 facing;
+out vec3 right;
+out vec3 toLightVector;
+out float visibility;
+
+uniform float halfWidth;
+uniform float minY;
+uniform float height;
+uniform float frameCount;
+uniform float rowCount;
+uniform vec3 lightPosition;
+
+// shared by every shader program, filled once a frame by MasterRenderer (must match its layout)
+layout (std140) uniform FrameData {
+	mat4 projectionMatrix;
+	mat4 toShadowMapSpace[4];
+	vec4 cascadeEnds;
+	vec4 mapSizes;
+	vec3 skyColour;
+	float density;
+	float gradient;
+	float shadowDistance;
+	float transitionDistance;
+	int cascadeCount;
+};
+
+// shared by every shader program, filled once a render pass by MasterRenderer (must match its layout)
+layout (std140) uniform PassData {
+	mat4 viewMatrix;
+	vec4 plane;
+	vec3 cameraPosition;
+};
+
+const float PI = 3.1415926535897932384626433832795;
+
+void main(void) {
+
+	// the quad turns around the vertical axis to face the camera
+	vec2 toCamera = cameraPosition.xz - instancePosition.xz;
+	if(dot(toCamera, toCamera) < 0.0001) {
+		toCamera = vec2(0.0, 1.0);
+	}
+	toCamera = normalize(toCamera);
+	facing = vec3(toCamera.x, 0.0, toCamera.y);
+	right = vec3(facing.z, 0.0, -facing.x);
+
+	vec3 offset = right * (position.x * 2.0 * halfWidth) + vec3(0.0, minY + position.y * height, 0.0);
+	vec4 worldPosition = vec4(instancePosition.xyz + offset * instancePosition.w, 1.0);
+
+	gl_ClipDistance[0] = dot(worldPosition, plane);
+
+	vec4 positionRelativeToCam = viewMatrix * worldPosition;
+	gl_Position = projectionMatrix * positionRelativeToCam;
+
+	// angle the camera sees the model from, in the model's own space
+	float angle = atan(facing.x, facing.z) - instanceData.x;
+	float frame = fract(angle / (2.0 * PI)) * frameCount;
+	float frame1 = floor(frame);
+	float frame2 = mod(frame1 + 1.0, frameCount);
+	blend = frame - frame1;
+
+	vec2 cellCoords = vec2(position.x + 0.5, position.y);
+	float row = instanceData.y * 2.0;
+	textureCoords1 = (vec2(frame1, row) + cellCoords) / vec2(frameCount, rowCount);
+	textureCoords2 = (vec2(frame2, row) + cellCoords) / vec2(frameCount, rowCount);
+
+	toLightVector = lightPosition - worldPosition.xyz;
+
+	float distance = length(positionRelativeToCam.xyz);
+	visibility = exp(-pow((distance*density),gradient));
+	visibility = clamp(visibility,0.0,1.0);
+
+}
@@ -16,6 +16,11 @@ public class RawModel
      */
     private int vertexCount;
 
+    /**
+     * Distance of the furthest vertex from the model's origin
+     */
+    private float furthestPoint;
+
     /**
      * Creates a raw model.
      * @param vaoID ID of VAO
@@ -27,6 +32,18 @@ public class RawModel
         this.vertexCount = vertexCount;
     }
 
+    /**
+     * Creates a raw model that knows how far its vertices reach from its origin.
+     * @param vaoID ID of VAO
+     * @param vertexCount number of vertices
+     * @param furthestPoint distance of the furthest vertex from the origin
+     */
+    public RawModel(int vaoID, int vertexCount, float furthestPoint)
+    {
+        this(vaoID, vertexCount);
+        this.furthestPoint = furthestPoint;
+    }
+
     /**
      * Returns the ID of the VAO
      * @return VAO ID
@@ -45,4 +62,14 @@ public class RawModel
         return vertexCount;
     }
 
-}
+    /**
+     * Returns the distance of the furthest vertex from this model's origin.
+     * A sphere of this radius around the origin contains the whole model.
+     * @return furthest vertex distance
+     */
+    public float getFurthestPoint()
+    {
+        return furthestPoint;
+    }
+
+}
\ No newline at end of file
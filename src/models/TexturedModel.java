@@ -1,17 +1,41 @@
 package models;
 
+import impostors.Impostor;
 import textures.ModelTexture;
 
+import java.util.Arrays;
+
 /**
- * A textured model that contains a model and its texture
+ * A textured model that contains a model and its texture.  The model can have a
+ * chain of levels of detail (LODs), from the full model (LOD 0) to the most
+ * simplified one, which are drawn when the model covers less of the screen.  A
+ * model with an impostor is drawn as a camera facing quad past its last level.
  * @author Aaron Frazer
  */
 public class TexturedModel
 {
     /**
-     * Raw model
+     * Screen size below which the first simplified level of detail is used.  Each
+     * following level is used below half the screen size of the level before it
+     */
+    private static final float DEFAULT_LOD_SCREEN_SIZE = 0.2f;
+
+    /**
+     * Raw model of each level of detail
+     */
+    private RawModel[] lods;
+
+    /**
+     * Screen size below which each level of detail is used (the fraction of the
+     * screen's height covered by the model's bounding sphere)
+     */
+    private float[] lodScreenSizes;
+
+    /**
+     * Impostor drawn when the model covers too little of the screen for its meshes,
+     * or null if the model has none
      */
-    private RawModel rawModel;
+    private Impostor impostor;
 
     /**
      * Model texture
@@ -25,8 +49,23 @@ public class TexturedModel
      */
     public TexturedModel(RawModel model, ModelTexture texture)
     {
-        this.rawModel = model;
+        this(new RawModel[]{model}, texture);
+    }
+
+    /**
+     * Creates a textured model with levels of detail.
+     * @param lods raw model of each level of detail, from most to least detailed
+     * @param texture model texture
+     */
+    public TexturedModel(RawModel[] lods, ModelTexture texture)
+    {
+        this.lods = lods;
         this.texture = texture;
+        lodScreenSizes = new float[lods.length];
+        for (int i = 1; i < lods.length; i++)
+        {
+            lodScreenSizes[i] = DEFAULT_LOD_SCREEN_SIZE / (1 << (i - 1));
+        }
     }
 
     /**
@@ -35,7 +74,69 @@ public class TexturedModel
      */
     public RawModel getRawModel()
     {
-        return rawModel;
+        return lods[0];
+    }
+
+    /**
+     * Returns the raw model of a level of detail.
+     * @param lod level of detail (0 for the full model)
+     * @return raw model
+     */
+    public RawModel getRawModel(int lod)
+    {
+        return lods[Math.min(lod, lods.length - 1)];
+    }
+
+    /**
+     * Returns the number of levels of detail of this model.
+     * @return number of levels of detail
+     */
+    public int getLodCount()
+    {
+        return lods.length;
+    }
+
+    /**
+     * Returns the screen size below which a level of detail is used.
+     * @param lod level of detail ({@link #getLodCount()} for the impostor)
+     * @return fraction of the screen's height covered by the model's bounding sphere
+     */
+    public float getLodScreenSize(int lod)
+    {
+        return lodScreenSizes[lod];
+    }
+
+    /**
+     * Sets the screen size below which a level of detail is used.  Screen sizes
+     * must get smaller for each level.
+     * @param lod level of detail
+     * @param screenSize fraction of the screen's height covered by the model's bounding sphere
+     */
+    public void setLodScreenSize(int lod, float screenSize)
+    {
+        lodScreenSizes[lod] = screenSize;
+    }
+
+    /**
+     * Returns the impostor of this model.
+     * @return impostor, or null if the model has none
+     */
+    public Impostor getImpostor()
+    {
+        return impostor;
+    }
+
+    /**
+     * Sets the impostor of this model, which is used as the level of detail after
+     * the model's last mesh.
+     * @param impostor impostor
+     * @param screenSize screen size below which the impostor is used
+     */
+    public void setImpostor(Impostor impostor, float screenSize)
+    {
+        this.impostor = impostor;
+        lodScreenSizes = Arrays.copyOf(lodScreenSizes, lods.length + 1);
+        lodScreenSizes[lods.length] = screenSize;
     }
 
     /**
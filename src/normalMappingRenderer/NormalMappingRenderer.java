@@ -1,24 +1,15 @@
 package normalMappingRenderer;
 
-import entities.Camera;
 import entities.Entity;
-import entities.Light;
 import models.RawModel;
 import models.TexturedModel;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 import org.lwjgl.util.vector.Matrix4f;
-import org.lwjgl.util.vector.Vector4f;
 import renderEngine.MasterRenderer;
+import renderEngine.RenderState;
 import textures.ModelTexture;
-import toolbox.GameSettings;
 import toolbox.Maths;
 
-import java.util.List;
-import java.util.Map;
-
 /**
  * A class responsible for rendering a model from VA using normal mapping.
  * @author Aaron Frazer
@@ -31,40 +22,54 @@ public class NormalMappingRenderer
     private NormalMappingShader shader;
 
     /**
-     * Creates a projection matrix.
-     * @param projectionMatrix 4D projection matrix
+     * Textured model that is currently bound
+     */
+    private TexturedModel boundModel;
+
+    /**
+     * Creates a normal mapping renderer.
      */
-    public NormalMappingRenderer(Matrix4f projectionMatrix)
+    public NormalMappingRenderer()
     {
         this.shader = new NormalMappingShader();
         shader.start();
-        shader.loadProjectionMatrix(projectionMatrix);
         shader.connectTextureUnits();
         shader.stop();
     }
 
     /**
-     * Renders a hash map of textured models and entities.
-     * @param entities hash map of textureModels and entities to be rendered
-     * @param clipPlane clipping plane
-     * @param lights list of lights
-     * @param camera camera
+     * Starts rendering normal mapped entities by starting the normal mapping shader.
      */
-    public void render(Map<TexturedModel, List<Entity>> entities, Vector4f clipPlane, List<Light> lights, Camera camera)
+    public void begin()
     {
         shader.start();
-        prepare(clipPlane, lights, camera);
-        for (TexturedModel model : entities.keySet())
+    }
+
+    /**
+     * Renders a normal mapped entity.  Its textured model is only prepared when it
+     * differs from the model of the previous entity.
+     * @param entity entity to be rendered
+     */
+    public void render(Entity entity)
+    {
+        TexturedModel model = entity.getModel();
+        if (model != boundModel)
         {
             prepareTexturedModel(model);
-            List<Entity> batch = entities.get(model);
-            for (Entity entity : batch)
-            {
-                prepareInstance(entity);
-                GL11.glDrawElements(GL11.GL_TRIANGLES, model.getRawModel().getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
-            }
-            unbindTexturedModel();
+            boundModel = model;
         }
+        prepareInstance(entity);
+        GL11.glDrawElements(GL11.GL_TRIANGLES, model.getRawModel().getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
+    }
+
+    /**
+     * Ends rendering normal mapped entities by unbinding the last model and
+     * stopping the normal mapping shader.
+     */
+    public void end()
+    {
+        unbindTexturedModel();
+        boundModel = null;
         shader.stop();
     }
 
@@ -75,29 +80,29 @@ public class NormalMappingRenderer
     private void prepareTexturedModel(TexturedModel model)
     {
         RawModel rawModel = model.getRawModel();
-        GL30.glBindVertexArray(rawModel.getVaoID());
-        GL20.glEnableVertexAttribArray(0);
-        GL20.glEnableVertexAttribArray(1);
-        GL20.glEnableVertexAttribArray(2);
-        GL20.glEnableVertexAttribArray(3);
+        RenderState.bindVertexArray(rawModel.getVaoID());
+        RenderState.enableVertexAttribArray(0);
+        RenderState.enableVertexAttribArray(1);
+        RenderState.enableVertexAttribArray(2);
+        RenderState.enableVertexAttribArray(3);
         ModelTexture texture = model.getTexture();
         shader.loadNumberOfRows(texture.getNumberOfRows());
         if (texture.isHasTransparency())
         {
             MasterRenderer.disableCulling();
+        } else
+        {
+            MasterRenderer.enableCulling();
         }
         shader.loadShineVariables(texture.getShineDamper(), texture.getReflectivity());
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, model.getTexture().getTextureID());
-        GL13.glActiveTexture(GL13.GL_TEXTURE1);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, model.getTexture().getNormalMap());
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, model.getTexture().getTextureID());
+        RenderState.bindTexture(1, GL11.GL_TEXTURE_2D, model.getTexture().getNormalMap());
 
         // Load texture's specular map
         shader.loadUseSpecularMap(texture.hasSpecularMap());
         if (texture.hasSpecularMap())
         {
-            GL13.glActiveTexture(GL13.GL_TEXTURE2);
-            GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture.getSpecularMap());
+            RenderState.bindTexture(2, GL11.GL_TEXTURE_2D, texture.getSpecularMap());
         }
     }
 
@@ -113,35 +118,13 @@ public class NormalMappingRenderer
     }
 
     /**
-     * Loads clipping plane, skycolor, lights, and camera.
-     * @param clipPlane clipping plane
-     * @param lights list of lights
-     * @param camera camera
-     */
-    private void prepare(Vector4f clipPlane, List<Light> lights, Camera camera)
-    {
-        shader.loadClipPlane(clipPlane);
-
-        shader.loadDensity(GameSettings.FOG_DENSITY);
-        shader.loadGradient(GameSettings.FOG_GRADIENT);
-        shader.loadSkyColour(GameSettings.FOG_RED, GameSettings.FOG_GREEN, GameSettings.FOG_BLUE);
-        Matrix4f viewMatrix = Maths.createViewMatrix(camera);
-
-        shader.loadLights(lights, viewMatrix);
-        shader.loadViewMatrix(viewMatrix);
-    }
-
-    /**
-     * Unbinds attributes of a textured model.
+     * Unbinds the last textured model.  Its attributes stay enabled, since they
+     * belong to the model's VAO.
      */
     private void unbindTexturedModel()
     {
         MasterRenderer.enableCulling();
-        GL20.glDisableVertexAttribArray(0);
-        GL20.glDisableVertexAttribArray(1);
-        GL20.glDisableVertexAttribArray(2);
-        GL20.glDisableVertexAttribArray(3);
-        GL30.glBindVertexArray(0);
+        RenderState.bindVertexArray(0);
     }
 
     /**
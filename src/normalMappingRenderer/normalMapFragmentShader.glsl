@@ -1,9 +1,12 @@
 #version 330
 
 in vec2 pass_textureCoordinates;
-in vec3 toLightVector[4];
+in mat3 toTangentSpace;
+in vec3 positionEyeSpace;
+in vec4 pass_clipPosition;
 in vec3 toCameraVector;
 in float visibility;
+in float viewDepth;
 
 layout (location = 0) out vec4 out_Color;
 layout (location = 1) out vec4 out_BrightColor;
@@ -12,11 +15,47 @@ uniform sampler2D modelTexture;
 uniform sampler2D specularMap;
 uniform float usesSpecularMap;
 uniform sampler2D normalMap;
-uniform vec3 lightColour[4];
-uniform vec3 attenuation[4];
+uniform samplerBuffer lightData;
+uniform isamplerBuffer clusterGrid;
+uniform isamplerBuffer lightIndices;
+uniform float clusterScale;
+uniform float clusterBias;
 uniform float shineDamper;
 uniform float reflectivity;
-uniform vec3 skyColour;
+
+// shared by every shader program, filled once a frame by MasterRenderer (must match its layout)
+layout (std140) uniform FrameData {
+	mat4 projectionMatrix;
+	mat4 toShadowMapSpace[4];
+	vec4 cascadeEnds;
+	vec4 mapSizes;
+	vec3 skyColour;
+	float density;
+	float gradient;
+	float shadowDistance;
+	float transitionDistance;
+	int cascadeCount;
+};
+
+// shared by every shader program, filled once a render pass by MasterRenderer (must match its layout)
+layout (std140) uniform PassData {
+	mat4 viewMatrix;
+	vec4 plane;
+	vec3 cameraPosition;
+};
+
+// number of light clusters across, up and into the screen (must match LightClusters)
+const int clustersX = 16;
+const int clustersY = 9;
+const int clustersZ = 24;
+
+// returns the first light index and number of lights in the fragment's light cluster
+ivec2 findCluster(vec4 clipPosition, float depth) {
+    vec2 ndc = clipPosition.xy / clipPosition.w;
+    ivec2 tile = clamp(ivec2((ndc * 0.5 + 0.5) * vec2(clustersX, clustersY)), ivec2(0), ivec2(clustersX - 1, clustersY - 1));
+    int slice = clamp(int(floor(log(depth) * clusterScale - clusterBias)), 0, clustersZ - 1);
+    return texelFetch(clusterGrid, tile.x + clustersX * (tile.y + clustersY * slice)).rg;
+}
 
 void main(void) {
 
@@ -28,11 +67,17 @@ void main(void) {
 	vec3 totalDiffuse = vec3(0.0);
 	vec3 totalSpecular = vec3(0.0);
 	
-	for (int i=0;i<4;i++)
+	ivec2 cluster = findCluster(pass_clipPosition, viewDepth);
+	for (int i = 0; i < cluster.y; i++)
 	{
-		float distance = length(toLightVector[i]);
-		float attFactor = attenuation[i].x + (attenuation[i].y * distance) + (attenuation[i].z * distance * distance);
-		vec3 unitLightVector = normalize(toLightVector[i]);	
+		int light = texelFetch(lightIndices, cluster.x + i).r * 3;
+		vec3 lightPosition = texelFetch(lightData, light).xyz;
+		vec3 lightColour = texelFetch(lightData, light + 1).rgb;
+		vec3 attenuation = texelFetch(lightData, light + 2).rgb;
+		vec3 toLightVector = toTangentSpace * ((viewMatrix * vec4(lightPosition, 1.0)).xyz - positionEyeSpace);
+		float distance = length(toLightVector);
+		float attFactor = attenuation.x + (attenuation.y * distance) + (attenuation.z * distance * distance);
+		vec3 unitLightVector = normalize(toLightVector);	
 		float nDotl = dot(unitNormal,unitLightVector);
 		float brightness = max(nDotl,0.0);
 		vec3 lightDirection = -unitLightVector;
@@ -40,8 +85,8 @@ void main(void) {
 		float specularFactor = dot(reflectedLightDirection , unitVectorToCamera);
 		specularFactor = max(specularFactor,0.0);
 		float dampedFactor = pow(specularFactor,shineDamper);
-		totalDiffuse = totalDiffuse + (brightness * lightColour[i])/attFactor;
-		totalSpecular = totalSpecular + (dampedFactor * reflectivity * lightColour[i])/attFactor;
+		totalDiffuse = totalDiffuse + (brightness * lightColour)/attFactor;
+		totalSpecular = totalSpecular + (dampedFactor * reflectivity * lightColour)/attFactor;
 	}
 	totalDiffuse = max(totalDiffuse, 0.2);
 	
@@ -6,22 +6,38 @@ in vec3 normal;
 in vec3 tangent;
 
 out vec2 pass_textureCoordinates;
-out vec3 toLightVector[4];
+out mat3 toTangentSpace;
+out vec3 positionEyeSpace;
+out vec4 pass_clipPosition;
 out vec3 toCameraVector;
 out float visibility;
+out float viewDepth;
 
 uniform mat4 transformationMatrix;
-uniform mat4 projectionMatrix;
-uniform mat4 viewMatrix;
-uniform vec3 lightPositionEyeSpace[4];
 
 uniform float numberOfRows;
 uniform vec2 offset;
 
-uniform vec4 plane;
+// shared by every shader program, filled once a frame by MasterRenderer (must match its layout)
+layout (std140) uniform FrameData {
+	mat4 projectionMatrix;
+	mat4 toShadowMapSpace[4];
+	vec4 cascadeEnds;
+	vec4 mapSizes;
+	vec3 skyColour;
+	float density;
+	float gradient;
+	float shadowDistance;
+	float transitionDistance;
+	int cascadeCount;
+};
 
-uniform float density;
-uniform float gradient;
+// shared by every shader program, filled once a render pass by MasterRenderer (must match its layout)
+layout (std140) uniform PassData {
+	mat4 viewMatrix;
+	vec4 plane;
+	vec3 cameraPosition;
+};
 
 void main(void) {
 
@@ -30,6 +46,9 @@ void main(void) {
 	mat4 modelViewMatrix = viewMatrix * transformationMatrix;
 	vec4 positionRelativeToCam = modelViewMatrix * vec4(position,1.0);
 	gl_Position = projectionMatrix * positionRelativeToCam;
+	pass_clipPosition = gl_Position;
+	positionEyeSpace = positionRelativeToCam.xyz;
+	viewDepth = -positionRelativeToCam.z;
 	
 	pass_textureCoordinates = (textureCoordinates/numberOfRows) + offset;
 	
@@ -39,16 +58,12 @@ void main(void) {
 	vec3 tang = normalize((modelViewMatrix * vec4(tangent, 0.0)).xyz);
 	vec3 bitang = normalize(cross(norm, tang));
 	
-	mat3 toTangentSpace = mat3(
+	toTangentSpace = mat3(
 		tang.x, bitang.x, norm.x,
 		tang.y, bitang.y, norm.y,
 		tang.z, bitang.z, norm.z
 	);
 	
-	for (int i=0;i<4;i++)
-	{
-		toLightVector[i] = toTangentSpace * (lightPositionEyeSpace[i] - positionRelativeToCam.xyz);
-	}
 	toCameraVector = toTangentSpace * (-positionRelativeToCam.xyz);
 	
 	float distance = length(positionRelativeToCam.xyz);
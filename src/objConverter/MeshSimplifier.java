@@ -0,0 +1,627 @@
+package objConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Simplifies models for lower levels of detail by quadric edge collapse.  Every
+ * position has a quadric (the sum of the squared distances to the planes of its
+ * triangles), and edges are collapsed cheapest first until the model has few enough
+ * triangles.  The cost of collapsing an edge is the quadric error of the position it
+ * is collapsed onto.
+ *
+ * Edges are collapsed onto one of their end points (half edge collapses), so the
+ * simplified model only uses vertices of the original model and keeps their texture
+ * coordinates and normals.  Vertices are split wherever texture coordinates or
+ * normals differ, so the topology is built from positions, and each triangle corner
+ * keeps the vertex whose texture coordinates match its neighbours.  Open edges have
+ * extra quadrics keeping them in place, and positions on them can only move along them.
+ *
+ * @author Aaron Frazer
+ */
+public class MeshSimplifier
+{
+    /**
+     * Weight of the quadrics keeping open edges in place
+     */
+    private static final double BOUNDARY_WEIGHT = 10;
+
+    /**
+     * Minimum cosine of the angle a triangle's normal can turn by in one collapse
+     */
+    private static final double MIN_NORMAL_COSINE = 0.2;
+
+    /**
+     * Maximum number of passes over the edges
+     */
+    private static final int MAX_PASSES = 100;
+
+    /**
+     * Model being simplified
+     */
+    private ModelData data;
+
+    /**
+     * Position of each vertex, and the vertices at each position
+     */
+    private int[] vertexPositions;
+    private List<List<Integer>> positionVertices = new ArrayList<>();
+
+    /**
+     * Coordinates of each position
+     */
+    private float[] positions;
+
+    /**
+     * Quadric of each position (aa, ab, ac, ad, bb, bc, bd, cc, cd, dd)
+     */
+    private double[] quadrics;
+
+    /**
+     * Is each position on an open edge?
+     */
+    private boolean[] boundary;
+
+    /**
+     * Open edges, as keys of their position pairs
+     */
+    private Set<Long> boundaryEdges = new HashSet<>();
+
+    /**
+     * Vertex of each triangle corner, and whether each triangle has been removed
+     */
+    private int[] corners;
+    private boolean[] removed;
+    private int triangleCount;
+
+    /**
+     * Triangles around each position
+     */
+    private List<List<Integer>> positionTriangles = new ArrayList<>();
+
+    /**
+     * Creates a simplifier for a model.
+     * @param data model data
+     */
+    private MeshSimplifier(ModelData data)
+    {
+        this.data = data;
+        corners = data.getIndices().clone();
+        triangleCount = corners.length / 3;
+        removed = new boolean[triangleCount];
+        weldPositions();
+        findBoundaries();
+        computeQuadrics();
+    }
+
+    /**
+     * Simplifies a model.
+     * @param data model data
+     * @param triangleRatio fraction of the model's triangles to keep
+     * @return model data of the simplified model
+     */
+    public static ModelData simplify(ModelData data, float triangleRatio)
+    {
+        MeshSimplifier simplifier = new MeshSimplifier(data);
+        simplifier.collapseEdges(Math.max(1, Math.round(simplifier.triangleCount * triangleRatio)));
+        return simplifier.createModelData();
+    }
+
+    /**
+     * Merges the vertices sharing a position.
+     */
+    private void weldPositions()
+    {
+        float[] vertices = data.getVertices();
+        int vertexCount = vertices.length / 3;
+        vertexPositions = new int[vertexCount];
+        Map<List<Float>, Integer> positionIndices = new HashMap<>();
+        float[] welded = new float[vertices.length];
+        for (int v = 0; v < vertexCount; v++)
+        {
+            List<Float> key = Arrays.asList(vertices[v * 3], vertices[v * 3 + 1], vertices[v * 3 + 2]);
+            Integer position = positionIndices.get(key);
+            if (position == null)
+            {
+                position = positionIndices.size();
+                positionIndices.put(key, position);
+                System.arraycopy(vertices, v * 3, welded, position * 3, 3);
+                positionVertices.add(new ArrayList<>());
+                positionTriangles.add(new ArrayList<>());
+            }
+            vertexPositions[v] = position;
+            positionVertices.get(position).add(v);
+        }
+        positions = Arrays.copyOf(welded, positionIndices.size() * 3);
+        for (int t = 0; t < triangleCount; t++)
+        {
+            for (int c = 0; c < 3; c++)
+            {
+                positionTriangles.get(position(t, c)).add(t);
+            }
+        }
+    }
+
+    /**
+     * Finds the open edges (edges of a single triangle) and the positions on them.
+     */
+    private void findBoundaries()
+    {
+        Map<Long, Integer> edgeTriangles = new HashMap<>();
+        for (int t = 0; t < triangleCount; t++)
+        {
+            for (int c = 0; c < 3; c++)
+            {
+                long key = edgeKey(position(t, c), position(t, (c + 1) % 3));
+                Integer count = edgeTriangles.get(key);
+                edgeTriangles.put(key, count == null ? 1 : count + 1);
+            }
+        }
+        boundary = new boolean[positions.length / 3];
+        for (Map.Entry<Long, Integer> edge : edgeTriangles.entrySet())
+        {
+            if (edge.getValue() == 1)
+            {
+                boundaryEdges.add(edge.getKey());
+                boundary[(int) (edge.getKey() >>> 32)] = true;
+                boundary[(int) (long) edge.getKey()] = true;
+            }
+        }
+    }
+
+    /**
+     * Computes the quadric of each position from the planes of its triangles
+     * (weighted by their areas) and, for open edges, from planes through the edge
+     * perpendicular to its triangle.
+     */
+    private void computeQuadrics()
+    {
+        quadrics = new double[positions.length / 3 * 10];
+        double[] normal = new double[3];
+        for (int t = 0; t < triangleCount; t++)
+        {
+            double area = triangleNormal(position(t, 0), position(t, 1), position(t, 2), normal);
+            if (area == 0)
+            {
+                continue;
+            }
+            int p0 = position(t, 0);
+            double d = -(normal[0] * positions[p0 * 3] + normal[1] * positions[p0 * 3 + 1] + normal[2] * positions[p0 * 3 + 2]);
+            for (int c = 0; c < 3; c++)
+            {
+                addPlane(position(t, c), normal[0], normal[1], normal[2], d, area);
+            }
+            for (int c = 0; c < 3; c++)
+            {
+                int a = position(t, c);
+                int b = position(t, (c + 1) % 3);
+                if (!boundaryEdges.contains(edgeKey(a, b)))
+                {
+                    continue;
+                }
+                double ex = positions[b * 3] - positions[a * 3];
+                double ey = positions[b * 3 + 1] - positions[a * 3 + 1];
+                double ez = positions[b * 3 + 2] - positions[a * 3 + 2];
+                // plane through the edge, perpendicular to the triangle
+                double px = ey * normal[2] - ez * normal[1];
+                double py = ez * normal[0] - ex * normal[2];
+                double pz = ex * normal[1] - ey * normal[0];
+                double length = Math.sqrt(px * px + py * py + pz * pz);
+                if (length == 0)
+                {
+                    continue;
+                }
+                px /= length;
+                py /= length;
+                pz /= length;
+                double pd = -(px * positions[a * 3] + py * positions[a * 3 + 1] + pz * positions[a * 3 + 2]);
+                double weight = BOUNDARY_WEIGHT * (ex * ex + ey * ey + ez * ez);
+                addPlane(a, px, py, pz, pd, weight);
+                addPlane(b, px, py, pz, pd, weight);
+            }
+        }
+    }
+
+    /**
+     * Collapses edges, cheapest first, until the model has no more than a number of
+     * triangles or no edge can be collapsed.  Each pass sorts the edges by cost and
+     * collapses those whose positions haven't been changed earlier in the pass.
+     * @param targetTriangleCount number of triangles to keep
+     */
+    private void collapseEdges(int targetTriangleCount)
+    {
+        int remaining = triangleCount;
+        for (int pass = 0; pass < MAX_PASSES && remaining > targetTriangleCount; pass++)
+        {
+            List<double[]> collapses = findCollapses(); // cost, from, to
+            collapses.sort((a, b) -> Double.compare(a[0], b[0]));
+            boolean[] changed = new boolean[positions.length / 3];
+            int collapsed = 0;
+            for (double[] collapse : collapses)
+            {
+                if (remaining <= targetTriangleCount)
+                {
+                    break;
+                }
+                int from = (int) collapse[1];
+                int to = (int) collapse[2];
+                if (changed[from] || changed[to] || !canCollapse(from, to))
+                {
+                    continue;
+                }
+                remaining -= collapse(from, to);
+                changed[from] = true;
+                changed[to] = true;
+                collapsed++;
+            }
+            if (collapsed == 0)
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Finds the cheapest allowed collapse of every edge.
+     * @return collapses (cost, position collapsed, position collapsed onto)
+     */
+    private List<double[]> findCollapses()
+    {
+        List<double[]> collapses = new ArrayList<>();
+        Set<Long> visited = new HashSet<>();
+        for (int t = 0; t < triangleCount; t++)
+        {
+            if (removed[t])
+            {
+                continue;
+            }
+            for (int c = 0; c < 3; c++)
+            {
+                int a = position(t, c);
+                int b = position(t, (c + 1) % 3);
+                if (!visited.add(edgeKey(a, b)))
+                {
+                    continue;
+                }
+                double costAB = isAllowed(a, b) ? collapseError(a, b) : Double.MAX_VALUE;
+                double costBA = isAllowed(b, a) ? collapseError(b, a) : Double.MAX_VALUE;
+                if (costAB <= costBA && costAB != Double.MAX_VALUE)
+                {
+                    collapses.add(new double[]{costAB, a, b});
+                } else if (costBA < costAB)
+                {
+                    collapses.add(new double[]{costBA, b, a});
+                }
+            }
+        }
+        return collapses;
+    }
+
+    /**
+     * Returns true if a position may be collapsed onto another.  Positions on open
+     * edges can only move along an open edge, so the outline of the model is kept.
+     * @param from position collapsed
+     * @param to position collapsed onto
+     * @return true if the collapse is allowed
+     */
+    private boolean isAllowed(int from, int to)
+    {
+        return !boundary[from] || (boundary[to] && boundaryEdges.contains(edgeKey(from, to)));
+    }
+
+    /**
+     * Returns the error of collapsing a position onto another.
+     * @param from position collapsed
+     * @param to position collapsed onto
+     * @return quadric error
+     */
+    private double collapseError(int from, int to)
+    {
+        double x = positions[to * 3], y = positions[to * 3 + 1], z = positions[to * 3 + 2];
+        int a = from * 10, b = to * 10;
+        double[] q = quadrics;
+        return (q[a] + q[b]) * x * x + 2 * (q[a + 1] + q[b + 1]) * x * y + 2 * (q[a + 2] + q[b + 2]) * x * z
+                + 2 * (q[a + 3] + q[b + 3]) * x + (q[a + 4] + q[b + 4]) * y * y + 2 * (q[a + 5] + q[b + 5]) * y * z
+                + 2 * (q[a + 6] + q[b + 6]) * y + (q[a + 7] + q[b + 7]) * z * z + 2 * (q[a + 8] + q[b + 8]) * z
+                + (q[a + 9] + q[b + 9]);
+    }
+
+    /**
+     * Returns true if collapsing a position onto another keeps the model manifold and
+     * doesn't flip or squash any of the triangles that remain.
+     * @param from position collapsed
+     * @param to position collapsed onto
+     * @return true if the collapse can be done
+     */
+    private boolean canCollapse(int from, int to)
+    {
+        // the only positions next to both ends must be the opposite corners of the edge's triangles
+        Set<Integer> fromNeighbours = neighbours(from);
+        Set<Integer> toNeighbours = neighbours(to);
+        fromNeighbours.retainAll(toNeighbours);
+        int sharedTriangles = 0;
+        for (int t : positionTriangles.get(from))
+        {
+            if (!removed[t] && hasPosition(t, to))
+            {
+                sharedTriangles++;
+            }
+        }
+        if (fromNeighbours.size() != sharedTriangles)
+        {
+            return false;
+        }
+        double[] before = new double[3];
+        double[] after = new double[3];
+        for (int t : positionTriangles.get(from))
+        {
+            if (removed[t] || hasPosition(t, to))
+            {
+                continue;
+            }
+            int p0 = position(t, 0), p1 = position(t, 1), p2 = position(t, 2);
+            if (triangleNormal(p0, p1, p2, before) == 0)
+            {
+                continue;
+            }
+            double area = triangleNormal(p0 == from ? to : p0, p1 == from ? to : p1, p2 == from ? to : p2, after);
+            if (area == 0 || before[0] * after[0] + before[1] * after[1] + before[2] * after[2] < MIN_NORMAL_COSINE)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collapses a position onto another.  Triangles on the edge are removed, and the
+     * corners at the collapsed position take the vertex at the other position whose
+     * texture coordinates and normal are closest to theirs.
+     * @param from position collapsed
+     * @param to position collapsed onto
+     * @return number of triangles removed
+     */
+    private int collapse(int from, int to)
+    {
+        int removedCount = 0;
+        if (boundary[from])
+        {
+            // the collapsed position's other open edges now end at the position it was collapsed onto
+            for (int neighbour : neighbours(from))
+            {
+                if (neighbour != to && boundaryEdges.contains(edgeKey(from, neighbour)))
+                {
+                    boundaryEdges.add(edgeKey(to, neighbour));
+                }
+            }
+        }
+        List<Integer> toTriangles = positionTriangles.get(to);
+        for (int t : positionTriangles.get(from))
+        {
+            if (removed[t])
+            {
+                continue;
+            }
+            if (hasPosition(t, to))
+            {
+                removed[t] = true;
+                removedCount++;
+                continue;
+            }
+            for (int c = 0; c < 3; c++)
+            {
+                if (position(t, c) == from)
+                {
+                    corners[t * 3 + c] = closestVertex(to, corners[t * 3 + c]);
+                }
+            }
+            toTriangles.add(t);
+        }
+        positionTriangles.get(from).clear();
+        for (int i = 0; i < 10; i++)
+        {
+            quadrics[to * 10 + i] += quadrics[from * 10 + i];
+        }
+        return removedCount;
+    }
+
+    /**
+     * Returns the vertex at a position whose texture coordinates and normal are
+     * closest to a vertex's.
+     * @param position position
+     * @param vertex vertex being replaced
+     * @return closest vertex at position
+     */
+    private int closestVertex(int position, int vertex)
+    {
+        float[] textureCoords = data.getTextureCoords();
+        float[] normals = data.getNormals();
+        int closest = -1;
+        float closestDistance = Float.MAX_VALUE;
+        for (int v : positionVertices.get(position))
+        {
+            float du = textureCoords[v * 2] - textureCoords[vertex * 2];
+            float dv = textureCoords[v * 2 + 1] - textureCoords[vertex * 2 + 1];
+            float dot = normals[v * 3] * normals[vertex * 3] + normals[v * 3 + 1] * normals[vertex * 3 + 1]
+                    + normals[v * 3 + 2] * normals[vertex * 3 + 2];
+            float distance = du * du + dv * dv + (1 - dot) * 0.5f;
+            if (distance < closestDistance)
+            {
+                closestDistance = distance;
+                closest = v;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Creates model data from the remaining triangles, keeping only the vertices they use.
+     * @return model data of simplified model
+     */
+    private ModelData createModelData()
+    {
+        int[] newIndices = new int[data.getVertices().length / 3];
+        Arrays.fill(newIndices, -1);
+        List<Integer> used = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        for (int t = 0; t < triangleCount; t++)
+        {
+            if (removed[t])
+            {
+                continue;
+            }
+            for (int c = 0; c < 3; c++)
+            {
+                int vertex = corners[t * 3 + c];
+                if (newIndices[vertex] == -1)
+                {
+                    newIndices[vertex] = used.size();
+                    used.add(vertex);
+                }
+                indices.add(newIndices[vertex]);
+            }
+        }
+        float[] vertices = new float[used.size() * 3];
+        float[] textureCoords = new float[used.size() * 2];
+        float[] normals = new float[used.size() * 3];
+        float[] tangents = data.getTangents() == null ? null : new float[used.size() * 3];
+        float furthestPoint = 0;
+        for (int i = 0; i < used.size(); i++)
+        {
+            int v = used.get(i);
+            System.arraycopy(data.getVertices(), v * 3, vertices, i * 3, 3);
+            System.arraycopy(data.getTextureCoords(), v * 2, textureCoords, i * 2, 2);
+            System.arraycopy(data.getNormals(), v * 3, normals, i * 3, 3);
+            if (tangents != null)
+            {
+                System.arraycopy(data.getTangents(), v * 3, tangents, i * 3, 3);
+            }
+            float length = (float) Math.sqrt(vertices[i * 3] * vertices[i * 3] + vertices[i * 3 + 1] * vertices[i * 3 + 1]
+                    + vertices[i * 3 + 2] * vertices[i * 3 + 2]);
+            furthestPoint = Math.max(furthestPoint, length);
+        }
+        int[] indicesArray = new int[indices.size()];
+        for (int i = 0; i < indicesArray.length; i++)
+        {
+            indicesArray[i] = indices.get(i);
+        }
+        return new ModelData(vertices, textureCoords, normals, tangents, indicesArray, furthestPoint);
+    }
+
+    /**
+     * Returns the positions sharing a remaining triangle with a position.
+     * @param position position
+     * @return neighbouring positions
+     */
+    private Set<Integer> neighbours(int position)
+    {
+        Set<Integer> neighbours = new HashSet<>();
+        for (int t : positionTriangles.get(position))
+        {
+            if (removed[t])
+            {
+                continue;
+            }
+            for (int c = 0; c < 3; c++)
+            {
+                if (position(t, c) != position)
+                {
+                    neighbours.add(position(t, c));
+                }
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * Adds a weighted plane to a position's quadric.
+     * @param position position
+     * @param a x of plane normal
+     * @param b y of plane normal
+     * @param c z of plane normal
+     * @param d plane distance
+     * @param weight weight of plane
+     */
+    private void addPlane(int position, double a, double b, double c, double d, double weight)
+    {
+        int i = position * 10;
+        quadrics[i] += weight * a * a;
+        quadrics[i + 1] += weight * a * b;
+        quadrics[i + 2] += weight * a * c;
+        quadrics[i + 3] += weight * a * d;
+        quadrics[i + 4] += weight * b * b;
+        quadrics[i + 5] += weight * b * c;
+        quadrics[i + 6] += weight * b * d;
+        quadrics[i + 7] += weight * c * c;
+        quadrics[i + 8] += weight * c * d;
+        quadrics[i + 9] += weight * d * d;
+    }
+
+    /**
+     * Computes the unit normal of a triangle of positions.
+     * @param p0 first position
+     * @param p1 second position
+     * @param p2 third position
+     * @param normal array the normal is stored in
+     * @return area of triangle (0 if it is degenerate)
+     */
+    private double triangleNormal(int p0, int p1, int p2, double[] normal)
+    {
+        double ax = positions[p1 * 3] - positions[p0 * 3];
+        double ay = positions[p1 * 3 + 1] - positions[p0 * 3 + 1];
+        double az = positions[p1 * 3 + 2] - positions[p0 * 3 + 2];
+        double bx = positions[p2 * 3] - positions[p0 * 3];
+        double by = positions[p2 * 3 + 1] - positions[p0 * 3 + 1];
+        double bz = positions[p2 * 3 + 2] - positions[p0 * 3 + 2];
+        normal[0] = ay * bz - az * by;
+        normal[1] = az * bx - ax * bz;
+        normal[2] = ax * by - ay * bx;
+        double length = Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+        if (length < 1e-12)
+        {
+            return 0;
+        }
+        normal[0] /= length;
+        normal[1] /= length;
+        normal[2] /= length;
+        return length / 2;
+    }
+
+    /**
+     * Returns the position of a triangle corner.
+     * @param triangle index of triangle
+     * @param corner corner of triangle (0 to 2)
+     * @return index of position
+     */
+    private int position(int triangle, int corner)
+    {
+        return vertexPositions[corners[triangle * 3 + corner]];
+    }
+
+    /**
+     * Returns true if a triangle has a corner at a position.
+     * @param triangle index of triangle
+     * @param position index of position
+     * @return true if triangle uses position
+     */
+    private boolean hasPosition(int triangle, int position)
+    {
+        return position(triangle, 0) == position || position(triangle, 1) == position || position(triangle, 2) == position;
+    }
+
+    /**
+     * Returns a key identifying an edge whichever way round its positions are.
+     * @param a first position
+     * @param b second position
+     * @return edge key
+     */
+    private static long edgeKey(int a, int b)
+    {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+}
@@ -21,12 +21,44 @@ public class OBJFileLoader
     private static final String MODELS_LOC = "res/models/";
 
     /**
-     * Loads an OBJ file and returns the OBJ's model data.
+     * Loads an OBJ file into a VAO.
      * @param objFileName name of OBJ file
      * @param loader loader
-     * @return model data (vertices, texture coords, normals, indices)
+     * @return raw model of VAO
      */
     public static RawModel loadOBJ(String objFileName, Loader loader)
+    {
+        ModelData data = loadModelData(objFileName);
+        return loader.loadToVAO(data.getVertices(), data.getTextureCoords(), data.getNormals(), data.getIndices());
+    }
+
+    /**
+     * Loads an OBJ file into a chain of levels of detail.  The first level is the
+     * model itself, and the others are simplified from it when it is loaded.
+     * @param objFileName name of OBJ file
+     * @param loader loader
+     * @param triangleRatios fraction of the model's triangles kept by each simplified level
+     * @return raw models of each level of detail, from most to least detailed
+     */
+    public static RawModel[] loadOBJLods(String objFileName, Loader loader, float... triangleRatios)
+    {
+        ModelData data = loadModelData(objFileName);
+        RawModel[] lods = new RawModel[triangleRatios.length + 1];
+        lods[0] = loader.loadToVAO(data.getVertices(), data.getTextureCoords(), data.getNormals(), data.getIndices());
+        for (int i = 0; i < triangleRatios.length; i++)
+        {
+            ModelData lod = MeshSimplifier.simplify(data, triangleRatios[i]);
+            lods[i + 1] = loader.loadToVAO(lod.getVertices(), lod.getTextureCoords(), lod.getNormals(), lod.getIndices());
+        }
+        return lods;
+    }
+
+    /**
+     * Loads an OBJ file and returns the OBJ's model data.
+     * @param objFileName name of OBJ file
+     * @return model data (vertices, texture coords, normals, indices)
+     */
+    public static ModelData loadModelData(String objFileName)
     {
         String line;
         List<Vertex> vertices = new ArrayList<>();
@@ -97,9 +129,7 @@ public class OBJFileLoader
         float[] tangentsArray = new float[vertices.size() * 3];
         float furthest = convertDataToArrays(vertices, textures, normals, verticesArray, texturesArray, normalsArray, tangentsArray);
         int[] indicesArray = convertIndicesListToArray(indices);
-//        ModelData data = new ModelData(verticesArray, texturesArray, normalsArray, tangentsArray, indicesArray, furthest);
-
-        return loader.loadToVAO(verticesArray, texturesArray, normalsArray, indicesArray);
+        return new ModelData(verticesArray, texturesArray, normalsArray, tangentsArray, indicesArray, furthest);
     }
 
     private static void calculateTangents(Vertex v0, Vertex v1, Vertex v2, List<Vector2f> textures)
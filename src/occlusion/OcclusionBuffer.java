@@ -0,0 +1,244 @@
+package occlusion;
+
+import java.util.Arrays;
+
+/**
+ * A small depth buffer that occluders are rasterized into on the CPU, and its
+ * hierarchical-Z pyramid.  Depth goes from 0 (near plane) to 1 (far plane).  Each
+ * level of the pyramid holds the farthest depth of the 2x2 texels below it, so a
+ * bounding box can be tested against a few texels whatever its size on screen: if
+ * the box is behind every texel it covers, it is completely occluded.
+ *
+ * Occluders are rasterized conservatively: a pixel only takes an occluder's depth
+ * if the occluder covers all of it, at the farthest depth the occluder has inside
+ * it.  Rasterization can be split into bands of rows, so several threads can fill
+ * the buffer at the same time.
+ *
+ * @author Aaron Frazer
+ */
+public class OcclusionBuffer
+{
+    /**
+     * Number of floats per screen space vertex (x and y in pixels, depth)
+     */
+    public static final int VERTEX_SIZE = 3;
+
+    /**
+     * Number of floats per screen space triangle
+     */
+    public static final int TRIANGLE_SIZE = 3 * VERTEX_SIZE;
+
+    /**
+     * Size of the buffer in pixels
+     */
+    private final int width, height;
+
+    /**
+     * Levels of the pyramid (level 0 is the depth buffer), and their sizes
+     */
+    private final float[][] levels;
+    private final int[] levelWidths;
+    private final int[] levelHeights;
+
+    /**
+     * Creates an occlusion buffer.
+     * @param width width in pixels
+     * @param height height in pixels
+     */
+    public OcclusionBuffer(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+        int levelCount = 1;
+        while ((width >> (levelCount - 1)) > 1 || (height >> (levelCount - 1)) > 1)
+        {
+            levelCount++;
+        }
+        levels = new float[levelCount][];
+        levelWidths = new int[levelCount];
+        levelHeights = new int[levelCount];
+        for (int i = 0; i < levelCount; i++)
+        {
+            levelWidths[i] = Math.max(1, (width + (1 << i) - 1) >> i);
+            levelHeights[i] = Math.max(1, (height + (1 << i) - 1) >> i);
+            levels[i] = new float[levelWidths[i] * levelHeights[i]];
+        }
+        clear();
+    }
+
+    /**
+     * Clears the depth buffer to the far plane.
+     */
+    public void clear()
+    {
+        Arrays.fill(levels[0], 1);
+    }
+
+    /**
+     * Rasterizes screen space triangles into a band of rows of the depth buffer,
+     * keeping the nearest depth of each pixel.  Rasterization is conservative, so the
+     * buffer is never nearer than the occluders really are: a pixel is only covered
+     * if the whole pixel is inside a triangle, and it takes the farthest depth of the
+     * triangle over the pixel rather than the depth at its centre.  Bands that don't
+     * overlap can be rasterized by different threads at the same time.
+     * @param triangles screen space triangles ({@link #TRIANGLE_SIZE} floats each)
+     * @param triangleCount number of triangles
+     * @param firstRow first row of the band
+     * @param endRow row after the last row of the band
+     */
+    public void rasterize(float[] triangles, int triangleCount, int firstRow, int endRow)
+    {
+        float[] depth = levels[0];
+        for (int t = 0; t < triangleCount; t++)
+        {
+            int i = t * TRIANGLE_SIZE;
+            float x0 = triangles[i], y0 = triangles[i + 1], z0 = triangles[i + 2];
+            float x1 = triangles[i + 3], y1 = triangles[i + 4], z1 = triangles[i + 5];
+            float x2 = triangles[i + 6], y2 = triangles[i + 7], z2 = triangles[i + 8];
+            float area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+            if (area == 0)
+            {
+                continue;
+            }
+            int minX = Math.max(0, (int) Math.floor(Math.min(x0, Math.min(x1, x2))));
+            int maxX = Math.min(width - 1, (int) Math.ceil(Math.max(x0, Math.max(x1, x2))));
+            int minY = Math.max(firstRow, (int) Math.floor(Math.min(y0, Math.min(y1, y2))));
+            int maxY = Math.min(endRow - 1, (int) Math.ceil(Math.max(y0, Math.max(y1, y2))));
+            if (minX > maxX || minY > maxY)
+            {
+                continue;
+            }
+            float inverseArea = 1 / area;
+            // change of the barycentric weights and depth across a pixel, and how far
+            // inside the triangle a pixel centre has to be for the whole pixel to be inside
+            float dw0x = (y1 - y2) * inverseArea, dw0y = (x2 - x1) * inverseArea;
+            float dw1x = (y2 - y0) * inverseArea, dw1y = (x0 - x2) * inverseArea;
+            float dw2x = -dw0x - dw1x, dw2y = -dw0y - dw1y;
+            float margin0 = 0.5f * (Math.abs(dw0x) + Math.abs(dw0y));
+            float margin1 = 0.5f * (Math.abs(dw1x) + Math.abs(dw1y));
+            float margin2 = 0.5f * (Math.abs(dw2x) + Math.abs(dw2y));
+            float depthSlope = 0.5f * (Math.abs(dw0x * z0 + dw1x * z1 + dw2x * z2)
+                    + Math.abs(dw0y * z0 + dw1y * z1 + dw2y * z2));
+            for (int y = minY; y <= maxY; y++)
+            {
+                float py = y + 0.5f;
+                int row = y * width;
+                for (int x = minX; x <= maxX; x++)
+                {
+                    float px = x + 0.5f;
+                    // barycentric weights, positive inside the triangle whatever its winding
+                    float w0 = ((x1 - px) * (y2 - py) - (x2 - px) * (y1 - py)) * inverseArea;
+                    float w1 = ((x2 - px) * (y0 - py) - (x0 - px) * (y2 - py)) * inverseArea;
+                    float w2 = 1 - w0 - w1;
+                    if (w0 < margin0 || w1 < margin1 || w2 < margin2)
+                    {
+                        continue;
+                    }
+                    float z = w0 * z0 + w1 * z1 + w2 * z2 + depthSlope;
+                    if (z < depth[row + x])
+                    {
+                        depth[row + x] = z;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the pyramid from the depth buffer.  Called once all occluders have
+     * been rasterized.
+     */
+    public void buildPyramid()
+    {
+        for (int level = 1; level < levels.length; level++)
+        {
+            float[] source = levels[level - 1];
+            float[] destination = levels[level];
+            int sourceWidth = levelWidths[level - 1];
+            int sourceHeight = levelHeights[level - 1];
+            int levelWidth = levelWidths[level];
+            for (int y = 0; y < levelHeights[level]; y++)
+            {
+                int y0 = (y * 2) * sourceWidth;
+                int y1 = Math.min(y * 2 + 1, sourceHeight - 1) * sourceWidth;
+                for (int x = 0; x < levelWidth; x++)
+                {
+                    int x0 = x * 2;
+                    int x1 = Math.min(x * 2 + 1, sourceWidth - 1);
+                    destination[y * levelWidth + x] = Math.max(Math.max(source[y0 + x0], source[y0 + x1]),
+                            Math.max(source[y1 + x0], source[y1 + x1]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests a screen space rectangle against the pyramid.  The rectangle is occluded
+     * if its nearest depth is behind the farthest depth of every texel it covers.
+     * @param minX left pixel of rectangle
+     * @param minY bottom pixel of rectangle
+     * @param maxX right pixel of rectangle
+     * @param maxY top pixel of rectangle
+     * @param nearestDepth nearest depth of the object inside the rectangle
+     * @return true if the rectangle may be visible
+     */
+    public boolean isVisible(int minX, int minY, int maxX, int maxY, float nearestDepth)
+    {
+        minX = Math.max(minX, 0);
+        minY = Math.max(minY, 0);
+        maxX = Math.min(maxX, width - 1);
+        maxY = Math.min(maxY, height - 1);
+        if (minX > maxX || minY > maxY)
+        {
+            return false;
+        }
+        // go up the pyramid until the rectangle covers at most 2x2 texels
+        int level = 0;
+        while (level < levels.length - 1 && ((maxX >> level) - (minX >> level) > 1 || (maxY >> level) - (minY >> level) > 1))
+        {
+            level++;
+        }
+        float[] texels = levels[level];
+        int levelWidth = levelWidths[level];
+        for (int y = minY >> level; y <= maxY >> level; y++)
+        {
+            for (int x = minX >> level; x <= maxX >> level; x++)
+            {
+                if (nearestDepth <= texels[y * levelWidth + x])
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the depth of a pixel of the depth buffer.
+     * @param x x coordinate of pixel
+     * @param y y coordinate of pixel
+     * @return depth of pixel
+     */
+    public float getDepth(int x, int y)
+    {
+        return levels[0][y * width + x];
+    }
+
+    /**
+     * Returns the width of the buffer.
+     * @return width in pixels
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the height of the buffer.
+     * @return height in pixels
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+}
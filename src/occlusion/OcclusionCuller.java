@@ -0,0 +1,561 @@
+package occlusion;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+import terrain.Terrain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Culls objects hidden behind terrain and other large occluders, entirely on the
+ * CPU.  Every frame the occluders are transformed by the camera's projection-view
+ * matrix and rasterized into a small {@link OcclusionBuffer} by worker threads (each
+ * filling a band of rows), then the bounding boxes of objects are tested against the
+ * buffer's hierarchical-Z pyramid before they are submitted for drawing.
+ *
+ * Terrains are rasterized as a coarse grid whose heights are the lowest height of
+ * the terrain around each grid point, so the occluder always lies below the real
+ * terrain and never hides anything that is visible.
+ *
+ * @author Aaron Frazer
+ */
+public class OcclusionCuller
+{
+    /**
+     * Number of grid cells along each side of a terrain's occluder mesh
+     */
+    private static final int TERRAIN_CELLS = 32;
+
+    /**
+     * Number of floats per world space vertex
+     */
+    private static final int WORLD_VERTEX_SIZE = 3;
+
+    /**
+     * Number of floats per world space triangle
+     */
+    private static final int WORLD_TRIANGLE_SIZE = 3 * WORLD_VERTEX_SIZE;
+
+    /**
+     * Corners of a unit cube, and the triangles of its faces
+     */
+    private static final float[][] CUBE_CORNERS = {
+            {-1, -1, -1}, {1, -1, -1}, {1, 1, -1}, {-1, 1, -1},
+            {-1, -1, 1}, {1, -1, 1}, {1, 1, 1}, {-1, 1, 1}};
+    private static final int[] CUBE_INDICES = {
+            0, 1, 2, 0, 2, 3, 4, 6, 5, 4, 7, 6, 0, 4, 5, 0, 5, 1,
+            3, 2, 6, 3, 6, 7, 0, 3, 7, 0, 7, 4, 1, 5, 6, 1, 6, 2};
+
+    /**
+     * Depth buffer and pyramid the occluders are rasterized into
+     */
+    private OcclusionBuffer buffer;
+
+    /**
+     * Projection-view matrix of the camera
+     */
+    private Matrix4f projectionViewMatrix = new Matrix4f();
+
+    /**
+     * World space triangles of the terrains, which don't change
+     */
+    private float[] terrainTriangles = new float[0];
+    private int terrainTriangleCount = 0;
+
+    /**
+     * Terrains that have been added as occluders
+     */
+    private Map<Terrain, Boolean> terrains = new IdentityHashMap<>();
+
+    /**
+     * World space triangles of the occluders added for the current frame
+     */
+    private float[] occluderTriangles = new float[WORLD_TRIANGLE_SIZE * 12];
+    private int occluderTriangleCount = 0;
+
+    /**
+     * Screen space triangles rasterized this frame
+     */
+    private float[] screenTriangles = new float[OcclusionBuffer.TRIANGLE_SIZE * 64];
+    private int screenTriangleCount = 0;
+
+    /**
+     * Clip space vertices of the triangle being clipped against the near plane
+     */
+    private float[] clipVertices = new float[4 * 4 * 2];
+
+    /**
+     * Worker threads, and the task rasterizing each band of rows (null if rasterizing on the calling thread)
+     */
+    private ExecutorService workers;
+    private List<Callable<Void>> bandTasks = new ArrayList<>();
+
+    /**
+     * Number of objects tested, found occluded and found outside the view this
+     * frame, and in the last frame
+     */
+    private int tested = 0;
+    private int occluded = 0;
+    private int outsideView = 0;
+    private int lastFrameTested = 0;
+    private int lastFrameOccluded = 0;
+    private int lastFrameOutsideView = 0;
+
+    /**
+     * Creates an occlusion culler.
+     * @param width width of the occlusion buffer in pixels
+     * @param height height of the occlusion buffer in pixels
+     * @param threadCount number of worker threads rasterizing occluders (1 to rasterize on the calling thread)
+     */
+    public OcclusionCuller(int width, int height, int threadCount)
+    {
+        buffer = new OcclusionBuffer(width, height);
+        if (threadCount > 1)
+        {
+            workers = Executors.newFixedThreadPool(threadCount, runnable ->
+            {
+                Thread thread = new Thread(runnable, "Occlusion culling");
+                thread.setDaemon(true);
+                return thread;
+            });
+            int rowsPerBand = (height + threadCount - 1) / threadCount;
+            for (int i = 0; i < threadCount; i++)
+            {
+                final int firstRow = i * rowsPerBand;
+                final int endRow = Math.min(height, firstRow + rowsPerBand);
+                bandTasks.add(() ->
+                {
+                    buffer.rasterize(screenTriangles, screenTriangleCount, firstRow, endRow);
+                    return null;
+                });
+            }
+        }
+    }
+
+    /**
+     * Adds a terrain as an occluder, if it hasn't been added already.
+     * @param terrain terrain
+     */
+    public void addTerrain(Terrain terrain)
+    {
+        if (terrains.put(terrain, Boolean.TRUE) == null)
+        {
+            addHeightfield(terrain.getX(), terrain.getZ(), Terrain.SIZE, terrain.getHeights());
+        }
+    }
+
+    /**
+     * Adds a heightfield as an occluder.  The heightfield is reduced to a coarse grid
+     * that lies below it everywhere.
+     * @param x x coordinate of the heightfield's corner
+     * @param z z coordinate of the heightfield's corner
+     * @param size size of the heightfield in world units
+     * @param heights height of each vertex, indexed by [x][z]
+     */
+    public void addHeightfield(float x, float z, float size, float[][] heights)
+    {
+        int vertexCount = heights.length;
+        int cells = Math.min(TERRAIN_CELLS, vertexCount - 1);
+        // lowest height of each coarse cell
+        float[][] cellHeights = new float[cells][cells];
+        for (int cx = 0; cx < cells; cx++)
+        {
+            for (int cz = 0; cz < cells; cz++)
+            {
+                float lowest = Float.MAX_VALUE;
+                int endX = ((cx + 1) * (vertexCount - 1) + cells - 1) / cells;
+                int endZ = ((cz + 1) * (vertexCount - 1) + cells - 1) / cells;
+                for (int vx = cx * (vertexCount - 1) / cells; vx <= endX; vx++)
+                {
+                    for (int vz = cz * (vertexCount - 1) / cells; vz <= endZ; vz++)
+                    {
+                        lowest = Math.min(lowest, heights[vx][vz]);
+                    }
+                }
+                cellHeights[cx][cz] = lowest;
+            }
+        }
+        // each grid point takes the lowest height of the cells around it, so every
+        // coarse cell lies below the heights inside it
+        float[][] pointHeights = new float[cells + 1][cells + 1];
+        for (int px = 0; px <= cells; px++)
+        {
+            for (int pz = 0; pz <= cells; pz++)
+            {
+                float lowest = Float.MAX_VALUE;
+                for (int cx = Math.max(0, px - 1); cx <= Math.min(cells - 1, px); cx++)
+                {
+                    for (int cz = Math.max(0, pz - 1); cz <= Math.min(cells - 1, pz); cz++)
+                    {
+                        lowest = Math.min(lowest, cellHeights[cx][cz]);
+                    }
+                }
+                pointHeights[px][pz] = lowest;
+            }
+        }
+        int first = terrainTriangleCount;
+        terrainTriangleCount += cells * cells * 2;
+        terrainTriangles = Arrays.copyOf(terrainTriangles, terrainTriangleCount * WORLD_TRIANGLE_SIZE);
+        int i = first * WORLD_TRIANGLE_SIZE;
+        float cellSize = size / cells;
+        for (int cx = 0; cx < cells; cx++)
+        {
+            for (int cz = 0; cz < cells; cz++)
+            {
+                float x0 = x + cx * cellSize, x1 = x0 + cellSize;
+                float z0 = z + cz * cellSize, z1 = z0 + cellSize;
+                i = putVertex(terrainTriangles, i, x0, pointHeights[cx][cz], z0);
+                i = putVertex(terrainTriangles, i, x0, pointHeights[cx][cz + 1], z1);
+                i = putVertex(terrainTriangles, i, x1, pointHeights[cx + 1][cz], z0);
+                i = putVertex(terrainTriangles, i, x1, pointHeights[cx + 1][cz], z0);
+                i = putVertex(terrainTriangles, i, x0, pointHeights[cx][cz + 1], z1);
+                i = putVertex(terrainTriangles, i, x1, pointHeights[cx + 1][cz + 1], z1);
+            }
+        }
+    }
+
+    /**
+     * Starts a frame: clears the occlusion buffer and the occluders of the last frame,
+     * and resets the statistics.
+     * @param projectionViewMatrix projection-view matrix of the camera
+     */
+    public void begin(Matrix4f projectionViewMatrix)
+    {
+        this.projectionViewMatrix.load(projectionViewMatrix);
+        occluderTriangleCount = 0;
+        lastFrameTested = tested;
+        lastFrameOccluded = occluded;
+        lastFrameOutsideView = outsideView;
+        tested = 0;
+        occluded = 0;
+        outsideView = 0;
+    }
+
+    /**
+     * Adds an occluder for the current frame: an axis aligned box that must be
+     * completely inside the occluding object.
+     * @param center center of the box
+     * @param halfExtent half the size of the box
+     */
+    public void addOccluder(Vector3f center, float halfExtent)
+    {
+        int needed = (occluderTriangleCount + 12) * WORLD_TRIANGLE_SIZE;
+        if (needed > occluderTriangles.length)
+        {
+            occluderTriangles = Arrays.copyOf(occluderTriangles, Math.max(needed, occluderTriangles.length * 2));
+        }
+        int i = occluderTriangleCount * WORLD_TRIANGLE_SIZE;
+        for (int index : CUBE_INDICES)
+        {
+            float[] corner = CUBE_CORNERS[index];
+            i = putVertex(occluderTriangles, i, center.x + corner[0] * halfExtent,
+                    center.y + corner[1] * halfExtent, center.z + corner[2] * halfExtent);
+        }
+        occluderTriangleCount += 12;
+    }
+
+    /**
+     * Rasterizes the terrains and occluders into the occlusion buffer and builds its
+     * pyramid.  Objects can be tested once this has returned.
+     */
+    public void rasterize()
+    {
+        screenTriangleCount = 0;
+        projectTriangles(terrainTriangles, terrainTriangleCount);
+        projectTriangles(occluderTriangles, occluderTriangleCount);
+        buffer.clear();
+        if (workers == null)
+        {
+            buffer.rasterize(screenTriangles, screenTriangleCount, 0, buffer.getHeight());
+        } else
+        {
+            try
+            {
+                for (Future<Void> band : workers.invokeAll(bandTasks))
+                {
+                    band.get();
+                }
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e)
+            {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        buffer.buildPyramid();
+    }
+
+    /**
+     * Tests whether a sphere may be visible.  The sphere's bounding box is tested.
+     * @param center center of the sphere
+     * @param radius radius of the sphere
+     * @return false if the sphere is occluded or outside the view
+     */
+    public boolean isVisible(Vector3f center, float radius)
+    {
+        return isVisible(center.x - radius, center.y - radius, center.z - radius,
+                center.x + radius, center.y + radius, center.z + radius);
+    }
+
+    /**
+     * Tests whether an axis aligned bounding box may be visible.
+     * @param minX minimum x coordinate
+     * @param minY minimum y coordinate
+     * @param minZ minimum z coordinate
+     * @param maxX maximum x coordinate
+     * @param maxY maximum y coordinate
+     * @param maxZ maximum z coordinate
+     * @return false if the box is occluded or outside the view
+     */
+    public boolean isVisible(float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+    {
+        tested++;
+        Matrix4f m = projectionViewMatrix;
+        float screenMinX = Float.MAX_VALUE, screenMinY = Float.MAX_VALUE;
+        float screenMaxX = -Float.MAX_VALUE, screenMaxY = -Float.MAX_VALUE;
+        float nearestDepth = Float.MAX_VALUE;
+        int behindCorners = 0;
+        for (int corner = 0; corner < 8; corner++)
+        {
+            float x = (corner & 1) == 0 ? minX : maxX;
+            float y = (corner & 2) == 0 ? minY : maxY;
+            float z = (corner & 4) == 0 ? minZ : maxZ;
+            float clipX = m.m00 * x + m.m10 * y + m.m20 * z + m.m30;
+            float clipY = m.m01 * x + m.m11 * y + m.m21 * z + m.m31;
+            float clipZ = m.m02 * x + m.m12 * y + m.m22 * z + m.m32;
+            float clipW = m.m03 * x + m.m13 * y + m.m23 * z + m.m33;
+            if (clipZ < -clipW)
+            {
+                behindCorners++;
+                continue;
+            }
+            screenMinX = Math.min(screenMinX, clipX / clipW);
+            screenMaxX = Math.max(screenMaxX, clipX / clipW);
+            screenMinY = Math.min(screenMinY, clipY / clipW);
+            screenMaxY = Math.max(screenMaxY, clipY / clipW);
+            nearestDepth = Math.min(nearestDepth, clipZ / clipW);
+        }
+        if (behindCorners == 8)
+        {
+            outsideView++;
+            return false;
+        }
+        if (behindCorners > 0)
+        {
+            return true; // box crosses the near plane
+        }
+        if (screenMaxX < -1 || screenMinX > 1 || screenMaxY < -1 || screenMinY > 1 || nearestDepth > 1)
+        {
+            outsideView++;
+            return false;
+        }
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
+        boolean visible = buffer.isVisible(
+                (int) Math.floor((screenMinX * 0.5f + 0.5f) * width), (int) Math.floor((screenMinY * 0.5f + 0.5f) * height),
+                (int) Math.floor((screenMaxX * 0.5f + 0.5f) * width), (int) Math.floor((screenMaxY * 0.5f + 0.5f) * height),
+                nearestDepth * 0.5f + 0.5f);
+        if (!visible)
+        {
+            occluded++;
+        }
+        return visible;
+    }
+
+    /**
+     * Returns the number of objects tested in the last frame.
+     * @return number of objects tested
+     */
+    public int getTested()
+    {
+        return lastFrameTested;
+    }
+
+    /**
+     * Returns the number of objects found occluded in the last frame.
+     * @return number of occluded objects
+     */
+    public int getOccluded()
+    {
+        return lastFrameOccluded;
+    }
+
+    /**
+     * Returns the number of objects found outside the view in the last frame.
+     * @return number of objects outside the view
+     */
+    public int getOutsideView()
+    {
+        return lastFrameOutsideView;
+    }
+
+    /**
+     * Returns the percentage of objects tested in the last frame that were occluded.
+     * @return occluded percentage
+     */
+    public float getOccludedPercentage()
+    {
+        return lastFrameTested == 0 ? 0 : 100f * lastFrameOccluded / lastFrameTested;
+    }
+
+    /**
+     * Returns the occlusion buffer.
+     * @return occlusion buffer
+     */
+    public OcclusionBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void cleanUp()
+    {
+        if (workers != null)
+        {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Transforms world space triangles to screen space, clipping them against the
+     * near plane, and adds them to the triangles to be rasterized.
+     * @param triangles world space triangles
+     * @param triangleCount number of triangles
+     */
+    private void projectTriangles(float[] triangles, int triangleCount)
+    {
+        Matrix4f m = projectionViewMatrix;
+        for (int t = 0; t < triangleCount; t++)
+        {
+            int inside = 0;
+            for (int v = 0; v < 3; v++)
+            {
+                int i = t * WORLD_TRIANGLE_SIZE + v * WORLD_VERTEX_SIZE;
+                float x = triangles[i], y = triangles[i + 1], z = triangles[i + 2];
+                int c = v * 4;
+                clipVertices[c] = m.m00 * x + m.m10 * y + m.m20 * z + m.m30;
+                clipVertices[c + 1] = m.m01 * x + m.m11 * y + m.m21 * z + m.m31;
+                clipVertices[c + 2] = m.m02 * x + m.m12 * y + m.m22 * z + m.m32;
+                clipVertices[c + 3] = m.m03 * x + m.m13 * y + m.m23 * z + m.m33;
+                if (clipVertices[c + 2] >= -clipVertices[c + 3])
+                {
+                    inside++;
+                }
+            }
+            if (inside == 0)
+            {
+                continue;
+            }
+            int vertexCount = 3;
+            if (inside < 3)
+            {
+                vertexCount = clipNearPlane();
+            }
+            // fan triangulation of the clipped polygon
+            for (int v = 1; v < vertexCount - 1; v++)
+            {
+                addScreenTriangle(0, v, v + 1);
+            }
+        }
+    }
+
+    /**
+     * Clips the triangle in the clip vertices against the near plane (z >= -w),
+     * replacing it with the clipped polygon.
+     * @return number of vertices of the clipped polygon (3 or 4)
+     */
+    private int clipNearPlane()
+    {
+        int source = 0;
+        int destination = 4 * 4;
+        int count = 0;
+        for (int v = 0; v < 3; v++)
+        {
+            int a = source + v * 4;
+            int b = source + ((v + 1) % 3) * 4;
+            float distanceA = clipVertices[a + 2] + clipVertices[a + 3];
+            float distanceB = clipVertices[b + 2] + clipVertices[b + 3];
+            if (distanceA >= 0)
+            {
+                System.arraycopy(clipVertices, a, clipVertices, destination + count * 4, 4);
+                count++;
+            }
+            if ((distanceA >= 0) != (distanceB >= 0))
+            {
+                float t = distanceA / (distanceA - distanceB);
+                int d = destination + count * 4;
+                for (int k = 0; k < 4; k++)
+                {
+                    clipVertices[d + k] = clipVertices[a + k] + t * (clipVertices[b + k] - clipVertices[a + k]);
+                }
+                count++;
+            }
+        }
+        System.arraycopy(clipVertices, destination, clipVertices, source, count * 4);
+        return count;
+    }
+
+    /**
+     * Adds a triangle of clip vertices to the screen space triangles.
+     * @param a index of first vertex
+     * @param b index of second vertex
+     * @param c index of third vertex
+     */
+    private void addScreenTriangle(int a, int b, int c)
+    {
+        if ((screenTriangleCount + 1) * OcclusionBuffer.TRIANGLE_SIZE > screenTriangles.length)
+        {
+            screenTriangles = Arrays.copyOf(screenTriangles, screenTriangles.length * 2);
+        }
+        int i = screenTriangleCount * OcclusionBuffer.TRIANGLE_SIZE;
+        i = putScreenVertex(i, a);
+        i = putScreenVertex(i, b);
+        putScreenVertex(i, c);
+        screenTriangleCount++;
+    }
+
+    /**
+     * Stores a clip vertex as a screen space vertex (pixels and depth from 0 to 1).
+     * @param i position in the screen space triangles
+     * @param vertex index of clip vertex
+     * @return position after the vertex
+     */
+    private int putScreenVertex(int i, int vertex)
+    {
+        int c = vertex * 4;
+        float w = clipVertices[c + 3];
+        screenTriangles[i] = (clipVertices[c] / w * 0.5f + 0.5f) * buffer.getWidth();
+        screenTriangles[i + 1] = (clipVertices[c + 1] / w * 0.5f + 0.5f) * buffer.getHeight();
+        screenTriangles[i + 2] = clipVertices[c + 2] / w * 0.5f + 0.5f;
+        return i + OcclusionBuffer.VERTEX_SIZE;
+    }
+
+    /**
+     * Stores a world space vertex.
+     * @param triangles array of triangles
+     * @param i position in the array
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param z z coordinate
+     * @return position after the vertex
+     */
+    private static int putVertex(float[] triangles, int i, float x, float y, float z)
+    {
+        triangles[i] = x;
+        triangles[i + 1] = y;
+        triangles[i + 2] = z;
+        return i + WORLD_VERTEX_SIZE;
+    }
+}
@@ -6,7 +6,7 @@ import org.lwjgl.util.vector.Matrix4f;
 import org.lwjgl.util.vector.Vector3f;
 import org.lwjgl.util.vector.Vector4f;
 
-import renderEngine.DisplayManager;
+import toolbox.FixedTimestep;
 
 /**
  * A complex particle system that is used for continually omitting particles at random
@@ -99,12 +99,12 @@ public class ComplexParticleSystem
 
     /**
      * Generates particles.
-     * Called once every frame.
+     * Called once every simulation tick.
      * @param systemCenter 3D point in the world where the particles are omitted from
      */
     public void generateParticles(Vector3f systemCenter)
     {
-        float delta = DisplayManager.getFrameTimeSeconds();
+        float delta = FixedTimestep.TICK_SECONDS;
         float particlesToCreate = pps * delta;
         int count = (int) Math.floor(particlesToCreate);
         float partialParticle = particlesToCreate % 1;
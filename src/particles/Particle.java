@@ -4,7 +4,7 @@ import entities.Camera;
 import entities.Player;
 import org.lwjgl.util.vector.Vector2f;
 import org.lwjgl.util.vector.Vector3f;
-import renderEngine.DisplayManager;
+import toolbox.FixedTimestep;
 
 /**
  * A single particle in the game.
@@ -88,6 +88,23 @@ public class Particle
      * @param scale scale
      */
     public Particle(ParticleTexture texture, Vector3f position, Vector3f velocity, float gravityEffect, float lifeLength, float rotation, float scale)
+    {
+        this(texture, position, velocity, gravityEffect, lifeLength, rotation, scale, true);
+    }
+
+    /**
+     * Creates a particle, optionally without adding it to the particle master, so it
+     * can be updated on its own (used by the particle benchmark).
+     * @param texture texture
+     * @param position position
+     * @param velocity velocity
+     * @param gravityEffect gravitational pull
+     * @param lifeLength length of life
+     * @param rotation rotation
+     * @param scale scale
+     * @param register true to add the particle to the particle master
+     */
+    Particle(ParticleTexture texture, Vector3f position, Vector3f velocity, float gravityEffect, float lifeLength, float rotation, float scale, boolean register)
     {
         this.texture = texture;
         this.position = position;
@@ -96,23 +113,26 @@ public class Particle
         this.lifeLength = lifeLength;
         this.rotation = rotation;
         this.scale = scale;
-        ParticleMaster.addParticle(this);
+        if (register)
+        {
+            ParticleMaster.addParticle(this);
+        }
     }
 
     /**
      * Updates this particle and returns true if this particle is alive.
-     * This method is called every frame.
+     * This method is called every simulation tick.
      * @return true if particle is still alive, false if particle is dead
      */
     protected boolean update(Camera camera)
     {
-        velocity.y += Player.GRAVITY * gravityEffect * DisplayManager.getFrameTimeSeconds();
+        velocity.y += Player.GRAVITY * gravityEffect * FixedTimestep.TICK_SECONDS;
         reusableChange.set(velocity);
-        reusableChange.scale(DisplayManager.getFrameTimeSeconds());
+        reusableChange.scale(FixedTimestep.TICK_SECONDS);
         Vector3f.add(reusableChange, position, position);
         distance = Vector3f.sub(camera.getPosition(), position, null).lengthSquared();
         updateTextureCoordInfo();
-        elapsedTime += DisplayManager.getFrameTimeSeconds();
+        elapsedTime += FixedTimestep.TICK_SECONDS;
 
         return elapsedTime < lifeLength;
     }
@@ -191,7 +211,7 @@ public class Particle
 
     /**
      * Updates texture offsets and blend value.
-     * This method is called every frame.
+     * This method is called every simulation tick.
      */
     private void updateTextureCoordInfo()
     {
@@ -0,0 +1,89 @@
+package particles;
+
+import cameras.FreeRoamCamera;
+import entities.Camera;
+import org.lwjgl.util.vector.Vector3f;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A class used to benchmark the CPU time spent per frame on particles that are sorted
+ * (alpha blending) against particles that use order-independent transparency.
+ * Runs without a display, since only the CPU side of the particle system is measured.
+ *
+ * @author Aaron Frazer
+ */
+public class ParticleBenchmark
+{
+    /**
+     * Particle counts that are benchmarked
+     */
+    private static final int[] PARTICLE_COUNTS = {500, 1000, 2500, 5000, 10000};
+
+    /**
+     * Number of frames simulated before timing starts
+     */
+    private static final int WARMUP_FRAMES = 50;
+
+    /**
+     * Number of frames that are timed
+     */
+    private static final int TIMED_FRAMES = 200;
+
+    public static void main(String[] args)
+    {
+        ParticleTexture sortedTexture = new ParticleTexture(0, 8, false);
+        ParticleTexture oitTexture = new ParticleTexture(0, 8, false, true);
+
+        System.out.println("particles | sorted (ms/frame) | order-independent (ms/frame)");
+        for (int count : PARTICLE_COUNTS)
+        {
+            double sorted = timeFrames(sortedTexture, count);
+            double orderIndependent = timeFrames(oitTexture, count);
+            System.out.printf("%9d | %17.3f | %28.3f%n", count, sorted, orderIndependent);
+        }
+    }
+
+    /**
+     * Simulates a number of frames for a list of particles while the camera circles
+     * around them, so that the order of the particles changes every frame.
+     * @param texture texture deciding whether particles need sorting
+     * @param count number of particles
+     * @return average CPU time per frame in milliseconds
+     */
+    private static double timeFrames(ParticleTexture texture, int count)
+    {
+        Random random = new Random(5666778);
+        List<Particle> list = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            Vector3f position = new Vector3f(random.nextFloat() * 100, random.nextFloat() * 100, random.nextFloat() * 100);
+            list.add(new Particle(texture, position, new Vector3f(), 0, Float.MAX_VALUE, 0, 1, false)); // not added to the particle master
+        }
+        Camera camera = new FreeRoamCamera(new Vector3f(50, 50, 50));
+
+        long totalTime = 0;
+        for (int frame = 0; frame < WARMUP_FRAMES + TIMED_FRAMES; frame++)
+        {
+            double angle = frame * 0.05;
+            camera.getPosition().set((float) (50 + 150 * Math.cos(angle)), 50, (float) (50 + 150 * Math.sin(angle)));
+
+            long start = System.nanoTime();
+            for (Particle particle : list)
+            {
+                particle.update(camera);
+            }
+            if (!texture.useOrderIndependentTransparency())
+            {
+                InsertionSort.sortHighToLow(list);
+            }
+            if (frame >= WARMUP_FRAMES)
+            {
+                totalTime += System.nanoTime() - start;
+            }
+        }
+        return totalTime / (double) TIMED_FRAMES / 1000000.0;
+    }
+}
@@ -0,0 +1,56 @@
+package particles;
+
+import shaders.ShaderProgram;
+
+/**
+ * A shader program used to composite order-independent particles onto the scene.
+ * @author Aaron Frazer
+ */
+public class ParticleCompositeShader extends ShaderProgram
+{
+    /**
+     * Filepath of vertex shader
+     */
+    private static final String VERTEX_FILE = "particles/particleCompositeVertexShader.glsl";
+
+    /**
+     * Filepath of fragment shader
+     */
+    private static final String FRAGMENT_FILE = "particles/particleCompositeFragmentShader.glsl";
+
+    /**
+     * Location of uniform variables in vertex/fragment programs
+     */
+    private int location_accumulationTexture;
+    private int location_revealageTexture;
+
+    /**
+     * Creates a particle composite shader program.
+     */
+    protected ParticleCompositeShader()
+    {
+        super(VERTEX_FILE, FRAGMENT_FILE);
+    }
+
+    @Override
+    protected void getAllUniformLocations()
+    {
+        location_accumulationTexture = super.getUniformLocation("accumulationTexture");
+        location_revealageTexture = super.getUniformLocation("revealageTexture");
+    }
+
+    @Override
+    protected void bindAttributes()
+    {
+        super.bindAttribute(0, "position");
+    }
+
+    /**
+     * Binds accumulation texture and revealage texture to sampler2D (in fragment shader).
+     */
+    protected void connectTextureUnits()
+    {
+        super.loadInt(location_accumulationTexture, 0);
+        super.loadInt(location_revealageTexture, 1);
+    }
+}
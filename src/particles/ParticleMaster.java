@@ -1,7 +1,6 @@
 package particles;
 
 import entities.Camera;
-import org.lwjgl.util.vector.Matrix4f;
 import renderEngine.Loader;
 
 import java.util.ArrayList;
@@ -32,11 +31,10 @@ public class ParticleMaster
     /**
      * Initializes particle renderer.
      * @param loader loader
-     * @param projectionMatrix projection matrix
      */
-    public static void init(Loader loader, Matrix4f projectionMatrix)
+    public static void init(Loader loader)
     {
-        renderer = new ParticleRenderer(loader, projectionMatrix);
+        renderer = new ParticleRenderer(loader);
     }
 
     /**
@@ -68,8 +66,8 @@ public class ParticleMaster
                 }
             }
 
-            // Only sort particles which use alpha blending
-            if (!entry.getKey().useAdditiveBlending())
+            // Only sort particles which use alpha blending without order-independent transparency
+            if (!entry.getKey().useAdditiveBlending() && !entry.getKey().useOrderIndependentTransparency())
             {
                 InsertionSort.sortHighToLow(list);
             }
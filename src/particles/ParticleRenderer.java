@@ -1,6 +1,7 @@
 package particles;
 
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.List;
 import java.util.Map;
 
@@ -11,7 +12,10 @@ import org.lwjgl.util.vector.Vector3f;
 
 import entities.Camera;
 import models.RawModel;
+import postProcessing.Fbo;
+import postProcessing.FboPool;
 import renderEngine.Loader;
+import renderEngine.RenderState;
 import toolbox.Maths;
 
 /**
@@ -35,11 +39,32 @@ public class ParticleRenderer
      */
     private static final int INSTANCE_DATA_LENGTH = 21;
 
+    /**
+     * Filepath of fragment shader used for order-independent particles
+     */
+    private static final String OIT_FRAGMENT_FILE = "particles/particleOitFragmentShader.glsl";
+
     /**
      * Float buffer that is used to store data in VBO
      */
     private static final FloatBuffer buffer = BufferUtils.createFloatBuffer(MAX_INSTANCES * INSTANCE_DATA_LENGTH);
 
+    /**
+     * Full screen quad vertices used to composite order-independent particles
+     */
+    private static final float[] QUAD_POSITIONS = {-1, 1, -1, -1, 1, 1, 1, -1};
+
+    /**
+     * Values the accumulation and revealage targets are cleared to every frame
+     */
+    private static final FloatBuffer ACCUMULATION_CLEAR = createClearValue(0, 0, 0, 1);
+    private static final FloatBuffer REVEALAGE_CLEAR = createClearValue(0, 0, 0, 0);
+
+    /**
+     * Int buffer used to read back the viewport
+     */
+    private static final IntBuffer viewport = BufferUtils.createIntBuffer(16);
+
     /**
      * Quad of particle
      */
@@ -50,6 +75,21 @@ public class ParticleRenderer
      */
     private ParticleShader shader;
 
+    /**
+     * Particle shader writing to the order-independent transparency targets
+     */
+    private ParticleShader oitShader;
+
+    /**
+     * Shader compositing order-independent particles onto the scene
+     */
+    private ParticleCompositeShader compositeShader;
+
+    /**
+     * Full screen quad used to composite order-independent particles
+     */
+    private RawModel compositeQuad;
+
     /**
      * Instance of loader
      */
@@ -66,11 +106,10 @@ public class ParticleRenderer
     private int pointer = 0;
 
     /**
-     * Creates a particle renderer by creating a new particle shader and loading up projection matrix.
-     * @param loader           loader
-     * @param projectionMatrix projection matrix
+     * Creates a particle renderer by creating a new particle shader.
+     * @param loader loader
      */
-    protected ParticleRenderer(Loader loader, Matrix4f projectionMatrix)
+    protected ParticleRenderer(Loader loader)
     {
         this.loader = loader;
         this.vboID = loader.createEmptyVbo(INSTANCE_DATA_LENGTH * MAX_INSTANCES);
@@ -84,49 +123,139 @@ public class ParticleRenderer
         loader.addInstancedAttribute(quad.getVaoID(), vboID, 6, 1, INSTANCE_DATA_LENGTH, 20); // blend factors
 
         shader = new ParticleShader();
-        shader.start();
-        shader.loadProjectionMatrix(projectionMatrix);
-        shader.stop();
+        oitShader = new ParticleShader(OIT_FRAGMENT_FILE);
+
+        compositeShader = new ParticleCompositeShader();
+        compositeShader.start();
+        compositeShader.connectTextureUnits();
+        compositeShader.stop();
+        compositeQuad = loader.loadToVAO(QUAD_POSITIONS, 2);
     }
 
     /**
      * Renders a list of particles.
+     * Sorted particles are blended straight into the scene, order-independent particles are
+     * accumulated into the order-independent transparency targets and composited afterwards.
      * @param particles hashmap of lists of particles to be rendered
      * @param camera camera
      */
     protected void render(Map<ParticleTexture, List<Particle>> particles, Camera camera)
     {
         Matrix4f viewMatrix = Maths.createViewMatrix(camera);
-        prepare();
+        boolean hasOrderIndependent = false;
+        prepare(shader);
 
         for (ParticleTexture texture : particles.keySet())
         {
-            bindTexture(texture);
-            List<Particle> particleList = particles.get(texture);
-            pointer = 0;
-            float[] vboData = new float[particleList.size() * INSTANCE_DATA_LENGTH];
-            for (Particle particle : particleList)
+            if (texture.useOrderIndependentTransparency())
             {
-                updateModelViewMatrix(particle.getPosition(), particle.getRotation(), particle.getScale(), viewMatrix, vboData);
-                updateTexCoordInfo(particle, vboData);
+                hasOrderIndependent = true;
+                continue;
             }
-            loader.updateVbo(vboID, vboData, buffer);
-            GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_STRIP, 0, quad.getVertexCount(), particleList.size());
+            bindTexture(texture, shader);
+            renderParticleList(particles.get(texture), viewMatrix);
+        }
+        finishRendering(shader);
+
+        if (hasOrderIndependent)
+        {
+            renderOrderIndependent(particles, viewMatrix);
         }
-        finishRendering();
     }
 
-    private void bindTexture(ParticleTexture texture)
+    /**
+     * Renders all order-independent particles.  The scene's depth is copied into an
+     * order-independent FBO from the FBO pool so that particles behind solid objects are
+     * hidden, then every particle is accumulated in any order and the result is composited
+     * onto the scene once.
+     * @param particles hashmap of lists of particles to be rendered
+     * @param viewMatrix view matrix of scene
+     */
+    private void renderOrderIndependent(Map<ParticleTexture, List<Particle>> particles, Matrix4f viewMatrix)
+    {
+        int sceneFrameBuffer = GL11.glGetInteger(GL30.GL_DRAW_FRAMEBUFFER_BINDING);
+        GL11.glGetInteger(GL11.GL_VIEWPORT, viewport);
+        Fbo oitFbo = FboPool.acquire(viewport.get(2), viewport.get(3), FboPool.FLOATING_POINT, Fbo.DEPTH_RENDER_BUFFER);
+        oitFbo.copyDepthFrom(sceneFrameBuffer, viewport.get(2), viewport.get(3));
+        oitFbo.bindFrameBuffer();
+        GL30.glClearBuffer(GL11.GL_COLOR, 0, ACCUMULATION_CLEAR);
+        GL30.glClearBuffer(GL11.GL_COLOR, 1, REVEALAGE_CLEAR);
+
+        prepare(oitShader);
+        // Colours and weights are summed up, revealage is multiplied
+        RenderState.blendFuncSeparate(GL11.GL_ONE, GL11.GL_ONE, GL11.GL_ZERO, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        for (ParticleTexture texture : particles.keySet())
+        {
+            if (texture.useOrderIndependentTransparency())
+            {
+                bindTexture(texture, oitShader);
+                renderParticleList(particles.get(texture), viewMatrix);
+            }
+        }
+        finishRendering(oitShader);
+
+        GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, sceneFrameBuffer);
+        GL11.glViewport(viewport.get(0), viewport.get(1), viewport.get(2), viewport.get(3));
+        composite(oitFbo);
+        FboPool.release(oitFbo);
+    }
+
+    /**
+     * Composites the accumulated order-independent particles onto the scene.
+     * @param oitFbo FBO holding the accumulation and revealage targets
+     */
+    private void composite(Fbo oitFbo)
+    {
+        compositeShader.start();
+        RenderState.bindVertexArray(compositeQuad.getVaoID());
+        RenderState.enableVertexAttribArray(0);
+        RenderState.setDepthTest(false);
+        RenderState.setBlending(true);
+        RenderState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, oitFbo.getColorTexture());
+        RenderState.bindTexture(1, GL11.GL_TEXTURE_2D, oitFbo.getColorTexture2());
+        GL11.glDrawArrays(GL11.GL_TRIANGLE_STRIP, 0, compositeQuad.getVertexCount());
+        RenderState.setBlending(false);
+        RenderState.setDepthTest(true);
+        RenderState.bindVertexArray(0);
+        compositeShader.stop();
+    }
+
+    /**
+     * Stores the instance data of a list of particles in the VBO and renders them
+     * with a single instanced draw call.
+     * @param particleList particles using the currently bound texture
+     * @param viewMatrix view matrix of scene
+     */
+    private void renderParticleList(List<Particle> particleList, Matrix4f viewMatrix)
+    {
+        pointer = 0;
+        float[] vboData = new float[particleList.size() * INSTANCE_DATA_LENGTH];
+        for (Particle particle : particleList)
+        {
+            updateModelViewMatrix(particle.getPosition(), particle.getRotation(), particle.getScale(), viewMatrix, vboData);
+            updateTexCoordInfo(particle, vboData);
+        }
+        loader.updateVbo(vboID, vboData, buffer);
+        GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_STRIP, 0, quad.getVertexCount(), particleList.size());
+    }
+
+    /**
+     * Binds a particle texture and chooses how it is blended.
+     * Order-independent textures keep the blend function set up for their targets.
+     * @param texture particle texture
+     * @param shader particle shader currently in use
+     */
+    private void bindTexture(ParticleTexture texture, ParticleShader shader)
     {
         // choose between alpha or additive blending
         if (texture.useAdditiveBlending())
-            GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE); // additive blending (good for fire/magic effects)
-        else
-            GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA); // alpha blending (good for smoke / falling leaves)
+            RenderState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE); // additive blending (good for fire/magic effects)
+        else if (!texture.useOrderIndependentTransparency())
+            RenderState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA); // alpha blending (good for smoke / falling leaves)
 
         // bind texture
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture.getTextureID());
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, texture.getTextureID());
 
         shader.loadNumberOfRows(texture.getNumberOfRows());
     }
@@ -195,6 +324,8 @@ public class ParticleRenderer
     protected void cleanUp()
     {
         shader.cleanUp();
+        oitShader.cleanUp();
+        compositeShader.cleanUp();
     }
 
     /**
@@ -211,52 +342,60 @@ public class ParticleRenderer
         data[pointer++] = particle.getBlend();
     }
 
+    /**
+     * Creates a float buffer holding a colour that a frame buffer target is cleared to.
+     * @param r red value
+     * @param g green value
+     * @param b blue value
+     * @param a alpha value
+     * @return float buffer of colour
+     */
+    private static FloatBuffer createClearValue(float r, float g, float b, float a)
+    {
+        FloatBuffer clearValue = BufferUtils.createFloatBuffer(4);
+        clearValue.put(new float[]{r, g, b, a});
+        clearValue.flip();
+        return clearValue;
+    }
+
     /**
      * Prepares particles for rendering by starting the particle shader and
      * enabling vertex attributes.
+     * @param shader particle shader to be started
      */
-    private void prepare()
+    private void prepare(ParticleShader shader)
     {
         shader.start();
 
         // Bind quad to VAO
-        GL30.glBindVertexArray(quad.getVaoID());
-        GL20.glEnableVertexAttribArray(0);
-        GL20.glEnableVertexAttribArray(1);
-        GL20.glEnableVertexAttribArray(2);
-        GL20.glEnableVertexAttribArray(3);
-        GL20.glEnableVertexAttribArray(4);
-        GL20.glEnableVertexAttribArray(5);
-        GL20.glEnableVertexAttribArray(6);
+        RenderState.bindVertexArray(quad.getVaoID());
+        RenderState.enableVertexAttribArray(0);
+        RenderState.enableVertexAttribArray(1);
+        RenderState.enableVertexAttribArray(2);
+        RenderState.enableVertexAttribArray(3);
+        RenderState.enableVertexAttribArray(4);
+        RenderState.enableVertexAttribArray(5);
+        RenderState.enableVertexAttribArray(6);
 
         // Enable alpha blending
-        GL11.glEnable(GL11.GL_BLEND);
-        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA); // alpha blending (good for smoke / falling leaves)
+        RenderState.setBlending(true);
+        RenderState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA); // alpha blending (good for smoke / falling leaves)
 //        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE); // additive blending (good for fire/magic effects)
 
         // Stop particles from being rendered to depth buffer
-        GL11.glDepthMask(false);
+        RenderState.setDepthMask(false);
     }
 
     /**
-     * Ends particle rendering by stopping the particle shader and
-     * disabling vertex attributes.
+     * Ends particle rendering by restoring blending and depth writes and
+     * stopping the particle shader.
+     * @param shader particle shader to be stopped
      */
-    private void finishRendering()
+    private void finishRendering(ParticleShader shader)
     {
-        GL11.glDepthMask(true);
-
-        GL11.glDisable(GL11.GL_BLEND);
-        GL20.glDisableVertexAttribArray(0);
-        GL20.glDisableVertexAttribArray(1);
-        GL20.glDisableVertexAttribArray(2);
-        GL20.glDisableVertexAttribArray(3);
-        GL20.glDisableVertexAttribArray(4);
-        GL20.glDisableVertexAttribArray(5);
-        GL20.glDisableVertexAttribArray(6);
-
-        GL30.glBindVertexArray(0);
-
+        RenderState.setDepthMask(true);
+        RenderState.setBlending(false);
+        RenderState.bindVertexArray(0);
         shader.stop();
     }
 }
\ No newline at end of file
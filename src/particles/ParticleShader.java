@@ -1,7 +1,5 @@
 package particles;
 
-import org.lwjgl.util.vector.Matrix4f;
-
 import org.lwjgl.util.vector.Vector2f;
 import shaders.ShaderProgram;
 
@@ -25,7 +23,6 @@ public class ParticleShader extends ShaderProgram
      * Location of uniform variables in vertex/fragment programs
      */
     private int location_numberOfRows;
-    private int location_projectionMatrix;
 
     /**
      * Creates a particle shader program.
@@ -35,11 +32,19 @@ public class ParticleShader extends ShaderProgram
         super(VERTEX_FILE, FRAGMENT_FILE);
     }
 
+    /**
+     * Creates a particle shader program with a different fragment shader.
+     * @param fragmentFile filepath of fragment shader
+     */
+    protected ParticleShader(String fragmentFile)
+    {
+        super(VERTEX_FILE, fragmentFile);
+    }
+
     @Override
     protected void getAllUniformLocations()
     {
         location_numberOfRows = super.getUniformLocation("numberOfRows");
-        location_projectionMatrix = super.getUniformLocation("projectionMatrix");
     }
 
     @Override
@@ -60,12 +65,4 @@ public class ParticleShader extends ShaderProgram
         super.loadFloat(location_numberOfRows, numberOfRows);
     }
 
-    /**
-     * Loads a projection matrix to a uniform variable (in vertex shader).
-     * @param projectionMatrix projection matrix
-     */
-    protected void loadProjectionMatrix(Matrix4f projectionMatrix)
-    {
-        super.loadMatrix(location_projectionMatrix, projectionMatrix);
-    }
 }
@@ -5,6 +5,8 @@ package particles;
  * A texture can use either additive blending or alpha blending.
  * Additive blending is good for fire or magic effects
  * Alpha blending is good for smoke or falling leaves
+ * Alpha blended textures can also be rendered with weighted blended order-independent
+ * transparency, so their particles never need to be sorted
  * @author Aaron Frazer
  */
 public class ParticleTexture
@@ -24,10 +26,16 @@ public class ParticleTexture
      */
     private boolean additive;
 
+    /**
+     * True if using order-independent transparency instead of sorted alpha blending
+     */
+    private boolean orderIndependent = false;
+
     /**
      * Creates a particle texture.
      * @param textureID texture's ID
      * @param numberOfRows number of rows in texture atlas
+     * @param additive true if using additive blending, false if using alpha blending
      */
     public ParticleTexture(int textureID, int numberOfRows, boolean additive)
     {
@@ -36,6 +44,19 @@ public class ParticleTexture
         this.additive = additive;
     }
 
+    /**
+     * Creates a particle texture that can be rendered with order-independent transparency.
+     * @param textureID texture's ID
+     * @param numberOfRows number of rows in texture atlas
+     * @param additive true if using additive blending, false if using alpha blending
+     * @param orderIndependent true if alpha blended particles should use order-independent transparency
+     */
+    public ParticleTexture(int textureID, int numberOfRows, boolean additive, boolean orderIndependent)
+    {
+        this(textureID, numberOfRows, additive);
+        this.orderIndependent = orderIndependent;
+    }
+
     /**
      * Returns this particle texture's texture ID.
      * @return ID of texture
@@ -63,4 +84,15 @@ public class ParticleTexture
     {
         return additive;
     }
+
+    /**
+     * Returns true if this texture should be rendered with weighted blended
+     * order-independent transparency.  Only alpha blended textures can use it,
+     * additive blending is already independent of the order particles are drawn in.
+     * @return true if using order-independent transparency
+     */
+    public boolean useOrderIndependentTransparency()
+    {
+        return orderIndependent && !additive;
+    }
 }
\ No newline at end of file
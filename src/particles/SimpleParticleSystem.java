@@ -2,7 +2,7 @@ package particles;
 
 import org.lwjgl.util.vector.Vector3f;
 
-import renderEngine.DisplayManager;
+import toolbox.FixedTimestep;
 
 /**
  * Particle systems are responsible for continually omitting particles in a certain way.
@@ -54,12 +54,12 @@ public class SimpleParticleSystem
 
     /**
      * Generates particles.
-     * Called once every frame.
+     * Called once every simulation tick.
      * @param systemCenter 3D point in the world where the particles are omitted from
      */
     public void generateParticles(Vector3f systemCenter)
     {
-        float delta = DisplayManager.getFrameTimeSeconds();
+        float delta = FixedTimestep.TICK_SECONDS;
         float particlesToCreate = pps * delta;
         int count = (int) Math.floor(particlesToCreate);
         float partialParticle = particlesToCreate % 1;
@@ -0,0 +1,23 @@
+#version 150
+
+in vec2 textureCoords;
+
+out vec4 out_colour;
+
+uniform sampler2D accumulationTexture;
+uniform sampler2D revealageTexture;
+
+void main(void) {
+
+    vec4 accumulation = texture(accumulationTexture, textureCoords);
+    float revealage = accumulation.a;
+    if (revealage >= 1.0) {
+        discard; // no particles covered this pixel
+    }
+
+    float totalWeight = texture(revealageTexture, textureCoords).r;
+    vec3 averageColour = accumulation.rgb / max(totalWeight, 0.00001);
+
+	out_colour = vec4(averageColour, 1.0 - revealage);
+
+}
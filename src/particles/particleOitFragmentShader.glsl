@@ -0,0 +1,26 @@
+#version 330
+
+layout (location = 0) out vec4 out_accumulation;
+layout (location = 1) out vec4 out_revealage;
+
+in vec2 textureCoords1; // current stage
+in vec2 textureCoords2; // next stage
+in float blend;
+
+uniform sampler2D particleTexture;
+
+void main(void) {
+
+    vec4 colour1 = texture(particleTexture, textureCoords1);
+    vec4 colour2 = texture(particleTexture, textureCoords2);
+    vec4 colour = mix(colour1, colour2, blend);
+
+    // weight closer particles more heavily than particles further away
+    float depth = 1.0 - gl_FragCoord.z;
+    float weight = clamp(colour.a * max(0.01, 3000.0 * depth * depth * depth), 0.01, 3000.0);
+
+    // rgb is summed up, alpha is multiplied into the revealage
+    out_accumulation = vec4(colour.rgb * colour.a * weight, colour.a);
+    out_revealage = vec4(colour.a * weight);
+
+}
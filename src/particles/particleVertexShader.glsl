@@ -11,9 +11,22 @@ out vec2 textureCoords1; // current stage
 out vec2 textureCoords2; // next stage
 out float blend;
 
-uniform mat4 projectionMatrix;
 uniform float numberOfRows;
 
+// shared by every shader program, filled once a frame by MasterRenderer (must match its layout)
+layout (std140) uniform FrameData {
+	mat4 projectionMatrix;
+	mat4 toShadowMapSpace[4];
+	vec4 cascadeEnds;
+	vec4 mapSizes;
+	vec3 skyColour;
+	float density;
+	float gradient;
+	float shadowDistance;
+	float transitionDistance;
+	int cascadeCount;
+};
+
 void main(void) {
 
     vec2 textureCoords = position + vec2(0.5, 0.5);
@@ -0,0 +1,36 @@
+package postProcessing;
+
+import toolbox.GameSettings;
+
+/**
+ * Changes the contrast of the screen by GameSettings.CONTRAST.
+ * @author Aaron Frazer
+ */
+public class ContrastOperation extends PixelOperation
+{
+    /**
+     * Creates a contrast operation.
+     */
+    public ContrastOperation()
+    {
+        super("contrast");
+    }
+
+    @Override
+    protected String getDeclarations()
+    {
+        return "uniform float contrast;\n";
+    }
+
+    @Override
+    protected String getCode()
+    {
+        return "colour.rgb = (colour.rgb - 0.5) * (1.0 + contrast) + 0.5;\n";
+    }
+
+    @Override
+    protected void prepare(FusedShader shader)
+    {
+        shader.loadUniform("contrast", GameSettings.CONTRAST);
+    }
+}
@@ -1,6 +1,7 @@
 
 package postProcessing;
 
+import renderEngine.RenderState;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 
@@ -25,6 +26,11 @@ public class Fbo
     public static final int DEPTH_TEXTURE = 1;
     public static final int DEPTH_RENDER_BUFFER = 2;
 
+    /**
+     * Number of samples per pixel of multisampled FBOs
+     */
+    public static final int SAMPLES = 4;
+
     /**
      * Width/height of this FBO
      */
@@ -38,7 +44,13 @@ public class Fbo
      */
     private boolean multisampleAndMultiTarget = false;
 
+    /**
+     * Should this frame buffer have two floating point color textures?
+     */
+    private boolean floatingPointMultiTarget = false;
+
     private int colorTexture;
+    private int colorTexture2;
     private int depthTexture;
 
     private int depthBuffer;
@@ -71,14 +83,32 @@ public class Fbo
         initializeFrameBuffer(DEPTH_RENDER_BUFFER);
     }
 
+    /**
+     * Creates an FBO with two floating point color texture attachments.  The first
+     * attachment is RGBA and the second only has a red channel.  Used as the accumulation
+     * and revealage targets of weighted blended order-independent transparency.
+     * @param width           width of FBO
+     * @param height          height of FBO
+     * @param depthBufferType int indicating type of depth buffer attachment that this FBO should use
+     * @param floatingPoint   true if the two floating point color textures should be created
+     */
+    public Fbo(int width, int height, int depthBufferType, boolean floatingPoint)
+    {
+        this.width = width;
+        this.height = height;
+        this.floatingPointMultiTarget = floatingPoint;
+        initializeFrameBuffer(depthBufferType);
+    }
+
     /**
      * Deletes the frame buffer and its attachments when the game closes.
      */
     public void cleanUp()
     {
         GL30.glDeleteFramebuffers(frameBuffer);
-        GL11.glDeleteTextures(colorTexture);
-        GL11.glDeleteTextures(depthTexture);
+        RenderState.deleteTexture(colorTexture);
+        RenderState.deleteTexture(colorTexture2);
+        RenderState.deleteTexture(depthTexture);
         GL30.glDeleteRenderbuffers(depthBuffer);
         GL30.glDeleteRenderbuffers(colorBuffer);
         GL30.glDeleteRenderbuffers(colorBuffer2);
@@ -110,11 +140,29 @@ public class Fbo
      */
     public void bindToRead()
     {
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        RenderState.bindTexture(GL11.GL_TEXTURE_2D, 0);
         GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, frameBuffer);
         GL11.glReadBuffer(GL30.GL_COLOR_ATTACHMENT0);
     }
 
+    /**
+     * Returns the width of this FBO.
+     * @return width in pixels
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the height of this FBO.
+     * @return height in pixels
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
     /**
      * Returns the ID of the texture containing the color buffer of this FBO.
      * @return texture ID
@@ -124,6 +172,16 @@ public class Fbo
         return colorTexture;
     }
 
+    /**
+     * Returns the ID of the texture containing the second color buffer of this FBO.
+     * Only exists for FBOs with floating point color attachments.
+     * @return texture ID
+     */
+    public int getColorTexture2()
+    {
+        return colorTexture2;
+    }
+
     /**
      * Returns the texture containing this FBOs depth buffer.
      * @return depth buffer texture
@@ -147,6 +205,22 @@ public class Fbo
         this.unbindFrameBuffer();
     }
 
+    /**
+     * Copies the depth buffer of another frame buffer into this FBO, so that anything
+     * rendered to this FBO is depth tested against what has already been drawn there.
+     * A multisampled frame buffer is resolved while being copied.
+     * @param readFrameBuffer ID of frame buffer depth will be read from (0 for the screen)
+     * @param readWidth width of the frame buffer being read from
+     * @param readHeight height of the frame buffer being read from
+     */
+    public void copyDepthFrom(int readFrameBuffer, int readWidth, int readHeight)
+    {
+        GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, readFrameBuffer);
+        GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, this.frameBuffer);
+        GL30.glBlitFramebuffer(0, 0, readWidth, readHeight, 0, 0, width, height, GL11.GL_DEPTH_BUFFER_BIT, GL11.GL_NEAREST);
+        GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, 0);
+    }
+
     /**
      * Resolved this FBO to the screen.
      */
@@ -170,6 +244,10 @@ public class Fbo
         {
             colorBuffer = createMultisampleColorAttachment(GL30.GL_COLOR_ATTACHMENT0);
             colorBuffer2 = createMultisampleColorAttachment(GL30.GL_COLOR_ATTACHMENT1);
+        } else if (floatingPointMultiTarget)
+        {
+            colorTexture = createFloatTextureAttachment(GL30.GL_COLOR_ATTACHMENT0, GL30.GL_RGBA16F, GL11.GL_RGBA);
+            colorTexture2 = createFloatTextureAttachment(GL30.GL_COLOR_ATTACHMENT1, GL30.GL_R16F, GL11.GL_RED);
         } else
         {
             createTextureAttachment();
@@ -203,7 +281,7 @@ public class Fbo
     {
         IntBuffer drawBuffers = BufferUtils.createIntBuffer(2);
         drawBuffers.put(GL30.GL_COLOR_ATTACHMENT0);
-        if (this.multisampleAndMultiTarget)
+        if (this.multisampleAndMultiTarget || this.floatingPointMultiTarget)
         {
             drawBuffers.put(GL30.GL_COLOR_ATTACHMENT1);
         }
@@ -217,7 +295,7 @@ public class Fbo
     private void createTextureAttachment()
     {
         colorTexture = GL11.glGenTextures();
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, colorTexture);
+        RenderState.bindTexture(GL11.GL_TEXTURE_2D, colorTexture);
         GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, width, height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
@@ -227,13 +305,35 @@ public class Fbo
                 0);
     }
 
+    /**
+     * Creates a floating point texture and sets it as a colour buffer attachment for this FBO.
+     * Floating point textures are not clamped between 0 and 1, so values can be summed up in them.
+     * @param attachment colour attachment the texture will be attached to
+     * @param internalFormat floating point format of the texture
+     * @param format channels of the texture
+     * @return texture ID
+     */
+    private int createFloatTextureAttachment(int attachment, int internalFormat, int format)
+    {
+        int texture = GL11.glGenTextures();
+        RenderState.bindTexture(GL11.GL_TEXTURE_2D, texture);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, internalFormat, width, height, 0, format, GL11.GL_FLOAT, (ByteBuffer) null);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, attachment, GL11.GL_TEXTURE_2D, texture, 0);
+
+        return texture;
+    }
+
     /**
      * Adds a depth buffer to the FBO in the form of a texture, which can later be sampled.
      */
     private void createDepthTextureAttachment()
     {
         depthTexture = GL11.glGenTextures();
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, depthTexture);
+        RenderState.bindTexture(GL11.GL_TEXTURE_2D, depthTexture);
         GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL14.GL_DEPTH_COMPONENT24, width, height, 0, GL11.GL_DEPTH_COMPONENT, GL11.GL_FLOAT, (ByteBuffer) null);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
@@ -248,7 +348,7 @@ public class Fbo
     {
         int colorBuffer = GL30.glGenRenderbuffers();
         GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, colorBuffer);
-        GL30.glRenderbufferStorageMultisample(GL30.GL_RENDERBUFFER, 4, GL11.GL_RGBA8, width, height);
+        GL30.glRenderbufferStorageMultisample(GL30.GL_RENDERBUFFER, SAMPLES, GL11.GL_RGBA8, width, height);
         GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, attachment, GL30.GL_RENDERBUFFER, colorBuffer);
 
         return colorBuffer;
@@ -267,7 +367,7 @@ public class Fbo
             GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL14.GL_DEPTH_COMPONENT24, width, height);
         } else
         {
-            GL30.glRenderbufferStorageMultisample(GL30.GL_RENDERBUFFER, 4, GL14.GL_DEPTH_COMPONENT24, width, height);
+            GL30.glRenderbufferStorageMultisample(GL30.GL_RENDERBUFFER, SAMPLES, GL14.GL_DEPTH_COMPONENT24, width, height);
         }
         GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_ATTACHMENT, GL30.GL_RENDERBUFFER, depthBuffer);
     }
@@ -0,0 +1,250 @@
+package postProcessing;
+
+import org.lwjgl.opengl.Display;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of transient render targets.  Instead of owning FBOs, render passes acquire
+ * one by size and format when they need it and release it as soon as its contents
+ * have been read.  A released FBO is handed to the next pass that asks for the same
+ * size and format, so passes that don't overlap in time share the same memory.
+ *
+ * FBOs that haven't been used for a while (because an effect was turned off) are
+ * deleted, and every FBO is deleted when the display is resized, so targets are
+ * recreated at the new size the next time they are acquired.
+ *
+ * @author Aaron Frazer
+ */
+public class FboPool
+{
+    /**
+     * Formats of pooled FBOs
+     */
+    public static final int COLOUR = 0; // one RGBA8 colour texture
+    public static final int MULTISAMPLE = 1; // two multisampled RGBA8 colour render buffers, always with a depth render buffer
+    public static final int FLOATING_POINT = 2; // RGBA16F and R16F colour textures
+
+    /**
+     * Number of frames an FBO can go unused before it is deleted
+     */
+    private static final int MAX_IDLE_FRAMES = 120;
+
+    /**
+     * FBOs in the pool
+     */
+    private static List<Target> targets = new ArrayList<>();
+
+    /**
+     * Number of frames since the game started
+     */
+    private static int frame = 0;
+
+    /**
+     * Memory the FBOs acquired this frame would take if every pass owned its own FBO,
+     * and the same for the last frame
+     */
+    private static long requestedBytes = 0;
+    private static long lastRequestedBytes = 0;
+
+    /**
+     * Memory taken by the FBOs in the pool at the end of the last frame
+     */
+    private static long lastAllocatedBytes = 0;
+
+    /**
+     * Acquires an FBO that isn't being used by another pass, creating one if the pool
+     * has no free FBO of the given size and format.
+     * @param width width of FBO
+     * @param height height of FBO
+     * @param format format of FBO's colour attachments
+     * @param depthBufferType type of depth buffer attachment (Fbo.NONE, Fbo.DEPTH_TEXTURE or Fbo.DEPTH_RENDER_BUFFER)
+     * @return FBO, to be released once it is no longer needed this frame
+     */
+    public static Fbo acquire(int width, int height, int format, int depthBufferType)
+    {
+        width = Math.max(width, 1);
+        height = Math.max(height, 1);
+        Target target = null;
+        for (Target candidate : targets)
+        {
+            if (!candidate.inUse && candidate.width == width && candidate.height == height
+                    && candidate.format == format && candidate.depthBufferType == depthBufferType)
+            {
+                target = candidate;
+                break;
+            }
+        }
+        if (target == null)
+        {
+            target = new Target(width, height, format, depthBufferType);
+            targets.add(target);
+        }
+        target.inUse = true;
+        target.lastUsedFrame = frame;
+        requestedBytes += target.bytes;
+        return target.fbo;
+    }
+
+    /**
+     * Releases an FBO back to the pool, so later passes can reuse its memory.
+     * @param fbo FBO acquired from the pool
+     */
+    public static void release(Fbo fbo)
+    {
+        for (Target target : targets)
+        {
+            if (target.fbo == fbo)
+            {
+                target.inUse = false;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts a new frame.  Deletes FBOs that have been idle for too long, or every
+     * FBO if the display has been resized.  Called at the start of every frame.
+     */
+    public static void update()
+    {
+        boolean resized = Display.wasResized();
+        long allocatedBytes = 0;
+        for (int i = targets.size() - 1; i >= 0; i--)
+        {
+            Target target = targets.get(i);
+            if (target.inUse)
+            {
+                target.lastUsedFrame = frame; // held across frames, so it isn't idle
+            }
+            if (resized || frame - target.lastUsedFrame > MAX_IDLE_FRAMES)
+            {
+                target.fbo.cleanUp();
+                targets.remove(i);
+            } else
+            {
+                allocatedBytes += target.bytes;
+            }
+        }
+        lastAllocatedBytes = allocatedBytes;
+        lastRequestedBytes = requestedBytes;
+        requestedBytes = 0;
+        frame++;
+    }
+
+    /**
+     * Returns the number of FBOs in the pool.
+     * @return number of FBOs
+     */
+    public static int getTargetCount()
+    {
+        return targets.size();
+    }
+
+    /**
+     * Returns the memory taken by the pool's FBOs at the end of the last frame.
+     * @return memory in bytes
+     */
+    public static long getAllocatedBytes()
+    {
+        return lastAllocatedBytes;
+    }
+
+    /**
+     * Returns the memory the FBOs acquired in the last frame would have taken if every
+     * pass owned its own FBO.
+     * @return memory in bytes
+     */
+    public static long getRequestedBytes()
+    {
+        return lastRequestedBytes;
+    }
+
+    /**
+     * Returns the memory saved in the last frame by sharing FBOs between passes.
+     * @return memory in bytes
+     */
+    public static long getSavedBytes()
+    {
+        return Math.max(0, lastRequestedBytes - lastAllocatedBytes);
+    }
+
+    /**
+     * Deletes every FBO in the pool.
+     * Called when game is closed.
+     */
+    public static void cleanUp()
+    {
+        for (Target target : targets)
+        {
+            target.fbo.cleanUp();
+        }
+        targets.clear();
+    }
+
+    /**
+     * An FBO in the pool, with the size and format it was created with.
+     */
+    private static class Target
+    {
+        /**
+         * The FBO
+         */
+        private final Fbo fbo;
+
+        /**
+         * Size, colour format and depth buffer type of the FBO
+         */
+        private final int width;
+        private final int height;
+        private final int format;
+        private final int depthBufferType;
+
+        /**
+         * Memory taken by the FBO's attachments
+         */
+        private final long bytes;
+
+        /**
+         * Has a pass acquired the FBO and not released it yet?
+         */
+        private boolean inUse = false;
+
+        /**
+         * Frame the FBO was last acquired in
+         */
+        private int lastUsedFrame;
+
+        /**
+         * Creates an FBO for the pool.
+         * @param width width of FBO
+         * @param height height of FBO
+         * @param format format of FBO's colour attachments
+         * @param depthBufferType type of depth buffer attachment
+         */
+        private Target(int width, int height, int format, int depthBufferType)
+        {
+            this.width = width;
+            this.height = height;
+            this.format = format;
+            this.depthBufferType = depthBufferType;
+            long pixels = (long) width * height;
+            long pixelBytes;
+            if (format == MULTISAMPLE)
+            {
+                fbo = new Fbo(width, height);
+                pixelBytes = (2 * 4 + 4) * Fbo.SAMPLES;
+            } else if (format == FLOATING_POINT)
+            {
+                fbo = new Fbo(width, height, depthBufferType, true);
+                pixelBytes = 8 + 2 + (depthBufferType != Fbo.NONE ? 4 : 0);
+            } else
+            {
+                fbo = new Fbo(width, height, depthBufferType);
+                pixelBytes = 4 + (depthBufferType != Fbo.NONE ? 4 : 0);
+            }
+            this.bytes = pixels * pixelBytes;
+        }
+    }
+}
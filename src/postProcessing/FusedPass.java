@@ -0,0 +1,90 @@
+package postProcessing;
+
+import org.lwjgl.opengl.GL11;
+import renderEngine.RenderState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A full-screen pass that applies a chain of pixel operations at once.  Each frame
+ * the operations that are turned on are added to the chain, and the chain is drawn
+ * with a shader generated for exactly those operations, so the image is only read
+ * and written once however many operations there are.  A shader is generated the
+ * first time a chain is used and kept for when the same chain is used again.
+ * @author Aaron Frazer
+ */
+public class FusedPass
+{
+    /**
+     * Operations of the current chain, in order
+     */
+    private final List<PixelOperation> operations = new ArrayList<>();
+
+    /**
+     * Generated shader of each chain that has been used
+     */
+    private final Map<List<PixelOperation>, FusedShader> shaders = new HashMap<>();
+
+    /**
+     * Image renderer
+     */
+    private final ImageRenderer renderer = new ImageRenderer();
+
+    /**
+     * Empties the chain.
+     */
+    public void clear()
+    {
+        operations.clear();
+    }
+
+    /**
+     * Adds an operation to the end of the chain.
+     * @param operation pixel operation
+     */
+    public void add(PixelOperation operation)
+    {
+        operations.add(operation);
+    }
+
+    /**
+     * Applies the chain to a texture.
+     * @param texture texture ID
+     * @param target FBO to render to, or null to render to the screen
+     * @param timer timer the pass is timed with
+     */
+    public void render(int texture, Fbo target, PassTimer timer)
+    {
+        FusedShader shader = shaders.get(operations);
+        if (shader == null)
+        {
+            shader = new FusedShader(operations);
+            shaders.put(new ArrayList<>(operations), shader);
+        }
+        timer.begin(shader.getName());
+        shader.start();
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, texture);
+        for (int i = 0; i < operations.size(); i++)
+        {
+            operations.get(i).prepare(shader);
+        }
+        renderer.renderQuad(target);
+        shader.stop();
+        timer.end();
+    }
+
+    /**
+     * Cleans up the generated shaders.
+     */
+    public void cleanUp()
+    {
+        for (FusedShader shader : shaders.values())
+        {
+            shader.cleanUp();
+        }
+        shaders.clear();
+    }
+}
@@ -0,0 +1,152 @@
+package postProcessing;
+
+import org.lwjgl.opengl.GL11;
+import renderEngine.RenderState;
+import shaders.ShaderProgram;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A shader program whose fragment shader is generated from a chain of pixel
+ * operations.  The image is sampled once, every operation's code is applied to the
+ * colour in order, and the result is written out once.
+ * @author Aaron Frazer
+ */
+public class FusedShader extends ShaderProgram
+{
+    /**
+     * Filepath of vertex shader
+     */
+    private static final String VERTEX_FILE = "postProcessing/fusedVertexShader.glsl";
+
+    /**
+     * Location of each uniform variable, looked up the first time it is loaded
+     */
+    private final Map<String, Integer> locations = new HashMap<>();
+
+    /**
+     * Texture unit of each sampler of the operations
+     */
+    private final Map<String, Integer> textureUnits = new HashMap<>();
+
+    /**
+     * Name of the fused pass, listing its operations
+     */
+    private final String name;
+
+    /**
+     * Generates and compiles a fused shader program.
+     * @param operations operations applied by the shader, in order
+     */
+    protected FusedShader(List<PixelOperation> operations)
+    {
+        super(VERTEX_FILE, generateFragmentShader(operations));
+        StringBuilder builder = new StringBuilder("fused (");
+        start();
+        super.loadInt(getLocation("colourTexture"), 0);
+        int unit = 1;
+        for (int i = 0; i < operations.size(); i++)
+        {
+            PixelOperation operation = operations.get(i);
+            for (String sampler : operation.getSamplers())
+            {
+                textureUnits.put(sampler, unit);
+                super.loadInt(getLocation(sampler), unit);
+                unit++;
+            }
+            builder.append(i > 0 ? " + " : "").append(operation.getName());
+        }
+        stop();
+        name = builder.append(")").toString();
+    }
+
+    /**
+     * Generates the source code of the fragment shader.
+     * @param operations operations applied by the shader, in order
+     * @return GLSL source code
+     */
+    private static StringBuilder generateFragmentShader(List<PixelOperation> operations)
+    {
+        StringBuilder source = new StringBuilder();
+        source.append("#version 150\n\n");
+        source.append("in vec2 textureCoords;\n\n");
+        source.append("out vec4 out_Colour;\n\n");
+        source.append("uniform sampler2D colourTexture;\n");
+        for (PixelOperation operation : operations)
+        {
+            for (String sampler : operation.getSamplers())
+            {
+                source.append("uniform sampler2D ").append(sampler).append(";\n");
+            }
+            source.append(operation.getDeclarations());
+        }
+        source.append("\nvoid main(void) {\n\n");
+        source.append("vec4 colour = texture(colourTexture, textureCoords);\n");
+        for (PixelOperation operation : operations)
+        {
+            source.append("// ").append(operation.getName()).append("\n");
+            source.append(operation.getCode());
+        }
+        source.append("out_Colour = colour;\n\n}\n");
+        return source;
+    }
+
+    @Override
+    protected void getAllUniformLocations()
+    {
+        // the uniforms depend on the operations, so they are looked up by name when they are loaded
+    }
+
+    @Override
+    protected void bindAttributes()
+    {
+        super.bindAttribute(0, "position");
+    }
+
+    /**
+     * Loads a float to a uniform variable of an operation (in fragment shader).
+     * @param uniformName name of uniform variable
+     * @param value value
+     */
+    public void loadUniform(String uniformName, float value)
+    {
+        super.loadFloat(getLocation(uniformName), value);
+    }
+
+    /**
+     * Binds a texture to the texture unit of one of the operations' samplers.
+     * @param sampler name of sampler
+     * @param texture texture ID
+     */
+    public void bindTexture(String sampler, int texture)
+    {
+        RenderState.bindTexture(textureUnits.get(sampler), GL11.GL_TEXTURE_2D, texture);
+    }
+
+    /**
+     * Returns the name of the fused pass.
+     * @return name, listing the pass's operations
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the location of a uniform variable, looking it up the first time.
+     * @param uniformName name of uniform variable
+     * @return location of uniform variable
+     */
+    private int getLocation(String uniformName)
+    {
+        Integer location = locations.get(uniformName);
+        if (location == null)
+        {
+            location = super.getUniformLocation(uniformName);
+            locations.put(uniformName, location);
+        }
+        return location;
+    }
+}
@@ -0,0 +1,199 @@
+package postProcessing;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures how long the GPU spends on each render pass, using timestamp queries
+ * written before and after the pass.  The results of a frame are only read a few
+ * frames later, once the GPU has finished them, so timing a pass never makes the
+ * CPU wait for the GPU.
+ *
+ * @author Aaron Frazer
+ */
+public class PassTimer
+{
+    /**
+     * Number of frames the queries of a pass are kept for before they are reused
+     */
+    private static final int FRAMES_IN_FLIGHT = 3;
+
+    /**
+     * Timed passes, in the order they were first timed
+     */
+    private final Map<String, Pass> passes = new LinkedHashMap<>();
+
+    /**
+     * Pass that is currently being timed, or null
+     */
+    private Pass currentPass;
+
+    /**
+     * Number of frames since the timer was created
+     */
+    private int frame = 0;
+
+    /**
+     * Starts a new frame.  Called once per frame, before the first pass is timed.
+     */
+    public void startFrame()
+    {
+        frame++;
+    }
+
+    /**
+     * Writes a timestamp before a pass.
+     * @param name name of pass
+     */
+    public void begin(String name)
+    {
+        Pass pass = passes.get(name);
+        if (pass == null)
+        {
+            pass = new Pass();
+            passes.put(name, pass);
+        }
+        int slot = frame % FRAMES_IN_FLIGHT;
+        pass.collect(slot);
+        GL33.glQueryCounter(pass.startQueries[slot], GL33.GL_TIMESTAMP);
+        currentPass = pass;
+    }
+
+    /**
+     * Writes a timestamp after the pass that was started last.
+     */
+    public void end()
+    {
+        int slot = frame % FRAMES_IN_FLIGHT;
+        GL33.glQueryCounter(currentPass.endQueries[slot], GL33.GL_TIMESTAMP);
+        currentPass.pending[slot] = true;
+        currentPass = null;
+    }
+
+    /**
+     * Returns the average GPU time of each pass since the statistics were last reset.
+     * @return pass names and times in milliseconds
+     */
+    public String getTimings()
+    {
+        StringBuilder builder = new StringBuilder();
+        double total = 0;
+        for (Map.Entry<String, Pass> entry : passes.entrySet())
+        {
+            Pass pass = entry.getValue();
+            if (pass.samples == 0)
+            {
+                continue;
+            }
+            double milliseconds = pass.totalNanos / (double) pass.samples / 1000000.0;
+            total += milliseconds;
+            builder.append(entry.getKey()).append(": ").append(String.format("%.3f", milliseconds)).append(" ms, ");
+        }
+        return builder.append("total: ").append(String.format("%.3f", total)).append(" ms").toString();
+    }
+
+    /**
+     * Returns the average GPU time of a pass since the statistics were last reset.
+     * @param name name of pass
+     * @return time in milliseconds, or 0 if the pass hasn't been timed
+     */
+    public double getAverageTime(String name)
+    {
+        Pass pass = passes.get(name);
+        if (pass == null || pass.samples == 0)
+        {
+            return 0;
+        }
+        return pass.totalNanos / (double) pass.samples / 1000000.0;
+    }
+
+    /**
+     * Resets the timings of all passes.
+     */
+    public void resetStatistics()
+    {
+        for (Pass pass : passes.values())
+        {
+            pass.totalNanos = 0;
+            pass.samples = 0;
+        }
+    }
+
+    /**
+     * Deletes the queries of all passes.
+     * Called when game is closed.
+     */
+    public void cleanUp()
+    {
+        for (Pass pass : passes.values())
+        {
+            for (int i = 0; i < FRAMES_IN_FLIGHT; i++)
+            {
+                GL15.glDeleteQueries(pass.startQueries[i]);
+                GL15.glDeleteQueries(pass.endQueries[i]);
+            }
+        }
+        passes.clear();
+    }
+
+    /**
+     * The queries and timings of one pass.
+     */
+    private static class Pass
+    {
+        /**
+         * Timestamp queries written before and after the pass, one of each per frame in flight
+         */
+        private final int[] startQueries = new int[FRAMES_IN_FLIGHT];
+        private final int[] endQueries = new int[FRAMES_IN_FLIGHT];
+
+        /**
+         * Have the queries of a frame been written but not read yet?
+         */
+        private final boolean[] pending = new boolean[FRAMES_IN_FLIGHT];
+
+        /**
+         * Sum of the measured times, and number of measurements
+         */
+        private long totalNanos = 0;
+        private int samples = 0;
+
+        /**
+         * Creates the queries of a pass.
+         */
+        private Pass()
+        {
+            for (int i = 0; i < FRAMES_IN_FLIGHT; i++)
+            {
+                startQueries[i] = GL15.glGenQueries();
+                endQueries[i] = GL15.glGenQueries();
+            }
+        }
+
+        /**
+         * Reads the result of the queries in a slot before they are reused.  The result
+         * is dropped if the GPU hasn't finished it yet, rather than waiting for it.
+         * @param slot index of the frame in flight
+         */
+        private void collect(int slot)
+        {
+            if (!pending[slot])
+            {
+                return;
+            }
+            pending[slot] = false;
+            if (GL15.glGetQueryObjecti(endQueries[slot], GL15.GL_QUERY_RESULT_AVAILABLE) == GL11.GL_FALSE)
+            {
+                return;
+            }
+            long start = GL33.glGetQueryObjectui64(startQueries[slot], GL15.GL_QUERY_RESULT);
+            long end = GL33.glGetQueryObjectui64(endQueries[slot], GL15.GL_QUERY_RESULT);
+            totalNanos += end - start;
+            samples++;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package postProcessing;
+
+/**
+ * An operation that changes each pixel of an image without looking at its neighbours,
+ * such as a contrast change or adding the bloom highlights.  Operations don't have
+ * shaders of their own.  Instead, their GLSL code is pasted into a fused pass, so a
+ * chain of operations is applied in a single full-screen pass.
+ *
+ * The code of an operation changes the vec4 variable colour, and can read the
+ * texture coordinates of the pixel from textureCoords.
+ *
+ * @author Aaron Frazer
+ */
+public abstract class PixelOperation
+{
+    /**
+     * Name of the operation, used to label the fused pass
+     */
+    private final String name;
+
+    /**
+     * Creates a pixel operation.
+     * @param name name of operation
+     */
+    protected PixelOperation(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the operation.
+     * @return name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the names of the textures the operation samples.  Each texture is declared
+     * as a sampler2D uniform with this name in the fused shader.
+     * @return sampler names
+     */
+    protected String[] getSamplers()
+    {
+        return new String[0];
+    }
+
+    /**
+     * Returns the GLSL declarations of the operation's uniform variables, other than its samplers.
+     * @return GLSL declarations
+     */
+    protected String getDeclarations()
+    {
+        return "";
+    }
+
+    /**
+     * Returns the GLSL statements that change the colour of a pixel.
+     * @return GLSL code
+     */
+    protected abstract String getCode();
+
+    /**
+     * Loads the operation's uniform variables and binds its textures before the fused
+     * pass is drawn.
+     * @param shader fused shader program, already started
+     */
+    protected abstract void prepare(FusedShader shader);
+}
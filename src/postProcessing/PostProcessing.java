@@ -1,21 +1,23 @@
 package postProcessing;
 
-import bloom.BrightFilter;
-import bloom.CombineFilter;
+import bloom.CombineOperation;
+import bloom.DualFilterBloom;
 import gaussianBlur.HorizontalBlur;
 import gaussianBlur.VerticalBlur;
 import org.lwjgl.opengl.Display;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 
 import models.RawModel;
 import renderEngine.Loader;
+import renderEngine.RenderState;
 import toolbox.GameSettings;
 
 /**
  * Represents post-processing in the game.  Post-processing is applied after an image
  * has been rendered to the FBO and post-processing effects are applied to the FBO.
+ *
+ * Effects that need the neighbours of a pixel (the blurs) are rendered as separate
+ * passes.  The per-pixel effects that follow them are gathered into one fused pass,
+ * which draws the final image to the screen.
  * @author Aaron Frazer
  */
 public class PostProcessing
@@ -23,16 +25,6 @@ public class PostProcessing
     private static final float[] POSITIONS = {-1, 1, -1, -1, 1, 1, 1, -1};
     private static RawModel quad;
 
-    /**
-     * Contrast changer stage
-     */
-    private static ContrastChanger contrastChanger;
-
-    /**
-     * Bright filter to apply bloom effect
-     */
-    private static BrightFilter brightFilter;
-
     /**
      * Horizontal blur stage
      */
@@ -44,82 +36,134 @@ public class PostProcessing
     private static VerticalBlur vBlur;
 
     /**
-     * Second horizontal blur stage
+     * Per-pixel operations
      */
-    private static HorizontalBlur hBlur2;
+    private static ContrastOperation contrast;
+    private static CombineOperation combine;
 
     /**
-     * Second vertical blur stage
+     * Pass applying the per-pixel operations
      */
-    private static VerticalBlur vBlur2;
+    private static FusedPass fusedPass;
 
     /**
-     * Combine filter
+     * Mip chain blur of the bloom effect
      */
-    private static CombineFilter combineFilter;
+    private static DualFilterBloom bloom;
 
     /**
-     * Creates a 2D quad that fills up the display.
+     * Timer measuring the GPU time of each pass
+     */
+    private static PassTimer timer;
+
+    /**
+     * Creates a 2D quad that fills up the display.  The render targets of the stages
+     * are acquired from the FBO pool while post-processing is applied, so only the
+     * targets of the effects that are turned on take up memory.
      * @param loader loader
      */
     public static void init(Loader loader)
     {
         quad = loader.loadToVAO(POSITIONS, 2);
-        contrastChanger = new ContrastChanger();
-        brightFilter = new BrightFilter(Display.getWidth()/2, Display.getHeight()/2);
-        hBlur = new HorizontalBlur(Display.getWidth() / 8, Display.getHeight() / 8);
-        vBlur = new VerticalBlur(Display.getWidth() / 8, Display.getHeight() / 8);
-        hBlur2 = new HorizontalBlur(Display.getWidth() / 2, Display.getHeight() / 2);
-        vBlur2 = new VerticalBlur(Display.getWidth() / 2, Display.getHeight() / 2);
-        combineFilter = new CombineFilter();
+        hBlur = new HorizontalBlur();
+        vBlur = new VerticalBlur();
+        contrast = new ContrastOperation();
+        combine = new CombineOperation();
+        fusedPass = new FusedPass();
+        bloom = new DualFilterBloom();
+        timer = new PassTimer();
     }
 
     /**
      * Applies post-processing effect between start() and end() calls.
      * @param colourTexture color texture ID
-*      @param brightTexture bright texture ID
+     * @param brightTexture bright texture ID
      */
     public static void doPostProcessing(int colourTexture, int brightTexture)
     {
         start();
+        timer.startFrame();
+        fusedPass.clear();
 
+        int texture = colourTexture;
+        Fbo blurred = null;
         if (GameSettings.GAUSSIAN_BLUR)
         {
-            hBlur2.render(colourTexture);
-            vBlur2.render(hBlur2.getOutputTexture());
-            hBlur.render(vBlur2.getOutputTexture());
-            vBlur.render(hBlur.getOutputTexture());
-            contrastChanger.render(vBlur.getOutputTexture());
-        } else {
-            if (GameSettings.BLOOM_EFFECT)
-            { // bloom effect
-                hBlur2.render(brightTexture);
-                vBlur2.render(hBlur2.getOutputTexture());
-                hBlur.render(vBlur2.getOutputTexture());
-                vBlur.render(hBlur.getOutputTexture());
-                contrastChanger.render(vBlur.getOutputTexture());
-                combineFilter.render(colourTexture, vBlur.getOutputTexture());
-            } else
-            { // no effects
-                contrastChanger.render(colourTexture);
-            }
+            blurred = blur(colourTexture);
+            texture = blurred.getColorTexture();
+        } else if (GameSettings.BLOOM_EFFECT)
+        {
+            blurred = bloom.render(brightTexture, Display.getWidth(), Display.getHeight(),
+                    GameSettings.BLOOM_LEVELS, timer);
+            combine.setHighlightTexture(blurred.getColorTexture());
+            fusedPass.add(combine);
+        }
+        fusedPass.add(contrast);
+        fusedPass.render(texture, null, timer);
+        if (blurred != null)
+        {
+            FboPool.release(blurred);
         }
 
         end();
     }
 
+    /**
+     * Blurs a texture at half, then at an eighth of the display's resolution.  Each
+     * target is released as soon as the next stage has read it.
+     * @param texture texture ID
+     * @return FBO holding the blurred image, to be released once it has been used
+     */
+    private static Fbo blur(int texture)
+    {
+        int halfWidth = Display.getWidth() / 2;
+        int halfHeight = Display.getHeight() / 2;
+        int eighthWidth = Display.getWidth() / 8;
+        int eighthHeight = Display.getHeight() / 8;
+
+        Fbo horizontal = FboPool.acquire(halfWidth, halfHeight, FboPool.COLOUR, Fbo.NONE);
+        timer.begin("horizontal blur 1/2");
+        hBlur.render(texture, horizontal);
+        timer.end();
+        Fbo vertical = FboPool.acquire(halfWidth, halfHeight, FboPool.COLOUR, Fbo.NONE);
+        timer.begin("vertical blur 1/2");
+        vBlur.render(horizontal.getColorTexture(), vertical);
+        timer.end();
+        FboPool.release(horizontal);
+
+        horizontal = FboPool.acquire(eighthWidth, eighthHeight, FboPool.COLOUR, Fbo.NONE);
+        timer.begin("horizontal blur 1/8");
+        hBlur.render(vertical.getColorTexture(), horizontal);
+        timer.end();
+        FboPool.release(vertical);
+        vertical = FboPool.acquire(eighthWidth, eighthHeight, FboPool.COLOUR, Fbo.NONE);
+        timer.begin("vertical blur 1/8");
+        vBlur.render(horizontal.getColorTexture(), vertical);
+        timer.end();
+        FboPool.release(horizontal);
+
+        return vertical;
+    }
+
+    /**
+     * Returns the timer measuring the GPU time of each post-processing pass.
+     * @return pass timer
+     */
+    public static PassTimer getPassTimer()
+    {
+        return timer;
+    }
+
     /**
      * Cleans up post-processing resources.
      */
     public static void cleanUp()
     {
-        contrastChanger.cleanUp();
-        brightFilter.cleanUp();
         hBlur.cleanUp();
         vBlur.cleanUp();
-        hBlur2.cleanUp();
-        vBlur2.cleanUp();
-        combineFilter.cleanUp();
+        fusedPass.cleanUp();
+        bloom.cleanUp();
+        timer.cleanUp();
     }
 
     /**
@@ -127,9 +171,9 @@ public class PostProcessing
      */
     private static void start()
     {
-        GL30.glBindVertexArray(quad.getVaoID());
-        GL20.glEnableVertexAttribArray(0);
-        GL11.glDisable(GL11.GL_DEPTH_TEST);
+        RenderState.bindVertexArray(quad.getVaoID());
+        RenderState.enableVertexAttribArray(0);
+        RenderState.setDepthTest(false);
     }
 
     /**
@@ -137,9 +181,8 @@ public class PostProcessing
      */
     private static void end()
     {
-        GL11.glEnable(GL11.GL_DEPTH_TEST);
-        GL20.glDisableVertexAttribArray(0);
-        GL30.glBindVertexArray(0);
+        RenderState.setDepthTest(true);
+        RenderState.bindVertexArray(0);
     }
 
 
@@ -0,0 +1,100 @@
+package postProcessing;
+
+import org.lwjgl.opengl.Display;
+import org.lwjgl.opengl.GL11;
+
+import renderEngine.DisplayManager;
+import renderEngine.Loader;
+import toolbox.GameSettings;
+
+/**
+ * A class used to benchmark the GPU time of each post-processing pass, comparing the
+ * separable Gaussian blur against the bloom mip chain at different depths.  Opens a
+ * display, since the passes are timed on the GPU.
+ *
+ * @author Aaron Frazer
+ */
+public class PostProcessingBenchmark
+{
+    /**
+     * Bloom mip chain depths that are benchmarked
+     */
+    private static final int[] BLOOM_LEVELS = {2, 3, 4, 5, 6};
+
+    /**
+     * Number of frames rendered before timing starts
+     */
+    private static final int WARMUP_FRAMES = 30;
+
+    /**
+     * Number of frames that are timed
+     */
+    private static final int TIMED_FRAMES = 120;
+
+    public static void main(String[] args)
+    {
+        DisplayManager.createDisplay();
+        Loader loader = new Loader();
+        PostProcessing.init(loader);
+
+        Fbo colour = FboPool.acquire(Display.getWidth(), Display.getHeight(), FboPool.COLOUR, Fbo.NONE);
+        Fbo bright = FboPool.acquire(Display.getWidth(), Display.getHeight(), FboPool.COLOUR, Fbo.NONE);
+        fill(colour, 0.5f);
+        fill(bright, 1.0f);
+
+        System.out.println("Post-processing at " + Display.getWidth() + "x" + Display.getHeight());
+        GameSettings.GAUSSIAN_BLUR = true;
+        System.out.println("Gaussian blur: " + timeFrames(colour, bright));
+        GameSettings.GAUSSIAN_BLUR = false;
+        GameSettings.BLOOM_EFFECT = true;
+        for (int levels : BLOOM_LEVELS)
+        {
+            GameSettings.BLOOM_LEVELS = levels;
+            System.out.println("Bloom, " + levels + " levels: " + timeFrames(colour, bright));
+        }
+
+        FboPool.release(colour);
+        FboPool.release(bright);
+        PostProcessing.cleanUp();
+        FboPool.cleanUp();
+        loader.cleanUp();
+        DisplayManager.closeDisplay();
+    }
+
+    /**
+     * Clears an FBO to a grey level, so the passes have an image to work on.
+     * @param fbo FBO
+     * @param value grey level
+     */
+    private static void fill(Fbo fbo, float value)
+    {
+        fbo.bindFrameBuffer();
+        GL11.glClearColor(value, value, value, 1);
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+        fbo.unbindFrameBuffer();
+    }
+
+    /**
+     * Renders a number of frames with the current post-processing settings.
+     * @param colour FBO holding the scene
+     * @param bright FBO holding the scene's highlights
+     * @return average GPU time of each pass
+     */
+    private static String timeFrames(Fbo colour, Fbo bright)
+    {
+        PassTimer timer = PostProcessing.getPassTimer();
+        for (int frame = 0; frame < WARMUP_FRAMES + TIMED_FRAMES; frame++)
+        {
+            if (frame == WARMUP_FRAMES)
+            {
+                timer.resetStatistics();
+            }
+            FboPool.update();
+            PostProcessing.doPostProcessing(colour.getColorTexture(), bright.getColorTexture());
+            DisplayManager.updateDisplay();
+        }
+        String timings = timer.getTimings();
+        timer.resetStatistics();
+        return timings;
+    }
+}
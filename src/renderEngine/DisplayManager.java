@@ -1,10 +1,11 @@
 package renderEngine;
 
 import org.lwjgl.LWJGLException;
-import org.lwjgl.Sys;
 import org.lwjgl.input.Mouse;
 import org.lwjgl.opengl.*;
 import org.lwjgl.util.vector.Vector2f;
+import toolbox.FrameTimer;
+import toolbox.GameSettings;
 
 /**
  * A class used to manage the display for the game.
@@ -32,7 +33,7 @@ public class DisplayManager
     public static final int FPS_CAP = 60; // maybe increase to 120
 
     /**
-     * Time at the end of the last frame
+     * Time at the end of the last frame, in nanoseconds
      */
     private static long lastFrameTime;
 
@@ -41,6 +42,11 @@ public class DisplayManager
      */
     private static float delta;
 
+    /**
+     * Number of frames displayed so far
+     */
+    private static long frameCount;
+
     /**
      * Creates and opens a display.
      */
@@ -54,6 +60,7 @@ public class DisplayManager
             Display.setLocation(WINDOW_X, WINDOW_Y); // Location of window
             Display.setDisplayMode(new DisplayMode(WIDTH, HEIGHT));
             Display.create(new PixelFormat().withDepthBits(24), attribs);
+            Display.setVSyncEnabled(GameSettings.VSYNC);
             Display.setTitle("Our First Display!");
             GL11.glEnable(GL13.GL_MULTISAMPLE);
             Display.setResizable(true); // Resizable window
@@ -76,11 +83,27 @@ public class DisplayManager
             GL11.glViewport(0, 0, Display.getWidth(), Display.getHeight());
         }
 
-        Display.sync(FPS_CAP);
+        if (GameSettings.CAP_FRAME_RATE && !GameSettings.VSYNC)
+        {
+            Display.sync(FPS_CAP);
+        }
         Display.update();
         long currentFrameTime = getCurrentTime();
-        delta = (currentFrameTime - lastFrameTime) / 1000f;
+        FrameTimer.record(currentFrameTime - lastFrameTime);
+        delta = (currentFrameTime - lastFrameTime) / 1000000000f;
         lastFrameTime = currentFrameTime;
+        frameCount++;
+        RenderState.endFrame();
+    }
+
+    /**
+     * Starts timing frames from now.  Called just before the game loop starts, so the
+     * time spent loading isn't counted as the first frame.
+     */
+    public static void resetFrameTimer()
+    {
+        lastFrameTime = getCurrentTime();
+        delta = 0;
     }
 
     /**
@@ -102,13 +125,23 @@ public class DisplayManager
     }
 
     /**
-     * Returns the current time in milliseconds
+     * Returns the number of frames displayed so far.
+     *
+     * @return frame count
+     */
+    public static long getFrameCount()
+    {
+        return frameCount;
+    }
+
+    /**
+     * Returns the current time in nanoseconds
      *
-     * @return time in ms
+     * @return time in ns
      */
     private static long getCurrentTime()
     {
-        return Sys.getTime() * 1000 / Sys.getTimerResolution();
+        return System.nanoTime();
     }
 
     public static Vector2f getNormalizedMouseCoordinates()
@@ -0,0 +1,216 @@
+package renderEngine;
+
+import java.util.Arrays;
+
+/**
+ * A queue of draw commands for one render pass.  Each command is described by a
+ * 64-bit sort key and the object to be drawn (an entity or a terrain).  Once all
+ * commands have been submitted the keys are radix sorted, so the commands are drawn
+ * grouped by shader, texture and VAO (opaque objects front to back, transparent
+ * objects back to front) in the same order every frame.
+ *
+ * Opaque key:      pass (2) | shader (3) | material (12) | VAO (12) | depth (16) | command (19)
+ * Transparent key: pass (2) | far-to-near depth (16) | shader (3) | material (12) | VAO (12) | command (19)
+ *
+ * The low bits of the key hold the command's index, so keys are unique and
+ * commands with equal keys keep their submission order.
+ *
+ * @author Aaron Frazer
+ */
+public class DrawQueue
+{
+    /**
+     * Passes of the queue, drawn in this order
+     */
+    public static final int PASS_OPAQUE = 0;
+    public static final int PASS_TRANSPARENT = 1;
+
+    /**
+     * Shaders commands can be drawn with
+     */
+    public static final int SHADER_ENTITY = 0;
+    public static final int SHADER_NORMAL_MAP = 1;
+    public static final int SHADER_TERRAIN = 2;
+
+    /**
+     * Sizes (in bits) of the fields of a sort key
+     */
+    private static final int SHADER_BITS = 3;
+    private static final int MATERIAL_BITS = 12;
+    private static final int VAO_BITS = 12;
+    private static final int DEPTH_BITS = 16;
+    private static final int COMMAND_BITS = 19;
+
+    /**
+     * Maximum number of commands in the queue
+     */
+    public static final int MAX_COMMANDS = 1 << COMMAND_BITS;
+
+    /**
+     * Bit masks of the fields of a sort key
+     */
+    private static final long SHADER_MASK = (1L << SHADER_BITS) - 1;
+    private static final long MATERIAL_MASK = (1L << MATERIAL_BITS) - 1;
+    private static final long VAO_MASK = (1L << VAO_BITS) - 1;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+    private static final long COMMAND_MASK = (1L << COMMAND_BITS) - 1;
+
+    /**
+     * Number of bits sorted by each radix sort pass, and number of buckets per pass
+     */
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    /**
+     * Sort keys of the commands, and the buffer the keys are sorted through
+     */
+    private long[] keys = new long[1024];
+    private long[] sortBuffer = new long[1024];
+
+    /**
+     * Object drawn by each command, indexed by command
+     */
+    private Object[] items = new Object[1024];
+
+    /**
+     * Number of commands in the queue
+     */
+    private int size = 0;
+
+    /**
+     * Number of keys in each radix bucket
+     */
+    private final int[] counts = new int[RADIX];
+
+    /**
+     * Submits a draw command to the queue.  Commands beyond {@link #MAX_COMMANDS} are dropped.
+     * @param pass pass the object is drawn in (opaque or transparent)
+     * @param shader shader the object is drawn with
+     * @param material ID of the object's texture
+     * @param vao ID of the object's VAO
+     * @param depth distance from the camera to the object, from 0 (near) to 1 (far)
+     * @param item object to be drawn
+     */
+    public void submit(int pass, int shader, int material, int vao, float depth, Object item)
+    {
+        if (size == MAX_COMMANDS)
+        {
+            return;
+        }
+        if (size == keys.length)
+        {
+            keys = Arrays.copyOf(keys, size * 2);
+            sortBuffer = new long[size * 2];
+            items = Arrays.copyOf(items, size * 2);
+        }
+        long quantizedDepth = (long) (Math.min(Math.max(depth, 0), 1) * DEPTH_MASK);
+        long key;
+        if (pass == PASS_OPAQUE)
+        {
+            key = ((long) pass << 62)
+                    | ((shader & SHADER_MASK) << 59)
+                    | ((material & MATERIAL_MASK) << 47)
+                    | ((vao & VAO_MASK) << 35)
+                    | (quantizedDepth << COMMAND_BITS);
+        } else
+        {
+            key = ((long) pass << 62)
+                    | ((DEPTH_MASK - quantizedDepth) << 46)
+                    | ((shader & SHADER_MASK) << 43)
+                    | ((material & MATERIAL_MASK) << 31)
+                    | ((vao & VAO_MASK) << COMMAND_BITS);
+        }
+        keys[size] = key | size;
+        items[size] = item;
+        size++;
+    }
+
+    /**
+     * Sorts the commands by their keys, using a least significant digit radix sort.
+     * Passes where every key has the same digit are skipped.
+     */
+    public void sort()
+    {
+        long[] source = keys;
+        long[] destination = sortBuffer;
+        for (int shift = 0; shift < 64; shift += RADIX_BITS)
+        {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++)
+            {
+                counts[(int) (source[i] >>> shift) & (RADIX - 1)]++;
+            }
+            if (size == 0 || counts[(int) (source[0] >>> shift) & (RADIX - 1)] == size)
+            {
+                continue; // all keys have the same digit
+            }
+            int total = 0;
+            for (int i = 0; i < RADIX; i++)
+            {
+                int count = counts[i];
+                counts[i] = total;
+                total += count;
+            }
+            for (int i = 0; i < size; i++)
+            {
+                long key = source[i];
+                destination[counts[(int) (key >>> shift) & (RADIX - 1)]++] = key;
+            }
+            long[] temp = source;
+            source = destination;
+            destination = temp;
+        }
+        keys = source;
+        sortBuffer = destination;
+    }
+
+    /**
+     * Returns the number of commands in the queue.
+     * @return number of commands
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the pass of a command.
+     * @param index position of command in the queue
+     * @return pass of command
+     */
+    public int getPass(int index)
+    {
+        return (int) (keys[index] >>> 62);
+    }
+
+    /**
+     * Returns the shader of a command.
+     * @param index position of command in the queue
+     * @return shader of command
+     */
+    public int getShader(int index)
+    {
+        long key = keys[index];
+        int shift = (key >>> 62) == PASS_OPAQUE ? 59 : 43;
+        return (int) ((key >>> shift) & SHADER_MASK);
+    }
+
+    /**
+     * Returns the object drawn by a command.
+     * @param index position of command in the queue
+     * @return object to be drawn
+     */
+    public Object getItem(int index)
+    {
+        return items[(int) (keys[index] & COMMAND_MASK)];
+    }
+
+    /**
+     * Removes all commands from the queue.
+     */
+    public void clear()
+    {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+    }
+}
@@ -4,18 +4,11 @@ import entities.Entity;
 import models.RawModel;
 import models.TexturedModel;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 import org.lwjgl.util.vector.Matrix4f;
 import shaders.StaticShader;
 import textures.ModelTexture;
-import toolbox.GameSettings;
 import toolbox.Maths;
 
-import java.util.List;
-import java.util.Map;
-
 /**
  * A class responsible for rendering a model from a VAO.
  * @author Aaron Frazer
@@ -27,69 +20,116 @@ public class EntityRenderer
      */
     private StaticShader shader;
 
+    /**
+     * Raw model and texture that are currently bound
+     */
+    private RawModel boundRawModel;
+    private ModelTexture boundTexture;
+
     /**
      * Creates a projection matrix.  This method is only run once.
      * @param shader shader program
-     * @param projectionMatrix 4D projection matrix
      */
-    public EntityRenderer(StaticShader shader, Matrix4f projectionMatrix)
+    public EntityRenderer(StaticShader shader)
     {
         this.shader = shader;
         shader.start();
-        shader.loadProjectionMatrix(projectionMatrix);
         shader.connectTextureUnits();
         shader.stop();
     }
 
     /**
-     * Renders a hash map of textured models and entities.
-     * @param entities hash map of textured models and entities
+     * Starts rendering entities by starting the static shader.
      */
-    public void render(Map<TexturedModel, List<Entity>> entities, Matrix4f toShadowSpace)
+    public void begin()
     {
-        shader.loadToShadowSpaceMatrix(toShadowSpace);
-        if (GameSettings.WIREFRAME_ENABLED)
-            GL11.glPolygonMode(GL11.GL_FRONT_AND_BACK, GL11.GL_LINE);
-        else
-            GL11.glPolygonMode(GL11.GL_FRONT_AND_BACK, GL11.GL_FILL);
+        shader.start();
+    }
 
-        for (TexturedModel model : entities.keySet())
+    /**
+     * Renders an entity with its level of detail.  Its raw model and texture are only
+     * prepared when they differ from the previous entity's, so entities should be
+     * rendered grouped by model.
+     * @param entity entity to be rendered
+     */
+    public void render(Entity entity)
+    {
+        TexturedModel model = entity.getModel();
+        RawModel rawModel = model.getRawModel(entity.getLod());
+        if (rawModel != boundRawModel)
         {
-            prepareTexturedModel(model);
-            List<Entity> batch = entities.get(model);
-
-            for (Entity entity : batch)
-            {
-                prepareInstance(entity);
-                GL11.glDrawElements(GL11.GL_TRIANGLES, model.getRawModel().getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
-            }
-
-            unbindTexturedModel();
+            prepareRawModel(rawModel);
+            boundRawModel = rawModel;
+        }
+        if (model.getTexture() != boundTexture)
+        {
+            prepareTexture(model.getTexture());
+            boundTexture = model.getTexture();
         }
+        prepareInstance(entity);
+        GL11.glDrawElements(GL11.GL_TRIANGLES, rawModel.getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
     }
 
     /**
-     * Prepares a textured model.
-     * @param model model
+     * Renders every entity of a static batch, one group of entities sharing a texture at a time.
+     * @param batch static batch
      */
-    private void prepareTexturedModel(TexturedModel model)
+    public void render(StaticBatch batch)
     {
-        RawModel rawModel = model.getRawModel();
+        if (batch.getGroupCount() == 0)
+        {
+            return;
+        }
+        boundRawModel = null;
+        boundTexture = null;
+        batch.bind();
+        shader.loadUseInstancing(true);
+        for (int i = 0; i < batch.getGroupCount(); i++)
+        {
+            prepareTexture(batch.getGroupTexture(i));
+            batch.drawGroup(i);
+        }
+        shader.loadUseInstancing(false);
+    }
 
-        // Bind raw model
-        GL30.glBindVertexArray(rawModel.getVaoID());
-        GL20.glEnableVertexAttribArray(0);
-        GL20.glEnableVertexAttribArray(1);
-        GL20.glEnableVertexAttribArray(2);
+    /**
+     * Ends rendering entities by unbinding the last model and stopping the static shader.
+     */
+    public void end()
+    {
+        unbindTexturedModel();
+        boundRawModel = null;
+        boundTexture = null;
+        shader.stop();
+    }
 
-        ModelTexture texture = model.getTexture();
+    /**
+     * Prepares a raw model by binding its VAO.
+     * @param rawModel raw model
+     */
+    private void prepareRawModel(RawModel rawModel)
+    {
+        RenderState.bindVertexArray(rawModel.getVaoID());
+        RenderState.enableVertexAttribArray(0);
+        RenderState.enableVertexAttribArray(1);
+        RenderState.enableVertexAttribArray(2);
+    }
 
+    /**
+     * Prepares the texture of a textured model.
+     * @param texture model texture
+     */
+    private void prepareTexture(ModelTexture texture)
+    {
         // Load number of rows from texture atlas
         shader.loadNumberOfRows(texture.getNumberOfRows());
 
         if (texture.isHasTransparency())
         {
             MasterRenderer.disableCulling();
+        } else
+        {
+            MasterRenderer.enableCulling();
         }
 
         // Load fake variable lighting
@@ -99,28 +139,24 @@ public class EntityRenderer
         shader.loadShineVariables(texture.getShineDamper(), texture.getReflectivity());
 
         // Bind model's texture
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, model.getTexture().getTextureID());
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, texture.getTextureID());
 
         // Load specular map to model's texture
         shader.loadUseSpecularMap(texture.hasSpecularMap());
         if (texture.hasSpecularMap())
         {
-            GL13.glActiveTexture(GL13.GL_TEXTURE1);
-            GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture.getSpecularMap());
+            RenderState.bindTexture(1, GL11.GL_TEXTURE_2D, texture.getSpecularMap());
         }
     }
 
     /**
-     * Unbinds attributes of a textured model.
+     * Unbinds the last textured model.  Its attributes stay enabled, since they
+     * belong to the model's VAO.
      */
     private void unbindTexturedModel()
     {
         MasterRenderer.enableCulling();
-        GL20.glDisableVertexAttribArray(0);
-        GL20.glDisableVertexAttribArray(1);
-        GL20.glDisableVertexAttribArray(2);
-        GL30.glBindVertexArray(0);
+        RenderState.bindVertexArray(0);
     }
 
     /**
@@ -0,0 +1,453 @@
+package renderEngine;
+
+import entities.Light;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+import org.lwjgl.util.vector.Vector4f;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Clustered forward lighting.  The camera's view frustum is split into a 3D grid
+ * of clusters (tiles across the screen, and exponential slices along the view
+ * depth).  Every frame each light is added to the clusters its sphere of influence
+ * touches, and the lights, the cluster grid and the light index lists are uploaded
+ * to texture buffers.  The shaders then only iterate over the lights in the
+ * fragment's cluster, so a scene can have hundreds of lights.
+ *
+ * @author Aaron Frazer
+ */
+public class LightClusters
+{
+    /**
+     * Number of clusters across, up and into the screen.  These must match the
+     * constants in the shaders using the clusters
+     */
+    public static final int CLUSTERS_X = 16;
+    public static final int CLUSTERS_Y = 9;
+    public static final int CLUSTERS_Z = 24;
+
+    /**
+     * Total number of clusters
+     */
+    public static final int CLUSTER_COUNT = CLUSTERS_X * CLUSTERS_Y * CLUSTERS_Z;
+
+    /**
+     * Maximum number of lights in the scene
+     */
+    public static final int MAX_LIGHTS = 1024;
+
+    /**
+     * Maximum number of light indices in all clusters combined
+     */
+    private static final int MAX_LIGHT_INDICES = CLUSTER_COUNT * 32;
+
+    /**
+     * Texture units the light data, cluster grid and light indices are bound to
+     */
+    public static final int LIGHT_DATA_UNIT = 9;
+    public static final int CLUSTER_GRID_UNIT = 10;
+    public static final int LIGHT_INDICES_UNIT = 11;
+
+    /**
+     * Scale and bias turning the log of a view depth into a depth slice:
+     * slice = log(depth) * DEPTH_SCALE - DEPTH_BIAS
+     */
+    public static final float DEPTH_SCALE = (float) (CLUSTERS_Z / Math.log(MasterRenderer.FAR_PLANE / MasterRenderer.NEAR_PLANE));
+    public static final float DEPTH_BIAS = (float) (CLUSTERS_Z * Math.log(MasterRenderer.NEAR_PLANE) / Math.log(MasterRenderer.FAR_PLANE / MasterRenderer.NEAR_PLANE));
+
+    /**
+     * Light intensity below which a light no longer has a visible effect.  Used
+     * to work out the radius of a light from its attenuation
+     */
+    private static final float LIGHT_THRESHOLD = 1f / 256f;
+
+    /**
+     * Number of texels (RGBA floats) of data for each light: position and radius,
+     * colour, attenuation
+     */
+    private static final int TEXELS_PER_LIGHT = 3;
+
+    /**
+     * Projection scales of the camera's projection matrix
+     */
+    private float xScale, yScale;
+
+    /**
+     * Buffer objects and buffer textures holding the light data, cluster grid and light indices
+     */
+    private int lightDataBuffer, clusterGridBuffer, lightIndicesBuffer;
+    private int lightDataTexture, clusterGridTexture, lightIndicesTexture;
+
+    /**
+     * Reusable buffers used to upload the data
+     */
+    private FloatBuffer lightData = BufferUtils.createFloatBuffer(MAX_LIGHTS * TEXELS_PER_LIGHT * 4);
+    private IntBuffer clusterGrid = BufferUtils.createIntBuffer(CLUSTER_COUNT * 2);
+    private IntBuffer lightIndices = BufferUtils.createIntBuffer(MAX_LIGHT_INDICES);
+
+    /**
+     * Range of clusters (min x, max x, min y, max y, min z, max z) each light touches
+     */
+    private int[] lightRanges = new int[MAX_LIGHTS * 6];
+
+    /**
+     * Number of lights in each cluster, and the index of each cluster's first light index
+     */
+    private int[] clusterCounts = new int[CLUSTER_COUNT];
+    private int[] clusterOffsets = new int[CLUSTER_COUNT];
+
+    /**
+     * Number of lights and light indices binned by the last update
+     */
+    private int lightCount;
+    private int lightIndexCount;
+
+    /**
+     * Reusable vector holding a light's position in view space
+     */
+    private Vector4f viewPosition = new Vector4f();
+
+    /**
+     * Creates the buffer textures that the lights are uploaded to.
+     * @param projectionMatrix camera's projection matrix
+     */
+    public LightClusters(Matrix4f projectionMatrix)
+    {
+        this.xScale = projectionMatrix.m00;
+        this.yScale = projectionMatrix.m11;
+        lightDataBuffer = createBuffer(lightData.capacity() * 4);
+        clusterGridBuffer = createBuffer(clusterGrid.capacity() * 4);
+        lightIndicesBuffer = createBuffer(lightIndices.capacity() * 4);
+        lightDataTexture = createBufferTexture(lightDataBuffer, GL30.GL_RGBA32F);
+        clusterGridTexture = createBufferTexture(clusterGridBuffer, GL30.GL_RG32I);
+        lightIndicesTexture = createBufferTexture(lightIndicesBuffer, GL30.GL_R32I);
+    }
+
+    /**
+     * Bins the lights into the clusters of the camera's view frustum and uploads
+     * the result.  Called once for every pass the scene is rendered in, because each
+     * pass has its own view matrix.
+     * @param lights lights in the scene
+     * @param viewMatrix camera's view matrix
+     */
+    public void update(List<Light> lights, Matrix4f viewMatrix)
+    {
+        binLights(lights, viewMatrix);
+        upload(lightDataBuffer, lightData);
+        upload(clusterGridBuffer, clusterGrid);
+        upload(lightIndicesBuffer, lightIndices);
+    }
+
+    /**
+     * Binds the buffer textures to their texture units.
+     */
+    public void bind()
+    {
+        RenderState.bindTexture(LIGHT_DATA_UNIT, GL31.GL_TEXTURE_BUFFER, lightDataTexture);
+        RenderState.bindTexture(CLUSTER_GRID_UNIT, GL31.GL_TEXTURE_BUFFER, clusterGridTexture);
+        RenderState.bindTexture(LIGHT_INDICES_UNIT, GL31.GL_TEXTURE_BUFFER, lightIndicesTexture);
+    }
+
+    /**
+     * Returns the number of lights binned by the last update.
+     * @return number of lights
+     */
+    public int getLightCount()
+    {
+        return lightCount;
+    }
+
+    /**
+     * Returns the number of light indices in all clusters after the last update.
+     * @return number of light indices
+     */
+    public int getLightIndexCount()
+    {
+        return lightIndexCount;
+    }
+
+    /**
+     * Deletes the buffers and buffer textures.
+     * Called when game is closed.
+     */
+    public void cleanUp()
+    {
+        RenderState.deleteTexture(lightDataTexture);
+        RenderState.deleteTexture(clusterGridTexture);
+        RenderState.deleteTexture(lightIndicesTexture);
+        GL15.glDeleteBuffers(lightDataBuffer);
+        GL15.glDeleteBuffers(clusterGridBuffer);
+        GL15.glDeleteBuffers(lightIndicesBuffer);
+    }
+
+    /**
+     * Works out which clusters each light touches, and fills the light data, cluster
+     * grid and light index buffers.  The clusters are counted first so that every
+     * cluster's lights can be stored next to each other in the light index buffer.
+     * @param lights lights in the scene
+     * @param viewMatrix camera's view matrix
+     */
+    private void binLights(List<Light> lights, Matrix4f viewMatrix)
+    {
+        lightData.clear();
+        lightCount = 0;
+        Arrays.fill(clusterCounts, 0);
+        for (int i = 0; i < lights.size() && lightCount < MAX_LIGHTS; i++)
+        {
+            Light light = lights.get(i);
+            float radius = calculateRadius(light);
+            if (radius <= 0 || !calculateClusterRange(light.getPosition(), radius, viewMatrix, lightCount * 6))
+            {
+                continue;
+            }
+            storeLight(light, radius);
+            int range = lightCount * 6;
+            for (int z = lightRanges[range + 4]; z <= lightRanges[range + 5]; z++)
+            {
+                for (int y = lightRanges[range + 2]; y <= lightRanges[range + 3]; y++)
+                {
+                    for (int x = lightRanges[range]; x <= lightRanges[range + 1]; x++)
+                    {
+                        clusterCounts[x + CLUSTERS_X * (y + CLUSTERS_Y * z)]++;
+                    }
+                }
+            }
+            lightCount++;
+        }
+        lightData.flip();
+
+        int offset = 0;
+        clusterGrid.clear();
+        for (int i = 0; i < CLUSTER_COUNT; i++)
+        {
+            int count = Math.min(clusterCounts[i], MAX_LIGHT_INDICES - offset);
+            clusterOffsets[i] = offset;
+            clusterCounts[i] = 0; // counted up again while the indices are stored
+            clusterGrid.put(offset).put(count);
+            offset += count;
+        }
+        clusterGrid.flip();
+        lightIndexCount = offset;
+
+        lightIndices.clear();
+        lightIndices.limit(Math.max(lightIndexCount, 1));
+        for (int light = 0; light < lightCount; light++)
+        {
+            int range = light * 6;
+            for (int z = lightRanges[range + 4]; z <= lightRanges[range + 5]; z++)
+            {
+                for (int y = lightRanges[range + 2]; y <= lightRanges[range + 3]; y++)
+                {
+                    for (int x = lightRanges[range]; x <= lightRanges[range + 1]; x++)
+                    {
+                        int cluster = x + CLUSTERS_X * (y + CLUSTERS_Y * z);
+                        int index = clusterOffsets[cluster] + clusterCounts[cluster];
+                        int end = cluster == CLUSTER_COUNT - 1 ? lightIndexCount : clusterOffsets[cluster + 1];
+                        if (index < end) // full clusters drop their remaining lights
+                        {
+                            lightIndices.put(index, light);
+                            clusterCounts[cluster]++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the distance at which a light's intensity drops below the
+     * threshold, by solving attenuation.x + attenuation.y * d + attenuation.z * d^2
+     * = brightest colour component / threshold.
+     * @param light light
+     * @return light's radius, infinite if the light isn't attenuated, or zero if it is never bright enough
+     */
+    private static float calculateRadius(Light light)
+    {
+        Vector3f colour = light.getColour();
+        Vector3f attenuation = light.getAttenuation();
+        float brightness = Math.max(colour.x, Math.max(colour.y, colour.z)) / LIGHT_THRESHOLD;
+        float c = attenuation.x - brightness;
+        if (c >= 0)
+        {
+            return 0;
+        }
+        if (attenuation.z > 0)
+        {
+            float discriminant = attenuation.y * attenuation.y - 4 * attenuation.z * c;
+            return (float) ((-attenuation.y + Math.sqrt(discriminant)) / (2 * attenuation.z));
+        }
+        if (attenuation.y > 0)
+        {
+            return -c / attenuation.y;
+        }
+        return Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Calculates the range of clusters that a light's sphere of influence touches.
+     * The range is conservative: the sphere's bounding box in view space is projected
+     * onto the screen using both its nearest and furthest depths.
+     * @param position light's position in world space
+     * @param radius light's radius
+     * @param viewMatrix camera's view matrix
+     * @param range index in the light ranges array the range is stored at
+     * @return false if the light can't be seen by the camera
+     */
+    private boolean calculateClusterRange(Vector3f position, float radius, Matrix4f viewMatrix, int range)
+    {
+        if (Float.isInfinite(radius))
+        {
+            setRange(range, 0, CLUSTERS_X - 1, 0, CLUSTERS_Y - 1, 0, CLUSTERS_Z - 1);
+            return true;
+        }
+        viewPosition.set(position.x, position.y, position.z, 1);
+        Matrix4f.transform(viewMatrix, viewPosition, viewPosition);
+        float depth = -viewPosition.z;
+        float nearDepth = depth - radius;
+        float farDepth = depth + radius;
+        if (farDepth < MasterRenderer.NEAR_PLANE || nearDepth > MasterRenderer.FAR_PLANE)
+        {
+            return false;
+        }
+        int minZ = getDepthSlice(Math.max(nearDepth, MasterRenderer.NEAR_PLANE));
+        int maxZ = getDepthSlice(Math.min(farDepth, MasterRenderer.FAR_PLANE));
+        if (nearDepth <= MasterRenderer.NEAR_PLANE)
+        {
+            setRange(range, 0, CLUSTERS_X - 1, 0, CLUSTERS_Y - 1, minZ, maxZ);
+            return true;
+        }
+        float minX = xScale * Math.min((viewPosition.x - radius) / nearDepth, (viewPosition.x - radius) / farDepth);
+        float maxX = xScale * Math.max((viewPosition.x + radius) / nearDepth, (viewPosition.x + radius) / farDepth);
+        float minY = yScale * Math.min((viewPosition.y - radius) / nearDepth, (viewPosition.y - radius) / farDepth);
+        float maxY = yScale * Math.max((viewPosition.y + radius) / nearDepth, (viewPosition.y + radius) / farDepth);
+        if (minX > 1 || maxX < -1 || minY > 1 || maxY < -1)
+        {
+            return false;
+        }
+        setRange(range, getTile(minX, CLUSTERS_X), getTile(maxX, CLUSTERS_X),
+                getTile(minY, CLUSTERS_Y), getTile(maxY, CLUSTERS_Y), minZ, maxZ);
+        return true;
+    }
+
+    /**
+     * Stores a light's position and radius, colour and attenuation in the light data buffer.
+     * @param light light
+     * @param radius light's radius
+     */
+    private void storeLight(Light light, float radius)
+    {
+        Vector3f position = light.getPosition();
+        Vector3f colour = light.getColour();
+        Vector3f attenuation = light.getAttenuation();
+        lightData.put(position.x).put(position.y).put(position.z).put(Float.isInfinite(radius) ? Float.MAX_VALUE : radius);
+        lightData.put(colour.x).put(colour.y).put(colour.z).put(0);
+        lightData.put(attenuation.x).put(attenuation.y).put(attenuation.z).put(0);
+    }
+
+    /**
+     * Stores a range of clusters in the light ranges array.
+     * @param range index in the light ranges array the range is stored at
+     * @param minX first cluster across the screen
+     * @param maxX last cluster across the screen
+     * @param minY first cluster up the screen
+     * @param maxY last cluster up the screen
+     * @param minZ first depth slice
+     * @param maxZ last depth slice
+     */
+    private void setRange(int range, int minX, int maxX, int minY, int maxY, int minZ, int maxZ)
+    {
+        lightRanges[range] = minX;
+        lightRanges[range + 1] = maxX;
+        lightRanges[range + 2] = minY;
+        lightRanges[range + 3] = maxY;
+        lightRanges[range + 4] = minZ;
+        lightRanges[range + 5] = maxZ;
+    }
+
+    /**
+     * Returns the depth slice a view depth is in.
+     * @param depth distance in front of the camera
+     * @return depth slice
+     */
+    private static int getDepthSlice(float depth)
+    {
+        int slice = (int) Math.floor(Math.log(depth) * DEPTH_SCALE - DEPTH_BIAS);
+        return Math.max(0, Math.min(CLUSTERS_Z - 1, slice));
+    }
+
+    /**
+     * Returns the screen tile a normalized device coordinate is in.
+     * @param ndc normalized device coordinate (-1 to 1)
+     * @param tiles number of tiles
+     * @return tile
+     */
+    private static int getTile(float ndc, int tiles)
+    {
+        int tile = (int) Math.floor((ndc * 0.5f + 0.5f) * tiles);
+        return Math.max(0, Math.min(tiles - 1, tile));
+    }
+
+    /**
+     * Creates a buffer object of a certain size.
+     * @param bytes size of buffer in bytes
+     * @return ID of buffer
+     */
+    private static int createBuffer(int bytes)
+    {
+        int buffer = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, buffer);
+        GL15.glBufferData(GL31.GL_TEXTURE_BUFFER, bytes, GL15.GL_STREAM_DRAW);
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, 0);
+        return buffer;
+    }
+
+    /**
+     * Creates a buffer texture reading from a buffer object.
+     * @param buffer ID of buffer
+     * @param format internal format of the texels
+     * @return ID of buffer texture
+     */
+    private static int createBufferTexture(int buffer, int format)
+    {
+        int texture = GL11.glGenTextures();
+        RenderState.bindTexture(GL31.GL_TEXTURE_BUFFER, texture);
+        GL31.glTexBuffer(GL31.GL_TEXTURE_BUFFER, format, buffer);
+        RenderState.bindTexture(GL31.GL_TEXTURE_BUFFER, 0);
+        return texture;
+    }
+
+    /**
+     * Orphans a buffer object and uploads new float data to it.
+     * @param buffer ID of buffer
+     * @param data flipped float buffer holding the data
+     */
+    private static void upload(int buffer, FloatBuffer data)
+    {
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, buffer);
+        GL15.glBufferData(GL31.GL_TEXTURE_BUFFER, data.capacity() * 4, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL31.GL_TEXTURE_BUFFER, 0, data);
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, 0);
+    }
+
+    /**
+     * Orphans a buffer object and uploads new integer data to it.
+     * @param buffer ID of buffer
+     * @param data flipped int buffer holding the data
+     */
+    private static void upload(int buffer, IntBuffer data)
+    {
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, buffer);
+        GL15.glBufferData(GL31.GL_TEXTURE_BUFFER, data.capacity() * 4, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL31.GL_TEXTURE_BUFFER, 0, data);
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, 0);
+    }
+}
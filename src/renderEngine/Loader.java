@@ -76,7 +76,7 @@ public class Loader
         storeDataInAttributeList(2, 3, normals, vaoID);
         unbindVAO();
 
-        return new RawModel(vaoID, indices.length);
+        return new RawModel(vaoID, indices.length, calculateFurthestPoint(positions));
     }
 
     /**
@@ -99,7 +99,7 @@ public class Loader
         storeDataInAttributeList(3, 3, tangents, vaoID);
         unbindVAO();
 
-        return new RawModel(vaoID, indices.length);
+        return new RawModel(vaoID, indices.length, calculateFurthestPoint(positions));
     }
 
     /**
@@ -120,7 +120,6 @@ public class Loader
 
     /**
      * Loads positions into a VAO.
-     * Used by TextMaster for font rendering.
      * @param positions array of vertex positions
      * @param textureCoords array of texture coordinate vartices
      * @return VAO ID
@@ -135,6 +134,37 @@ public class Loader
         return vaoID;
     }
 
+    /**
+     * Creates a VAO whose attributes are interleaved in a single VBO, such as a
+     * streaming VBO made by {@link #createEmptyVbo(int)}.  The VBO is deleted with
+     * the VAO.
+     * Used by FontRenderer for text batches.
+     * @param vbo VBO holding the interleaved vertex data
+     * @param attributeSizes number of floats of each attribute, in attribute order
+     * @return VAO ID
+     */
+    public int loadToInterleavedVAO(int vbo, int... attributeSizes)
+    {
+        int vaoID = createVAO();
+        vaoCache.get(vaoID).add(vbo);
+        int stride = 0;
+        for (int size : attributeSizes)
+        {
+            stride += size;
+        }
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        int offset = 0;
+        for (int i = 0; i < attributeSizes.length; i++)
+        {
+            GL20.glVertexAttribPointer(i, attributeSizes[i], GL11.GL_FLOAT, false, stride * 4, offset * 4);
+            offset += attributeSizes[i];
+        }
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        unbindVAO();
+
+        return vaoID;
+    }
+
     /**
      * Creates a new empty VBO.
      * The VBO will be filled every frame with new info for particles
@@ -163,6 +193,18 @@ public class Loader
         buffer.clear();
         buffer.put(data);
         buffer.flip();
+        updateVbo(vbo, buffer);
+    }
+
+    /**
+     * Updates a VBO with data that has already been stored in a float buffer.
+     * The VBO is orphaned first, so the driver doesn't have to wait for the
+     * previous draw calls using it to finish.
+     * @param vbo VBO to update
+     * @param buffer flipped float buffer holding the data
+     */
+    public void updateVbo(int vbo, FloatBuffer buffer)
+    {
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
         GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer.capacity() * 4, GL15.GL_STREAM_DRAW);
         GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, buffer);
@@ -181,11 +223,11 @@ public class Loader
     public void addInstancedAttribute(int vao, int vbo, int attribute, int dataSize, int instanceDataLength, int offset)
     {
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
-        GL30.glBindVertexArray(vao);
+        RenderState.bindVertexArray(vao);
         GL20.glVertexAttribPointer(attribute, dataSize, GL11.GL_FLOAT, false, instanceDataLength * 4, offset * 4);
         GL33.glVertexAttribDivisor(attribute, 1);
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
-        GL30.glBindVertexArray(0);
+        RenderState.bindVertexArray(0);
     }
 
     /**
@@ -196,7 +238,7 @@ public class Loader
     {
         // There should be no VAO (good)
         int vaoID = GL30.glGenVertexArrays();
-        GL30.glBindVertexArray(vaoID);
+        RenderState.bindVertexArray(vaoID);
         vaos.add(vaoID); // add it to list of VAOs (so that we can delete them later)
         List<Integer> associatedVbos = new ArrayList<>(); // List of VBOs associated to this VAO
         vaoCache.put(vaoID, associatedVbos); // add VBO to VAO
@@ -233,7 +275,7 @@ public class Loader
      */
     private void unbindVAO()
     {
-        GL30.glBindVertexArray(0);
+        RenderState.bindVertexArray(0);
     }
 
     /**
@@ -249,7 +291,7 @@ public class Loader
         {
             GL15.glDeleteBuffers(vboID);
         }
-        GL30.glDeleteVertexArrays(vaoID);
+        RenderState.deleteVertexArray(vaoID);
     }
 
     /**
@@ -264,6 +306,7 @@ public class Loader
         Texture texture = null;
         try {
             texture = TextureLoader.getTexture("PNG", new FileInputStream(TEXTURES_LOC + fileName + ".png"));
+            RenderState.bindTexture(GL11.GL_TEXTURE_2D, texture.getTextureID()); // Slick binds the texture behind RenderState's back
             GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
             GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
             GL11.glTexParameterf(GL11.GL_TEXTURE_2D, GL14.GL_TEXTURE_LOD_BIAS, GameSettings.MIPMAPPING);
@@ -296,6 +339,7 @@ public class Loader
         Texture texture = null;
         try {
             texture = TextureLoader.getTexture("PNG", new FileInputStream(FONT_TEXTURES_LOC + fileName + ".png"));
+            RenderState.bindTexture(GL11.GL_TEXTURE_2D, texture.getTextureID()); // Slick binds the texture behind RenderState's back
             GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
             GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
             GL11.glTexParameterf(GL11.GL_TEXTURE_2D, GL14.GL_TEXTURE_LOD_BIAS, 0);
@@ -309,6 +353,17 @@ public class Loader
         return texture.getTextureID();
     }
 
+    /**
+     * Decodes a texture from the textures directory without loading it to OpenGL.
+     * Used by GuiAtlas, which packs GUI images into one texture.
+     * @param fileName filepath of texture
+     * @return decoded texture data
+     */
+    public TextureData loadTextureData(String fileName)
+    {
+        return decodeTextureFile(TEXTURES_LOC + fileName + ".png");
+    }
+
     /**
      * Loads a cube map to OpenGL.
      * @param textureFiles 6 textures used to make up cube map
@@ -317,8 +372,7 @@ public class Loader
     public int loadCubeMap(String[] textureFiles)
     {
         int texID = GL11.glGenTextures();
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, texID);
+        RenderState.bindTexture(0, GL13.GL_TEXTURE_CUBE_MAP, texID);
 
         for (int i = 0; i < textureFiles.length; i++)
         {
@@ -380,6 +434,23 @@ public class Loader
         return new TextureData(buffer, width, height);
     }
 
+    /**
+     * Calculates the distance of the furthest 3D vertex from the origin.
+     * @param positions array of vertex positions
+     * @return furthest vertex distance
+     */
+    private static float calculateFurthestPoint(float[] positions)
+    {
+        float furthest = 0;
+        for (int i = 0; i + 2 < positions.length; i += 3)
+        {
+            float lengthSquared = positions[i] * positions[i] + positions[i + 1] * positions[i + 1] + positions[i + 2] * positions[i + 2];
+            furthest = Math.max(furthest, lengthSquared);
+        }
+
+        return (float) Math.sqrt(furthest);
+    }
+
     /**
      * Converts an array of floats into a FloatBuffer object.
      * @param data array of floats
@@ -415,7 +486,7 @@ public class Loader
     {
         for (int vaoID : vaos)
         {
-            GL30.glDeleteVertexArrays(vaoID);
+            RenderState.deleteVertexArray(vaoID);
         }
         for (int vboID : vbos)
         {
@@ -423,7 +494,7 @@ public class Loader
         }
         for (int textureID : textures)
         {
-            GL11.glDeleteTextures(textureID);
+            RenderState.deleteTexture(textureID);
         }
     }
 
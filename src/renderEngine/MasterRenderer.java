@@ -6,19 +6,24 @@ import entities.Camera;
 import entities.Entity;
 import entities.Light;
 import entities.Player;
+import impostors.ImpostorRenderer;
 import models.TexturedModel;
 import normalMappingRenderer.NormalMappingRenderer;
+import occlusion.OcclusionCuller;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
 import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
 import org.lwjgl.util.vector.Vector4f;
+import shaders.ShaderProgram;
 import shaders.StaticShader;
 import shaders.TerrainShader;
+import shaders.UniformBuffer;
 import shadows.ShadowMapMasterRenderer;
 import skybox.SkyboxRenderer;
 import terrain.Terrain;
 import toolbox.GameSettings;
+import toolbox.Maths;
 import toolbox.MousePicker;
 
 import java.util.ArrayList;
@@ -48,11 +53,72 @@ public class MasterRenderer
      */
     public static final float FAR_PLANE = 1000;
 
+    /**
+     * Fraction of a level of detail's screen size an entity must move past before
+     * its level of detail changes, so entities near a threshold don't flicker
+     */
+    private static final float LOD_HYSTERESIS = 0.1f;
+
+    /**
+     * Converts the size of an object divided by its distance to the fraction of the
+     * screen's height it covers
+     */
+    private static final float LOD_PROJECTION_SCALE = (float) (1 / Math.tan(Math.toRadians(FOV / 2)));
+
+    /**
+     * Offsets (in floats) of the values in the std140 FrameData uniform block
+     */
+    private static final int FRAME_PROJECTION_MATRIX = 0;
+    private static final int FRAME_TO_SHADOW_MAP_SPACE = 16;
+    private static final int FRAME_CASCADE_ENDS = 80;
+    private static final int FRAME_MAP_SIZES = 84;
+    private static final int FRAME_SKY_COLOUR = 88;
+    private static final int FRAME_DENSITY = 91;
+    private static final int FRAME_GRADIENT = 92;
+    private static final int FRAME_SHADOW_DISTANCE = 93;
+    private static final int FRAME_TRANSITION_DISTANCE = 94;
+    private static final int FRAME_CASCADE_COUNT = 95;
+    private static final int FRAME_DATA_SIZE = 96;
+
+    /**
+     * Offsets (in floats) of the values in the std140 PassData uniform block
+     */
+    private static final int PASS_VIEW_MATRIX = 0;
+    private static final int PASS_PLANE = 16;
+    private static final int PASS_CAMERA_POSITION = 20;
+    private static final int PASS_DATA_SIZE = 24;
+
+    /**
+     * Size of the occlusion culling depth buffer in pixels
+     */
+    private static final int OCCLUSION_BUFFER_WIDTH = 256;
+    private static final int OCCLUSION_BUFFER_HEIGHT = 128;
+
+    /**
+     * Maximum number of shadow cascades in the FrameData uniform block
+     */
+    private static final int MAX_CASCADES = 4;
+
     /**
      * Projection matrix
      */
     private Matrix4f projectionMatrix;
 
+    /**
+     * Uniform buffer holding the values shared by every shader for a whole frame
+     */
+    private UniformBuffer frameData;
+
+    /**
+     * Uniform buffer holding the values shared by every shader for one render pass
+     */
+    private UniformBuffer passData;
+
+    /**
+     * Frame the frame data was last filled in, or -1 if it needs filling again
+     */
+    private long frameDataFrame = -1;
+
     /**
      * Instance of a static shader
      */
@@ -78,27 +144,73 @@ public class MasterRenderer
      */
     private SkyboxRenderer skyboxRenderer;
 
+    /**
+     * Renderer of far away entities drawn as impostors
+     */
+    private ImpostorRenderer impostorRenderer;
+
     /**
      * Shadow map renderer
      */
     private ShadowMapMasterRenderer shadowMapRenderer;
 
+    /**
+     * Lights binned into clusters of the camera's view frustum
+     */
+    private LightClusters lightClusters;
+
     /**
      * Renderer for entities with normal mapping
      */
     private NormalMappingRenderer normalMapRenderer;
 
     /**
-     * Hash map that contains all textured models and respective entities that
-     * need to be rendered for a particular frame
+     * List of entities that need to be rendered for a particular frame
+     */
+    private List<Entity> entities = new ArrayList<>();
+
+    /**
+     * List of entities that use normal mapping
+     */
+    private List<Entity> normalMapEntities = new ArrayList<>();
+
+    /**
+     * Static entities drawn with the static shader, merged into one batch that is
+     * only rebuilt when a static entity changes
+     */
+    private StaticBatch staticBatch = new StaticBatch();
+
+    /**
+     * Culls the entities and terrains hidden behind terrain and large occluders
+     */
+    private OcclusionCuller occlusionCuller = new OcclusionCuller(OCCLUSION_BUFFER_WIDTH, OCCLUSION_BUFFER_HEIGHT,
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
+
+    /**
+     * View frustum (and clipping plane) of the current render pass
+     */
+    private ViewFrustum frustum = new ViewFrustum();
+
+    /**
+     * Entities drawn as impostors in a render pass
      */
-    private Map<TexturedModel, List<Entity>> entities = new HashMap<>();
+    private List<Entity> impostorEntities = new ArrayList<>();
 
     /**
-     * Hash map that contains all textured models and respective entities
-     * that use normal mapping
+     * Entities used as occluders for a particular frame
      */
-    private Map<TexturedModel, List<Entity>> normalMapEntities = new HashMap<>();
+    private List<Entity> occluders = new ArrayList<>();
+
+    /**
+     * Queue of draw commands, sorted by shader, texture, VAO and depth before being drawn
+     */
+    private DrawQueue drawQueue = new DrawQueue();
+
+    /**
+     * Hash map of the entities casting shadows.  Its lists are cleared (rather
+     * than the map itself) after each shadow pass so they are reused every frame
+     */
+    private Map<TexturedModel, List<Entity>> shadowEntities = new HashMap<>();
 
     /**
      * List of terrains to be rendered
@@ -113,11 +225,15 @@ public class MasterRenderer
     {
         enableCulling();
         createProjectionMatrix();
-        renderer = new EntityRenderer(shader, projectionMatrix);
-        terrainRenderer = new TerrainRenderer(terrainShader, projectionMatrix);
-        if (GameSettings.SKYBOX_ENABLED) { skyboxRenderer = new SkyboxRenderer(loader, projectionMatrix); }
-        normalMapRenderer = new NormalMappingRenderer(projectionMatrix);
-        this.shadowMapRenderer = new ShadowMapMasterRenderer(camera);
+        lightClusters = new LightClusters(projectionMatrix);
+        frameData = new UniformBuffer(ShaderProgram.FRAME_DATA_BINDING, FRAME_DATA_SIZE);
+        passData = new UniformBuffer(ShaderProgram.PASS_DATA_BINDING, PASS_DATA_SIZE);
+        renderer = new EntityRenderer(shader);
+        terrainRenderer = new TerrainRenderer(terrainShader);
+        if (GameSettings.SKYBOX_ENABLED) { skyboxRenderer = new SkyboxRenderer(loader); }
+        normalMapRenderer = new NormalMappingRenderer();
+        impostorRenderer = new ImpostorRenderer(loader);
+        this.shadowMapRenderer = new ShadowMapMasterRenderer(loader, camera);
     }
 
     /**
@@ -129,8 +245,9 @@ public class MasterRenderer
      * @param cameraManager camera manager
      * @param picker mouse picker
      * @param clipPlane clipping plane
+     * @param pass render pass (Entity.MAIN_PASS, Entity.REFLECTION_PASS or Entity.REFRACTION_PASS)
      */
-    public void renderScene(Player player, List<Entity> entities, List<Entity> normalMapEntities, List<Terrain> terrains, List<Light> lights, CameraManager cameraManager, MousePicker picker, Vector4f clipPlane)
+    public void renderScene(Player player, List<Entity> entities, List<Entity> normalMapEntities, List<Terrain> terrains, List<Light> lights, CameraManager cameraManager, MousePicker picker, Vector4f clipPlane, int pass)
     {
 //        cameraManager.update(cameraManager); // update current camera selected
 
@@ -164,13 +281,12 @@ public class MasterRenderer
 //                processTerrain(terrain);
 //            }
         }
-        for (Entity entity : entities)
-            processEntity(entity);
+        processEntities(entities, cameraManager.getCurrentCamera(), pass);
 
         for (Entity entity : normalMapEntities)
             processNormalMapEntity(entity);
 
-        render(lights, cameraManager.getCurrentCamera(), clipPlane);
+        render(lights, cameraManager.getCurrentCamera(), clipPlane, pass);
     }
 
     /**
@@ -178,19 +294,19 @@ public class MasterRenderer
      * @param lights list of lights
      * @param camera camera
      * @param clipPlane clipping plane
+     * @param pass render pass (Entity.MAIN_PASS, Entity.REFLECTION_PASS or Entity.REFRACTION_PASS)
      */
-    public void renderScene(List<Entity> entities, List<Entity> normalEntities, List<Terrain> terrains, List<Light> lights, Camera camera, Vector4f clipPlane)
+    public void renderScene(List<Entity> entities, List<Entity> normalEntities, List<Terrain> terrains, List<Light> lights, Camera camera, Vector4f clipPlane, int pass)
     {
         for (Terrain terrain : terrains)
             processTerrain(terrain);
 
-        for (Entity entity : entities)
-            processEntity(entity);
+        processEntities(entities, camera, pass);
 
         for(Entity entity : normalEntities)
             processNormalMapEntity(entity);
 
-        render(lights, camera, clipPlane);
+        render(lights, camera, clipPlane, pass);
     }
 
     /**
@@ -198,38 +314,42 @@ public class MasterRenderer
      * @param lights list of lights
      * @param camera camera
      * @param clipPlane clipping plane
+     * @param pass render pass (Entity.MAIN_PASS, Entity.REFLECTION_PASS or Entity.REFRACTION_PASS)
      */
-    public void render(List<Light> lights, Camera camera, Vector4f clipPlane)
+    public void render(List<Light> lights, Camera camera, Vector4f clipPlane, int pass)
     {
+        if (frameDataFrame != DisplayManager.getFrameCount())
+        {
+            updateFrameData();
+        }
+        Matrix4f viewMatrix = Maths.createViewMatrix(camera);
+        updatePassData(viewMatrix, camera, clipPlane);
+        lightClusters.update(lights, viewMatrix);
         prepare();
 
-        shader.start();
-        shader.loadClipPlane(clipPlane);
-        shader.loadSkyColour(GameSettings.FOG_RED, GameSettings.FOG_GREEN, GameSettings.FOG_BLUE); // color of entities
-        shader.loadLights(lights);
-        shader.loadViewMatrix(camera);
-        shader.loadDensity(GameSettings.FOG_DENSITY);
-        shader.loadGradient(GameSettings.FOG_GRADIENT);
-        shader.loadShadowDistance(GameSettings.SHADOW_DISTANCE);
-        shader.loadTransitionDistance(GameSettings.TRANSITION_DISTANCE);
-        shader.loadMapSize(GameSettings.SHADOW_MAP_SIZE);
-        renderer.render(entities, shadowMapRenderer.getToShadowMapSpaceMatrix());
-        shader.stop();
-
-        normalMapRenderer.render(normalMapEntities, clipPlane, lights, camera);
-
-        terrainShader.start();
-        terrainShader.loadClipPlane(clipPlane);
-        terrainShader.loadSkyColour(GameSettings.FOG_RED, GameSettings.FOG_GREEN, GameSettings.FOG_BLUE); // color of terrain
-        terrainShader.loadLights(lights);
-        terrainShader.loadViewMatrix(camera);
-        terrainShader.loadDensity(GameSettings.FOG_DENSITY);
-        terrainShader.loadGradient(GameSettings.FOG_GRADIENT);
-        terrainShader.loadShadowDistance(GameSettings.SHADOW_DISTANCE);
-        terrainShader.loadTransitionDistance(GameSettings.TRANSITION_DISTANCE);
-        terrainShader.loadMapSize(GameSettings.SHADOW_MAP_SIZE);
-        terrainRenderer.render(terrains, shadowMapRenderer.getToShadowMapSpaceMatrix());
-        terrainShader.stop();
+        frustum.update(Matrix4f.mul(projectionMatrix, viewMatrix, null), clipPlane);
+        boolean occlusionCulling = GameSettings.OCCLUSION_CULLING && pass == Entity.MAIN_PASS;
+        if (occlusionCulling)
+        {
+            rasterizeOccluders(viewMatrix);
+        }
+        staticBatch.update(pass, frustum, occlusionCulling ? occlusionCuller : null,
+                pass == Entity.MAIN_PASS ? camera.getPosition() : null, impostorEntities);
+
+        renderer.begin();
+        renderer.render(staticBatch);
+        renderer.end();
+
+        submitDrawCommands(camera, pass, occlusionCulling);
+        drawQueue.sort();
+        executeDrawCommands();
+        drawQueue.clear();
+
+        if (!lights.isEmpty())
+        {
+            impostorRenderer.render(impostorEntities, lights.get(0)); // lit by the sun
+        }
+        impostorEntities.clear();
 
         if (GameSettings.SKYBOX_ENABLED)
             skyboxRenderer.render(camera, GameSettings.FOG_RED, GameSettings.FOG_GREEN, GameSettings.FOG_BLUE); // color of fog
@@ -237,6 +357,7 @@ public class MasterRenderer
         terrains.clear();
         entities.clear();
         normalMapEntities.clear();
+        occluders.clear();
     }
 
     /**
@@ -248,10 +369,235 @@ public class MasterRenderer
     {
         for (Entity entity : entityList)
         {
-            processEntity(entity);
+            if (!entity.isCastingShadows())
+            {
+                continue;
+            }
+            List<Entity> batch = shadowEntities.get(entity.getModel());
+            if (batch == null)
+            {
+                batch = new ArrayList<>();
+                shadowEntities.put(entity.getModel(), batch);
+            }
+            batch.add(entity);
+        }
+        shadowMapRenderer.render(shadowEntities, sun);
+        for (List<Entity> batch : shadowEntities.values())
+        {
+            batch.clear();
+        }
+        frameDataFrame = -1; // the shadow map matrices have moved
+    }
+
+    /**
+     * Fills the frame data uniform buffer with the projection matrix, shadow
+     * cascades and fog.  Done once a frame, before the first render pass.
+     */
+    private void updateFrameData()
+    {
+        frameData.storeMatrix(FRAME_PROJECTION_MATRIX, projectionMatrix);
+        Matrix4f[] toShadowMapSpace = shadowMapRenderer.getToShadowMapSpaceMatrices();
+        float[] cascadeEnds = shadowMapRenderer.getCascadeEnds();
+        float[] mapSizes = shadowMapRenderer.getCascadeSizes();
+        int cascadeCount = Math.min(toShadowMapSpace.length, MAX_CASCADES);
+        for (int i = 0; i < cascadeCount; i++)
+        {
+            frameData.storeMatrix(FRAME_TO_SHADOW_MAP_SPACE + i * 16, toShadowMapSpace[i]);
+            frameData.storeFloat(FRAME_CASCADE_ENDS + i, cascadeEnds[i]);
+            frameData.storeFloat(FRAME_MAP_SIZES + i, mapSizes[i]);
+        }
+        frameData.storeVector(FRAME_SKY_COLOUR, GameSettings.FOG_RED, GameSettings.FOG_GREEN, GameSettings.FOG_BLUE);
+        frameData.storeFloat(FRAME_DENSITY, GameSettings.FOG_DENSITY);
+        frameData.storeFloat(FRAME_GRADIENT, GameSettings.FOG_GRADIENT);
+        frameData.storeFloat(FRAME_SHADOW_DISTANCE, GameSettings.SHADOW_DISTANCE);
+        frameData.storeFloat(FRAME_TRANSITION_DISTANCE, GameSettings.TRANSITION_DISTANCE);
+        frameData.storeInt(FRAME_CASCADE_COUNT, cascadeCount);
+        frameData.update();
+        frameDataFrame = DisplayManager.getFrameCount();
+    }
+
+    /**
+     * Fills the pass data uniform buffer with the camera and clipping plane of a render pass.
+     * @param viewMatrix view matrix of the camera
+     * @param camera camera
+     * @param clipPlane clipping plane
+     */
+    private void updatePassData(Matrix4f viewMatrix, Camera camera, Vector4f clipPlane)
+    {
+        passData.storeMatrix(PASS_VIEW_MATRIX, viewMatrix);
+        passData.storeVector(PASS_PLANE, clipPlane.x, clipPlane.y, clipPlane.z, clipPlane.w);
+        passData.storeVector(PASS_CAMERA_POSITION, camera.getPosition().x, camera.getPosition().y, camera.getPosition().z);
+        passData.update();
+    }
+
+    /**
+     * Rasterizes the terrains and occluder entities into the occlusion culler.
+     * @param viewMatrix view matrix of the camera
+     */
+    private void rasterizeOccluders(Matrix4f viewMatrix)
+    {
+        occlusionCuller.begin(Matrix4f.mul(projectionMatrix, viewMatrix, null));
+        for (Terrain terrain : terrains)
+        {
+            occlusionCuller.addTerrain(terrain);
+        }
+        for (Entity entity : occluders)
+        {
+            occlusionCuller.addOccluder(entity.getPosition(), entity.getOccluderExtent());
+        }
+        occlusionCuller.rasterize();
+    }
+
+    /**
+     * Submits a draw command for every entity and terrain to the draw queue.
+     * Entities with transparent textures are drawn in the transparent pass, and
+     * entities far enough to be drawn as impostors are added to the impostor list.
+     * Entities and terrains that aren't drawn in the render pass, are outside its
+     * frustum or are entirely on the clipped side of its clipping plane are skipped.
+     * @param camera camera the scene is rendered from
+     * @param pass render pass (one of the pass bits of {@link Entity})
+     * @param occlusionCulling true if entities and terrains hidden by occluders are skipped
+     */
+    private void submitDrawCommands(Camera camera, int pass, boolean occlusionCulling)
+    {
+        Vector3f cameraPosition = camera.getPosition();
+        for (Entity entity : entities)
+        {
+            if (!isVisible(entity, pass, occlusionCulling))
+            {
+                continue;
+            }
+            if (entity.isDrawnAsImpostor())
+            {
+                impostorEntities.add(entity);
+            } else
+            {
+                submitEntity(entity, DrawQueue.SHADER_ENTITY, cameraPosition);
+            }
+        }
+        for (Entity entity : normalMapEntities)
+        {
+            if (isVisible(entity, pass, occlusionCulling))
+            {
+                submitEntity(entity, DrawQueue.SHADER_NORMAL_MAP, cameraPosition);
+            }
+        }
+        for (Terrain terrain : terrains)
+        {
+            float minX = terrain.getX();
+            float minZ = terrain.getZ();
+            float maxX = minX + Terrain.SIZE;
+            float maxZ = minZ + Terrain.SIZE;
+            if (!frustum.isVisible(minX, terrain.getMinHeight(), minZ, maxX, terrain.getMaxHeight(), maxZ)
+                    || occlusionCulling && !occlusionCuller.isVisible(minX, terrain.getMinHeight(), minZ, maxX, terrain.getMaxHeight(), maxZ))
+            {
+                continue;
+            }
+            float dx = terrain.getX() + Terrain.SIZE / 2 - cameraPosition.x;
+            float dz = terrain.getZ() + Terrain.SIZE / 2 - cameraPosition.z;
+            float depth = (float) Math.sqrt(dx * dx + dz * dz) / FAR_PLANE;
+            drawQueue.submit(DrawQueue.PASS_OPAQUE, DrawQueue.SHADER_TERRAIN, terrain.getBlendMap().getTextureID(),
+                    terrain.getModel().getVaoID(), depth, terrain);
+        }
+    }
+
+    /**
+     * Returns true if an entity is drawn in a render pass, and may be visible in it.
+     * @param entity entity
+     * @param pass render pass (one of the pass bits of {@link Entity})
+     * @param occlusionCulling true if entities hidden by occluders are skipped
+     * @return true if the entity should be submitted
+     */
+    private boolean isVisible(Entity entity, int pass, boolean occlusionCulling)
+    {
+        return (entity.getPassMask() & pass) != 0
+                && frustum.isVisible(entity.getPosition(), entity.getBoundingRadius())
+                && (!occlusionCulling || occlusionCuller.isVisible(entity.getPosition(), entity.getBoundingRadius()));
+    }
+
+    /**
+     * Submits a draw command for an entity to the draw queue.
+     * @param entity entity to be drawn
+     * @param shader shader the entity is drawn with
+     * @param cameraPosition position of the camera
+     */
+    private void submitEntity(Entity entity, int shader, Vector3f cameraPosition)
+    {
+        TexturedModel model = entity.getModel();
+        int pass = model.getTexture().isHasTransparency() ? DrawQueue.PASS_TRANSPARENT : DrawQueue.PASS_OPAQUE;
+        Vector3f position = entity.getPosition();
+        float dx = position.x - cameraPosition.x;
+        float dy = position.y - cameraPosition.y;
+        float dz = position.z - cameraPosition.z;
+        float depth = (float) Math.sqrt(dx * dx + dy * dy + dz * dz) / FAR_PLANE;
+        drawQueue.submit(pass, shader, model.getTexture().getTextureID(), model.getRawModel(entity.getLod()).getVaoID(), depth, entity);
+    }
+
+    /**
+     * Draws the sorted commands of the draw queue, switching renderers whenever
+     * the shader of the commands changes.
+     */
+    private void executeDrawCommands()
+    {
+        int currentShader = -1;
+        for (int i = 0; i < drawQueue.size(); i++)
+        {
+            int shader = drawQueue.getShader(i);
+            if (shader != currentShader)
+            {
+                endShader(currentShader);
+                beginShader(shader);
+                currentShader = shader;
+            }
+            Object item = drawQueue.getItem(i);
+            if (shader == DrawQueue.SHADER_ENTITY)
+            {
+                renderer.render((Entity) item);
+            } else if (shader == DrawQueue.SHADER_NORMAL_MAP)
+            {
+                normalMapRenderer.render((Entity) item);
+            } else
+            {
+                terrainRenderer.render((Terrain) item);
+            }
+        }
+        endShader(currentShader);
+    }
+
+    /**
+     * Starts the renderer of a shader.
+     * @param shader shader of draw commands
+     */
+    private void beginShader(int shader)
+    {
+        if (shader == DrawQueue.SHADER_ENTITY)
+        {
+            renderer.begin();
+        } else if (shader == DrawQueue.SHADER_NORMAL_MAP)
+        {
+            normalMapRenderer.begin();
+        } else if (shader == DrawQueue.SHADER_TERRAIN)
+        {
+            terrainRenderer.begin();
+        }
+    }
+
+    /**
+     * Ends the renderer of a shader.
+     * @param shader shader of draw commands (-1 if none)
+     */
+    private void endShader(int shader)
+    {
+        if (shader == DrawQueue.SHADER_ENTITY)
+        {
+            renderer.end();
+        } else if (shader == DrawQueue.SHADER_NORMAL_MAP)
+        {
+            normalMapRenderer.end();
+        } else if (shader == DrawQueue.SHADER_TERRAIN)
+        {
+            terrainRenderer.end();
         }
-        shadowMapRenderer.render(entities, sun);
-        entities.clear();
     }
 
     /**
@@ -264,41 +610,100 @@ public class MasterRenderer
     }
 
     /**
-     * Processes an enityt by putting it into an associated hash map of it's model.
-     * @param entity entity to be processed
+     * Processes the entities drawn with the static shader.  Dynamic entities are added
+     * to the list of entities to be rendered, while static entities are drawn by the
+     * static batch, which is rebuilt if they have changed since it was built.  In the
+     * main pass the level of detail of each dynamic entity is chosen from its size on
+     * screen.  The water passes keep the level chosen by the main camera, since their
+     * cameras would otherwise flip entities near a threshold between levels every pass.
+     * @param entityList list of entities
+     * @param camera camera the scene is rendered from
+     * @param pass render pass
      */
-    private void processEntity(Entity entity)
+    private void processEntities(List<Entity> entityList, Camera camera, int pass)
     {
-        TexturedModel entityModel = entity.getModel();
-        List<Entity> batch = entities.get(entityModel);
-        if (batch != null)
+        boolean mainPass = pass == Entity.MAIN_PASS;
+        int staticEntityCount = 0;
+        int staticEntityHash = 0;
+        for (Entity entity : entityList)
         {
-            batch.add(entity);
-        } else
+            if (entity.getOccluderExtent() > 0)
+            {
+                occluders.add(entity);
+            }
+            if (entity.isDynamic())
+            {
+                if (mainPass)
+                {
+                    selectLod(entity, camera.getPosition());
+                }
+                processEntity(entity);
+            } else
+            {
+                staticEntityCount++;
+                staticEntityHash += StaticBatch.hashEntity(entity);
+            }
+        }
+        if (staticBatch.isOutOfDate(staticEntityCount, staticEntityHash))
         {
-            List<Entity> newBatch = new ArrayList<>();
-            newBatch.add(entity);
-            entities.put(entityModel, newBatch);
+            staticBatch.build(entityList);
         }
     }
 
+    /**
+     * Chooses the level of detail of an entity from the fraction of the screen's height
+     * covered by its bounding sphere.  The entity only moves to another level once
+     * its size is past the level's threshold by {@link #LOD_HYSTERESIS}.  The level
+     * after a model's last mesh is its impostor, if it has one.
+     * @param entity entity
+     * @param cameraPosition position of the camera
+     */
+    static void selectLod(Entity entity, Vector3f cameraPosition)
+    {
+        TexturedModel model = entity.getModel();
+        int lodCount = model.getLodCount() + (model.getImpostor() != null ? 1 : 0);
+        if (lodCount == 1)
+        {
+            return;
+        }
+        Vector3f position = entity.getPosition();
+        float dx = position.x - cameraPosition.x;
+        float dy = position.y - cameraPosition.y;
+        float dz = position.z - cameraPosition.z;
+        float distance = Math.max((float) Math.sqrt(dx * dx + dy * dy + dz * dz), NEAR_PLANE);
+        float screenSize = entity.getBoundingRadius() * LOD_PROJECTION_SCALE / distance;
+        int lod = Math.min(entity.getLod(), lodCount - 1);
+        while (lod < lodCount - 1 && screenSize < model.getLodScreenSize(lod + 1) * (1 - LOD_HYSTERESIS))
+        {
+            lod++;
+        }
+        while (lod > 0 && screenSize > model.getLodScreenSize(lod) * (1 + LOD_HYSTERESIS))
+        {
+            lod--;
+        }
+        entity.setLod(lod);
+    }
+
+    /**
+     * Processes an entity by adding it to the list of entities to be rendered.
+     * @param entity entity to be processed
+     */
+    private void processEntity(Entity entity)
+    {
+        entities.add(entity);
+    }
+
     /**
      * Processes an entity that uses normal mapping.
      * @param entity normal mapped entity to be processed
      */
     private void processNormalMapEntity(Entity entity)
     {
-        TexturedModel entityModel = entity.getModel();
-        List<Entity> batch = normalMapEntities.get(entityModel);
-        if (batch != null)
-        {
-            batch.add(entity);
-        } else
+        if (entity.getOccluderExtent() > 0)
         {
-            List<Entity> newBatch = new ArrayList<>();
-            newBatch.add(entity);
-            normalMapEntities.put(entityModel, newBatch);
+            occluders.add(entity);
         }
+        normalMapEntities.add(entity);
     }
 
     /**
@@ -307,8 +712,7 @@ public class MasterRenderer
      */
     public static void enableCulling()
     {
-        GL11.glEnable(GL11.GL_CULL_FACE);
-        GL11.glCullFace(GL11.GL_BACK);
+        RenderState.setCulling(true); // back faces are culled by default
     }
 
     /**
@@ -316,7 +720,7 @@ public class MasterRenderer
      */
     public static void disableCulling()
     {
-        GL11.glDisable(GL11.GL_CULL_FACE);
+        RenderState.setCulling(false);
     }
 
     /**
@@ -325,11 +729,16 @@ public class MasterRenderer
      */
     private void prepare()
     {
-        GL11.glEnable(GL11.GL_DEPTH_TEST);
+        RenderState.setDepthTest(true);
+        RenderState.polygonMode(GameSettings.WIREFRAME_ENABLED ? GL11.GL_LINE : GL11.GL_FILL);
         GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
         GL11.glClearColor(GameSettings.FOG_RED, GameSettings.FOG_GREEN, GameSettings.FOG_BLUE, 1);
-        GL13.glActiveTexture(GL13.GL_TEXTURE5);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, getShadowMapTexture());
+        int[] shadowMaps = getShadowMapTextures();
+        for (int i = 0; i < shadowMaps.length; i++)
+        {
+            RenderState.bindTexture(5 + i, GL11.GL_TEXTURE_2D, shadowMaps[i]);
+        }
+        lightClusters.bind();
     }
 
     /**
@@ -341,7 +750,13 @@ public class MasterRenderer
         shader.cleanUp();
         terrainShader.cleanUp();
         normalMapRenderer.cleanUp();
+        impostorRenderer.cleanUp();
+        staticBatch.cleanUp();
+        occlusionCuller.cleanUp();
         shadowMapRenderer.cleanUp();
+        lightClusters.cleanUp();
+        frameData.cleanUp();
+        passData.cleanUp();
     }
 
     /**
@@ -391,11 +806,20 @@ public class MasterRenderer
     }
 
     /**
-     * Returns the ID of shadow map texture.
-     * @return ID of shadow map texture
+     * Returns the occlusion culler, which holds the occlusion culling statistics.
+     * @return occlusion culler
+     */
+    public OcclusionCuller getOcclusionCuller()
+    {
+        return occlusionCuller;
+    }
+
+    /**
+     * Returns the IDs of the shadow map textures of each shadow cascade.
+     * @return IDs of shadow map textures
      */
-    public int getShadowMapTexture()
+    public int[] getShadowMapTextures()
     {
-        return shadowMapRenderer.getShadowMap();
+        return shadowMapRenderer.getShadowMaps();
     }
 }
\ No newline at end of file
@@ -0,0 +1,354 @@
+package renderEngine;
+
+import org.lwjgl.opengl.Display;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+import postProcessing.FboPool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Schedules the passes of a frame.  Passes are added in the order they render, and
+ * every frame the graph:
+ * <ol>
+ * <li>lets each pass declare the resources it reads and writes,</li>
+ * <li>culls the passes whose outputs aren't read by any pass that reaches the screen,</li>
+ * <li>works out the first and last pass that uses each transient resource, so its FBO
+ * is only held from the pool in between, and resources nobody reads are never created,</li>
+ * <li>executes the remaining passes, only binding a target when it differs from the
+ * bound one and only toggling the clip plane when it changes.</li>
+ * </ol>
+ *
+ * @author Aaron Frazer
+ */
+public class RenderGraph
+{
+    /**
+     * Passes in the order they render
+     */
+    private final List<RenderPass> passes = new ArrayList<>();
+
+    /**
+     * Resources used by the passes
+     */
+    private final List<RenderResource> resources = new ArrayList<>();
+
+    /**
+     * The screen (the default framebuffer), which every frame ends up on
+     */
+    private final RenderResource screen;
+
+    /**
+     * Target that is bound, or null if a pass has bound its own framebuffer
+     */
+    private RenderResource boundTarget;
+
+    /**
+     * Number of passes executed, culled and disabled, and of framebuffer binds made and
+     * skipped, in the current frame and in the last frame
+     */
+    private int executedPasses, culledPasses, disabledPasses, targetBinds, skippedBinds;
+    private int lastExecutedPasses, lastCulledPasses, lastDisabledPasses, lastTargetBinds, lastSkippedBinds;
+
+    /**
+     * Creates an empty render graph.
+     */
+    public RenderGraph()
+    {
+        screen = createExternal("screen");
+    }
+
+    /**
+     * Creates a resource that the graph acquires from the FBO pool while it is used.
+     * @param name name of resource
+     * @param format format of the FBO (FboPool.COLOUR, FboPool.MULTISAMPLE or FboPool.FLOATING_POINT)
+     * @param depthBufferType type of depth buffer attachment (Fbo.NONE, Fbo.DEPTH_TEXTURE or Fbo.DEPTH_RENDER_BUFFER)
+     * @return resource
+     */
+    public RenderResource createTransient(String name, int format, int depthBufferType)
+    {
+        RenderResource resource = new RenderResource(name, true, format, depthBufferType);
+        resources.add(resource);
+        return resource;
+    }
+
+    /**
+     * Creates a resource that is owned outside of the graph.
+     * @param name name of resource
+     * @return resource
+     */
+    public RenderResource createExternal(String name)
+    {
+        RenderResource resource = new RenderResource(name, false, 0, 0);
+        resources.add(resource);
+        return resource;
+    }
+
+    /**
+     * Returns the screen resource.
+     * @return screen
+     */
+    public RenderResource getScreen()
+    {
+        return screen;
+    }
+
+    /**
+     * Adds a pass after the passes that have already been added.
+     * @param pass render pass
+     */
+    public void addPass(RenderPass pass)
+    {
+        passes.add(pass);
+    }
+
+    /**
+     * Schedules and executes the passes of a frame.
+     */
+    public void execute()
+    {
+        declarePasses();
+        cullPasses();
+        computeLifetimes();
+
+        boundTarget = null;
+        for (int i = 0; i < passes.size(); i++)
+        {
+            RenderPass pass = passes.get(i);
+            if (!pass.live)
+            {
+                continue;
+            }
+            acquireResources(i);
+            bindTarget(pass.getTarget());
+            RenderState.setClipDistance(pass.usesClipPlane());
+            pass.execute();
+            if (pass.getTarget() == null)
+            {
+                boundTarget = null;
+            }
+            releaseResources(i);
+            executedPasses++;
+        }
+        RenderState.setClipDistance(false);
+        endFrame();
+    }
+
+    /**
+     * Lets every pass declare its resources for this frame.
+     */
+    private void declarePasses()
+    {
+        for (int i = 0; i < resources.size(); i++)
+        {
+            RenderResource resource = resources.get(i);
+            resource.needed = false;
+            resource.firstUse = -1;
+            resource.lastUse = -1;
+            resource.fbo = null;
+        }
+        for (int i = 0; i < passes.size(); i++)
+        {
+            passes.get(i).declare();
+        }
+    }
+
+    /**
+     * Walks the passes backwards from the screen, keeping a pass only if a later kept
+     * pass reads something it writes.
+     */
+    private void cullPasses()
+    {
+        screen.needed = true;
+        for (int i = passes.size() - 1; i >= 0; i--)
+        {
+            RenderPass pass = passes.get(i);
+            pass.live = false;
+            if (!pass.enabled)
+            {
+                disabledPasses++;
+                continue;
+            }
+            for (int j = 0; j < pass.writes.size(); j++)
+            {
+                if (pass.writes.get(j).needed)
+                {
+                    pass.live = true;
+                    break;
+                }
+            }
+            if (!pass.live)
+            {
+                culledPasses++;
+                continue;
+            }
+            for (int j = 0; j < pass.reads.size(); j++)
+            {
+                pass.reads.get(j).needed = true;
+            }
+        }
+    }
+
+    /**
+     * Finds the first and last executed pass that uses each needed transient resource.
+     */
+    private void computeLifetimes()
+    {
+        for (int i = 0; i < passes.size(); i++)
+        {
+            RenderPass pass = passes.get(i);
+            if (pass.live)
+            {
+                markUses(pass.reads, i);
+                markUses(pass.writes, i);
+            }
+        }
+    }
+
+    /**
+     * Extends the lifetimes of resources to a pass.
+     * @param used resources used by the pass
+     * @param passIndex index of the pass
+     */
+    private void markUses(List<RenderResource> used, int passIndex)
+    {
+        for (int i = 0; i < used.size(); i++)
+        {
+            RenderResource resource = used.get(i);
+            if (resource.transientResource && resource.needed)
+            {
+                if (resource.firstUse < 0)
+                {
+                    resource.firstUse = passIndex;
+                }
+                resource.lastUse = passIndex;
+            }
+        }
+    }
+
+    /**
+     * Acquires the FBOs of the transient resources first used by a pass.
+     * @param passIndex index of the pass
+     */
+    private void acquireResources(int passIndex)
+    {
+        for (int i = 0; i < resources.size(); i++)
+        {
+            RenderResource resource = resources.get(i);
+            if (resource.firstUse == passIndex)
+            {
+                resource.fbo = FboPool.acquire(Display.getWidth(), Display.getHeight(), resource.format,
+                        resource.depthBufferType);
+            }
+        }
+    }
+
+    /**
+     * Releases the FBOs of the transient resources last used by a pass.
+     * @param passIndex index of the pass
+     */
+    private void releaseResources(int passIndex)
+    {
+        for (int i = 0; i < resources.size(); i++)
+        {
+            RenderResource resource = resources.get(i);
+            if (resource.lastUse == passIndex)
+            {
+                FboPool.release(resource.fbo);
+                resource.fbo = null;
+            }
+        }
+    }
+
+    /**
+     * Binds the target of a pass, unless it is already bound.
+     * @param target target, or null if the pass binds its own
+     */
+    private void bindTarget(RenderResource target)
+    {
+        if (target == null)
+        {
+            return;
+        }
+        if (target == boundTarget)
+        {
+            skippedBinds++;
+            return;
+        }
+        if (target == screen)
+        {
+            GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+            GL11.glViewport(0, 0, Display.getWidth(), Display.getHeight());
+        } else
+        {
+            target.fbo.bindFrameBuffer();
+        }
+        boundTarget = target;
+        targetBinds++;
+    }
+
+    /**
+     * Ends the statistics of a frame.
+     */
+    private void endFrame()
+    {
+        lastExecutedPasses = executedPasses;
+        lastCulledPasses = culledPasses;
+        lastDisabledPasses = disabledPasses;
+        lastTargetBinds = targetBinds;
+        lastSkippedBinds = skippedBinds;
+        executedPasses = 0;
+        culledPasses = 0;
+        disabledPasses = 0;
+        targetBinds = 0;
+        skippedBinds = 0;
+    }
+
+    /**
+     * Returns the number of passes executed in the last frame.
+     * @return number of passes
+     */
+    public int getExecutedPasses()
+    {
+        return lastExecutedPasses;
+    }
+
+    /**
+     * Returns the number of enabled passes that were culled in the last frame because
+     * nothing read their outputs.
+     * @return number of passes
+     */
+    public int getCulledPasses()
+    {
+        return lastCulledPasses;
+    }
+
+    /**
+     * Returns the number of passes that were disabled in the last frame.
+     * @return number of passes
+     */
+    public int getDisabledPasses()
+    {
+        return lastDisabledPasses;
+    }
+
+    /**
+     * Returns the number of targets bound in the last frame.
+     * @return number of binds
+     */
+    public int getTargetBinds()
+    {
+        return lastTargetBinds;
+    }
+
+    /**
+     * Returns the number of target binds skipped in the last frame because the target
+     * was already bound.
+     * @return number of binds skipped
+     */
+    public int getSkippedBinds()
+    {
+        return lastSkippedBinds;
+    }
+}
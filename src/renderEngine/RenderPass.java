@@ -0,0 +1,145 @@
+package renderEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pass of the render graph.  Every frame a pass declares the resources it reads
+ * and writes in setup(), and the graph only executes it if something that ends up
+ * on the screen depends on what it writes.
+ *
+ * A pass can have a target, which the graph binds before the pass is executed, so
+ * consecutive passes with the same target don't switch framebuffers.  Passes without
+ * a target bind their own framebuffers.  A pass that binds another framebuffer while
+ * it executes must bind its target again before it returns.
+ *
+ * @author Aaron Frazer
+ */
+public abstract class RenderPass
+{
+    /**
+     * Name of the pass
+     */
+    private final String name;
+
+    /**
+     * Resource the graph binds before the pass, or null if the pass binds its own
+     */
+    private final RenderResource target;
+
+    /**
+     * Does the pass clip against the clip plane?
+     */
+    private final boolean clipPlane;
+
+    /**
+     * Resources the pass reads and writes this frame
+     */
+    final List<RenderResource> reads = new ArrayList<>();
+    final List<RenderResource> writes = new ArrayList<>();
+
+    /**
+     * Is the pass enabled this frame, and is it executed?
+     */
+    boolean enabled;
+    boolean live;
+
+    /**
+     * Creates a render pass.
+     * @param name name of pass
+     * @param target resource the graph binds before the pass, or null if the pass binds its own
+     * @param clipPlane does the pass clip against the clip plane?
+     */
+    protected RenderPass(String name, RenderResource target, boolean clipPlane)
+    {
+        this.name = name;
+        this.target = target;
+        this.clipPlane = clipPlane;
+    }
+
+    /**
+     * Returns whether the pass runs this frame.  A disabled pass doesn't declare any
+     * resources, so passes that only feed it are culled as well.
+     * @return true if the pass is enabled
+     */
+    protected boolean isEnabled()
+    {
+        return true;
+    }
+
+    /**
+     * Declares the resources the pass reads and writes this frame, with read() and
+     * write().  The target doesn't have to be declared.
+     */
+    protected void setup()
+    {
+    }
+
+    /**
+     * Renders the pass.
+     */
+    protected abstract void execute();
+
+    /**
+     * Declares that the pass reads a resource this frame.
+     * @param resource resource
+     */
+    protected void read(RenderResource resource)
+    {
+        reads.add(resource);
+    }
+
+    /**
+     * Declares that the pass writes a resource this frame.
+     * @param resource resource
+     */
+    protected void write(RenderResource resource)
+    {
+        writes.add(resource);
+    }
+
+    /**
+     * Declares the resources of the pass for a new frame.
+     */
+    void declare()
+    {
+        reads.clear();
+        writes.clear();
+        enabled = isEnabled();
+        if (enabled)
+        {
+            if (target != null)
+            {
+                writes.add(target);
+            }
+            setup();
+        }
+    }
+
+    /**
+     * Returns the name of the pass.
+     * @return name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the resource the graph binds before the pass.
+     * @return target, or null if the pass binds its own
+     */
+    RenderResource getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * Returns whether the pass clips against the clip plane.
+     * @return true if the clip plane is enabled for the pass
+     */
+    boolean usesClipPlane()
+    {
+        return clipPlane;
+    }
+}
@@ -0,0 +1,81 @@
+package renderEngine;
+
+import postProcessing.Fbo;
+
+/**
+ * A render target that passes of the render graph read or write.  Transient
+ * resources are created by the graph: they are acquired from the FBO pool, at the
+ * size of the display, just before the first pass that uses them and released after
+ * the last one.  External resources (the screen, the shadow map, the water textures)
+ * are owned elsewhere and only tell the graph which passes depend on each other.
+ *
+ * @author Aaron Frazer
+ */
+public class RenderResource
+{
+    /**
+     * Name of the resource
+     */
+    private final String name;
+
+    /**
+     * Is the resource created by the graph?
+     */
+    final boolean transientResource;
+
+    /**
+     * Format and depth buffer type of a transient resource's FBO
+     */
+    final int format;
+    final int depthBufferType;
+
+    /**
+     * Does a pass that runs this frame read the resource?
+     */
+    boolean needed;
+
+    /**
+     * Index of the first and last pass that use the resource this frame
+     */
+    int firstUse;
+    int lastUse;
+
+    /**
+     * FBO of a transient resource this frame
+     */
+    Fbo fbo;
+
+    /**
+     * Creates a render resource.
+     * @param name name of resource
+     * @param transientResource is the resource created by the graph?
+     * @param format format of the FBO (FboPool.COLOUR, FboPool.MULTISAMPLE or FboPool.FLOATING_POINT)
+     * @param depthBufferType type of depth buffer attachment of the FBO
+     */
+    RenderResource(String name, boolean transientResource, int format, int depthBufferType)
+    {
+        this.name = name;
+        this.transientResource = transientResource;
+        this.format = format;
+        this.depthBufferType = depthBufferType;
+    }
+
+    /**
+     * Returns the name of the resource.
+     * @return name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the FBO of a transient resource.  Only valid while the passes that use
+     * the resource are executed.
+     * @return FBO, or null if no pass reads the resource this frame
+     */
+    public Fbo getFbo()
+    {
+        return fbo;
+    }
+}
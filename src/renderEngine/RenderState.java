@@ -0,0 +1,411 @@
+package renderEngine;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of the OpenGL state set by the renderers (shader program, VAO, enabled
+ * vertex attributes, texture bindings, blending, depth testing, culling, the clip
+ * plane and polygon mode) and only calls OpenGL when the state actually changes.  Every change of this
+ * state must go through this class, otherwise the tracked state no longer matches
+ * OpenGL's.
+ *
+ * @author Aaron Frazer
+ */
+public class RenderState
+{
+    /**
+     * Value of tracked state that is not known yet, so the next call always reaches OpenGL
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Shader program in use
+     */
+    private static int program = UNKNOWN;
+
+    /**
+     * Bound vertex array object
+     */
+    private static int vertexArray = UNKNOWN;
+
+    /**
+     * Bit mask of the enabled vertex attributes of each VAO, indexed by VAO ID.
+     * Enabled attributes are part of the VAO, so they stay enabled while other VAOs are bound
+     */
+    private static int[] enabledAttributes = new int[256];
+
+    /**
+     * Active texture unit
+     */
+    private static int activeUnit = UNKNOWN;
+
+    /**
+     * Target and texture bound to each texture unit
+     */
+    private static int[] boundTargets = new int[32];
+    private static int[] boundTextures = new int[32];
+
+    /**
+     * Capabilities that are enabled (1), disabled (0) or unknown
+     */
+    private static int blending = UNKNOWN;
+    private static int depthTest = UNKNOWN;
+    private static int depthMask = UNKNOWN;
+    private static int culling = UNKNOWN;
+    private static int clipDistance = UNKNOWN;
+
+    /**
+     * Blend factors (source RGB, destination RGB, source alpha, destination alpha)
+     */
+    private static int[] blendFactors = {UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN};
+
+    /**
+     * Polygon mode of front and back faces
+     */
+    private static int polygonMode = UNKNOWN;
+
+    /**
+     * Number of state changes sent to OpenGL, and number of calls skipped because
+     * the state was already set, in the current frame and in the last frame
+     */
+    private static int stateChanges = 0;
+    private static int redundantCalls = 0;
+    private static int lastFrameStateChanges = 0;
+    private static int lastFrameRedundantCalls = 0;
+
+    static
+    {
+        Arrays.fill(boundTargets, UNKNOWN);
+        Arrays.fill(boundTextures, UNKNOWN);
+    }
+
+    /**
+     * Starts using a shader program.
+     * @param programID ID of program (0 to stop using programs)
+     */
+    public static void useProgram(int programID)
+    {
+        if (hasChanged(program, programID))
+        {
+            program = programID;
+            GL20.glUseProgram(programID);
+        }
+    }
+
+    /**
+     * Binds a vertex array object.
+     * @param vaoID ID of VAO (0 to unbind)
+     */
+    public static void bindVertexArray(int vaoID)
+    {
+        if (hasChanged(vertexArray, vaoID))
+        {
+            vertexArray = vaoID;
+            GL30.glBindVertexArray(vaoID);
+        }
+    }
+
+    /**
+     * Deletes a vertex array object and forgets its enabled attributes, so a VAO
+     * created later with the same ID starts with none enabled.
+     * @param vaoID ID of VAO
+     */
+    public static void deleteVertexArray(int vaoID)
+    {
+        if (vertexArray == vaoID)
+        {
+            vertexArray = 0; // deleting a bound VAO binds 0
+        }
+        if (vaoID < enabledAttributes.length)
+        {
+            enabledAttributes[vaoID] = 0;
+        }
+        GL30.glDeleteVertexArrays(vaoID);
+    }
+
+    /**
+     * Enables a vertex attribute of the bound VAO.
+     * @param attribute number of attribute list
+     */
+    public static void enableVertexAttribArray(int attribute)
+    {
+        int mask = getEnabledAttributes();
+        if (hasChanged(mask & (1 << attribute), 1 << attribute))
+        {
+            enabledAttributes[vertexArray] = mask | (1 << attribute);
+            GL20.glEnableVertexAttribArray(attribute);
+        }
+    }
+
+    /**
+     * Disables a vertex attribute of the bound VAO.
+     * @param attribute number of attribute list
+     */
+    public static void disableVertexAttribArray(int attribute)
+    {
+        int mask = getEnabledAttributes();
+        if (hasChanged(mask & (1 << attribute), 0))
+        {
+            enabledAttributes[vertexArray] = mask & ~(1 << attribute);
+            GL20.glDisableVertexAttribArray(attribute);
+        }
+    }
+
+    /**
+     * Binds a texture to a texture unit.
+     * @param unit number of texture unit (0 for GL_TEXTURE0)
+     * @param target texture target (GL_TEXTURE_2D, GL_TEXTURE_CUBE_MAP...)
+     * @param textureID ID of texture
+     */
+    public static void bindTexture(int unit, int target, int textureID)
+    {
+        if (unit >= boundTextures.length)
+        {
+            int oldLength = boundTextures.length;
+            boundTargets = Arrays.copyOf(boundTargets, unit + 1);
+            boundTextures = Arrays.copyOf(boundTextures, unit + 1);
+            Arrays.fill(boundTargets, oldLength, unit + 1, UNKNOWN);
+            Arrays.fill(boundTextures, oldLength, unit + 1, UNKNOWN);
+        }
+        if (boundTargets[unit] == target && boundTextures[unit] == textureID)
+        {
+            redundantCalls++;
+            return;
+        }
+        activeTexture(unit);
+        boundTargets[unit] = target;
+        boundTextures[unit] = textureID;
+        stateChanges++;
+        GL11.glBindTexture(target, textureID);
+    }
+
+    /**
+     * Binds a texture to the active texture unit.  Used when creating textures,
+     * where the unit doesn't matter.
+     * @param target texture target (GL_TEXTURE_2D, GL_TEXTURE_CUBE_MAP...)
+     * @param textureID ID of texture
+     */
+    public static void bindTexture(int target, int textureID)
+    {
+        bindTexture(activeUnit == UNKNOWN ? 0 : activeUnit, target, textureID);
+    }
+
+    /**
+     * Deletes a texture and forgets the units it was bound to, so a texture
+     * created later with the same ID is bound again.
+     * @param textureID ID of texture
+     */
+    public static void deleteTexture(int textureID)
+    {
+        for (int i = 0; i < boundTextures.length; i++)
+        {
+            if (boundTextures[i] == textureID)
+            {
+                boundTextures[i] = 0; // deleting a bound texture binds 0
+            }
+        }
+        GL11.glDeleteTextures(textureID);
+    }
+
+    /**
+     * Enables or disables blending.
+     * @param enabled true to enable blending
+     */
+    public static void setBlending(boolean enabled)
+    {
+        blending = setCapability(GL11.GL_BLEND, blending, enabled);
+    }
+
+    /**
+     * Sets the blend function of colour and alpha.
+     * @param source source factor
+     * @param destination destination factor
+     */
+    public static void blendFunc(int source, int destination)
+    {
+        blendFuncSeparate(source, destination, source, destination);
+    }
+
+    /**
+     * Sets separate blend functions for colour and alpha.
+     * @param sourceRGB source factor of colour
+     * @param destinationRGB destination factor of colour
+     * @param sourceAlpha source factor of alpha
+     * @param destinationAlpha destination factor of alpha
+     */
+    public static void blendFuncSeparate(int sourceRGB, int destinationRGB, int sourceAlpha, int destinationAlpha)
+    {
+        if (blendFactors[0] == sourceRGB && blendFactors[1] == destinationRGB
+                && blendFactors[2] == sourceAlpha && blendFactors[3] == destinationAlpha)
+        {
+            redundantCalls++;
+            return;
+        }
+        blendFactors[0] = sourceRGB;
+        blendFactors[1] = destinationRGB;
+        blendFactors[2] = sourceAlpha;
+        blendFactors[3] = destinationAlpha;
+        stateChanges++;
+        GL14.glBlendFuncSeparate(sourceRGB, destinationRGB, sourceAlpha, destinationAlpha);
+    }
+
+    /**
+     * Enables or disables depth testing.
+     * @param enabled true to enable depth testing
+     */
+    public static void setDepthTest(boolean enabled)
+    {
+        depthTest = setCapability(GL11.GL_DEPTH_TEST, depthTest, enabled);
+    }
+
+    /**
+     * Enables or disables writing to the depth buffer.
+     * @param enabled true to write depth
+     */
+    public static void setDepthMask(boolean enabled)
+    {
+        int value = enabled ? 1 : 0;
+        if (hasChanged(depthMask, value))
+        {
+            depthMask = value;
+            GL11.glDepthMask(enabled);
+        }
+    }
+
+    /**
+     * Enables or disables back face culling.
+     * @param enabled true to cull back faces
+     */
+    public static void setCulling(boolean enabled)
+    {
+        culling = setCapability(GL11.GL_CULL_FACE, culling, enabled);
+    }
+
+    /**
+     * Enables or disables the clip plane (clip distance 0).
+     * @param enabled true to clip against the plane
+     */
+    public static void setClipDistance(boolean enabled)
+    {
+        clipDistance = setCapability(GL30.GL_CLIP_DISTANCE0, clipDistance, enabled);
+    }
+
+    /**
+     * Sets how the front and back faces of polygons are rasterized.
+     * @param mode polygon mode (GL_FILL, GL_LINE or GL_POINT)
+     */
+    public static void polygonMode(int mode)
+    {
+        if (hasChanged(polygonMode, mode))
+        {
+            polygonMode = mode;
+            GL11.glPolygonMode(GL11.GL_FRONT_AND_BACK, mode);
+        }
+    }
+
+    /**
+     * Ends the statistics of a frame.  Called once a frame by the display manager.
+     */
+    public static void endFrame()
+    {
+        lastFrameStateChanges = stateChanges;
+        lastFrameRedundantCalls = redundantCalls;
+        stateChanges = 0;
+        redundantCalls = 0;
+    }
+
+    /**
+     * Returns the number of state changes sent to OpenGL in the last frame.
+     * @return number of state changes
+     */
+    public static int getStateChanges()
+    {
+        return lastFrameStateChanges;
+    }
+
+    /**
+     * Returns the number of calls that were skipped in the last frame because
+     * the state was already set.
+     * @return number of redundant calls avoided
+     */
+    public static int getRedundantCalls()
+    {
+        return lastFrameRedundantCalls;
+    }
+
+    /**
+     * Makes a texture unit active.
+     * @param unit number of texture unit
+     */
+    private static void activeTexture(int unit)
+    {
+        if (activeUnit != unit)
+        {
+            activeUnit = unit;
+            GL13.glActiveTexture(GL13.GL_TEXTURE0 + unit);
+        }
+    }
+
+    /**
+     * Enables or disables a capability if it isn't set already.
+     * @param capability OpenGL capability
+     * @param current tracked value of the capability
+     * @param enabled true to enable the capability
+     * @return new tracked value of the capability
+     */
+    private static int setCapability(int capability, int current, boolean enabled)
+    {
+        int value = enabled ? 1 : 0;
+        if (hasChanged(current, value))
+        {
+            if (enabled)
+            {
+                GL11.glEnable(capability);
+            } else
+            {
+                GL11.glDisable(capability);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the enabled attribute mask of the bound VAO.
+     * @return bit mask of enabled attributes
+     */
+    private static int getEnabledAttributes()
+    {
+        if (vertexArray == UNKNOWN)
+        {
+            bindVertexArray(0); // attributes can only be tracked once the bound VAO is known
+        }
+        if (vertexArray >= enabledAttributes.length)
+        {
+            enabledAttributes = Arrays.copyOf(enabledAttributes, Math.max(vertexArray + 1, enabledAttributes.length * 2));
+        }
+        return enabledAttributes[vertexArray];
+    }
+
+    /**
+     * Compares tracked state with the state being set and counts the call.
+     * @param current tracked value
+     * @param value value being set
+     * @return true if OpenGL needs to be called
+     */
+    private static boolean hasChanged(int current, int value)
+    {
+        if (current == value)
+        {
+            redundantCalls++;
+            return false;
+        }
+        stateChanges++;
+        return true;
+    }
+}
@@ -0,0 +1,707 @@
+package renderEngine;
+
+import entities.Entity;
+import models.RawModel;
+import models.TexturedModel;
+import occlusion.OcclusionCuller;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.ARBMultiDrawIndirect;
+import org.lwjgl.opengl.ContextCapabilities;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GL40;
+import org.lwjgl.opengl.GL43;
+import org.lwjgl.opengl.GLContext;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+import textures.ModelTexture;
+import toolbox.Maths;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of the static entities drawn with the static shader.  The meshes of all
+ * of their models are copied into one VAO (one big vertex buffer per attribute and
+ * one big index buffer), the transformation matrix and texture atlas offset of every
+ * entity are stored in a per instance buffer, and one indirect draw command is made
+ * for every level of detail of every model.  The batch is only built again when a
+ * static entity changes, so drawing static scenery costs a few draw calls per texture
+ * whatever the number of entities is.
+ *
+ * Commands are grouped by texture, and each group is drawn with a single
+ * glMultiDrawElementsIndirect call when OpenGL 4.3 (or ARB_multi_draw_indirect) and
+ * base instances (OpenGL 4.2 or ARB_base_instance) are available.  Otherwise each
+ * command is drawn with an instanced draw call, moving the per instance attributes
+ * to the command's first instance.
+ *
+ * Before each render pass the batch is updated: entities hidden by occluders are
+ * dropped, the level of detail of every other entity is chosen, and the instances are
+ * written grouped by level of detail, so each command draws the entities using its
+ * level.  The buffers are only uploaded again when this selection changes.
+ *
+ * @author Aaron Frazer
+ */
+public class StaticBatch
+{
+    /**
+     * Attributes of the per instance data: transformation matrix (4 attributes, one per
+     * column) and texture atlas offset
+     */
+    public static final int MATRIX_ATTRIBUTE = 4;
+    public static final int OFFSET_ATTRIBUTE = 8;
+
+    /**
+     * Number of floats of per instance data
+     */
+    private static final int INSTANCE_DATA_LENGTH = 18;
+
+    /**
+     * Number of ints in an indirect draw command (count, instance count, first index,
+     * base vertex, base instance)
+     */
+    private static final int COMMAND_LENGTH = 5;
+
+    /**
+     * Sizes (in floats) of the vertex attributes copied from the models
+     */
+    private static final int[] VERTEX_ATTRIBUTE_SIZES = {3, 2, 3};
+
+    /**
+     * ID of the batch's VAO, or 0 if the batch is empty
+     */
+    private int vaoID = 0;
+
+    /**
+     * IDs of the vertex buffers (one per attribute), index buffer, instance buffer
+     * and indirect command buffer
+     */
+    private int[] vertexVbos = new int[VERTEX_ATTRIBUTE_SIZES.length];
+    private int indexVbo;
+    private int instanceVbo;
+    private int commandBuffer;
+
+    /**
+     * Texture of each group of commands
+     */
+    private List<ModelTexture> groupTextures = new ArrayList<>();
+
+    /**
+     * First command and number of commands of each group
+     */
+    private int[] groupFirstCommands = new int[0];
+    private int[] groupCommandCounts = new int[0];
+
+    /**
+     * Copy of the indirect draw commands, used by the fallback path and to update the batch
+     */
+    private int[] commands = new int[0];
+
+    /**
+     * First instance, number of instances, first command and number of levels of
+     * detail of each model of the batch
+     */
+    private int[] modelFirstInstances = new int[0];
+    private int[] modelInstanceCounts = new int[0];
+    private int[] modelFirstCommands = new int[0];
+    private int[] modelLodCounts = new int[0];
+
+    /**
+     * Entity of every instance
+     */
+    private Entity[] instanceEntities = new Entity[0];
+
+    /**
+     * Per instance data of every entity
+     */
+    private float[] instances = new float[0];
+
+    /**
+     * Bounding sphere (centre and radius) of every entity
+     */
+    private float[] instanceBounds = new float[0];
+
+    /**
+     * Level of detail every instance was drawn with by the last update (-1 if it was
+     * culled), and the number of instances of each level of a model
+     */
+    private int[] selection = new int[0];
+    private int[] lodCounts = new int[0];
+
+    /**
+     * True if the buffers need uploading again, even if the selection is unchanged
+     */
+    private boolean uploadNeeded = true;
+
+    /**
+     * Buffers the drawn instances and the commands are gathered in when updating the batch
+     */
+    private FloatBuffer instanceData;
+    private IntBuffer commandData;
+
+    /**
+     * Number of entities in the batch
+     */
+    private int entityCount = 0;
+
+    /**
+     * Static change count of the entities when the batch was built
+     */
+    private int changeCount = -1;
+
+    /**
+     * Hash of the set of entities in the batch, which doesn't depend on their order
+     */
+    private int entityHash = 0;
+
+    /**
+     * Buffer used to read matrices
+     */
+    private static FloatBuffer matrixBuffer = BufferUtils.createFloatBuffer(16);
+
+    /**
+     * True if draws use glMultiDrawElementsIndirect, false if they use the fallback path
+     */
+    private boolean multiDrawIndirect;
+
+    /**
+     * True if multi draw indirect is only available through the ARB extension
+     */
+    private boolean arbMultiDrawIndirect;
+
+    /**
+     * Creates an empty static batch.
+     */
+    public StaticBatch()
+    {
+        ContextCapabilities capabilities = GLContext.getCapabilities();
+        // the commands start at a base instance, which is ignored without GL 4.2 or ARB_base_instance
+        multiDrawIndirect = (capabilities.OpenGL43 || capabilities.GL_ARB_multi_draw_indirect)
+                && (capabilities.OpenGL42 || capabilities.GL_ARB_base_instance);
+        arbMultiDrawIndirect = !capabilities.OpenGL43;
+    }
+
+    /**
+     * Returns true if the batch no longer matches the static entities and needs to be built again.
+     * The set of entities is compared by a hash, so swapping one static entity for another
+     * is noticed even though the number of static entities stays the same.
+     * @param staticEntityCount number of static entities that should be in the batch
+     * @param staticEntityHash hash of the static entities that should be in the batch
+     *                         (see {@link #hashEntity(Entity)})
+     * @return true if the batch is out of date
+     */
+    public boolean isOutOfDate(int staticEntityCount, int staticEntityHash)
+    {
+        return staticEntityCount != entityCount || staticEntityHash != entityHash
+                || changeCount != Entity.getStaticChangeCount();
+    }
+
+    /**
+     * Returns the hash of an entity.  The hash of a set of entities is the sum of the
+     * hashes of its entities.
+     * @param entity entity
+     * @return hash of entity
+     */
+    public static int hashEntity(Entity entity)
+    {
+        return Maths.mixHash(System.identityHashCode(entity));
+    }
+
+    /**
+     * Builds the batch from the static entities of a list, replacing its previous contents.
+     * Dynamic entities of the list are ignored.
+     * @param entityList list of entities
+     */
+    public void build(List<Entity> entityList)
+    {
+        deleteBuffers();
+        changeCount = Entity.getStaticChangeCount();
+
+        // group entities by texture, then by model
+        Map<ModelTexture, Map<TexturedModel, List<Entity>>> groups = new LinkedHashMap<>();
+        entityCount = 0;
+        entityHash = 0;
+        for (Entity entity : entityList)
+        {
+            if (entity.isDynamic())
+            {
+                continue;
+            }
+            entityHash += hashEntity(entity);
+            TexturedModel model = entity.getModel();
+            Map<TexturedModel, List<Entity>> models = groups.get(model.getTexture());
+            if (models == null)
+            {
+                models = new LinkedHashMap<>();
+                groups.put(model.getTexture(), models);
+            }
+            List<Entity> modelEntities = models.get(model);
+            if (modelEntities == null)
+            {
+                modelEntities = new ArrayList<>();
+                models.put(model, modelEntities);
+            }
+            modelEntities.add(entity);
+            entityCount++;
+        }
+        groupTextures.clear();
+        if (entityCount == 0)
+        {
+            commands = new int[0];
+            modelFirstInstances = new int[0];
+            instanceEntities = new Entity[0];
+            return;
+        }
+
+        // find where the mesh of each level of detail is placed in the merged buffers
+        Map<RawModel, int[]> meshes = new LinkedHashMap<>(); // model -> first index, base vertex
+        int[] vertexSizes = new int[VERTEX_ATTRIBUTE_SIZES.length];
+        int indexSize = 0;
+        int commandCount = 0;
+        int modelCount = 0;
+        int maxLodCount = 0;
+        for (Map<TexturedModel, List<Entity>> models : groups.values())
+        {
+            for (TexturedModel model : models.keySet())
+            {
+                modelCount++;
+                maxLodCount = Math.max(maxLodCount, model.getLodCount());
+                for (int lod = 0; lod < model.getLodCount(); lod++)
+                {
+                    commandCount++;
+                    RawModel rawModel = model.getRawModel(lod);
+                    if (!meshes.containsKey(rawModel))
+                    {
+                        meshes.put(rawModel, new int[]{indexSize / 4, vertexSizes[0] / (VERTEX_ATTRIBUTE_SIZES[0] * 4)});
+                        int[] buffers = getModelBuffers(rawModel);
+                        for (int i = 0; i < vertexSizes.length; i++)
+                        {
+                            vertexSizes[i] += getBufferSize(buffers[i]);
+                        }
+                        indexSize += getBufferSize(buffers[vertexSizes.length]);
+                    }
+                }
+            }
+        }
+
+        // copy the meshes into the merged buffers
+        vaoID = GL30.glGenVertexArrays();
+        for (int i = 0; i < vertexVbos.length; i++)
+        {
+            vertexVbos[i] = createBuffer(GL31.GL_COPY_WRITE_BUFFER, vertexSizes[i]);
+        }
+        indexVbo = createBuffer(GL31.GL_COPY_WRITE_BUFFER, indexSize);
+        int[] vertexOffsets = new int[vertexVbos.length];
+        int indexOffset = 0;
+        for (RawModel model : meshes.keySet())
+        {
+            int[] buffers = getModelBuffers(model);
+            for (int i = 0; i < vertexVbos.length; i++)
+            {
+                vertexOffsets[i] += copyBuffer(buffers[i], vertexVbos[i], vertexOffsets[i]);
+            }
+            indexOffset += copyBuffer(buffers[vertexVbos.length], indexVbo, indexOffset);
+        }
+
+        // store the instances and commands
+        instances = new float[entityCount * INSTANCE_DATA_LENGTH];
+        instanceBounds = new float[entityCount * 4];
+        instanceEntities = new Entity[entityCount];
+        selection = new int[entityCount];
+        lodCounts = new int[maxLodCount];
+        commands = new int[commandCount * COMMAND_LENGTH];
+        modelFirstInstances = new int[modelCount];
+        modelInstanceCounts = new int[modelCount];
+        modelFirstCommands = new int[modelCount];
+        modelLodCounts = new int[modelCount];
+        groupFirstCommands = new int[groups.size()];
+        groupCommandCounts = new int[groups.size()];
+        int command = 0;
+        int instance = 0;
+        int modelIndex = 0;
+        for (Map.Entry<ModelTexture, Map<TexturedModel, List<Entity>>> group : groups.entrySet())
+        {
+            groupFirstCommands[groupTextures.size()] = command;
+            groupTextures.add(group.getKey());
+            for (Map.Entry<TexturedModel, List<Entity>> model : group.getValue().entrySet())
+            {
+                TexturedModel texturedModel = model.getKey();
+                modelFirstInstances[modelIndex] = instance;
+                modelInstanceCounts[modelIndex] = model.getValue().size();
+                modelFirstCommands[modelIndex] = command;
+                modelLodCounts[modelIndex] = texturedModel.getLodCount();
+                for (int lod = 0; lod < texturedModel.getLodCount(); lod++)
+                {
+                    RawModel rawModel = texturedModel.getRawModel(lod);
+                    int[] mesh = meshes.get(rawModel);
+                    int first = command * COMMAND_LENGTH;
+                    commands[first] = rawModel.getVertexCount();
+                    commands[first + 2] = mesh[0];
+                    commands[first + 3] = mesh[1];
+                    commands[first + 4] = instance;
+                    command++;
+                }
+                for (Entity entity : model.getValue())
+                {
+                    storeInstance(entity, instance);
+                    instance++;
+                }
+                modelIndex++;
+            }
+            groupCommandCounts[groupTextures.size() - 1] = command - groupFirstCommands[groupTextures.size() - 1];
+        }
+        instanceData = BufferUtils.createFloatBuffer(instances.length);
+        commandData = BufferUtils.createIntBuffer(commands.length);
+        uploadNeeded = true;
+
+        RenderState.bindVertexArray(vaoID);
+        for (int i = 0; i < vertexVbos.length; i++)
+        {
+            GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vertexVbos[i]);
+            GL20.glVertexAttribPointer(i, VERTEX_ATTRIBUTE_SIZES[i], GL11.GL_FLOAT, false, 0, 0);
+            RenderState.enableVertexAttribArray(i);
+        }
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, indexVbo);
+        instanceVbo = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, instances.length * 4, GL15.GL_DYNAMIC_DRAW);
+        setInstanceAttributePointers(0);
+        for (int i = MATRIX_ATTRIBUTE; i <= OFFSET_ATTRIBUTE; i++)
+        {
+            GL33.glVertexAttribDivisor(i, 1);
+            RenderState.enableVertexAttribArray(i);
+        }
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        RenderState.bindVertexArray(0);
+
+        if (multiDrawIndirect)
+        {
+            commandBuffer = GL15.glGenBuffers();
+            GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, commandBuffer);
+            GL15.glBufferData(GL40.GL_DRAW_INDIRECT_BUFFER, commands.length * 4, GL15.GL_DYNAMIC_DRAW);
+            GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, 0);
+        }
+    }
+
+    /**
+     * Updates the batch for a render pass: skips the entities that aren't drawn in the
+     * pass or are outside its frustum (or hidden, if an occlusion culler is given),
+     * chooses the level of detail of the others from their size on screen (or keeps
+     * the level chosen in an earlier pass), and writes their instances grouped by
+     * level of detail.  Entities far enough to be drawn as
+     * impostors are left out of the batch and added to a list instead.  Nothing is
+     * uploaded if every entity is drawn with the same level of detail as in the
+     * previous update.
+     * @param pass render pass (one of the pass bits of {@link Entity})
+     * @param frustum view frustum of the pass
+     * @param culler occlusion culler, ready to test objects, or null to skip occlusion culling
+     * @param lodCameraPosition position of the camera the levels of detail are chosen from,
+     *                          or null to keep the levels chosen by an earlier pass
+     * @param impostorEntities list the entities drawn as impostors are added to
+     */
+    public void update(int pass, ViewFrustum frustum, OcclusionCuller culler, Vector3f lodCameraPosition, List<Entity> impostorEntities)
+    {
+        if (entityCount == 0)
+        {
+            return;
+        }
+        boolean changed = uploadNeeded;
+        for (int instance = 0; instance < entityCount; instance++)
+        {
+            int lod = -1;
+            int bounds = instance * 4;
+            float x = instanceBounds[bounds];
+            float y = instanceBounds[bounds + 1];
+            float z = instanceBounds[bounds + 2];
+            float radius = instanceBounds[bounds + 3];
+            Entity entity = instanceEntities[instance];
+            if ((entity.getPassMask() & pass) != 0 && frustum.isVisible(x, y, z, radius)
+                    && (culler == null || culler.isVisible(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius)))
+            {
+                if (lodCameraPosition != null)
+                {
+                    MasterRenderer.selectLod(entity, lodCameraPosition);
+                }
+                if (entity.isDrawnAsImpostor())
+                {
+                    impostorEntities.add(entity);
+                } else
+                {
+                    lod = Math.min(entity.getLod(), entity.getModel().getLodCount() - 1);
+                }
+            }
+            if (lod != selection[instance])
+            {
+                selection[instance] = lod;
+                changed = true;
+            }
+        }
+        if (!changed)
+        {
+            return;
+        }
+
+        // write each model's instances, grouped by level of detail
+        instanceData.clear();
+        int drawnCount = 0;
+        for (int model = 0; model < modelFirstInstances.length; model++)
+        {
+            int firstInstance = modelFirstInstances[model];
+            int endInstance = firstInstance + modelInstanceCounts[model];
+            int lodCount = modelLodCounts[model];
+            for (int lod = 0; lod < lodCount; lod++)
+            {
+                lodCounts[lod] = 0;
+            }
+            for (int instance = firstInstance; instance < endInstance; instance++)
+            {
+                if (selection[instance] >= 0)
+                {
+                    lodCounts[selection[instance]]++;
+                }
+            }
+            for (int lod = 0; lod < lodCount; lod++)
+            {
+                int first = (modelFirstCommands[model] + lod) * COMMAND_LENGTH;
+                commands[first + 1] = lodCounts[lod];
+                commands[first + 4] = drawnCount;
+                for (int instance = firstInstance; instance < endInstance && lodCounts[lod] > 0; instance++)
+                {
+                    if (selection[instance] == lod)
+                    {
+                        instanceData.put(instances, instance * INSTANCE_DATA_LENGTH, INSTANCE_DATA_LENGTH);
+                    }
+                }
+                drawnCount += lodCounts[lod];
+            }
+        }
+        instanceData.flip();
+        // the buffers are orphaned first, so the driver doesn't have to wait for the
+        // draws of an earlier pass that are still reading them
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, instances.length * 4, GL15.GL_DYNAMIC_DRAW);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, instanceData);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        if (multiDrawIndirect)
+        {
+            commandData.clear();
+            commandData.put(commands).flip();
+            GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, commandBuffer);
+            GL15.glBufferData(GL40.GL_DRAW_INDIRECT_BUFFER, commands.length * 4, GL15.GL_DYNAMIC_DRAW);
+            GL15.glBufferSubData(GL40.GL_DRAW_INDIRECT_BUFFER, 0, commandData);
+            GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, 0);
+        }
+        uploadNeeded = false;
+    }
+
+    /**
+     * Returns the number of groups (textures) in the batch.
+     * @return number of groups
+     */
+    public int getGroupCount()
+    {
+        return groupTextures.size();
+    }
+
+    /**
+     * Returns the texture of a group.
+     * @param group index of group
+     * @return texture of group
+     */
+    public ModelTexture getGroupTexture(int group)
+    {
+        return groupTextures.get(group);
+    }
+
+    /**
+     * Binds the batch's VAO.  Must be called before drawing its groups.
+     */
+    public void bind()
+    {
+        RenderState.bindVertexArray(vaoID);
+    }
+
+    /**
+     * Draws the entities of a group chosen by the last update.  The batch's VAO must be bound and the group's
+     * texture prepared.
+     * @param group index of group
+     */
+    public void drawGroup(int group)
+    {
+        int firstCommand = groupFirstCommands[group];
+        int commandCount = groupCommandCounts[group];
+        if (multiDrawIndirect)
+        {
+            GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, commandBuffer);
+            long offset = (long) firstCommand * COMMAND_LENGTH * 4;
+            if (arbMultiDrawIndirect)
+            {
+                ARBMultiDrawIndirect.glMultiDrawElementsIndirect(GL11.GL_TRIANGLES, GL11.GL_UNSIGNED_INT, offset, commandCount, 0);
+            } else
+            {
+                GL43.glMultiDrawElementsIndirect(GL11.GL_TRIANGLES, GL11.GL_UNSIGNED_INT, offset, commandCount, 0);
+            }
+            GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, 0);
+            return;
+        }
+        // without a base instance, the instance attributes are moved to each command's first instance
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVbo);
+        for (int i = firstCommand; i < firstCommand + commandCount; i++)
+        {
+            int first = i * COMMAND_LENGTH;
+            if (commands[first + 1] == 0)
+            {
+                continue;
+            }
+            setInstanceAttributePointers(commands[first + 4]);
+            GL32.glDrawElementsInstancedBaseVertex(GL11.GL_TRIANGLES, commands[first], GL11.GL_UNSIGNED_INT,
+                    (long) commands[first + 2] * 4, commands[first + 1], commands[first + 3]);
+        }
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Deletes the batch's buffers.
+     */
+    public void cleanUp()
+    {
+        deleteBuffers();
+    }
+
+    /**
+     * Deletes the VAO and buffers of the batch, if it has any.
+     */
+    private void deleteBuffers()
+    {
+        if (vaoID == 0)
+        {
+            return;
+        }
+        RenderState.deleteVertexArray(vaoID);
+        for (int vbo : vertexVbos)
+        {
+            GL15.glDeleteBuffers(vbo);
+        }
+        GL15.glDeleteBuffers(indexVbo);
+        GL15.glDeleteBuffers(instanceVbo);
+        if (multiDrawIndirect)
+        {
+            GL15.glDeleteBuffers(commandBuffer);
+        }
+        vaoID = 0;
+    }
+
+    /**
+     * Points the per instance attributes of the bound VAO at an instance of the
+     * bound instance buffer.
+     * @param firstInstance instance read by the first instance of a draw call
+     */
+    private void setInstanceAttributePointers(int firstInstance)
+    {
+        long offset = (long) firstInstance * INSTANCE_DATA_LENGTH * 4;
+        for (int i = 0; i < 4; i++)
+        {
+            GL20.glVertexAttribPointer(MATRIX_ATTRIBUTE + i, 4, GL11.GL_FLOAT, false, INSTANCE_DATA_LENGTH * 4, offset + i * 16);
+        }
+        GL20.glVertexAttribPointer(OFFSET_ATTRIBUTE, 2, GL11.GL_FLOAT, false, INSTANCE_DATA_LENGTH * 4, offset + 64);
+    }
+
+    /**
+     * Stores the transformation matrix, texture atlas offset and bounding sphere of an entity.
+     * @param entity static entity
+     * @param instance index of the entity's instance
+     */
+    private void storeInstance(Entity entity, int instance)
+    {
+        Matrix4f matrix = Maths.createTransformationMatrix(entity.getPosition(), entity.getRotX(), entity.getRotY(), entity.getRotZ(), entity.getScale());
+        matrixBuffer.clear();
+        matrix.store(matrixBuffer);
+        matrixBuffer.flip();
+        int i = instance * INSTANCE_DATA_LENGTH;
+        matrixBuffer.get(instances, i, 16);
+        instances[i + 16] = entity.getTextureXOffset();
+        instances[i + 17] = entity.getTextureYOffset();
+        int bounds = instance * 4;
+        instanceBounds[bounds] = entity.getPosition().x;
+        instanceBounds[bounds + 1] = entity.getPosition().y;
+        instanceBounds[bounds + 2] = entity.getPosition().z;
+        instanceBounds[bounds + 3] = entity.getBoundingRadius();
+        instanceEntities[instance] = entity;
+    }
+
+    /**
+     * Returns the vertex buffers (position, texture coordinates and normals) and
+     * index buffer of a model, as bound to its VAO.
+     * @param model raw model
+     * @return IDs of the model's buffers
+     */
+    private int[] getModelBuffers(RawModel model)
+    {
+        int[] buffers = new int[VERTEX_ATTRIBUTE_SIZES.length + 1];
+        IntBuffer result = BufferUtils.createIntBuffer(16);
+        RenderState.bindVertexArray(model.getVaoID());
+        for (int i = 0; i < VERTEX_ATTRIBUTE_SIZES.length; i++)
+        {
+            GL20.glGetVertexAttrib(i, GL15.GL_VERTEX_ATTRIB_ARRAY_BUFFER_BINDING, result);
+            buffers[i] = result.get(0);
+        }
+        buffers[VERTEX_ATTRIBUTE_SIZES.length] = GL11.glGetInteger(GL15.GL_ELEMENT_ARRAY_BUFFER_BINDING);
+        RenderState.bindVertexArray(0);
+        return buffers;
+    }
+
+    /**
+     * Returns the size of a buffer.
+     * @param buffer ID of buffer
+     * @return size in bytes
+     */
+    private static int getBufferSize(int buffer)
+    {
+        GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, buffer);
+        int size = GL15.glGetBufferParameteri(GL31.GL_COPY_READ_BUFFER, GL15.GL_BUFFER_SIZE);
+        GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, 0);
+        return size;
+    }
+
+    /**
+     * Creates an empty buffer.
+     * @param target target the buffer is created through
+     * @param size size in bytes
+     * @return ID of buffer
+     */
+    private static int createBuffer(int target, int size)
+    {
+        int buffer = GL15.glGenBuffers();
+        GL15.glBindBuffer(target, buffer);
+        GL15.glBufferData(target, size, GL15.GL_STATIC_DRAW);
+        GL15.glBindBuffer(target, 0);
+        return buffer;
+    }
+
+    /**
+     * Copies the whole contents of a buffer into another buffer.
+     * @param source ID of buffer copied from
+     * @param destination ID of buffer copied to
+     * @param offset offset in the destination buffer (in bytes)
+     * @return number of bytes copied
+     */
+    private static int copyBuffer(int source, int destination, int offset)
+    {
+        int size = getBufferSize(source);
+        GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, source);
+        GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, destination);
+        GL31.glCopyBufferSubData(GL31.GL_COPY_READ_BUFFER, GL31.GL_COPY_WRITE_BUFFER, 0, offset, size);
+        GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, 0);
+        GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, 0);
+        return size;
+    }
+}
@@ -2,9 +2,6 @@ package renderEngine;
 
 import models.RawModel;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 import org.lwjgl.util.vector.Matrix4f;
 import org.lwjgl.util.vector.Vector3f;
 import shaders.TerrainShader;
@@ -12,8 +9,6 @@ import terrain.Terrain;
 import textures.TerrainTexturePack;
 import toolbox.Maths;
 
-import java.util.List;
-
 /**
  * A class responsible for rendering terrain in the game.
  * @author Aaron Frazer
@@ -28,33 +23,41 @@ public class TerrainRenderer
     /**
      * Creates a terrain renderer.
      * @param shader shader program
-     * @param projectionMatrix projection matrix
      */
-    public TerrainRenderer(TerrainShader shader, Matrix4f projectionMatrix)
+    public TerrainRenderer(TerrainShader shader)
     {
         this.shader = shader;
         shader.start();
-        shader.loadProjectionMatrix(projectionMatrix);
         shader.connectTextureUnits();
         shader.stop();
     }
 
     /**
-     * Renders a list of terrains.
-     * @param terrains list of terrains
-     * @param toShadowSpace shadow space matrix
+     * Starts rendering terrains by starting the terrain shader.
+     */
+    public void begin()
+    {
+        shader.start();
+    }
+
+    /**
+     * Renders a terrain.
+     * @param terrain terrain to be rendered
      */
-    public void render(List<Terrain> terrains, Matrix4f toShadowSpace)
+    public void render(Terrain terrain)
     {
-        shader.loadToShadowSpaceMatrix(toShadowSpace);
-        for (Terrain terrain : terrains)
-        {
-            prepareTerrain(terrain);
-            loadModelMatrix(terrain);
-            GL11.glDrawElements(GL11.GL_TRIANGLES, terrain.getModel().getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
-
-            unbindTexturedModel();
-        }
+        prepareTerrain(terrain);
+        loadModelMatrix(terrain);
+        GL11.glDrawElements(GL11.GL_TRIANGLES, terrain.getModel().getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
+    }
+
+    /**
+     * Ends rendering terrains by unbinding the last terrain and stopping the terrain shader.
+     */
+    public void end()
+    {
+        unbindTexturedModel();
+        shader.stop();
     }
 
     /**
@@ -66,10 +69,10 @@ public class TerrainRenderer
         RawModel rawModel = terrain.getModel();
 
         // Bind raw model
-        GL30.glBindVertexArray(rawModel.getVaoID());
-        GL20.glEnableVertexAttribArray(0);
-        GL20.glEnableVertexAttribArray(1);
-        GL20.glEnableVertexAttribArray(2);
+        RenderState.bindVertexArray(rawModel.getVaoID());
+        RenderState.enableVertexAttribArray(0);
+        RenderState.enableVertexAttribArray(1);
+        RenderState.enableVertexAttribArray(2);
 
         bindTextures(terrain);
 
@@ -99,31 +102,24 @@ public class TerrainRenderer
     {
         TerrainTexturePack texturePack = terrain.getTexturePack();
 
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texturePack.getBackgroundTexture().getTextureID());
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, texturePack.getBackgroundTexture().getTextureID());
 
-        GL13.glActiveTexture(GL13.GL_TEXTURE1);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texturePack.getrTexture().getTextureID());
+        RenderState.bindTexture(1, GL11.GL_TEXTURE_2D, texturePack.getrTexture().getTextureID());
 
-        GL13.glActiveTexture(GL13.GL_TEXTURE2);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texturePack.getgTexture().getTextureID());
+        RenderState.bindTexture(2, GL11.GL_TEXTURE_2D, texturePack.getgTexture().getTextureID());
 
-        GL13.glActiveTexture(GL13.GL_TEXTURE3);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texturePack.getbTexture().getTextureID());
+        RenderState.bindTexture(3, GL11.GL_TEXTURE_2D, texturePack.getbTexture().getTextureID());
 
-        GL13.glActiveTexture(GL13.GL_TEXTURE4);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, terrain.getBlendMap().getTextureID());
+        RenderState.bindTexture(4, GL11.GL_TEXTURE_2D, terrain.getBlendMap().getTextureID());
     }
 
     /**
-     * Unbinds attributes of a terrain.
+     * Unbinds the last terrain.  Its attributes stay enabled, since they belong
+     * to the terrain's VAO.
      */
     private void unbindTexturedModel()
     {
-        GL20.glDisableVertexAttribArray(0);
-        GL20.glDisableVertexAttribArray(1);
-        GL20.glDisableVertexAttribArray(2);
-        GL30.glBindVertexArray(0);
+        RenderState.bindVertexArray(0);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package renderEngine;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+import org.lwjgl.util.vector.Vector4f;
+
+/**
+ * The view frustum of a render pass, used to skip objects the pass can't see before
+ * they are submitted.  The six planes are extracted from the pass's projection-view
+ * matrix, so a reflection pass rendered from the mirrored camera is culled against
+ * the mirrored frustum.  The pass's clipping plane is added as a seventh plane, so
+ * objects entirely on its clipped side are skipped instead of being discarded by
+ * the shaders.  A clipping plane with a zero normal clips nothing.
+ *
+ * Planes are stored as (a, b, c, d) with unit normals pointing into the frustum: a
+ * point is inside a plane if a*x + b*y + c*z + d >= 0.
+ *
+ * @author Aaron Frazer
+ */
+public class ViewFrustum
+{
+    /**
+     * Number of planes: left, right, bottom, top, near, far and clipping plane
+     */
+    private static final int PLANE_COUNT = 7;
+
+    /**
+     * Planes of the frustum
+     */
+    private final float[][] planes = new float[PLANE_COUNT][4];
+
+    /**
+     * Updates the frustum for a render pass.
+     * @param projectionViewMatrix projection matrix times view matrix of the pass's camera
+     * @param clipPlane clipping plane of the pass
+     */
+    public void update(Matrix4f projectionViewMatrix, Vector4f clipPlane)
+    {
+        Matrix4f m = projectionViewMatrix;
+        setPlane(0, m.m03 + m.m00, m.m13 + m.m10, m.m23 + m.m20, m.m33 + m.m30); // left
+        setPlane(1, m.m03 - m.m00, m.m13 - m.m10, m.m23 - m.m20, m.m33 - m.m30); // right
+        setPlane(2, m.m03 + m.m01, m.m13 + m.m11, m.m23 + m.m21, m.m33 + m.m31); // bottom
+        setPlane(3, m.m03 - m.m01, m.m13 - m.m11, m.m23 - m.m21, m.m33 - m.m31); // top
+        setPlane(4, m.m03 + m.m02, m.m13 + m.m12, m.m23 + m.m22, m.m33 + m.m32); // near
+        setPlane(5, m.m03 - m.m02, m.m13 - m.m12, m.m23 - m.m22, m.m33 - m.m32); // far
+        if (clipPlane.x == 0 && clipPlane.y == 0 && clipPlane.z == 0)
+        {
+            setPlane(6, 0, 0, 1, Float.MAX_VALUE); // no clipping plane, so nothing is outside it
+        } else
+        {
+            setPlane(6, clipPlane.x, clipPlane.y, clipPlane.z, clipPlane.w);
+        }
+    }
+
+    /**
+     * Tests a bounding sphere against the frustum.
+     * @param center centre of sphere
+     * @param radius radius of sphere
+     * @return true if the sphere may be visible
+     */
+    public boolean isVisible(Vector3f center, float radius)
+    {
+        return isVisible(center.x, center.y, center.z, radius);
+    }
+
+    /**
+     * Tests a bounding sphere against the frustum.
+     * @param x x coordinate of sphere's centre
+     * @param y y coordinate of sphere's centre
+     * @param z z coordinate of sphere's centre
+     * @param radius radius of sphere
+     * @return true if the sphere may be visible
+     */
+    public boolean isVisible(float x, float y, float z, float radius)
+    {
+        for (float[] plane : planes)
+        {
+            if (plane[0] * x + plane[1] * y + plane[2] * z + plane[3] < -radius)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests an axis aligned bounding box against the frustum.  The box is outside a
+     * plane if its corner furthest along the plane's normal is outside it.
+     * @param minX minimum x of box
+     * @param minY minimum y of box
+     * @param minZ minimum z of box
+     * @param maxX maximum x of box
+     * @param maxY maximum y of box
+     * @param maxZ maximum z of box
+     * @return true if the box may be visible
+     */
+    public boolean isVisible(float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+    {
+        for (float[] plane : planes)
+        {
+            float x = plane[0] >= 0 ? maxX : minX;
+            float y = plane[1] >= 0 ? maxY : minY;
+            float z = plane[2] >= 0 ? maxZ : minZ;
+            if (plane[0] * x + plane[1] * y + plane[2] * z + plane[3] < 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores a plane, normalizing it so distances to it are in world units.
+     * @param index index of plane
+     * @param a x component of normal
+     * @param b y component of normal
+     * @param c z component of normal
+     * @param d distance term
+     */
+    private void setPlane(int index, float a, float b, float c, float d)
+    {
+        float length = (float) Math.sqrt(a * a + b * b + c * c);
+        float[] plane = planes[index];
+        plane[0] = a / length;
+        plane[1] = b / length;
+        plane[2] = c / length;
+        plane[3] = d / length;
+    }
+}
@@ -3,13 +3,16 @@ package shaders;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL31;
 import org.lwjgl.util.vector.Matrix4f;
 import org.lwjgl.util.vector.Vector2f;
 import org.lwjgl.util.vector.Vector3f;
 import org.lwjgl.util.vector.Vector4f;
+import renderEngine.RenderState;
 
 import java.io.*;
 import java.nio.FloatBuffer;
+import java.util.Arrays;
 
 /**
  * A generic shader programs that contains attributes and methods that every
@@ -33,11 +36,36 @@ public abstract class ShaderProgram
      */
     private int fragmentShaderID;
 
+    /**
+     * Binding points of the uniform blocks shared by all shader programs: the
+     * per-frame block (FrameData) and the per-pass block (PassData)
+     */
+    public static final int FRAME_DATA_BINDING = 0;
+    public static final int PASS_DATA_BINDING = 1;
+
     /**
      * Float Buffer used to load matrices
      */
     private static FloatBuffer matrixBuffer = BufferUtils.createFloatBuffer(16);
 
+    /**
+     * Copy of the value last loaded to each uniform location of this program (as raw
+     * int bits), used to skip loading a value the uniform already has
+     */
+    private int[][] uniformValues = new int[32][];
+
+    /**
+     * Value about to be loaded to a uniform location (as raw int bits)
+     */
+    private static int[] pendingValue = new int[16];
+
+    /**
+     * Number of uniform loads sent to OpenGL, and number skipped because the
+     * uniform already had the value, across all shader programs
+     */
+    private static long uniformLoadsIssued = 0;
+    private static long uniformLoadsSkipped = 0;
+
     /**
      * Creates a shader program.
      * @param vertexFile vertexShader filepath
@@ -47,12 +75,34 @@ public abstract class ShaderProgram
     {
         vertexShaderID = loadShader(vertexFile, GL20.GL_VERTEX_SHADER);
         fragmentShaderID = loadShader(fragmentFile, GL20.GL_FRAGMENT_SHADER);
+        linkProgram();
+    }
+
+    /**
+     * Creates a shader program whose fragment shader is generated at runtime.
+     * @param vertexFile vertexShader filepath
+     * @param fragmentSource fragmentShader source code
+     */
+    protected ShaderProgram(String vertexFile, StringBuilder fragmentSource)
+    {
+        vertexShaderID = loadShader(vertexFile, GL20.GL_VERTEX_SHADER);
+        fragmentShaderID = compileShader(fragmentSource, GL20.GL_FRAGMENT_SHADER);
+        linkProgram();
+    }
+
+    /**
+     * Links the vertex and fragment shader into the program.
+     */
+    private void linkProgram()
+    {
         programID = GL20.glCreateProgram();
         GL20.glAttachShader(programID, vertexShaderID);
         GL20.glAttachShader(programID, fragmentShaderID);
         bindAttributes();
         GL20.glLinkProgram(programID);
         GL20.glValidateProgram(programID);
+        bindUniformBlock("FrameData", FRAME_DATA_BINDING);
+        bindUniformBlock("PassData", PASS_DATA_BINDING);
         getAllUniformLocations();
     }
 
@@ -61,7 +111,7 @@ public abstract class ShaderProgram
      */
     public void start()
     {
-        GL20.glUseProgram(programID);
+        RenderState.useProgram(programID);
     }
 
     /**
@@ -69,7 +119,7 @@ public abstract class ShaderProgram
      */
     public void stop()
     {
-        GL20.glUseProgram(0);
+        RenderState.useProgram(0);
     }
 
     /**
@@ -95,6 +145,20 @@ public abstract class ShaderProgram
         return GL20.glGetUniformLocation(programID, uniformName);
     }
 
+    /**
+     * Links a uniform block to a binding point, if the program declares the block.
+     * @param blockName name of uniform block (in shader code)
+     * @param binding binding point the block's uniform buffer is bound to
+     */
+    protected void bindUniformBlock(String blockName, int binding)
+    {
+        int blockIndex = GL31.glGetUniformBlockIndex(programID, blockName);
+        if (blockIndex != GL31.GL_INVALID_INDEX)
+        {
+            GL31.glUniformBlockBinding(programID, blockIndex, binding);
+        }
+    }
+
     /**
      * Returns all uniform variable locations of shader program.
      */
@@ -127,7 +191,7 @@ public abstract class ShaderProgram
         {
             toLoad = 1;
         }
-        GL20.glUniform1f(location, toLoad);
+        loadFloat(location, toLoad);
     }
 
     /**
@@ -137,7 +201,11 @@ public abstract class ShaderProgram
      */
     protected void loadFloat(int location, float value)
     {
-        GL20.glUniform1f(location, value);
+        pendingValue[0] = Float.floatToRawIntBits(value);
+        if (hasChanged(location, 1))
+        {
+            GL20.glUniform1f(location, value);
+        }
     }
 
     /**
@@ -148,7 +216,11 @@ public abstract class ShaderProgram
      */
     protected void loadInt(int location, int value)
     {
-        GL20.glUniform1i(location, value);
+        pendingValue[0] = value;
+        if (hasChanged(location, 1))
+        {
+            GL20.glUniform1i(location, value);
+        }
     }
 
     /**
@@ -158,7 +230,12 @@ public abstract class ShaderProgram
      */
     protected void load2DVector(int location, Vector2f vector)
     {
-        GL20.glUniform2f(location, vector.x, vector.y);
+        pendingValue[0] = Float.floatToRawIntBits(vector.x);
+        pendingValue[1] = Float.floatToRawIntBits(vector.y);
+        if (hasChanged(location, 2))
+        {
+            GL20.glUniform2f(location, vector.x, vector.y);
+        }
     }
 
     /**
@@ -168,7 +245,13 @@ public abstract class ShaderProgram
      */
     protected void load3DVector(int location, Vector3f vector)
     {
-        GL20.glUniform3f(location, vector.x, vector.y, vector.z);
+        pendingValue[0] = Float.floatToRawIntBits(vector.x);
+        pendingValue[1] = Float.floatToRawIntBits(vector.y);
+        pendingValue[2] = Float.floatToRawIntBits(vector.z);
+        if (hasChanged(location, 3))
+        {
+            GL20.glUniform3f(location, vector.x, vector.y, vector.z);
+        }
     }
 
     /**
@@ -178,7 +261,14 @@ public abstract class ShaderProgram
      */
     protected void load4DVector(int location, Vector4f vector)
     {
-        GL20.glUniform4f(location, vector.x, vector.y, vector.z, vector.w);
+        pendingValue[0] = Float.floatToRawIntBits(vector.x);
+        pendingValue[1] = Float.floatToRawIntBits(vector.y);
+        pendingValue[2] = Float.floatToRawIntBits(vector.z);
+        pendingValue[3] = Float.floatToRawIntBits(vector.w);
+        if (hasChanged(location, 4))
+        {
+            GL20.glUniform4f(location, vector.x, vector.y, vector.z, vector.w);
+        }
     }
 
     /**
@@ -190,7 +280,87 @@ public abstract class ShaderProgram
     {
         matrix.store(matrixBuffer);
         matrixBuffer.flip();
-        GL20.glUniformMatrix4(location, false, matrixBuffer);
+        for (int i = 0; i < 16; i++)
+        {
+            pendingValue[i] = Float.floatToRawIntBits(matrixBuffer.get(i));
+        }
+        if (hasChanged(location, 16))
+        {
+            GL20.glUniformMatrix4(location, false, matrixBuffer);
+        }
+    }
+
+    /**
+     * Returns the number of uniform loads sent to OpenGL since the statistics were last reset.
+     * @return number of uniform loads issued
+     */
+    public static long getUniformLoadsIssued()
+    {
+        return uniformLoadsIssued;
+    }
+
+    /**
+     * Returns the number of uniform loads that were skipped because the uniform
+     * already had the value, since the statistics were last reset.
+     * @return number of uniform loads skipped
+     */
+    public static long getUniformLoadsSkipped()
+    {
+        return uniformLoadsSkipped;
+    }
+
+    /**
+     * Resets the uniform load statistics.
+     */
+    public static void resetUniformStatistics()
+    {
+        uniformLoadsIssued = 0;
+        uniformLoadsSkipped = 0;
+    }
+
+    /**
+     * Compares the pending value with the value last loaded to a uniform location,
+     * and remembers the pending value if it is different.  Uniform values belong to
+     * the program, so they stay valid while other programs are in use.
+     * @param location uniform location
+     * @param size number of values (floats or ints) in the uniform
+     * @return true if the value needs to be loaded
+     */
+    private boolean hasChanged(int location, int size)
+    {
+        if (location < 0)
+        {
+            return false; // uniform isn't used by the program, so OpenGL would ignore it
+        }
+        if (location >= uniformValues.length)
+        {
+            uniformValues = Arrays.copyOf(uniformValues, Math.max(location + 1, uniformValues.length * 2));
+        }
+        int[] values = uniformValues[location];
+        if (values == null)
+        {
+            values = new int[size];
+            uniformValues[location] = values;
+        } else
+        {
+            boolean same = true;
+            for (int i = 0; i < size; i++)
+            {
+                if (values[i] != pendingValue[i])
+                {
+                    same = false;
+                    break;
+                }
+            }
+            if (same)
+            {
+                uniformLoadsSkipped++;
+                return false;
+            }
+        }
+        System.arraycopy(pendingValue, 0, values, 0, size);
+        uniformLoadsIssued++;
+        return true;
     }
 
     /**
@@ -216,6 +386,17 @@ public abstract class ShaderProgram
             System.exit(-1);
         }
 
+        return compileShader(shaderSource, type);
+    }
+
+    /**
+     * Compiles shader source code.
+     * @param shaderSource source code of shader
+     * @param type type of shader (vertex or fragment)
+     * @return ID of the created shader
+     */
+    private static int compileShader(CharSequence shaderSource, int type)
+    {
         int shaderID = GL20.glCreateShader(type);
         GL20.glShaderSource(shaderID, shaderSource);
         GL20.glCompileShader(shaderID);
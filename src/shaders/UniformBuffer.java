@@ -0,0 +1,131 @@
+package shaders;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.util.vector.Matrix4f;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A uniform buffer object (UBO) holding a block of uniform variables that is shared
+ * by every shader program declaring the block.  The data is laid out using the
+ * std140 rules, so values are stored at fixed offsets (counted in floats) that
+ * match the block declared in the shader code.  The buffer is bound to its binding
+ * point once, and each {@link ShaderProgram} links its blocks to the binding points.
+ *
+ * @author Aaron Frazer
+ */
+public class UniformBuffer
+{
+    /**
+     * ID of the buffer
+     */
+    private int bufferID;
+
+    /**
+     * Data of the buffer, viewed as floats and as ints
+     */
+    private ByteBuffer data;
+    private FloatBuffer floatData;
+    private IntBuffer intData;
+
+    /**
+     * Creates a uniform buffer and binds it to a binding point.
+     * @param bindingPoint binding point the uniform block is linked to
+     * @param floatCount size of the uniform block in floats
+     */
+    public UniformBuffer(int bindingPoint, int floatCount)
+    {
+        data = BufferUtils.createByteBuffer(floatCount * 4);
+        floatData = data.asFloatBuffer();
+        intData = data.asIntBuffer();
+        bufferID = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, bufferID);
+        GL15.glBufferData(GL31.GL_UNIFORM_BUFFER, data.capacity(), GL15.GL_DYNAMIC_DRAW);
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+        GL30.glBindBufferBase(GL31.GL_UNIFORM_BUFFER, bindingPoint, bufferID);
+    }
+
+    /**
+     * Stores a float in the buffer's data.
+     * @param offset offset in floats
+     * @param value float value
+     */
+    public void storeFloat(int offset, float value)
+    {
+        floatData.put(offset, value);
+    }
+
+    /**
+     * Stores an int in the buffer's data.
+     * @param offset offset in floats
+     * @param value int value
+     */
+    public void storeInt(int offset, int value)
+    {
+        intData.put(offset, value);
+    }
+
+    /**
+     * Stores a vector in the buffer's data.
+     * @param offset offset in floats
+     * @param x x value
+     * @param y y value
+     * @param z z value
+     */
+    public void storeVector(int offset, float x, float y, float z)
+    {
+        floatData.put(offset, x);
+        floatData.put(offset + 1, y);
+        floatData.put(offset + 2, z);
+    }
+
+    /**
+     * Stores a vector in the buffer's data.
+     * @param offset offset in floats
+     * @param x x value
+     * @param y y value
+     * @param z z value
+     * @param w w value
+     */
+    public void storeVector(int offset, float x, float y, float z, float w)
+    {
+        storeVector(offset, x, y, z);
+        floatData.put(offset + 3, w);
+    }
+
+    /**
+     * Stores a matrix (in column major order) in the buffer's data.
+     * @param offset offset in floats
+     * @param matrix matrix
+     */
+    public void storeMatrix(int offset, Matrix4f matrix)
+    {
+        floatData.position(offset);
+        matrix.store(floatData);
+        floatData.clear();
+    }
+
+    /**
+     * Uploads the buffer's data to the GPU.  Called once after all of the values
+     * for a frame or pass have been stored.
+     */
+    public void update()
+    {
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, bufferID);
+        GL15.glBufferSubData(GL31.GL_UNIFORM_BUFFER, 0, data);
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+    }
+
+    /**
+     * Deletes the buffer.
+     */
+    public void cleanUp()
+    {
+        GL15.glDeleteBuffers(bufferID);
+    }
+}
@@ -2,38 +2,86 @@
 
 in vec2 pass_textureCoordinates;
 in vec3 surfaceNormal;
-in vec3 toLightVector[4];
+in vec3 pass_worldPosition;
+in vec4 pass_clipPosition;
 in vec3 toCameraVector;
 in float visibility;
-in vec4 shadowCoords;
+in vec4 shadowCoords[4];
+in float viewDepth;
 
 layout (location = 0) out vec4 out_Color;
 layout (location = 1) out vec4 out_BrightColor;
 
-uniform sampler2D shadowMap;
-uniform float mapSize;
+uniform sampler2D shadowMaps[4];
 
 uniform sampler2D modelTexture;
 uniform sampler2D specularMap;
 uniform float usesSpecularMap;
-uniform vec3 lightColour[4];
-uniform vec3 attenuation[4];
+uniform samplerBuffer lightData;
+uniform isamplerBuffer clusterGrid;
+uniform isamplerBuffer lightIndices;
+uniform float clusterScale;
+uniform float clusterBias;
 uniform float shineDamper;
 uniform float reflectivity;
-uniform vec3 skyColour;
+
+// shared by every shader program, filled once a frame by MasterRenderer (must match its layout)
+layout (std140) uniform FrameData {
+	mat4 projectionMatrix;
+	mat4 toShadowMapSpace[4];
+	vec4 cascadeEnds;
+	vec4 mapSizes;
+	vec3 skyColour;
+	float density;
+	float gradient;
+	float shadowDistance;
+	float transitionDistance;
+	int cascadeCount;
+};
+
+// number of light clusters across, up and into the screen (must match LightClusters)
+const int clustersX = 16;
+const int clustersY = 9;
+const int clustersZ = 24;
+
+// returns the first light index and number of lights in the fragment's light cluster
+ivec2 findCluster(vec4 clipPosition, float depth) {
+    vec2 ndc = clipPosition.xy / clipPosition.w;
+    ivec2 tile = clamp(ivec2((ndc * 0.5 + 0.5) * vec2(clustersX, clustersY)), ivec2(0), ivec2(clustersX - 1, clustersY - 1));
+    int slice = clamp(int(floor(log(depth) * clusterScale - clusterBias)), 0, clustersZ - 1);
+    return texelFetch(clusterGrid, tile.x + clustersX * (tile.y + clustersY * slice)).rg;
+}
 
 const int pcfCount = 2; // size of the pixels that should be rendered for shadows
 const float totalTexels = (pcfCount * 2.0 + 1.0) * (pcfCount * 2.0 + 1.0);
 
+// samplers can only be indexed with constants, so each cascade is picked out explicitly
+float shadowMapDepth(int cascade, vec2 coords) {
+    if (cascade == 0) {
+        return texture(shadowMaps[0], coords).r;
+    } else if (cascade == 1) {
+        return texture(shadowMaps[1], coords).r;
+    } else if (cascade == 2) {
+        return texture(shadowMaps[2], coords).r;
+    }
+    return texture(shadowMaps[3], coords).r;
+}
+
 void main(void) {
 
-    float texelSize = 1.0 / mapSize;
+    int cascade = 0;
+    while (cascade < cascadeCount - 1 && viewDepth > cascadeEnds[cascade]) {
+        cascade++;
+    }
+    vec4 cascadeCoords = shadowCoords[cascade];
+
+    float texelSize = 1.0 / mapSizes[cascade];
     float total = 0.0;
 
     for (int x =- pcfCount; x <= pcfCount; x++) {
         for (int y =- pcfCount; y <= pcfCount; y++) {
-            float objectNearestLight = texture(shadowMap, shadowCoords.xy + vec2(x, y) * texelSize).r;
-            if (shadowCoords.z > objectNearestLight + 0.002) {
+            float objectNearestLight = shadowMapDepth(cascade, cascadeCoords.xy + vec2(x, y) * texelSize);
+            if (cascadeCoords.z > objectNearestLight + 0.002) {
                 total += 1.0;
             }
         }
@@ -41,7 +89,7 @@ void main(void) {
 
     total /= totalTexels;
 
-    float lightFactor = 1.0 - (total * shadowCoords.w);
+    float lightFactor = 1.0 - (total * cascadeCoords.w);
 
 	vec3 unitNormal = normalize(surfaceNormal);
 	vec3 unitVectorToCamera = normalize(toCameraVector);
@@ -49,10 +97,16 @@ void main(void) {
 	vec3 totalDiffuse = vec3(0.0);
 	vec3 totalSpecular = vec3(0.0);
 	
-	for(int i=0;i<4;i++) {
-		float distance = length(toLightVector[i]);
-		float attFactor = attenuation[i].x + (attenuation[i].y * distance) + (attenuation[i].z * distance * distance);
-		vec3 unitLightVector = normalize(toLightVector[i]);	
+	ivec2 cluster = findCluster(pass_clipPosition, viewDepth);
+	for (int i = 0; i < cluster.y; i++) {
+		int light = texelFetch(lightIndices, cluster.x + i).r * 3;
+		vec3 lightPosition = texelFetch(lightData, light).xyz;
+		vec3 lightColour = texelFetch(lightData, light + 1).rgb;
+		vec3 attenuation = texelFetch(lightData, light + 2).rgb;
+		vec3 toLightVector = lightPosition - pass_worldPosition;
+		float distance = length(toLightVector);
+		float attFactor = attenuation.x + (attenuation.y * distance) + (attenuation.z * distance * distance);
+		vec3 unitLightVector = normalize(toLightVector);	
 		float nDotl = dot(unitNormal,unitLightVector);
 		float brightness = max(nDotl,0.0);
 		vec3 lightDirection = -unitLightVector;
@@ -60,8 +114,8 @@ void main(void) {
 		float specularFactor = dot(reflectedLightDirection , unitVectorToCamera);
 		specularFactor = max(specularFactor,0.0);
 		float dampedFactor = pow(specularFactor,shineDamper);
-		totalDiffuse = totalDiffuse + (brightness * lightColour[i])/attFactor;
-		totalSpecular = totalSpecular + (dampedFactor * reflectivity * lightColour[i])/attFactor;
+		totalDiffuse = totalDiffuse + (brightness * lightColour)/attFactor;
+		totalSpecular = totalSpecular + (dampedFactor * reflectivity * lightColour)/attFactor;
 	}
 	totalDiffuse = max(totalDiffuse * lightFactor, 0.4);
 	
@@ -6,42 +6,50 @@ in vec3 normal;
 
 out vec2 pass_textureCoordinates;
 out vec3 surfaceNormal;
-out vec3 toLightVector[4];
 out vec3 toCameraVector;
 out float visibility;
-out vec4 shadowCoords;
+out vec4 shadowCoords[4];
+out float viewDepth;
+out vec3 pass_worldPosition;
+out vec4 pass_clipPosition;
 
 uniform mat4 transformationMatrix;
-uniform mat4 projectionMatrix;
-uniform mat4 viewMatrix;
-uniform vec3 lightPosition[4];
+// shared by every shader program, filled once a frame by MasterRenderer (must match its layout)
+layout (std140) uniform FrameData {
+	mat4 projectionMatrix;
+	mat4 toShadowMapSpace[4];
+	vec4 cascadeEnds;
+	vec4 mapSizes;
+	vec3 skyColour;
+	float density;
+	float gradient;
+	float shadowDistance;
+	float transitionDistance;
+	int cascadeCount;
+};
 
-uniform mat4 toShadowMapSpace;
-
-uniform vec4 plane;
-
-uniform float density;
-uniform float gradient;
-uniform float shadowDistance;
-uniform float transitionDistance;
+// shared by every shader program, filled once a render pass by MasterRenderer (must match its layout)
+layout (std140) uniform PassData {
+	mat4 viewMatrix;
+	vec4 plane;
+	vec3 cameraPosition;
+};
 
 void main(void) {
 
 	vec4 worldPosition = transformationMatrix * vec4(position,1.0);
-	shadowCoords = toShadowMapSpace * worldPosition;
 
 	gl_ClipDistance[0] = dot(worldPosition, plane);
 	
 	vec4 positionRelativeToCam = viewMatrix * worldPosition;
 	gl_Position = projectionMatrix * positionRelativeToCam;
+	pass_clipPosition = gl_Position;
+	pass_worldPosition = worldPosition.xyz;
+	viewDepth = -positionRelativeToCam.z;
 	pass_textureCoordinates = textureCoordinates;
 	
 	surfaceNormal = (transformationMatrix * vec4(normal,0.0)).xyz;
-	for(int i=0;i<4;i++)
-	{
-		toLightVector[i] = lightPosition[i] - worldPosition.xyz;
-	}
-	toCameraVector = (inverse(viewMatrix) * vec4(0.0,0.0,0.0,1.0)).xyz - worldPosition.xyz;
+	toCameraVector = cameraPosition - worldPosition.xyz;
 	
 	float distance = length(positionRelativeToCam.xyz);
 	visibility = exp(-pow((distance*density),gradient));
@@ -49,6 +57,10 @@ void main(void) {
 
 	distance = distance - (shadowDistance - transitionDistance);
 	distance = distance / transitionDistance;
-	shadowCoords.w = clamp(1.0 - distance, 0.0, 1.0);
+	float shadowFade = clamp(1.0 - distance, 0.0, 1.0);
+	for(int i=0;i<4;i++) {
+		shadowCoords[i] = toShadowMapSpace[i] * worldPosition;
+		shadowCoords[i].w = shadowFade;
+	}
 
 }
\ No newline at end of file
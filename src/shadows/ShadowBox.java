@@ -7,17 +7,17 @@ import org.lwjgl.util.vector.Vector4f;
 
 import entities.Camera;
 import renderEngine.MasterRenderer;
-import toolbox.GameSettings;
 
 /**
  * Represents a cubic, 3D area of the world in which objects cast
  * shadows (basically represents the orthographic projection area for the shadow
- * render pass). It is updated each frame to optimise the area, making it as
- * small as possible (to allow for optimal shadow map resolution) while not
- * being too small to avoid objects not having shadows when they should.
+ * render pass) for one slice of the camera's view frustum. The slice is enclosed
+ * in a box with a fixed size, large enough to hold the slice whatever way the
+ * camera is facing, and the box is only moved in steps of whole shadow map texels.
+ * This keeps the shadows from shimmering when the camera rotates or moves.
  * Everything inside the cubed area represented by this object will be
- * rendered to the shadow map in the shadow render pass. Everything outside the
- * area won't be.
+ * rendered to the cascade's shadow map in the shadow render pass. Everything
+ * outside the area won't be.
  *
  * @author Aaron Frazer
  */
@@ -33,30 +33,51 @@ public class ShadowBox
     private float minX, maxX;
     private float minY, maxY;
     private float minZ, maxZ;
-    private Matrix4f lightViewMatrix;
+    private Matrix4f lightRotation;
     private Camera cam;
 
+    /**
+     * Distances from the camera at which this box's frustum slice starts and ends
+     */
+    private float nearDistance, farDistance;
+
+    /**
+     * Resolution of the shadow map this box is rendered to
+     */
+    private int resolution;
+
+    /**
+     * Radius of the sphere enclosing the frustum slice
+     */
+    private float radius;
+
     private float farHeight, farWidth, nearHeight, nearWidth;
 
     /**
      * Creates a new shadow box and calculates some initial values relating to
-     * the camera's view frustum, namely the width and height of the near plane
-     * and (possibly adjusted) far plane.
-     * @param lightViewMatrix view matrix of the light
+     * the camera's view frustum slice, namely the width and height of the near
+     * and far planes of the slice, and the radius of the sphere enclosing it.
+     * @param lightRotation rotation of the light's "view" matrix
      * @param camera in-game camera
+     * @param nearDistance distance from the camera at which the frustum slice starts
+     * @param farDistance distance from the camera at which the frustum slice ends
+     * @param resolution resolution of the shadow map this box is rendered to
      */
-    protected ShadowBox(Matrix4f lightViewMatrix, Camera camera)
+    protected ShadowBox(Matrix4f lightRotation, Camera camera, float nearDistance, float farDistance, int resolution)
     {
-        this.lightViewMatrix = lightViewMatrix;
+        this.lightRotation = lightRotation;
         this.cam = camera;
+        this.nearDistance = nearDistance;
+        this.farDistance = farDistance;
+        this.resolution = resolution;
         calculateWidthsAndHeights();
+        calculateRadius();
     }
 
     /**
      * Updates the bounds of the shadow box based on the light direction and the
-     * camera's view frustum, to make sure that the box covers the smallest area
-     * possible while still ensuring that everything inside the camera's view
-     * (within a certain range) will cast shadows.
+     * camera's view frustum slice. The box is centered on the slice, and its
+     * center is snapped to the shadow map's texel grid in light space.
      */
     protected void update()
     {
@@ -64,58 +85,56 @@ public class ShadowBox
         Vector3f forwardVector = new Vector3f(Matrix4f.transform(rotation, FORWARD, null));
 
         Vector3f toFar = new Vector3f(forwardVector);
-        toFar.scale(GameSettings.SHADOW_DISTANCE);
+        toFar.scale(farDistance);
         Vector3f toNear = new Vector3f(forwardVector);
-        toNear.scale(MasterRenderer.NEAR_PLANE);
+        toNear.scale(nearDistance);
         Vector3f centerNear = Vector3f.add(toNear, cam.getPosition(), null);
         Vector3f centerFar = Vector3f.add(toFar, cam.getPosition(), null);
 
         Vector4f[] points = calculateFrustumVertices(rotation, forwardVector, centerNear,
                 centerFar);
 
-        boolean first = true;
+        float x = 0, y = 0, z = 0;
         for (Vector4f point : points)
         {
-            if (first)
-            {
-                minX = point.x;
-                maxX = point.x;
-                minY = point.y;
-                maxY = point.y;
-                minZ = point.z;
-                maxZ = point.z;
-                first = false;
-                continue;
-            }
-            if (point.x > maxX)
-            {
-                maxX = point.x;
-            } else if (point.x < minX)
-            {
-                minX = point.x;
-            }
-            if (point.y > maxY)
-            {
-                maxY = point.y;
-            } else if (point.y < minY)
-            {
-                minY = point.y;
-            }
-            if (point.z > maxZ)
-            {
-                maxZ = point.z;
-            } else if (point.z < minZ)
-            {
-                minZ = point.z;
-            }
+            x += point.x;
+            y += point.y;
+            z += point.z;
         }
-        maxZ += OFFSET;
+        x /= points.length;
+        y /= points.length;
+        z /= points.length;
+
+        float texelSize = (radius * 2f) / resolution;
+        x = (float) Math.floor(x / texelSize) * texelSize;
+        y = (float) Math.floor(y / texelSize) * texelSize;
+        z = (float) Math.floor(z / texelSize) * texelSize; // keeps the box still while the camera is still, so cached shadow maps stay valid
 
+        minX = x - radius;
+        maxX = x + radius;
+        minY = y - radius;
+        maxY = y + radius;
+        minZ = z - radius;
+        maxZ = z + radius + OFFSET;
+    }
+
+    /**
+     * Returns true if a sphere intersects this box.  Used to skip shadow casters
+     * that can't be seen by this box.
+     * @param lightSpaceCenter center of the sphere in light space
+     * @param sphereRadius radius of the sphere
+     * @return true if the sphere intersects the box
+     */
+    protected boolean intersectsSphere(Vector4f lightSpaceCenter, float sphereRadius)
+    {
+        return lightSpaceCenter.x + sphereRadius >= minX && lightSpaceCenter.x - sphereRadius <= maxX
+                && lightSpaceCenter.y + sphereRadius >= minY && lightSpaceCenter.y - sphereRadius <= maxY
+                && lightSpaceCenter.z + sphereRadius >= minZ && lightSpaceCenter.z - sphereRadius <= maxZ;
     }
 
     /**
      * Calculates the center of the "view cuboid" in light space first, and then
-     * converts this to world space using the inverse light's view matrix.
+     * converts this to world space using the inverse light's rotation.
      * @return The center of the "cube view" in world space.
      */
     protected Vector3f getCenter()
@@ -125,7 +144,7 @@ public class ShadowBox
         float z = (minZ + maxZ) / 2f;
         Vector4f cen = new Vector4f(x, y, z, 1);
         Matrix4f invertedLight = new Matrix4f();
-        Matrix4f.invert(lightViewMatrix, invertedLight);
+        Matrix4f.invert(lightRotation, invertedLight);
         return new Vector3f(Matrix4f.transform(invertedLight, cen, null));
     }
 
@@ -156,14 +175,23 @@ public class ShadowBox
         return maxZ - minZ;
     }
 
+    /**
+     * Returns the distance from the camera at which this box's frustum slice ends.
+     * @return far distance of the frustum slice
+     */
+    protected float getFarDistance()
+    {
+        return farDistance;
+    }
+
     /**
      * Calculates the position of the vertex at each corner of the view frustum
-     * in light space (8 vertices in total, so this returns 8 positions).
+     * slice in light space (8 vertices in total, so this returns 8 positions).
      * @param rotation camera's rotation
      * @param forwardVector direction the camera is aiming, and thus the direction of the frustum
-     * @param centerNear center point of the frustum's near plane
-     * @param centerFar center point of the frustum's (possibly adjusted) far plane
-     * @return positions of the vertices of the frustum in light space
+     * @param centerNear center point of the frustum slice's near plane
+     * @param centerFar center point of the frustum slice's far plane
+     * @return positions of the vertices of the frustum slice in light space
      */
     private Vector4f[] calculateFrustumVertices(Matrix4f rotation, Vector3f forwardVector, Vector3f centerNear, Vector3f centerFar)
     {
@@ -204,7 +232,7 @@ public class ShadowBox
         Vector3f point = Vector3f.add(startPoint,
                 new Vector3f(direction.x * width, direction.y * width, direction.z * width), null);
         Vector4f point4f = new Vector4f(point.x, point.y, point.z, 1f);
-        Matrix4f.transform(lightViewMatrix, point4f, point4f);
+        Matrix4f.transform(lightRotation, point4f, point4f);
         return point4f;
     }
 
@@ -222,20 +250,29 @@ public class ShadowBox
 
     /**
      * Calculates the width and height of the near and far planes of the
-     * camera's view frustum. However, this doesn't have to use the "actual" far
-     * plane of the view frustum. It can use a shortened view frustum if desired
-     * by bringing the far-plane closer, which would increase shadow resolution
-     * but means that distant objects wouldn't cast shadows.
+     * camera's view frustum slice.
      */
     private void calculateWidthsAndHeights()
     {
-        farWidth = (float) (GameSettings.SHADOW_DISTANCE * Math.tan(Math.toRadians(MasterRenderer.FOV)));
-        nearWidth = (float) (MasterRenderer.NEAR_PLANE
-                * Math.tan(Math.toRadians(MasterRenderer.FOV)));
+        farWidth = (float) (farDistance * Math.tan(Math.toRadians(MasterRenderer.FOV)));
+        nearWidth = (float) (nearDistance * Math.tan(Math.toRadians(MasterRenderer.FOV)));
         farHeight = farWidth / getAspectRatio();
         nearHeight = nearWidth / getAspectRatio();
     }
 
+    /**
+     * Calculates the radius of the sphere enclosing the frustum slice.  The slice's
+     * shape never changes relative to the camera, so neither does the radius, which
+     * keeps the size of the box (and of its texels) the same every frame.
+     */
+    private void calculateRadius()
+    {
+        float halfLength = (farDistance - nearDistance) / 2f;
+        float farCorner = (float) Math.sqrt(farWidth * farWidth + farHeight * farHeight + halfLength * halfLength);
+        float nearCorner = (float) Math.sqrt(nearWidth * nearWidth + nearHeight * nearHeight + halfLength * halfLength);
+        radius = (float) Math.ceil(Math.max(farCorner, nearCorner));
+    }
+
     /**
      * Returns the aspect ratio of the display (width:height ratio).
      * @return aspect ratio
@@ -0,0 +1,329 @@
+package shadows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+import org.lwjgl.util.vector.Vector4f;
+
+import entities.Camera;
+import entities.Entity;
+import models.TexturedModel;
+
+/**
+ * One cascade of the cascaded shadow maps.  Each cascade covers a slice of the
+ * camera's view frustum with its own {@link ShadowBox}, shadow map and
+ * projection-view matrix.  Cascades close to the camera cover a small slice, so
+ * their shadows are sharp, while cascades further away cover a larger slice.
+ * <p>
+ * Static entities are rendered to a second, cached shadow map which is only
+ * rendered again when it is invalidated or the cascade's projection-view matrix
+ * changes (the light moves, or the shadow box moves by at least one texel).  The
+ * cached depth is copied into the cascade's shadow map and the dynamic entities
+ * are rendered on top of it.
+ *
+ * @author Aaron Frazer
+ */
+public class ShadowCascade
+{
+    private ShadowBox shadowBox;
+    private ShadowFrameBuffer shadowFbo;
+    private ShadowFrameBuffer staticShadowFbo;
+    private int resolution;
+    private Matrix4f projectionMatrix = new Matrix4f();
+    private Matrix4f lightViewMatrix = new Matrix4f();
+    private Matrix4f projectionViewMatrix = new Matrix4f();
+    private Matrix4f toShadowMapSpace = new Matrix4f();
+
+    /**
+     * Entities casting shadows into this cascade, rebuilt every frame
+     */
+    private Map<TexturedModel, List<Entity>> casters = new HashMap<>();
+
+    /**
+     * Number of entities in the casters map
+     */
+    private int casterCount;
+
+    /**
+     * Projection-view matrix the cached static shadow map was rendered with
+     */
+    private Matrix4f staticProjectionViewMatrix = new Matrix4f();
+
+    /**
+     * Is the cached static shadow map up to date?
+     */
+    private boolean staticCacheValid = false;
+
+    /**
+     * Did dynamic entities cast shadows into this cascade last frame?
+     */
+    private boolean hadDynamicCasters = false;
+
+    /**
+     * Reusable vector holding an entity's position in light space
+     */
+    private Vector4f lightSpacePosition = new Vector4f();
+
+    /**
+     * Creates a shadow cascade covering a slice of the camera's view frustum.
+     * @param lightRotation rotation of the light's "view" matrix
+     * @param camera camera being used in the scene
+     * @param nearDistance distance from the camera at which the slice starts
+     * @param farDistance distance from the camera at which the slice ends
+     * @param resolution width and height of the cascade's shadow map in pixels
+     */
+    protected ShadowCascade(Matrix4f lightRotation, Camera camera, float nearDistance, float farDistance, int resolution)
+    {
+        this.resolution = resolution;
+        shadowBox = new ShadowBox(lightRotation, camera, nearDistance, farDistance, resolution);
+        shadowFbo = new ShadowFrameBuffer(resolution, resolution);
+        staticShadowFbo = new ShadowFrameBuffer(resolution, resolution);
+    }
+
+    /**
+     * Updates the shadow box and recalculates the matrices of this cascade.
+     * @param lightRotation rotation of the light's "view" matrix
+     * @param offset offset converting clip space to shadow map space
+     */
+    protected void update(Matrix4f lightRotation, Matrix4f offset)
+    {
+        shadowBox.update();
+        updateOrthoProjectionMatrix(shadowBox.getWidth(), shadowBox.getHeight(), shadowBox.getLength());
+        updateLightViewMatrix(lightRotation, shadowBox.getCenter());
+        Matrix4f.mul(projectionMatrix, lightViewMatrix, projectionViewMatrix);
+        Matrix4f.mul(offset, projectionViewMatrix, toShadowMapSpace);
+    }
+
+    /**
+     * Finds the static or dynamic entities that intersect this cascade's shadow box.
+     * Entities that are outside of the box can't cast a shadow into this cascade, so
+     * they are skipped.  The returned map is reused by the next call.
+     * @param entities all entities, batched by textured model
+     * @param lightRotation rotation of the light's "view" matrix
+     * @param dynamic true to find the dynamic entities, false to find the static entities
+     * @return entities casting shadows into this cascade, batched by textured model (batches may be empty)
+     */
+    protected Map<TexturedModel, List<Entity>> cullCasters(Map<TexturedModel, List<Entity>> entities, Matrix4f lightRotation, boolean dynamic)
+    {
+        for (List<Entity> batch : casters.values())
+        {
+            batch.clear();
+        }
+        casterCount = 0;
+        for (Map.Entry<TexturedModel, List<Entity>> entry : entities.entrySet())
+        {
+            List<Entity> batch = null;
+            for (Entity entity : entry.getValue())
+            {
+                if (entity.isDynamic() != dynamic)
+                {
+                    continue;
+                }
+                Vector3f position = entity.getPosition();
+                lightSpacePosition.set(position.x, position.y, position.z, 1);
+                Matrix4f.transform(lightRotation, lightSpacePosition, lightSpacePosition);
+                if (!shadowBox.intersectsSphere(lightSpacePosition, entity.getBoundingRadius()))
+                {
+                    continue;
+                }
+                if (batch == null)
+                {
+                    batch = casters.get(entry.getKey());
+                    if (batch == null)
+                    {
+                        batch = new ArrayList<>();
+                        casters.put(entry.getKey(), batch);
+                    }
+                }
+                batch.add(entity);
+                casterCount++;
+            }
+        }
+        return casters;
+    }
+
+    /**
+     * Returns the number of entities found by the last call to
+     * {@link #cullCasters(Map, Matrix4f, boolean)}.
+     * @return number of casters
+     */
+    protected int getCasterCount()
+    {
+        return casterCount;
+    }
+
+    /**
+     * Returns true if the cached static shadow map can be used this frame, i.e. it
+     * hasn't been invalidated and was rendered with the current projection-view matrix.
+     * @return true if the static shadow map is up to date
+     */
+    protected boolean isStaticCacheValid()
+    {
+        return staticCacheValid && equals(staticProjectionViewMatrix, projectionViewMatrix);
+    }
+
+    /**
+     * Forces the cached static shadow map to be rendered again next frame.
+     */
+    protected void invalidateStaticCache()
+    {
+        staticCacheValid = false;
+    }
+
+    /**
+     * Binds the cached static shadow map FBO as the current render target, and
+     * remembers the projection-view matrix the static entities are rendered with.
+     */
+    protected void bindStaticFrameBuffer()
+    {
+        staticShadowFbo.bindFrameBuffer();
+        staticProjectionViewMatrix.load(projectionViewMatrix);
+        staticCacheValid = true;
+    }
+
+    /**
+     * Copies the cached static shadow map into the cascade's shadow map, so dynamic
+     * entities can be rendered on top of it.
+     */
+    protected void copyStaticShadowMap()
+    {
+        shadowFbo.copyDepthFrom(staticShadowFbo);
+    }
+
+    /**
+     * Returns true if dynamic entities cast shadows into this cascade last frame.
+     * @return true if there were dynamic casters
+     */
+    protected boolean hadDynamicCasters()
+    {
+        return hadDynamicCasters;
+    }
+
+    /**
+     * Sets whether dynamic entities cast shadows into this cascade this frame.
+     * @param hadDynamicCasters true if there were dynamic casters
+     */
+    protected void setHadDynamicCasters(boolean hadDynamicCasters)
+    {
+        this.hadDynamicCasters = hadDynamicCasters;
+    }
+
+    /**
+     * Binds the cascade's shadow map FBO as the current render target.
+     */
+    protected void bindFrameBuffer()
+    {
+        shadowFbo.bindFrameBuffer();
+    }
+
+    /**
+     * Unbinds the cascade's shadow map FBO.
+     */
+    protected void unbindFrameBuffer()
+    {
+        shadowFbo.unbindFrameBuffer();
+    }
+
+    /**
+     * Deletes the cascade's shadow map FBOs.
+     */
+    protected void cleanUp()
+    {
+        shadowFbo.cleanUp();
+        staticShadowFbo.cleanUp();
+    }
+
+    /**
+     * Returns the ID of this cascade's shadow map texture.
+     * @return shadow map ID
+     */
+    protected int getShadowMap()
+    {
+        return shadowFbo.getShadowMap();
+    }
+
+    /**
+     * Returns the resolution of this cascade's shadow map.
+     * @return width and height of the shadow map in pixels
+     */
+    protected int getResolution()
+    {
+        return resolution;
+    }
+
+    /**
+     * Returns the distance from the camera at which this cascade ends.
+     * @return far distance of the cascade
+     */
+    protected float getFarDistance()
+    {
+        return shadowBox.getFarDistance();
+    }
+
+    /**
+     * Returns the orthographic projection matrix multiplied by the light's "view" matrix.
+     * @return projection-view matrix
+     */
+    protected Matrix4f getProjectionViewMatrix()
+    {
+        return projectionViewMatrix;
+    }
+
+    /**
+     * Returns the matrix converting a world space position into a 2D coordinate on
+     * this cascade's shadow map.
+     * @return to-shadow-map-space matrix
+     */
+    protected Matrix4f getToShadowMapSpaceMatrix()
+    {
+        return toShadowMapSpace;
+    }
+
+    /**
+     * Updates the "view" matrix of the light for this cascade.  The light's rotation
+     * is shared by all cascades, only the center of the "view cuboid" differs.
+     * @param lightRotation rotation of the light's "view" matrix
+     * @param center center of the "view cuboid" in world space
+     */
+    private void updateLightViewMatrix(Matrix4f lightRotation, Vector3f center)
+    {
+        center.negate();
+        lightViewMatrix.load(lightRotation);
+        Matrix4f.translate(center, lightViewMatrix, lightViewMatrix);
+    }
+
+    /**
+     * Creates the orthographic projection matrix. This projection matrix
+     * basically sets the width, length and height of the "view cuboid", based
+     * on the values that were calculated in the {@link ShadowBox} class.
+     * @param width shadow box width
+     * @param height shadow box height
+     * @param length shadow box length
+     */
+    private void updateOrthoProjectionMatrix(float width, float height, float length)
+    {
+        projectionMatrix.setIdentity();
+        projectionMatrix.m00 = 2f / width;
+        projectionMatrix.m11 = 2f / height;
+        projectionMatrix.m22 = -2f / length;
+        projectionMatrix.m33 = 1;
+    }
+
+    /**
+     * Compares two matrices element by element.
+     * @param a first matrix
+     * @param b second matrix
+     * @return true if the matrices are equal
+     */
+    private static boolean equals(Matrix4f a, Matrix4f b)
+    {
+        return a.m00 == b.m00 && a.m01 == b.m01 && a.m02 == b.m02 && a.m03 == b.m03
+                && a.m10 == b.m10 && a.m11 == b.m11 && a.m12 == b.m12 && a.m13 == b.m13
+                && a.m20 == b.m20 && a.m21 == b.m21 && a.m22 == b.m22 && a.m23 == b.m23
+                && a.m30 == b.m30 && a.m31 == b.m31 && a.m32 == b.m32 && a.m33 == b.m33;
+    }
+}
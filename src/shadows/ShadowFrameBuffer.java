@@ -8,6 +8,7 @@ import org.lwjgl.opengl.GL12;
 import org.lwjgl.opengl.GL14;
 import org.lwjgl.opengl.GL30;
 import org.lwjgl.opengl.GL32;
+import renderEngine.RenderState;
 
 /**
  * The frame buffer for the shadow pass. This class is responsible for setting
@@ -41,7 +42,7 @@ public class ShadowFrameBuffer
     protected void cleanUp()
     {
         GL30.glDeleteFramebuffers(fbo);
-        GL11.glDeleteTextures(shadowMap);
+        RenderState.deleteTexture(shadowMap);
     }
 
     /**
@@ -61,6 +62,20 @@ public class ShadowFrameBuffer
         GL11.glViewport(0, 0, Display.getWidth(), Display.getHeight());
     }
 
+    /**
+     * Copies the depth of another shadow frame buffer of the same size into this
+     * frame buffer's shadow map.
+     * @param source frame buffer the depth is read from
+     */
+    protected void copyDepthFrom(ShadowFrameBuffer source)
+    {
+        GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, source.fbo);
+        GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, fbo);
+        GL30.glBlitFramebuffer(0, 0, source.WIDTH, source.HEIGHT, 0, 0, WIDTH, HEIGHT,
+                GL11.GL_DEPTH_BUFFER_BIT, GL11.GL_NEAREST);
+        GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, 0);
+    }
+
     /**
      * Returns the ID of the shadow map texture.
      * @return shadow map ID
@@ -88,7 +103,7 @@ public class ShadowFrameBuffer
      */
     private static void bindFrameBuffer(int frameBuffer, int width, int height)
     {
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        RenderState.bindTexture(GL11.GL_TEXTURE_2D, 0);
         GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, frameBuffer);
         GL11.glViewport(0, 0, width, height);
     }
@@ -117,7 +132,7 @@ public class ShadowFrameBuffer
     private static int createDepthBufferAttachment(int width, int height)
     {
         int texture = GL11.glGenTextures();
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+        RenderState.bindTexture(GL11.GL_TEXTURE_2D, texture);
         GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL14.GL_DEPTH_COMPONENT16, width, height, 0,
                 GL11.GL_DEPTH_COMPONENT, GL11.GL_FLOAT, (ByteBuffer) null);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
@@ -1,101 +1,177 @@
 package shadows;
 
+import java.nio.FloatBuffer;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
 import org.lwjgl.util.vector.Matrix4f;
 
 import entities.Entity;
 import models.RawModel;
 import models.TexturedModel;
+import renderEngine.Loader;
 import renderEngine.MasterRenderer;
+import renderEngine.RenderState;
 import toolbox.Maths;
 
 /**
- * A class responsible for rendering entities to the shadow map.
+ * A class responsible for rendering entities to the shadow map.  All of the
+ * entities using the same model are drawn with a single instanced draw call,
+ * with each entity's model matrix stored in an instanced VBO.
  *
  * @author Aaron Frazer
  */
 public class ShadowMapEntityRenderer
 {
+    /**
+     * Maximum number of entities drawn in one instanced draw call
+     */
+    private static final int MAX_INSTANCES = 10000;
+
+    /**
+     * Amount of data (floats) for each instance - a 4x4 model matrix
+     */
+    private static final int INSTANCE_DATA_LENGTH = 16;
+
+    /**
+     * First attribute the model matrix is stored in (it takes up 4 attributes)
+     */
+    private static final int MODEL_MATRIX_ATTRIBUTE = 4;
+
+    /**
+     * Float buffer that is used to store data in VBO
+     */
+    private static final FloatBuffer buffer = BufferUtils.createFloatBuffer(MAX_INSTANCES * INSTANCE_DATA_LENGTH);
 
-    private Matrix4f projectionViewMatrix;
     private ShadowShader shader;
+    private Loader loader;
 
     /**
-     *
+     * ID of the VBO holding the model matrices
+     */
+    private int vboID;
+
+    /**
+     * VAOs which already have the model matrix VBO attached to them
+     */
+    private Set<Integer> instancedVaos = new HashSet<>();
+
+    /**
+     * Model matrix reused for every entity
+     */
+    private Matrix4f modelMatrix = new Matrix4f();
+
+    /**
+     * Creates a renderer for entities in the shadow pass.
      * @param shader shader program being used for the shadow render pass
-     * @param projectionViewMatrix orthographic projection matrix multiplied by the light's "view" matrix
+     * @param loader loader used to create and update the model matrix VBO
      */
-    protected ShadowMapEntityRenderer(ShadowShader shader, Matrix4f projectionViewMatrix)
+    protected ShadowMapEntityRenderer(ShadowShader shader, Loader loader)
     {
         this.shader = shader;
-        this.projectionViewMatrix = projectionViewMatrix;
+        this.loader = loader;
+        this.vboID = loader.createEmptyVbo(MAX_INSTANCES * INSTANCE_DATA_LENGTH);
     }
 
     /**
      * Renders entities to the shadow map. Each model is first bound and then all
-     * of the entities using that model are rendered to the shadow map.
+     * of the entities using that model are rendered to the shadow map in one
+     * instanced draw call.
      * @param entities entities to be rendered to the shadow map
+     * @param projectionViewMatrix orthographic projection matrix multiplied by the light's "view" matrix
      */
-    protected void render(Map<TexturedModel, List<Entity>> entities)
+    protected void render(Map<TexturedModel, List<Entity>> entities, Matrix4f projectionViewMatrix)
     {
+        shader.loadProjectionViewMatrix(projectionViewMatrix);
         for (TexturedModel model : entities.keySet())
         {
+            List<Entity> batch = entities.get(model);
+            if (batch.isEmpty())
+            {
+                continue;
+            }
             RawModel rawModel = model.getRawModel();
             bindModel(rawModel);
-            GL13.glActiveTexture(GL13.GL_TEXTURE0);
-            GL11.glBindTexture(GL11.GL_TEXTURE_2D, model.getTexture().getTextureID());
+            RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, model.getTexture().getTextureID());
             if (model.getTexture().isHasTransparency())
             {
                 MasterRenderer.disableCulling();
-            }
-            for (Entity entity : entities.get(model))
+            } else
             {
-                prepareInstance(entity);
-                GL11.glDrawElements(GL11.GL_TRIANGLES, rawModel.getVertexCount(),
-                        GL11.GL_UNSIGNED_INT, 0);
+                MasterRenderer.enableCulling();
             }
-            if (model.getTexture().isHasTransparency())
+            for (int first = 0; first < batch.size(); first += MAX_INSTANCES)
             {
-                MasterRenderer.enableCulling();
+                int count = Math.min(MAX_INSTANCES, batch.size() - first);
+                storeModelMatrices(batch, first, count);
+                GL31.glDrawElementsInstanced(GL11.GL_TRIANGLES, rawModel.getVertexCount(),
+                        GL11.GL_UNSIGNED_INT, 0, count);
             }
         }
-        GL20.glDisableVertexAttribArray(0);
-        GL20.glDisableVertexAttribArray(1);
-        GL30.glBindVertexArray(0);
+        unbindModel();
     }
 
     /**
-     * Binds a raw model before rendering. Only the attribute 0 is enabled here
-     * because that is where the positions are stored in the VAO, and only the
-     * positions are required in the vertex shader.
+     * Binds a raw model before rendering. Only the attributes 0 and 1 of the model
+     * are enabled here because that is where the positions and texture coordinates
+     * are stored in the VAO, which is all the shadow shader needs. The model matrix
+     * VBO is attached to the VAO the first time the model is rendered.
      * @param rawModel model to be bound
      */
     private void bindModel(RawModel rawModel)
     {
-        GL30.glBindVertexArray(rawModel.getVaoID());
-        GL20.glEnableVertexAttribArray(0);
-        GL20.glEnableVertexAttribArray(1);
+        int vao = rawModel.getVaoID();
+        if (instancedVaos.add(vao))
+        {
+            for (int i = 0; i < 4; i++)
+            {
+                loader.addInstancedAttribute(vao, vboID, MODEL_MATRIX_ATTRIBUTE + i, 4, INSTANCE_DATA_LENGTH, i * 4);
+            }
+        }
+        RenderState.bindVertexArray(vao);
+        RenderState.enableVertexAttribArray(0);
+        RenderState.enableVertexAttribArray(1);
+        for (int i = 0; i < 4; i++)
+        {
+            RenderState.enableVertexAttribArray(MODEL_MATRIX_ATTRIBUTE + i);
+        }
+    }
+
+    /**
+     * Unbinds the last model.  Its attributes stay enabled, since they belong to
+     * the model's VAO.
+     */
+    private void unbindModel()
+    {
+        MasterRenderer.enableCulling();
+        RenderState.bindVertexArray(0);
     }
 
     /**
-     * Prepares an entity to be rendered. The model matrix is created in the
-     * usual way and then multiplied with the projection and view matrix (often
-     * in the past we've done this in the vertex shader) to create the
-     * mvp-matrix. This is then loaded to the vertex shader as a uniform.
-     * @param entity entity to be prepared for rendering
+     * Stores the model matrices of part of a batch of entities in the instanced VBO.
+     * The matrices are multiplied with the projection-view matrix in the vertex
+     * shader, so no matrices are created for each entity.
+     * @param batch entities using the same model
+     * @param first index of the first entity to be stored
+     * @param count number of entities to be stored
      */
-    private void prepareInstance(Entity entity)
+    private void storeModelMatrices(List<Entity> batch, int first, int count)
     {
-        Matrix4f modelMatrix = Maths.createTransformationMatrix(entity.getPosition(),
-                entity.getRotX(), entity.getRotY(), entity.getRotZ(), entity.getScale());
-        Matrix4f mvpMatrix = Matrix4f.mul(projectionViewMatrix, modelMatrix, null);
-        shader.loadMvpMatrix(mvpMatrix);
+        buffer.clear();
+        for (int i = first; i < first + count; i++)
+        {
+            Entity entity = batch.get(i);
+            Maths.createTransformationMatrix(entity.getPosition(), entity.getRotX(), entity.getRotY(),
+                    entity.getRotZ(), entity.getScale(), modelMatrix);
+            modelMatrix.store(buffer);
+        }
+        buffer.flip();
+        loader.updateVbo(vboID, buffer);
     }
 
 }
@@ -12,184 +12,308 @@ import entities.Camera;
 import entities.Entity;
 import entities.Light;
 import models.TexturedModel;
+import renderEngine.Loader;
+import renderEngine.MasterRenderer;
+import renderEngine.RenderState;
 import toolbox.GameSettings;
+import toolbox.Maths;
 
 /**
  * This class is in charge of using all of the classes in the shadows package to
  * carry out the shadow render pass, i.e. rendering the scene to the shadow map
- * texture. This is the only class in the shadows package which needs to be
- * referenced from outside the shadows package.
+ * textures of every {@link ShadowCascade}. This is the only class in the shadows
+ * package which needs to be referenced from outside the shadows package.
  *
  * @author Aaron Frazer
  */
 public class ShadowMapMasterRenderer
 {
-    private ShadowFrameBuffer shadowFbo;
+    /**
+     * Maximum number of shadow cascades supported by the shaders
+     */
+    public static final int MAX_CASCADES = 4;
+
     private ShadowShader shader;
-    private ShadowBox shadowBox;
-    private Matrix4f projectionMatrix = new Matrix4f();
-    private Matrix4f lightViewMatrix = new Matrix4f();
-    private Matrix4f projectionViewMatrix = new Matrix4f();
+    private ShadowCascade[] cascades;
+    private Matrix4f lightRotation = new Matrix4f();
     private Matrix4f offset = createOffset();
 
+    /**
+     * Matrices, shadow maps, sizes and far distances of each cascade, in the layout
+     * the scene shaders expect them in
+     */
+    private Matrix4f[] toShadowMapSpaceMatrices;
+    private int[] shadowMaps;
+    private float[] cascadeSizes;
+    private float[] cascadeEnds;
+
     private ShadowMapEntityRenderer entityRenderer;
 
+    /**
+     * Static change count, number of static entities and hash of the set of static
+     * entities when the cached static shadow maps were last checked
+     */
+    private int lastStaticChangeCount = -1;
+    private int lastStaticEntityCount = -1;
+    private int lastStaticEntityHash = 0;
+
     /**
      * Creates instances of the important objects needed for rendering the scene
-     * to the shadow map. This includes the {@link ShadowBox} which calculates
-     * the position and size of the "view cuboid", the simple renderer and
-     * shader program that are used to render objects to the shadow map, and the
-     * {@link ShadowFrameBuffer} to which the scene is rendered. The size of the
-     * shadow map is determined here.
+     * to the shadow maps. This includes a {@link ShadowCascade} for each
+     * configured cascade size, which covers a slice of the camera's view frustum
+     * with its own {@link ShadowBox} and {@link ShadowFrameBuffer}, and the simple
+     * renderer and shader program that are used to render objects to the shadow maps.
+     * @param loader loader used to create the instanced model matrix VBO
      * @param camera camera being used in the scene
      */
-    public ShadowMapMasterRenderer(Camera camera)
+    public ShadowMapMasterRenderer(Loader loader, Camera camera)
     {
         shader = new ShadowShader();
-        shadowBox = new ShadowBox(lightViewMatrix, camera);
-        shadowFbo = new ShadowFrameBuffer(GameSettings.SHADOW_MAP_SIZE, GameSettings.SHADOW_MAP_SIZE);
-        entityRenderer = new ShadowMapEntityRenderer(shader, projectionViewMatrix);
+        entityRenderer = new ShadowMapEntityRenderer(shader, loader);
+
+        int cascadeCount = Math.min(GameSettings.SHADOW_CASCADE_SIZES.length, MAX_CASCADES);
+        float[] splits = calculateSplitDistances(cascadeCount, MasterRenderer.NEAR_PLANE,
+                GameSettings.SHADOW_DISTANCE, GameSettings.SHADOW_SPLIT_LAMBDA);
+        cascades = new ShadowCascade[cascadeCount];
+        toShadowMapSpaceMatrices = new Matrix4f[cascadeCount];
+        shadowMaps = new int[cascadeCount];
+        cascadeSizes = new float[cascadeCount];
+        cascadeEnds = new float[cascadeCount];
+        for (int i = 0; i < cascadeCount; i++)
+        {
+            cascades[i] = new ShadowCascade(lightRotation, camera, splits[i], splits[i + 1],
+                    GameSettings.SHADOW_CASCADE_SIZES[i]);
+            toShadowMapSpaceMatrices[i] = cascades[i].getToShadowMapSpaceMatrix();
+            shadowMaps[i] = cascades[i].getShadowMap();
+            cascadeSizes[i] = cascades[i].getResolution();
+            cascadeEnds[i] = cascades[i].getFarDistance();
+        }
     }
 
     /**
      * Carries out the shadow render pass. This renders the entities to the
-     * shadow map. First the shadow box is updated to calculate the size and
-     * position of the "view cuboid". The light direction is assumed to be
+     * shadow map of each cascade. The light direction is assumed to be
      * "-lightPosition" which will be fairly accurate assuming that the light is
-     * very far from the scene. It then prepares to render, renders the entities
-     * to the shadow map, and finishes rendering.
+     * very far from the scene. Each cascade then updates its "view cuboid" and
+     * only renders the entities that intersect it.
+     * <p>
+     * Static entities are only rendered to a cascade's cached static shadow map when
+     * the cache is out of date.  The cached depth is then copied to the cascade's
+     * shadow map and the dynamic entities are rendered on top.  If nothing changed
+     * and there are no dynamic entities in a cascade, its shadow map is left as it is.
      * @param entities lists of entities to be rendered. Each list is associated with the
      *                  {@link TexturedModel} that all of the entities in that list use
      * @param sun light acting as the sun in the scene
      */
     public void render(Map<TexturedModel, List<Entity>> entities, Light sun)
     {
-        shadowBox.update();
         Vector3f sunPosition = sun.getPosition();
         Vector3f lightDirection = new Vector3f(-sunPosition.x, -sunPosition.y, -sunPosition.z);
-        prepare(lightDirection, shadowBox);
-        entityRenderer.render(entities);
-        finish();
+        updateLightRotation(lightDirection);
+        boolean staticEntitiesChanged = haveStaticEntitiesChanged(entities);
+        for (ShadowCascade cascade : cascades)
+        {
+            cascade.update(lightRotation, offset);
+            if (staticEntitiesChanged)
+            {
+                cascade.invalidateStaticCache();
+            }
+            boolean staticRendered = false;
+            if (!cascade.isStaticCacheValid())
+            {
+                cascade.bindStaticFrameBuffer();
+                renderCasters(cascade.cullCasters(entities, lightRotation, false), cascade);
+                staticRendered = true;
+            }
+            Map<TexturedModel, List<Entity>> dynamicCasters = cascade.cullCasters(entities, lightRotation, true);
+            boolean hasDynamicCasters = cascade.getCasterCount() > 0;
+            if (staticRendered || hasDynamicCasters || cascade.hadDynamicCasters())
+            {
+                cascade.copyStaticShadowMap();
+                cascade.bindFrameBuffer();
+                RenderState.setDepthTest(true);
+                shader.start();
+                entityRenderer.render(dynamicCasters, cascade.getProjectionViewMatrix());
+                finish(cascade);
+            }
+            cascade.setHadDynamicCasters(hasDynamicCasters);
+        }
     }
 
     /**
-     * This biased projection-view matrix is used to convert fragments into
-     * "shadow map space" when rendering the main render pass. It converts a
-     * world space position into a 2D coordinate on the shadow map. This is
-     * needed for the second part of shadow mapping.
-     * @return to-shadow-map-space matrix.
+     * These biased projection-view matrices are used to convert fragments into
+     * "shadow map space" when rendering the main render pass. They convert a
+     * world space position into a 2D coordinate on each cascade's shadow map.
+     * This is needed for the second part of shadow mapping.
+     * @return to-shadow-map-space matrix of each cascade
      */
-    public Matrix4f getToShadowMapSpaceMatrix()
+    public Matrix4f[] getToShadowMapSpaceMatrices()
     {
-        return Matrix4f.mul(offset, projectionViewMatrix, null);
+        return toShadowMapSpaceMatrices;
     }
 
     /**
-     * Clean up the shader and FBO on closing.
+     * Clean up the shader and FBOs on closing.
      */
     public void cleanUp()
     {
         shader.cleanUp();
-        shadowFbo.cleanUp();
+        for (ShadowCascade cascade : cascades)
+        {
+            cascade.cleanUp();
+        }
     }
 
     /**
-     * Returns the ID of the shadow map texture.  The ID will always stay the same,
-     * even when the contents of the shadow map texture change each frame.
-     * @return ID of the shadow map texture
+     * Returns the IDs of the shadow map textures of each cascade.  The IDs will always
+     * stay the same, even when the contents of the shadow map textures change each frame.
+     * @return IDs of the shadow map textures
      */
-    public int getShadowMap()
+    public int[] getShadowMaps()
     {
-        return shadowFbo.getShadowMap();
+        return shadowMaps;
     }
 
     /**
-     * Returns the light's "view" matrix.
-     * @return view matrix of light
+     * Returns the resolution of the shadow map of each cascade.
+     * @return shadow map sizes
+     */
+    public float[] getCascadeSizes()
+    {
+        return cascadeSizes;
+    }
+
+    /**
+     * Returns the distance from the camera at which each cascade ends.
+     * @return far distances of the cascades
+     */
+    public float[] getCascadeEnds()
+    {
+        return cascadeEnds;
+    }
+
+    /**
+     * Returns the number of shadow cascades.
+     * @return number of cascades
+     */
+    public int getCascadeCount()
+    {
+        return cascades.length;
+    }
+
+    /**
+     * Returns the rotation of the light's "view" matrix.
+     * @return rotation of light
      */
     protected Matrix4f getLightSpaceTransform()
     {
-        return lightViewMatrix;
+        return lightRotation;
+    }
+
+    /**
+     * Calculates the distances at which the camera's view frustum is split into
+     * cascades, using the "practical split scheme".  This blends logarithmic splits,
+     * which give every cascade the same resolution relative to how big things look
+     * on screen, with uniform splits, which stop the closest cascade from being tiny.
+     * @param cascadeCount number of cascades
+     * @param near distance at which the first cascade starts
+     * @param far distance at which the last cascade ends
+     * @param lambda blend between logarithmic (1) and uniform (0) splits
+     * @return cascadeCount + 1 split distances, starting with near and ending with far
+     */
+    public static float[] calculateSplitDistances(int cascadeCount, float near, float far, float lambda)
+    {
+        float[] splits = new float[cascadeCount + 1];
+        splits[0] = near;
+        for (int i = 1; i < cascadeCount; i++)
+        {
+            float fraction = (float) i / cascadeCount;
+            float logarithmic = (float) (near * Math.pow(far / near, fraction));
+            float uniform = near + (far - near) * fraction;
+            splits[i] = lambda * logarithmic + (1 - lambda) * uniform;
+        }
+        splits[cascadeCount] = far;
+        return splits;
     }
 
     /**
-     * Prepare for the shadow render pass. This first updates the dimensions of
-     * the orthographic "view cuboid" based on the information that was
-     * calculated in the {@link ShadowBox} class. The light's "view" matrix is
-     * also calculated based on the light's direction and the center position of
-     * the "view cuboid" which was also calculated in the {@link ShadowBox}
-     * class. These two matrices are multiplied together to create the
-     * projection-view matrix. This matrix determines the size, position, and
-     * orientation of the "view cuboid" in the world. This method also binds the
-     * shadows FBO so that everything rendered after this gets rendered to the
-     * FBO. It also enables depth testing, and clears any data that is in the
-     * FBOs depth attachment from last frame. The simple shader program is also
-     * started.
-     * @param lightDirection direction of the light rays coming from the sun
-     * @param box shadow box, which contains all the info about the "view cuboid"
-     */
-    private void prepare(Vector3f lightDirection, ShadowBox box)
+     * Renders the static entities to a cascade's cached static shadow map, which
+     * must already be bound. Depth testing is enabled, and any data that is in the
+     * FBOs depth attachment is cleared first.
+     * @param casters static entities intersecting the cascade, batched by textured model
+     * @param cascade cascade being rendered
+     */
+    private void renderCasters(Map<TexturedModel, List<Entity>> casters, ShadowCascade cascade)
     {
-        updateOrthoProjectionMatrix(box.getWidth(), box.getHeight(), box.getLength());
-        updateLightViewMatrix(lightDirection, box.getCenter());
-        Matrix4f.mul(projectionMatrix, lightViewMatrix, projectionViewMatrix);
-        shadowFbo.bindFrameBuffer();
-        GL11.glEnable(GL11.GL_DEPTH_TEST);
+        RenderState.setDepthTest(true);
         GL11.glClear(GL11.GL_DEPTH_BUFFER_BIT);
         shader.start();
+        entityRenderer.render(casters, cascade.getProjectionViewMatrix());
+        finish(cascade);
     }
 
     /**
-     * Finishes the shadow render pass. Stops the shader and unbinds the shadow
-     * FBO, so everything rendered after this point is rendered to the screen,
-     * rather than to the shadow FBO.
+     * Checks whether a static entity has changed, or static entities have been
+     * added or removed, since the last frame.  The set of static entities is compared
+     * by a hash that doesn't depend on their order, so swapping one static entity for
+     * another is noticed even though the number of static entities stays the same.
+     * @param entities lists of entities to be rendered
+     * @return true if the cached static shadow maps are out of date
      */
-    private void finish()
+    private boolean haveStaticEntitiesChanged(Map<TexturedModel, List<Entity>> entities)
+    {
+        int staticEntityCount = 0;
+        int staticEntityHash = 0;
+        for (List<Entity> batch : entities.values())
+        {
+            for (Entity entity : batch)
+            {
+                if (!entity.isDynamic())
+                {
+                    staticEntityCount++;
+                    staticEntityHash += Maths.mixHash(System.identityHashCode(entity));
+                }
+            }
+        }
+        int staticChangeCount = Entity.getStaticChangeCount();
+        boolean changed = staticChangeCount != lastStaticChangeCount || staticEntityCount != lastStaticEntityCount
+                || staticEntityHash != lastStaticEntityHash;
+        lastStaticChangeCount = staticChangeCount;
+        lastStaticEntityCount = staticEntityCount;
+        lastStaticEntityHash = staticEntityHash;
+        return changed;
+    }
+
+    /**
+     * Finishes the shadow render pass of a cascade. Stops the shader and unbinds
+     * the shadow FBOs, so everything rendered after this point is rendered to the
+     * screen, rather than to the shadow FBO.
+     * @param cascade cascade being rendered
+     */
+    private void finish(ShadowCascade cascade)
     {
         shader.stop();
-        shadowFbo.unbindFrameBuffer();
+        cascade.unbindFrameBuffer();
     }
 
     /**
-     * Updates the "view" matrix of the light. This creates a view matrix which
-     * will line up the direction of the "view cuboid" with the direction of the
-     * light. The light itself has no position, so the "view" matrix is centered
-     * at the center of the "view cuboid". The created view matrix determines
-     * where and how the "view cuboid" is positioned in the world. The size of
-     * the view cuboid, however, is determined by the projection matrix.
+     * Updates the rotation of the light's "view" matrix. This lines up the
+     * direction of every cascade's "view cuboid" with the direction of the light.
+     * The light itself has no position, so each cascade adds its own translation
+     * to the center of its "view cuboid".
      * @param direction light direction, and therefore the direction that the
-     *                  "view cuboid" should be pointing
-     * @param center center of the "view cuboid" in world space
+     *                  "view cuboids" should be pointing
      */
-    private void updateLightViewMatrix(Vector3f direction, Vector3f center)
+    private void updateLightRotation(Vector3f direction)
     {
         direction.normalise();
-        center.negate();
-        lightViewMatrix.setIdentity();
+        lightRotation.setIdentity();
         float pitch = (float) Math.acos(new Vector2f(direction.x, direction.z).length());
-        Matrix4f.rotate(pitch, new Vector3f(1, 0, 0), lightViewMatrix, lightViewMatrix);
+        Matrix4f.rotate(pitch, new Vector3f(1, 0, 0), lightRotation, lightRotation);
         float yaw = (float) Math.toDegrees(((float) Math.atan(direction.x / direction.z)));
         yaw = direction.z > 0 ? yaw - 180 : yaw;
-        Matrix4f.rotate((float) -Math.toRadians(yaw), new Vector3f(0, 1, 0), lightViewMatrix,
-                lightViewMatrix);
-        Matrix4f.translate(center, lightViewMatrix, lightViewMatrix);
-    }
-
-    /**
-     * Creates the orthographic projection matrix. This projection matrix
-     * basically sets the width, length and height of the "view cuboid", based
-     * on the values that were calculated in the {@link ShadowBox} class.
-     * @param width shadow box width
-     * @param height shadow box height
-     * @param length shadow box length
-     */
-    private void updateOrthoProjectionMatrix(float width, float height, float length)
-    {
-        projectionMatrix.setIdentity();
-        projectionMatrix.m00 = 2f / width;
-        projectionMatrix.m11 = 2f / height;
-        projectionMatrix.m22 = -2f / length;
-        projectionMatrix.m33 = 1;
+        Matrix4f.rotate((float) -Math.toRadians(yaw), new Vector3f(0, 1, 0), lightRotation,
+                lightRotation);
     }
 
     /**
@@ -24,7 +24,7 @@ public class ShadowShader extends ShaderProgram
     /**
      * Location of uniform variables in vertex/fragment programs
      */
-    private int location_mvpMatrix;
+    private int location_projectionViewMatrix;
 
     /**
      * Creates a shadow shader program.
@@ -37,8 +37,7 @@ public class ShadowShader extends ShaderProgram
     @Override
     protected void getAllUniformLocations()
     {
-        location_mvpMatrix = super.getUniformLocation("mvpMatrix");
-
+        location_projectionViewMatrix = super.getUniformLocation("projectionViewMatrix");
     }
 
     @Override
@@ -46,14 +45,15 @@ public class ShadowShader extends ShaderProgram
     {
         super.bindAttribute(0, "in_position");
         super.bindAttribute(1, "in_textureCoords");
+        super.bindAttribute(4, "in_modelMatrix");
     }
 
     /**
-     * Loads a MVP matrix to a uniform variable (in vertex shader)
-     * @param mvpMatrix MVP matrix
+     * Loads the light's projection-view matrix to a uniform variable (in vertex shader)
+     * @param projectionViewMatrix orthographic projection matrix multiplied by the light's "view" matrix
      */
-    protected void loadMvpMatrix(Matrix4f mvpMatrix)
+    protected void loadProjectionViewMatrix(Matrix4f projectionViewMatrix)
     {
-        super.loadMatrix(location_mvpMatrix, mvpMatrix);
+        super.loadMatrix(location_projectionViewMatrix, projectionViewMatrix);
     }
 }
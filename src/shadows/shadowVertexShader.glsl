@@ -2,14 +2,15 @@
 
 in vec3 in_position;
 in vec2 in_textureCoords;
+in mat4 in_modelMatrix; // changes per instance
 
 out vec2 textureCoords;
 
-uniform mat4 mvpMatrix;
+uniform mat4 projectionViewMatrix;
 
 void main(void) {
 
-	gl_Position = mvpMatrix * vec4(in_position, 1.0);
+	gl_Position = projectionViewMatrix * in_modelMatrix * vec4(in_position, 1.0);
     textureCoords = in_textureCoords;
 
 }
\ No newline at end of file
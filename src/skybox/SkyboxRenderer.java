@@ -5,12 +5,9 @@ import entities.Camera;
 import models.RawModel;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
-import org.lwjgl.util.vector.Matrix4f;
 import org.lwjgl.util.vector.Vector3f;
-import renderEngine.DisplayManager;
 import renderEngine.Loader;
+import renderEngine.RenderState;
 import toolbox.GameSettings;
 import toolbox.VirtualClock;
 
@@ -100,9 +97,8 @@ public class SkyboxRenderer
      * Creats a skybox renderer.
      *
      * @param loader day/night dayTexture loader
-     * @param projectionMatrix projection matrix to be loaded to shader
      */
-    public SkyboxRenderer(Loader loader, Matrix4f projectionMatrix)
+    public SkyboxRenderer(Loader loader)
     {
         cube = loader.loadToVAO(VERTICES, 3);
         dayTexture = loader.loadCubeMap(TEXTURE_FILES);
@@ -110,7 +106,6 @@ public class SkyboxRenderer
         shader = new SkyboxShader();
         shader.start();
         shader.connectTextureUnits();
-        shader.loadProjectionMatrix(projectionMatrix);
         shader.stop();
     }
 
@@ -127,12 +122,11 @@ public class SkyboxRenderer
         shader.start();
         shader.loadViewMatrix(camera);
         shader.loadFogColour(r, g, b);
-        GL30.glBindVertexArray(cube.getVaoID());
-        GL20.glEnableVertexAttribArray(0);
+        RenderState.bindVertexArray(cube.getVaoID());
+        RenderState.enableVertexAttribArray(0);
         bindTextures();
         GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, cube.getVertexCount());
-        GL20.glDisableVertexAttribArray(0);
-        GL30.glBindVertexArray(0);
+        RenderState.bindVertexArray(0);
         shader.stop();
     }
 
@@ -162,13 +156,8 @@ public class SkyboxRenderer
                 texture2 = nightTexture;
                 blendFactor = 1;
 
-                // Light
-                MainGameLoop.lights.get(0).setColour(new Vector3f(GameSettings.NIGHT_LIGHT_CONST_HOURS, GameSettings.NIGHT_LIGHT_CONST_HOURS, GameSettings.NIGHT_LIGHT_CONST_HOURS));
-
-                // Fog
-                GameSettings.FOG_RED = GameSettings.NIGHT_FOG_MAX_RED;
-                GameSettings.FOG_GREEN = GameSettings.NIGHT_FOG_MAX_GREEN;
-                GameSettings.FOG_BLUE = GameSettings.NIGHT_FOG_MAX_BLUE;
+                // Light and fog
+                updateLighting(1);
 
             } else if (VirtualClock.getHours() >= nightEnd && VirtualClock.getHours() < dayStart)
             {
@@ -179,18 +168,8 @@ public class SkyboxRenderer
                 texture2 = dayTexture;
                 blendFactor = (float) ((VirtualClock.getHours()*1000) - (nightEnd*1000))/((dayStart*1000) - (nightEnd*1000));
 
-                // Light
-                float factor = (DisplayManager.FPS_CAP * (dayStart - nightEnd) * 2); // x FPS in y hours
-                float interval = (GameSettings.DAY_LIGHT_CONST_HOURS - GameSettings.NIGHT_LIGHT_CONST_HOURS) / factor;
-                MainGameLoop.lights.get(0).increaseColor(new Vector3f(interval, interval, interval));
-
-                // Fog
-                double intervalRed = (GameSettings.DAY_FOG_MAX_RED - GameSettings.NIGHT_FOG_MAX_RED) / factor;
-                double intervalGreen = (GameSettings.DAY_FOG_MAX_GREEN - GameSettings.NIGHT_FOG_MAX_GREEN) / factor;
-                double intervalBlue = (GameSettings.DAY_FOG_MAX_BLUE - GameSettings.NIGHT_FOG_MAX_BLUE) / factor;
-                GameSettings.FOG_RED += intervalRed;
-                GameSettings.FOG_GREEN += intervalGreen;
-                GameSettings.FOG_BLUE += intervalBlue;
+                // Light and fog
+                updateLighting(1 - blendFactor);
 
             } else if (VirtualClock.getHours() >= dayStart && VirtualClock.getHours() < dayEnd)
             {
@@ -201,13 +180,8 @@ public class SkyboxRenderer
                 texture2 = dayTexture;
                 blendFactor = 0;
 
-                // Light
-                MainGameLoop.lights.get(0).setColour(new Vector3f(GameSettings.DAY_LIGHT_CONST_HOURS,GameSettings.DAY_LIGHT_CONST_HOURS,GameSettings.DAY_LIGHT_CONST_HOURS));
-
-                // Fog
-                GameSettings.FOG_RED = GameSettings.DAY_FOG_MAX_RED;
-                GameSettings.FOG_GREEN = GameSettings.DAY_FOG_MAX_GREEN;
-                GameSettings.FOG_BLUE = GameSettings.DAY_FOG_MAX_BLUE;
+                // Light and fog
+                updateLighting(0);
 
             } else if (VirtualClock.getHours() >= dayEnd && VirtualClock.getHours() < 24)
             {
@@ -218,18 +192,8 @@ public class SkyboxRenderer
                 texture2 = nightTexture;
                 blendFactor = (float) ((VirtualClock.getHours()*1000) - (dayEnd*1000))/((24*1000) - (dayEnd*1000));
 
-                // Light
-                float factor = (DisplayManager.FPS_CAP * (24 - dayEnd) * 2); // x FPS in y hours
-                float interval = (GameSettings.DAY_LIGHT_CONST_HOURS - GameSettings.NIGHT_LIGHT_CONST_HOURS) / factor;
-                MainGameLoop.lights.get(0).decreaseColor(new Vector3f(interval,interval,interval));
-
-                // Fog
-                double intervalRed = (GameSettings.DAY_FOG_MAX_RED - GameSettings.NIGHT_FOG_MAX_RED) / factor;
-                double intervalGreen = (GameSettings.DAY_FOG_MAX_GREEN - GameSettings.NIGHT_FOG_MAX_GREEN) / factor;
-                double intervalBlue = (GameSettings.DAY_FOG_MAX_BLUE - GameSettings.NIGHT_FOG_MAX_BLUE) / factor;
-                GameSettings.FOG_RED -= intervalRed;
-                GameSettings.FOG_GREEN -= intervalGreen;
-                GameSettings.FOG_BLUE -= intervalBlue;
+                // Light and fog
+                updateLighting(blendFactor);
 
             } else
             {
@@ -258,11 +222,27 @@ public class SkyboxRenderer
 
 //		System.out.print("lights = " + MainGameLoop.lights.get(0).getColour() + " | " + VirtualClock.getTimeString() + "\n");
 
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, texture1);
-        GL13.glActiveTexture(GL13.GL_TEXTURE1);
-        GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, texture2);
+        RenderState.bindTexture(0, GL13.GL_TEXTURE_CUBE_MAP, texture1);
+        RenderState.bindTexture(1, GL13.GL_TEXTURE_CUBE_MAP, texture2);
         shader.loadBlendFactor(blendFactor);
     }
 
+    /**
+     * Sets the sun's colour and the fog colour for the time of day.  They are worked
+     * out from the virtual clock's hour every frame, rather than stepped a little each
+     * frame, so they always match the clock whatever the frame rate.
+     *
+     * @param night how far it is into the night (0 = day, 1 = night)
+     */
+    private static void updateLighting(float night)
+    {
+        float light = GameSettings.DAY_LIGHT_CONST_HOURS
+                + (GameSettings.NIGHT_LIGHT_CONST_HOURS - GameSettings.DAY_LIGHT_CONST_HOURS) * night;
+        MainGameLoop.lights.get(0).setColour(new Vector3f(light, light, light));
+
+        GameSettings.FOG_RED = GameSettings.DAY_FOG_MAX_RED + (GameSettings.NIGHT_FOG_MAX_RED - GameSettings.DAY_FOG_MAX_RED) * night;
+        GameSettings.FOG_GREEN = GameSettings.DAY_FOG_MAX_GREEN + (GameSettings.NIGHT_FOG_MAX_GREEN - GameSettings.DAY_FOG_MAX_GREEN) * night;
+        GameSettings.FOG_BLUE = GameSettings.DAY_FOG_MAX_BLUE + (GameSettings.NIGHT_FOG_MAX_BLUE - GameSettings.DAY_FOG_MAX_BLUE) * night;
+    }
+
 }
@@ -28,7 +28,6 @@ public class SkyboxShader extends ShaderProgram
     /**
      * Location of uniform variables in vertex/fragment programs
      */
-    private int location_projectionMatrix;
     private int location_viewMatrix;
     private int location_fogColour;
     private int location_cubeMap;
@@ -48,16 +47,6 @@ public class SkyboxShader extends ShaderProgram
         super(VERTEX_FILE, FRAGMENT_FILE);
     }
 
-    /**
-     * Loads a projection matrix to a uniform variable in vertex shader code.
-     *
-     * @param matrix projection matrix
-     */
-    public void loadProjectionMatrix(Matrix4f matrix)
-    {
-        super.loadMatrix(location_projectionMatrix, matrix);
-    }
-
     /**
      * Creates a view matrix for the skybox.  Makes sure that the skybox
      * stays in a fixed position when moving the camera.  Rotates the skybox
@@ -96,7 +85,6 @@ public class SkyboxShader extends ShaderProgram
         super.loadFloat(location_blendFactor, blend);
     }
 
-
     /**
      * Loads cube map variables to their respective uniform variables in the
      * vertex shader.
@@ -110,7 +98,6 @@ public class SkyboxShader extends ShaderProgram
     @Override
     protected void getAllUniformLocations()
     {
-        location_projectionMatrix = super.getUniformLocation("projectionMatrix");
         location_viewMatrix = super.getUniformLocation("viewMatrix");
         location_fogColour = super.getUniformLocation("fogColour");
         location_blendFactor = super.getUniformLocation("blendFactor");
@@ -3,9 +3,22 @@
 in vec3 position;
 out vec3 textureCoords;
 
-uniform mat4 projectionMatrix;
 uniform mat4 viewMatrix;
 
+// shared by every shader program, filled once a frame by MasterRenderer (must match its layout)
+layout (std140) uniform FrameData {
+	mat4 projectionMatrix;
+	mat4 toShadowMapSpace[4];
+	vec4 cascadeEnds;
+	vec4 mapSizes;
+	vec3 skyColour;
+	float density;
+	float gradient;
+	float shadowDistance;
+	float transitionDistance;
+	int cascadeCount;
+};
+
 void main(void){
 	
 	gl_Position = projectionMatrix * viewMatrix * vec4(position, 1.0); 
@@ -62,6 +62,11 @@ public class Terrain
      */
     private float[][] heights;
 
+    /**
+     * Lowest and highest height of the terrain
+     */
+    private float minHeight = Float.MAX_VALUE, maxHeight = -Float.MAX_VALUE;
+
     /**
      * Constructs a terrain from a heightmap file.
      * @param gridX x coordinate
@@ -129,6 +134,8 @@ public class Terrain
                 float height = getHeight(j, i, image);
                 vertices[vertexPointer * 3 + 1] = height;
                 heights[j][i] = height;
+                minHeight = Math.min(minHeight, height);
+                maxHeight = Math.max(maxHeight, height);
                 vertices[vertexPointer * 3 + 2] = (float) i / ((float) VERTEX_COUNT - 1) * SIZE;
                 Vector3f normal = calculateNormal(j, i, image);
                 normals[vertexPointer * 3] = normal.x;
@@ -186,6 +193,8 @@ public class Terrain
                 float height = getHGHeight(j, i, generator);
                 vertices[vertexPointer * 3 + 1] = height;
                 heights[j][i] = height;
+                minHeight = Math.min(minHeight, height);
+                maxHeight = Math.max(maxHeight, height);
                 vertices[vertexPointer * 3 + 2] = (float) i / ((float) VERTEX_COUNT - 1) * SIZE;
                 Vector3f normal = calculateNormal(j, i, generator);
                 normals[vertexPointer * 3] = normal.x;
@@ -398,6 +407,36 @@ public class Terrain
         return SIZE;
     }
 
+    /**
+     * Returns the height of each vertex of the terrain, indexed by [x][z].
+     *
+     * @return heights of terrain
+     */
+    public float[][] getHeights()
+    {
+        return heights;
+    }
+
+    /**
+     * Returns the lowest height of the terrain.
+     *
+     * @return lowest height
+     */
+    public float getMinHeight()
+    {
+        return minHeight;
+    }
+
+    /**
+     * Returns the highest height of the terrain.
+     *
+     * @return highest height
+     */
+    public float getMaxHeight()
+    {
+        return maxHeight;
+    }
+
     /**
      * Returns the x coordinate of this terrain.
      *
@@ -2,26 +2,38 @@ package toolbox;
 
 import fontMeshCreator.GUIText;
 
-import static org.lwjgl.Sys.getTime;
-
 /**
  * A class that calculates FPS in the game.
  * @author Aaron Frazer
  */
 public class FPSCounter
 {
-    private static int startTime;
+    /**
+     * Number of nanoseconds in a second
+     */
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /**
+     * Time the current frame started, in nanoseconds
+     */
+    private static long startTime;
 
-    private static int frameTimes = 0;
+    /**
+     * Total time of the frames counted so far, in nanoseconds
+     */
+    private static long frameTimes = 0;
 
-    private static short frames = 0;
+    /**
+     * Number of frames counted so far
+     */
+    private static int frames = 0;
 
     /**
      * Starts counting FPS.
      */
     public static void startCounter()
     {
-        startTime = (int) getTime();
+        startTime = System.nanoTime();
     }
 
     /**
@@ -30,13 +42,12 @@ public class FPSCounter
      */
     public static final void stopCounter(GUIText fpsText)
     {
-        int endTime = (int) getTime();
-        frameTimes = frameTimes + endTime - startTime;
+        frameTimes += System.nanoTime() - startTime;
         ++frames;
 
-        if (frameTimes >= 1000)
+        if (frameTimes >= NANOS_PER_SECOND)
         {
-            fpsText.update(Long.toString(frames));
+            fpsText.update(Integer.toString(Math.round(frames * (float) NANOS_PER_SECOND / frameTimes)));
 //            System.out.println("FPS: " + Long.toString(frames));
             frames = 0;
             frameTimes = 0;
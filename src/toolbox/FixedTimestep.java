@@ -0,0 +1,105 @@
+package toolbox;
+
+/**
+ * Static class that runs the game simulation at a fixed rate, independent of the
+ * frame rate.  The time of each frame is added to an accumulator, and the simulation
+ * is advanced in ticks of a fixed length until less than a tick is left.  The time
+ * left over is used to interpolate moving entities between their last two ticks when
+ * they are rendered.
+ *
+ * If a frame takes so long that too many ticks would be needed to catch up, the extra
+ * time is dropped, so the simulation slows down instead of spiralling further behind.
+ *
+ * @author Aaron Frazer
+ */
+public class FixedTimestep
+{
+    /**
+     * Number of simulation ticks per second
+     */
+    public static final int TICK_RATE = 60;
+
+    /**
+     * Length of a simulation tick in seconds
+     */
+    public static final float TICK_SECONDS = 1f / TICK_RATE;
+
+    /**
+     * Maximum number of ticks run in one frame
+     */
+    private static final int MAX_TICKS_PER_FRAME = 5;
+
+    /**
+     * Frame time that hasn't been simulated yet, in seconds
+     */
+    private static double accumulator = 0;
+
+    /**
+     * Number of ticks run in the last frame
+     */
+    private static int lastTicks = 0;
+
+    /**
+     * Number of ticks dropped because frames took too long, since the statistics were last reset
+     */
+    private static int droppedTicks = 0;
+
+    /**
+     * Adds the time of a frame to the accumulator and returns the number of ticks
+     * the simulation has to be advanced by.
+     * @param frameSeconds time of the frame in seconds
+     * @return number of ticks to run this frame
+     */
+    public static int advance(float frameSeconds)
+    {
+        accumulator += frameSeconds;
+        int ticks = (int) (accumulator / TICK_SECONDS);
+        if (ticks > MAX_TICKS_PER_FRAME)
+        {
+            droppedTicks += ticks - MAX_TICKS_PER_FRAME;
+            ticks = MAX_TICKS_PER_FRAME;
+            accumulator %= TICK_SECONDS;
+        } else
+        {
+            accumulator -= ticks * TICK_SECONDS;
+        }
+        lastTicks = ticks;
+        return ticks;
+    }
+
+    /**
+     * Returns how far the rendered frame is between the last tick and the next one.
+     * @return interpolation factor from 0 (last tick) to 1 (next tick)
+     */
+    public static float getAlpha()
+    {
+        return (float) Math.min(accumulator / TICK_SECONDS, 1);
+    }
+
+    /**
+     * Returns the number of ticks run in the last frame.
+     * @return number of ticks
+     */
+    public static int getLastTicks()
+    {
+        return lastTicks;
+    }
+
+    /**
+     * Returns the number of ticks that were dropped because frames took too long,
+     * since the statistics were last reset.
+     * @return number of dropped ticks
+     */
+    public static int getDroppedTicks()
+    {
+        return droppedTicks;
+    }
+
+    /**
+     * Resets the dropped tick statistics.
+     */
+    public static void resetStatistics()
+    {
+        droppedTicks = 0;
+    }
+}
@@ -0,0 +1,104 @@
+package toolbox;
+
+import java.util.Arrays;
+
+/**
+ * Percentiles of the most recent frame times recorded by the frame timer.  Each
+ * instance sorts its own copy of the frame times, so statistics can be taken from
+ * any thread without holding up the game loop.
+ *
+ * @author Aaron Frazer
+ */
+public class FrameStatistics
+{
+    /**
+     * Number of nanoseconds in a millisecond
+     */
+    private static final double NANOS_PER_MILLISECOND = 1000000.0;
+
+    /**
+     * Copy of the frame times, sorted
+     */
+    private final long[] frameTimes = new long[FrameTimer.CAPACITY];
+
+    /**
+     * Number of frame times in the copy
+     */
+    private int samples;
+
+    /**
+     * Takes a copy of the most recent frame times and sorts it.
+     */
+    public void update()
+    {
+        samples = FrameTimer.getFrameTimes(frameTimes);
+        Arrays.sort(frameTimes, 0, samples);
+    }
+
+    /**
+     * Returns a percentile of the frame times.
+     * @param percentile percentile (0 to 100)
+     * @return frame time in milliseconds, or 0 if no frame has been recorded
+     */
+    public double getPercentile(double percentile)
+    {
+        if (samples == 0)
+        {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * samples) - 1;
+        return frameTimes[Math.max(0, Math.min(index, samples - 1))] / NANOS_PER_MILLISECOND;
+    }
+
+    /**
+     * Returns the median frame time.
+     * @return frame time in milliseconds
+     */
+    public double getMedian()
+    {
+        return getPercentile(50);
+    }
+
+    /**
+     * Returns the longest frame time.
+     * @return frame time in milliseconds
+     */
+    public double getMax()
+    {
+        return samples == 0 ? 0 : frameTimes[samples - 1] / NANOS_PER_MILLISECOND;
+    }
+
+    /**
+     * Returns the average frame time.
+     * @return frame time in milliseconds
+     */
+    public double getMean()
+    {
+        long total = 0;
+        for (int i = 0; i < samples; i++)
+        {
+            total += frameTimes[i];
+        }
+        return samples == 0 ? 0 : total / (double) samples / NANOS_PER_MILLISECOND;
+    }
+
+    /**
+     * Returns the number of frame times the statistics were taken from.
+     * @return number of frames
+     */
+    public int getSamples()
+    {
+        return samples;
+    }
+
+    /**
+     * Returns the p50, p95, p99 and max frame times.
+     * @return summary of the frame times
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms over %d frames",
+                getMedian(), getPercentile(95), getPercentile(99), getMax(), samples);
+    }
+}
@@ -0,0 +1,198 @@
+package toolbox;
+
+import renderEngine.DisplayManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Static class that records the time of every frame in nanoseconds.  The most recent
+ * frame times are kept in a ring buffer that is written by the game loop and can be
+ * read from any thread without locking, so frame statistics (see FrameStatistics)
+ * and the frame time graph can be taken while the game runs.  A reader checks the
+ * frame count again after copying the frame times, and drops any that the game
+ * loop overwrote in the meantime, so a copy never mixes in older frames.
+ *
+ * Besides the frame times, the timer counts frames that went over the frame budget
+ * and stutters: frames that took much longer than the frames just before them.
+ *
+ * @author Aaron Frazer
+ */
+public class FrameTimer
+{
+    /**
+     * Number of frame times kept (a power of two)
+     */
+    public static final int CAPACITY = 512;
+
+    /**
+     * Time a frame can take at the frame rate cap, in nanoseconds
+     */
+    public static final long BUDGET_NANOS = 1000000000L / DisplayManager.FPS_CAP;
+
+    /**
+     * How much longer than the budget a frame can take before it counts as over budget,
+     * so the jitter of the frame rate cap isn't counted
+     */
+    private static final double BUDGET_TOLERANCE = 1.1;
+
+    /**
+     * How many times longer than the average of the recent frames a frame has to take
+     * to count as a stutter
+     */
+    private static final double STUTTER_RATIO = 2;
+
+    /**
+     * Weight of a new frame in the average of the recent frames
+     */
+    private static final double AVERAGE_SMOOTHING = 0.1;
+
+    /**
+     * Number of frames recorded before stutters are detected.  The average of the
+     * recent frames starts as the plain average of these frames
+     */
+    private static final int WARMUP_FRAMES = 30;
+
+    /**
+     * Ring buffer of the most recent frame times in nanoseconds
+     */
+    private static final AtomicLongArray frameTimes = new AtomicLongArray(CAPACITY);
+
+    /**
+     * Number of frames recorded.  The next frame time is written at this index (modulo
+     * the capacity), and the count is only increased once it has been written
+     */
+    private static final AtomicLong frameCount = new AtomicLong();
+
+    /**
+     * Number of frames over budget and of stutters since the statistics were last reset
+     */
+    private static final AtomicLong overBudgetFrames = new AtomicLong();
+    private static final AtomicLong stutters = new AtomicLong();
+
+    /**
+     * Longest stutter since the statistics were last reset, in nanoseconds
+     */
+    private static final AtomicLong longestStutter = new AtomicLong();
+
+    /**
+     * Average time of the recent frames in nanoseconds.  Only used by the game loop
+     */
+    private static double averageFrameTime = 0;
+
+    /**
+     * Records the time of a frame.  Called once a frame by the display manager.
+     * @param nanos time of the frame in nanoseconds
+     */
+    public static void record(long nanos)
+    {
+        long count = frameCount.get();
+        frameTimes.set((int) (count & (CAPACITY - 1)), nanos);
+        frameCount.set(count + 1);
+
+        if (nanos > BUDGET_NANOS * BUDGET_TOLERANCE)
+        {
+            overBudgetFrames.incrementAndGet();
+        }
+        if (count >= WARMUP_FRAMES && nanos > averageFrameTime * STUTTER_RATIO)
+        {
+            stutters.incrementAndGet();
+            if (nanos > longestStutter.get())
+            {
+                longestStutter.set(nanos);
+            }
+        }
+        if (count < WARMUP_FRAMES)
+        {
+            averageFrameTime += (nanos - averageFrameTime) / (count + 1);
+        } else
+        {
+            averageFrameTime += (nanos - averageFrameTime) * AVERAGE_SMOOTHING;
+        }
+    }
+
+    /**
+     * Copies the most recent frame times, oldest first, into an array.  Frame times
+     * the game loop overwrote while they were being copied are left out.
+     * @param destination array the frame times are copied to
+     * @return number of frame times copied (at most the length of the array and one
+     *         less than the capacity, since the game loop may be writing the last slot)
+     */
+    public static int getFrameTimes(long[] destination)
+    {
+        long count = frameCount.get();
+        int samples = (int) Math.min(Math.min(count, CAPACITY - 1), destination.length);
+        long first = count - samples;
+        for (int i = 0; i < samples; i++)
+        {
+            destination[i] = frameTimes.get((int) ((first + i) & (CAPACITY - 1)));
+        }
+
+        // the slot of frame n is overwritten when frame n + CAPACITY is recorded, and
+        // that frame may have been written (but not yet counted) during the copy
+        long oldestIntact = frameCount.get() - CAPACITY + 1;
+        int overwritten = (int) Math.max(0, Math.min(oldestIntact - first, samples));
+        if (overwritten > 0)
+        {
+            samples -= overwritten;
+            System.arraycopy(destination, overwritten, destination, 0, samples);
+        }
+        return samples;
+    }
+
+    /**
+     * Returns the time of the last frame.
+     * @return frame time in nanoseconds, or 0 if no frame has been recorded
+     */
+    public static long getLastFrameTime()
+    {
+        long count = frameCount.get();
+        return count == 0 ? 0 : frameTimes.get((int) ((count - 1) & (CAPACITY - 1)));
+    }
+
+    /**
+     * Returns the number of frames recorded.
+     * @return number of frames
+     */
+    public static long getFrameCount()
+    {
+        return frameCount.get();
+    }
+
+    /**
+     * Returns the number of frames that went over the budget since the statistics were last reset.
+     * @return number of frames
+     */
+    public static long getOverBudgetFrames()
+    {
+        return overBudgetFrames.get();
+    }
+
+    /**
+     * Returns the number of stutters since the statistics were last reset.
+     * @return number of stutters
+     */
+    public static long getStutters()
+    {
+        return stutters.get();
+    }
+
+    /**
+     * Returns the time of the longest stutter since the statistics were last reset.
+     * @return frame time in nanoseconds, or 0 if there was no stutter
+     */
+    public static long getLongestStutter()
+    {
+        return longestStutter.get();
+    }
+
+    /**
+     * Resets the over budget and stutter statistics.
+     */
+    public static void resetStatistics()
+    {
+        overBudgetFrames.set(0);
+        stutters.set(0);
+        longestStutter.set(0);
+    }
+}
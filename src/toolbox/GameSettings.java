@@ -45,6 +45,33 @@ public class GameSettings
      */
     public static boolean BLOOM_EFFECT = true;
 
+    /**
+     * Number of levels in the bloom mip chain (1 to 8)
+     * Note: every extra level doubles the width of the glow
+     */
+    public static int BLOOM_LEVELS = 5;
+
+    /**
+     * Sync the frame rate to the display's refresh rate
+     */
+    public static boolean VSYNC = false;
+
+    /**
+     * Cap the frame rate at DisplayManager.FPS_CAP when vsync is off
+     * Note: the simulation always runs at FixedTimestep.TICK_RATE, whatever the frame rate
+     */
+    public static boolean CAP_FRAME_RATE = true;
+
+    /**
+     * Show/hide the graph of the most recent frame times
+     */
+    public static boolean FRAME_TIME_GRAPH = false;
+
+    /**
+     * Enable/disable occlusion culling of entities and terrains hidden behind terrain
+     */
+    public static boolean OCCLUSION_CULLING = true;
+
     /**
      * Amount of mipmapping for entities.
      */
@@ -83,9 +110,9 @@ public class GameSettings
 
     /**
      * Distance from camera at which shadows are displayed
-     * Note: increasing this value will lower the resolution of shadows
+     * Note: increasing this value will lower the resolution of the furthest shadow cascades
      */
-    public static final float SHADOW_DISTANCE = 150.0f;
+    public static final float SHADOW_DISTANCE = 300.0f;
 
     /**
      * Transition period for shadows to appear
@@ -93,10 +120,17 @@ public class GameSettings
     public static final float TRANSITION_DISTANCE = 10.0f;
 
     /**
-     * Resolution of shadows
-     * Note: increasing this value will affect performance
+     * Resolution of each shadow cascade, from closest to furthest from the camera
+     * The number of entries is the number of cascades (at most 4)
+     * Note: increasing these values will affect performance
+     */
+    public static final int[] SHADOW_CASCADE_SIZES = {2048, 2048, 1024};
+
+    /**
+     * Blend between logarithmic (1) and uniform (0) shadow cascade split distances
+     * Note: higher values give more resolution to shadows close to the camera
      */
-    public static final int SHADOW_MAP_SIZE = 4096;
+    public static final float SHADOW_SPLIT_LAMBDA = 0.75f;
 
     /**
      * Contrast of the screen.
@@ -10,6 +10,14 @@ import org.lwjgl.util.vector.Vector3f;
  */
 public class Maths
 {
+    /**
+     * Axes and scale vector reused when building transformation matrices
+     */
+    private static final Vector3f X_AXIS = new Vector3f(1, 0, 0);
+    private static final Vector3f Y_AXIS = new Vector3f(0, 1, 0);
+    private static final Vector3f Z_AXIS = new Vector3f(0, 0, 1);
+    private static final Vector3f reusableScale = new Vector3f();
+
     /**
      * Creates a 4x4 transformation matrix of a 2D vector.
      * @param translation translation (2D vector)
@@ -49,6 +57,31 @@ public class Maths
         return matrix;
     }
 
+    /**
+     * Stores a 3D transformation matrix in an existing matrix, without creating any new objects.
+     * Used when a transformation matrix has to be built for many entities every frame.
+     * @param translation translation (3D vector)
+     * @param rx          rotation x
+     * @param ry          rotation y
+     * @param rz          rotation z
+     * @param scale       scale value
+     * @param dest        matrix the transformation is stored in
+     * @return dest
+     */
+    public static Matrix4f createTransformationMatrix(Vector3f translation, float rx, float ry,
+                                                      float rz, float scale, Matrix4f dest)
+    {
+        dest.setIdentity();
+        Matrix4f.translate(translation, dest, dest);
+        Matrix4f.rotate((float) Math.toRadians(rx), X_AXIS, dest, dest);
+        Matrix4f.rotate((float) Math.toRadians(ry), Y_AXIS, dest, dest);
+        Matrix4f.rotate((float) Math.toRadians(rz), Z_AXIS, dest, dest);
+        reusableScale.set(scale, scale, scale);
+        Matrix4f.scale(reusableScale, dest, dest);
+
+        return dest;
+    }
+
     /**
      * Returns the height of triangle at a player's position.
      * Takes in three 3D vectors (three points on triangle) and a 2D vector of the player's coordinates.
@@ -86,4 +119,18 @@ public class Maths
         return viewMatrix;
     }
 
+    /**
+     * Scrambles the bits of a hash code, so that summing the hash codes of a set
+     * rarely gives the same total for a different set.
+     * @param hash hash code
+     * @return scrambled hash code
+     */
+    public static int mixHash(int hash)
+    {
+        hash *= 0x9e3779b9;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        return hash ^ (hash >>> 13);
+    }
+
 }
@@ -1,6 +1,5 @@
 package toolbox;
 
-import renderEngine.DisplayManager;
 
 import java.text.DecimalFormat;
 
@@ -33,12 +32,12 @@ public class VirtualClock
     private static DecimalFormat format = new DecimalFormat("0.#");
 
     /**
-     * Increases the time in the game (continuously called in the game loop).
+     * Increases the time in the game (called every simulation tick).
      * Time resets back to 0 ms when it surpasses 24000 ms.
      */
     public static void update()
     {
-        VirtualClock.time += DisplayManager.getFrameTimeSeconds() * 1000;
+        VirtualClock.time += FixedTimestep.TICK_SECONDS * 1000;
         VirtualClock.time %= 1440000 / speedFactor; // reset the clock every 1440 seconds (24 minutes)
 
         // 60 real seconds =  1 game hour
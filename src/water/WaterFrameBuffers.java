@@ -1,6 +1,7 @@
 package water;
 
 import org.lwjgl.opengl.*;
+import renderEngine.RenderState;
 
 import java.nio.ByteBuffer;
 
@@ -23,6 +24,12 @@ public class WaterFrameBuffers
     private static final int REFRACTION_WIDTH = 1280;
     private static final int REFRACTION_HEIGHT = 720;
 
+    /**
+     * Fraction of each frame buffer's resolution its texture was last rendered at
+     */
+    private float reflectionScale = 1;
+    private float refractionScale = 1;
+
     private int reflectionFrameBuffer;
     private int reflectionTexture;
     private int reflectionDepthBuffer;
@@ -50,11 +57,11 @@ public class WaterFrameBuffers
     public void cleanUp()
     {
         GL30.glDeleteFramebuffers(reflectionFrameBuffer);
-        GL11.glDeleteTextures(reflectionTexture);
+        RenderState.deleteTexture(reflectionTexture);
         GL30.glDeleteRenderbuffers(reflectionDepthBuffer);
         GL30.glDeleteFramebuffers(refractionFrameBuffer);
-        GL11.glDeleteTextures(refractionTexture);
-        GL11.glDeleteTextures(refractionDepthTexture);
+        RenderState.deleteTexture(refractionTexture);
+        RenderState.deleteTexture(refractionDepthTexture);
     }
 
     /**
@@ -63,7 +70,18 @@ public class WaterFrameBuffers
      */
     public void bindReflectionFrameBuffer()
     {
-        bindFrameBuffer(reflectionFrameBuffer, REFLECTION_WIDTH, REFLECTION_HEIGHT);
+        bindReflectionFrameBuffer(1);
+    }
+
+    /**
+     * Binds FBO to reflection frame buffer, rendering to only part of its resolution.
+     * Called before rendering to this FBO.
+     * @param scale fraction of the resolution rendered to
+     */
+    public void bindReflectionFrameBuffer(float scale)
+    {
+        reflectionScale = scale;
+        bindFrameBuffer(reflectionFrameBuffer, (int) (REFLECTION_WIDTH * scale), (int) (REFLECTION_HEIGHT * scale));
     }
 
     /**
@@ -72,7 +90,18 @@ public class WaterFrameBuffers
      */
     public void bindRefractionFrameBuffer()
     {
-        bindFrameBuffer(refractionFrameBuffer, REFRACTION_WIDTH, REFRACTION_HEIGHT);
+        bindRefractionFrameBuffer(1);
+    }
+
+    /**
+     * Binds FBO to refraction frame buffer, rendering to only part of its resolution.
+     * Called before rendering to this FBO.
+     * @param scale fraction of the resolution rendered to
+     */
+    public void bindRefractionFrameBuffer(float scale)
+    {
+        refractionScale = scale;
+        bindFrameBuffer(refractionFrameBuffer, (int) (REFRACTION_WIDTH * scale), (int) (REFRACTION_HEIGHT * scale));
     }
 
     /**
@@ -105,6 +134,26 @@ public class WaterFrameBuffers
         return refractionTexture;
     }
 
+    /**
+     * Returns the fraction of the reflection texture's resolution that was last rendered to.
+     *
+     * @return reflection resolution scale
+     */
+    public float getReflectionScale()
+    {
+        return reflectionScale;
+    }
+
+    /**
+     * Returns the fraction of the refraction texture's resolution that was last rendered to.
+     *
+     * @return refraction resolution scale
+     */
+    public float getRefractionScale()
+    {
+        return refractionScale;
+    }
+
     /**
      * Returns this FBO's refraction depth texture.
      *
@@ -146,7 +195,7 @@ public class WaterFrameBuffers
      */
     private void bindFrameBuffer(int frameBuffer, int width, int height)
     {
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        RenderState.bindTexture(GL11.GL_TEXTURE_2D, 0);
         GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, frameBuffer);
         GL11.glViewport(0, 0, width, height);
     }
@@ -175,7 +224,7 @@ public class WaterFrameBuffers
     private int createTextureAttachment(int width, int height)
     {
         int texture = GL11.glGenTextures();
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+        RenderState.bindTexture(GL11.GL_TEXTURE_2D, texture);
         GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGB, width, height, 0, GL11.GL_RGB, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
@@ -194,7 +243,7 @@ public class WaterFrameBuffers
     private int createDepthTextureAttachment(int width, int height)
     {
         int texture = GL11.glGenTextures();
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+        RenderState.bindTexture(GL11.GL_TEXTURE_2D, texture);
         GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL14.GL_DEPTH_COMPONENT32, width, height, 0, GL11.GL_DEPTH_COMPONENT, GL11.GL_FLOAT, (ByteBuffer) null);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
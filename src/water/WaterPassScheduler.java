@@ -0,0 +1,364 @@
+package water;
+
+import entities.Camera;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+import org.lwjgl.util.vector.Vector4f;
+import renderEngine.DisplayManager;
+import toolbox.Maths;
+
+import java.util.List;
+
+/**
+ * Decides every frame which of the water reflection and refraction passes need
+ * rendering.  Both passes are skipped when no water tile is in the camera's view
+ * frustum, and a pass keeps its last texture while the camera has barely moved since
+ * it was rendered (up to {@link #MAX_REUSE_FRAMES} frames, so moving objects still
+ * show up in the water).
+ *
+ * When frames take longer than the frame rate cap allows, the scheduler lowers the
+ * cost of the passes in steps: first only one pass is rendered per frame (so each is
+ * rendered every other frame), then the passes are also rendered at half resolution.
+ *
+ * @author Aaron Frazer
+ */
+public class WaterPassScheduler
+{
+    /**
+     * Distance the camera can move before the water textures are rendered again
+     */
+    private static final float POSITION_THRESHOLD = 0.05f;
+
+    /**
+     * Angle (in degrees) the camera can turn before the water textures are rendered again
+     */
+    private static final float ANGLE_THRESHOLD = 0.2f;
+
+    /**
+     * Maximum number of frames a water texture is reused for
+     */
+    private static final int MAX_REUSE_FRAMES = 10;
+
+    /**
+     * Load levels: full rate, one pass per frame, and one pass per frame at reduced resolution
+     */
+    private static final int LOAD_FULL = 0;
+    private static final int LOAD_REDUCED_RATE = 1;
+    private static final int LOAD_REDUCED_RESOLUTION = 2;
+
+    /**
+     * Resolution of the passes at the reduced resolution load level
+     */
+    private static final float REDUCED_RESOLUTION_SCALE = 0.5f;
+
+    /**
+     * Fractions of the frame time budget above which the load level is raised, and
+     * below which it is lowered
+     */
+    private static final float OVERLOAD_RATIO = 1.2f;
+    private static final float UNDERLOAD_RATIO = 1.05f;
+
+    /**
+     * Number of frames the load level stays at before it can change again
+     */
+    private static final int LOAD_SETTLE_FRAMES = 60;
+
+    /**
+     * Weight of the last frame in the smoothed frame time
+     */
+    private static final float FRAME_TIME_SMOOTHING = 0.1f;
+
+    /**
+     * Projection matrix of the camera
+     */
+    private Matrix4f projectionMatrix;
+
+    /**
+     * State of each pass: reflection and refraction
+     */
+    private PassState reflection = new PassState();
+    private PassState refraction = new PassState();
+
+    /**
+     * True if a water tile is in the camera's view this frame
+     */
+    private boolean waterVisible = false;
+
+    /**
+     * Current load level
+     */
+    private int loadLevel = LOAD_FULL;
+
+    /**
+     * Number of frames since the load level last changed
+     */
+    private int framesAtLoadLevel = 0;
+
+    /**
+     * Smoothed frame time in seconds
+     */
+    private float smoothedFrameTime = 0;
+
+    /**
+     * Number of water passes rendered and skipped since the statistics were last reset
+     */
+    private int renderedPasses = 0;
+    private int skippedPasses = 0;
+
+    /**
+     * Corner of a water tile, transformed into clip space
+     */
+    private Vector4f corner = new Vector4f();
+
+    /**
+     * Creates a water pass scheduler.
+     * @param projectionMatrix projection matrix of the camera
+     */
+    public WaterPassScheduler(Matrix4f projectionMatrix)
+    {
+        this.projectionMatrix = projectionMatrix;
+    }
+
+    /**
+     * Decides which water passes are rendered this frame.  Called once a frame, before
+     * the passes.  The caller must render each pass that is due, at the resolution
+     * scale returned by {@link #getResolutionScale()}.
+     * @param camera camera the scene is rendered from
+     * @param waters list of water tiles
+     */
+    public void update(Camera camera, List<WaterTile> waters)
+    {
+        updateLoadLevel();
+        waterVisible = isAnyTileVisible(camera, waters);
+        float scale = getResolutionScale();
+        boolean reflectionNeeded = waterVisible && reflection.isOutOfDate(camera, scale);
+        boolean refractionNeeded = waterVisible && refraction.isOutOfDate(camera, scale);
+        if (loadLevel != LOAD_FULL && reflectionNeeded && refractionNeeded)
+        {
+            // only the pass that has waited longest is rendered this frame
+            if (reflection.age >= refraction.age)
+            {
+                refractionNeeded = false;
+            } else
+            {
+                reflectionNeeded = false;
+            }
+        }
+        reflection.schedule(reflectionNeeded, camera, scale);
+        refraction.schedule(refractionNeeded, camera, scale);
+        renderedPasses += (reflectionNeeded ? 1 : 0) + (refractionNeeded ? 1 : 0);
+        skippedPasses += (reflectionNeeded ? 0 : 1) + (refractionNeeded ? 0 : 1);
+    }
+
+    /**
+     * Returns true if the reflection pass must be rendered this frame.
+     * @return true if reflection is due
+     */
+    public boolean isReflectionDue()
+    {
+        return reflection.due;
+    }
+
+    /**
+     * Returns true if the refraction pass must be rendered this frame.
+     * @return true if refraction is due
+     */
+    public boolean isRefractionDue()
+    {
+        return refraction.due;
+    }
+
+    /**
+     * Returns true if a water tile is in the camera's view this frame.
+     * @return true if water is visible
+     */
+    public boolean isWaterVisible()
+    {
+        return waterVisible;
+    }
+
+    /**
+     * Returns the fraction of the water frame buffers' resolution the passes are rendered at.
+     * @return resolution scale
+     */
+    public float getResolutionScale()
+    {
+        return loadLevel == LOAD_REDUCED_RESOLUTION ? REDUCED_RESOLUTION_SCALE : 1;
+    }
+
+    /**
+     * Returns the current load level (0 for full rate and resolution).
+     * @return load level
+     */
+    public int getLoadLevel()
+    {
+        return loadLevel;
+    }
+
+    /**
+     * Returns the number of water passes rendered since the statistics were last reset.
+     * @return number of passes rendered
+     */
+    public int getRenderedPasses()
+    {
+        return renderedPasses;
+    }
+
+    /**
+     * Returns the number of water passes skipped since the statistics were last reset.
+     * @return number of passes skipped
+     */
+    public int getSkippedPasses()
+    {
+        return skippedPasses;
+    }
+
+    /**
+     * Resets the rendered and skipped pass counts.
+     */
+    public void resetStatistics()
+    {
+        renderedPasses = 0;
+        skippedPasses = 0;
+    }
+
+    /**
+     * Raises the load level when frames take too long, and lowers it again once they don't.
+     */
+    private void updateLoadLevel()
+    {
+        smoothedFrameTime += (DisplayManager.getFrameTimeSeconds() - smoothedFrameTime) * FRAME_TIME_SMOOTHING;
+        framesAtLoadLevel++;
+        if (framesAtLoadLevel < LOAD_SETTLE_FRAMES)
+        {
+            return;
+        }
+        float budget = 1f / DisplayManager.FPS_CAP;
+        if (smoothedFrameTime > budget * OVERLOAD_RATIO && loadLevel < LOAD_REDUCED_RESOLUTION)
+        {
+            loadLevel++;
+            framesAtLoadLevel = 0;
+        } else if (smoothedFrameTime < budget * UNDERLOAD_RATIO && loadLevel > LOAD_FULL)
+        {
+            loadLevel--;
+            framesAtLoadLevel = 0;
+        }
+    }
+
+    /**
+     * Returns true if any water tile is inside the camera's view frustum.
+     * @param camera camera
+     * @param waters list of water tiles
+     * @return true if a water tile may be visible
+     */
+    private boolean isAnyTileVisible(Camera camera, List<WaterTile> waters)
+    {
+        Matrix4f projectionViewMatrix = Matrix4f.mul(projectionMatrix, Maths.createViewMatrix(camera), null);
+        for (WaterTile tile : waters)
+        {
+            if (isTileVisible(tile, projectionViewMatrix))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests a water tile against the view frustum.  The tile is outside the frustum if
+     * all four of its corners are outside the same clipping plane.
+     * @param tile water tile
+     * @param projectionViewMatrix projection matrix times view matrix of the camera
+     * @return true if the tile may be visible
+     */
+    private boolean isTileVisible(WaterTile tile, Matrix4f projectionViewMatrix)
+    {
+        int outsideMask = 0x3f; // one bit per clipping plane, cleared when a corner is inside it
+        for (int i = 0; i < 4; i++)
+        {
+            corner.set(tile.getX() + ((i & 1) == 0 ? -1 : 1) * WaterTile.TILE_SIZE, tile.getHeight(),
+                    tile.getZ() + ((i & 2) == 0 ? -1 : 1) * WaterTile.TILE_SIZE, 1);
+            Matrix4f.transform(projectionViewMatrix, corner, corner);
+            int cornerMask = 0;
+            cornerMask |= corner.x < -corner.w ? 1 : 0;
+            cornerMask |= corner.x > corner.w ? 2 : 0;
+            cornerMask |= corner.y < -corner.w ? 4 : 0;
+            cornerMask |= corner.y > corner.w ? 8 : 0;
+            cornerMask |= corner.z < -corner.w ? 16 : 0;
+            cornerMask |= corner.z > corner.w ? 32 : 0;
+            outsideMask &= cornerMask;
+        }
+        return outsideMask == 0;
+    }
+
+    /**
+     * State of a water pass: the camera it was last rendered from, and how long ago.
+     */
+    private static class PassState
+    {
+        /**
+         * Camera position, pitch and yaw when the pass was last rendered
+         */
+        private Vector3f position = new Vector3f();
+        private float pitch;
+        private float yaw;
+
+        /**
+         * Resolution scale the pass was last rendered at
+         */
+        private float scale;
+
+        /**
+         * Number of frames since the pass was last rendered, or -1 if it never was
+         */
+        private int age = -1;
+
+        /**
+         * True if the pass is rendered this frame
+         */
+        private boolean due = false;
+
+        /**
+         * Returns true if the pass's texture no longer matches the camera.
+         * @param camera camera
+         * @param scale resolution scale the pass would be rendered at
+         * @return true if the pass needs rendering
+         */
+        private boolean isOutOfDate(Camera camera, float scale)
+        {
+            if (age < 0 || age >= MAX_REUSE_FRAMES || scale != this.scale)
+            {
+                return true;
+            }
+            Vector3f cameraPosition = camera.getPosition();
+            float dx = cameraPosition.x - position.x;
+            float dy = cameraPosition.y - position.y;
+            float dz = cameraPosition.z - position.z;
+            return dx * dx + dy * dy + dz * dz > POSITION_THRESHOLD * POSITION_THRESHOLD
+                    || Math.abs(camera.getPitch() - pitch) > ANGLE_THRESHOLD
+                    || Math.abs(camera.getYaw() - yaw) > ANGLE_THRESHOLD;
+        }
+
+        /**
+         * Records whether the pass is rendered this frame.
+         * @param due true if the pass is rendered
+         * @param camera camera the pass is rendered from
+         * @param scale resolution scale the pass is rendered at
+         */
+        private void schedule(boolean due, Camera camera, float scale)
+        {
+            this.due = due;
+            if (due)
+            {
+                position.set(camera.getPosition());
+                pitch = camera.getPitch();
+                yaw = camera.getYaw();
+                this.scale = scale;
+                age = 0;
+            } else if (age >= 0)
+            {
+                age++;
+            }
+        }
+    }
+}
@@ -1,18 +1,14 @@
 package water;
 
-import entities.Camera;
 import entities.Light;
 import models.RawModel;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 import org.lwjgl.util.vector.Matrix4f;
 import org.lwjgl.util.vector.Vector3f;
 import renderEngine.DisplayManager;
 import renderEngine.Loader;
 import renderEngine.MasterRenderer;
-import toolbox.GameSettings;
+import renderEngine.RenderState;
 import toolbox.Maths;
 
 import java.util.List;
@@ -72,10 +68,9 @@ public class WaterRenderer
      * Constructs a water renderer.
      * @param loader           loader
      * @param shader           water shader program
-     * @param projectionMatrix projection matrix
      * @param fbos             frame buffer objects
      */
-    public WaterRenderer(Loader loader, WaterShader shader, Matrix4f projectionMatrix, WaterFrameBuffers fbos)
+    public WaterRenderer(Loader loader, WaterShader shader, WaterFrameBuffers fbos)
     {
         this.shader = shader;
         this.fbos = fbos;
@@ -83,21 +78,19 @@ public class WaterRenderer
         normalMap = loader.loadGameTexture(NORMAL_MAP);
         shader.start();
         shader.connectTextureUnits();
-        shader.loadProjectionMatrix(projectionMatrix);
         shader.stop();
         setUpVAO(loader);
     }
 
     /**
-     * Renders water.
+     * Renders water.  The camera is read from the pass data filled by the master
+     * renderer for the last scene pass.
      * @param water  list of water tiles
-     * @param camera camera
      * @param sun    sun light
      */
-    public void render(List<WaterTile> water, Camera camera, Light sun, WaterShader waterShader)
+    public void render(List<WaterTile> water, Light sun)
     {
-        prepareRender(camera, sun);
-        waterShader.loadSkyColour(GameSettings.FOG_RED, GameSettings.FOG_GREEN, GameSettings.FOG_BLUE);
+        prepareRender(sun);
 
         for (WaterTile tile : water)
         {
@@ -110,15 +103,14 @@ public class WaterRenderer
     }
 
     /**
-     * Prepares water by loading the camera into the view matrix, setting the
-     * move factor of water, binding quad texture to VAO attributes, and binding
-     * reflection, refraction,and DuDv textures to their respective texture units.
-     * @param camera camera to be prepared
+     * Prepares water by setting the move factor of water, binding quad texture to
+     * VAO attributes, and binding reflection, refraction,and DuDv textures to their
+     * respective texture units.
+     * @param sun sun light
      */
-    private void prepareRender(Camera camera, Light sun)
+    private void prepareRender(Light sun)
     {
         shader.start();
-        shader.loadViewMatrix(camera);
 
         moveFactor += WAVE_SPEED * DisplayManager.getFrameTimeSeconds();
         moveFactor %= 1;
@@ -127,28 +119,21 @@ public class WaterRenderer
         shader.loadNearPlane(MasterRenderer.getNearPlane());
         shader.loadFarPlane(MasterRenderer.getFarPlane());
 
-        shader.loadDensity(GameSettings.FOG_DENSITY);
-        shader.loadGradient(GameSettings.FOG_GRADIENT);
-
         shader.loadLight(sun);
+        shader.loadTextureScales(fbos.getReflectionScale(), fbos.getRefractionScale());
 
-        GL30.glBindVertexArray(quad.getVaoID());
-        GL20.glEnableVertexAttribArray(0);
+        RenderState.bindVertexArray(quad.getVaoID());
+        RenderState.enableVertexAttribArray(0);
 
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, fbos.getReflectionTexture());
-        GL13.glActiveTexture(GL13.GL_TEXTURE1);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, fbos.getRefractionTexture());
-        GL13.glActiveTexture(GL13.GL_TEXTURE2);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, dudvTexture);
-        GL13.glActiveTexture(GL13.GL_TEXTURE3);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, normalMap);
-        GL13.glActiveTexture(GL13.GL_TEXTURE4);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, fbos.getRefractionDepthTexture());
+        RenderState.bindTexture(0, GL11.GL_TEXTURE_2D, fbos.getReflectionTexture());
+        RenderState.bindTexture(1, GL11.GL_TEXTURE_2D, fbos.getRefractionTexture());
+        RenderState.bindTexture(2, GL11.GL_TEXTURE_2D, dudvTexture);
+        RenderState.bindTexture(3, GL11.GL_TEXTURE_2D, normalMap);
+        RenderState.bindTexture(4, GL11.GL_TEXTURE_2D, fbos.getRefractionDepthTexture());
 
         // Enable alpha blending
-        GL11.glEnable(GL11.GL_BLEND);
-        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        RenderState.setBlending(true);
+        RenderState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
     }
 
     /**
@@ -156,11 +141,10 @@ public class WaterRenderer
      */
     private void unbind()
     {
-        GL20.glDisableVertexAttribArray(0);
-        GL30.glBindVertexArray(0);
+        RenderState.bindVertexArray(0);
 
         // Disable alpha blending
-        GL11.glDisable(GL11.GL_BLEND);
+        RenderState.setBlending(false);
 
         shader.stop();
     }
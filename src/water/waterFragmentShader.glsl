@@ -16,13 +16,30 @@ uniform sampler2D dudvMap;
 uniform sampler2D normalMap;
 uniform sampler2D depthMap;
 uniform vec3 lightColour;
-uniform vec3 skyColour;
+
+// shared by every shader program, filled once a frame by MasterRenderer (must match its layout)
+layout (std140) uniform FrameData {
+	mat4 projectionMatrix;
+	mat4 toShadowMapSpace[4];
+	vec4 cascadeEnds;
+	vec4 mapSizes;
+	vec3 skyColour;
+	float density;
+	float gradient;
+	float shadowDistance;
+	float transitionDistance;
+	int cascadeCount;
+};
 
 uniform float moveFactor;
 
 uniform float near;
 uniform float far;
 
+// fractions of the reflection and refraction textures that were rendered to
+uniform float reflectionScale;
+uniform float refractionScale;
+
 const float waveStrength = 0.04; // distortion factor
 const float shineDamper = 20.0;
 const float reflectivity = 0.5;
@@ -33,7 +50,7 @@ void main(void) {
 	vec2 refractTexCoords = vec2(ndc.x, ndc.y);
 	vec2 reflectTexCoords = vec2(ndc.x, -ndc.y);
 	
-	float depth = texture(depthMap, refractTexCoords).r;
+	float depth = texture(depthMap, refractTexCoords * refractionScale).r;
 	float floorDistance = 2.0 * near * far / (far + near - (2.0 * depth - 1.0) * (far - near));
 	
 	depth = gl_FragCoord.z;
@@ -51,8 +68,8 @@ void main(void) {
 	reflectTexCoords.x = clamp(reflectTexCoords.x, 0.001, 0.999);
 	reflectTexCoords.y = clamp(reflectTexCoords.y, -0.999, -0.001);
 	
-	vec4 reflectColour = texture(reflectionTexture, reflectTexCoords);
-	vec4 refractColour = texture(refractionTexture, refractTexCoords);
+	vec4 reflectColour = texture(reflectionTexture, vec2(reflectTexCoords.x, 1.0 + reflectTexCoords.y) * reflectionScale);
+	vec4 refractColour = texture(refractionTexture, refractTexCoords * refractionScale);
 	
 	vec4 normalMapColour = texture(normalMap, distortedTexCoords);
 	vec3 normal = vec3(normalMapColour.r * 2.0 - 1.0, normalMapColour.b*3.0, normalMapColour.g * 2.0 - 1.0);